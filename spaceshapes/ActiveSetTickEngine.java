@@ -0,0 +1,38 @@
+package spaceshapes;
+
+/**
+ * TickEngine that skips shapes that have come to rest. Every CarrierShape 
+ * keeps a set of active children; a Shape with zero deltas whose move leaves
+ * its state unchanged is dropped from its parent's set, and a CarrierShape 
+ * is dropped once it is at rest and has no active children left. A 
+ * CarrierShape's size never changes, so movement of an ancestor never 
+ * affects a resting Shape. Shapes are woken again when they are added to a
+ * CarrierShape or given new deltas through Shape.setDelta(). Results are 
+ * identical to those of SequentialTickEngine.
+ * 
+ * @author lchi184
+ *
+ */
+public class ActiveSetTickEngine implements TickEngine {
+
+	@Override
+	public void tick(CarrierShape root, int width, int height) {
+		root.detachFromStore();
+		if(!root._dormant && root.moveActive(width, height)) {
+			root._dormant = true;
+		}
+	}
+
+	@Override
+	public void release(CarrierShape root) {
+		// All state is already held by the Shape objects.
+	}
+	
+	/**
+	 * Returns the number of shapes that will be visited by the next tick, 
+	 * including root.
+	 */
+	public int activeCount(CarrierShape root) {
+		return root._dormant ? 0 : 1 + root.activeCount();
+	}
+}
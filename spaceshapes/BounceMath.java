@@ -0,0 +1,147 @@
+package spaceshapes;
+
+/**
+ * Closed-form arithmetic for the bounce rules of Shape.move(), applied to a
+ * single axis. Along one axis a Shape of a given size moves within a bound;
+ * when its next position would reach either wall it is clamped to the wall
+ * and its delta is reversed. Because the wall positions never change, the
+ * motion is periodic once the first wall has been hit, so the state after 
+ * any number of ticks can be computed without stepping through them.
+ * 
+ * @author lchi184
+ *
+ */
+final class BounceMath {
+	
+	/*
+	 * Hidden constructor, all methods are static.
+	 */
+	private BounceMath() {
+	}
+	
+	/**
+	 * Advances one axis by the given number of ticks.
+	 * @param state two element array holding position and delta; updated in
+	 * place.
+	 * @param size width or height of the shape.
+	 * @param bound width or height of the space the shape moves in.
+	 * @param ticks number of ticks to advance by.
+	 * @return the tick (1 .. ticks) of the last bounce, or 0 if the shape did
+	 * not bounce.
+	 */
+	static long advance(int[] state, int size, int bound, long ticks) {
+		int limit = bound - size;
+		long lastBounce = 0;
+		long done = 0;
+		
+		if(ticks <= 0) {
+			return 0;
+		}
+		
+		if(state[1] == 0) {
+			// A still shape either never moves, or is clamped onto a wall 
+			// within two ticks and then bounces in place every tick.
+			boolean bounced = false;
+			for(long i = 0; i < Math.min(ticks, 2); i++) {
+				bounced = step(state, limit);
+			}
+			return bounced ? ticks : 0;
+		}
+		
+		if(limit <= 0) {
+			// No room to move, every tick bounces. After the first tick the 
+			// state lies in a four element space and alternates direction,
+			// so it is periodic with a period dividing four after four ticks.
+			long steps = ticks <= 8 ? ticks : 4 + (ticks - 4) % 4;
+			for(long i = 0; i < steps; i++) {
+				step(state, limit);
+			}
+			return ticks;
+		}
+		
+		if(state[0] < 0 || state[0] > limit) {
+			// Out of bounds, a single tick clamps the shape back inside.
+			done = 1;
+			if(step(state, limit)) {
+				lastBounce = 1;
+			}
+		}
+		
+		long remaining = ticks - done;
+		int pos = state[0];
+		int delta = state[1];
+		int speed = Math.abs(delta);
+		
+		// Ticks until the first wall is reached.
+		long first = Math.max(1, ceilDiv(delta > 0 ? limit - pos : pos, speed));
+		if(remaining < first) {
+			state[0] = (int)(pos + remaining * delta);
+			return lastBounce;
+		}
+		remaining -= first;
+		lastBounce = done + first;
+		pos = delta > 0 ? limit : 0;
+		delta = -delta;
+		
+		// Every further crossing from one wall to the other takes as long.
+		long crossing = ceilDiv(limit, speed);
+		long crossings = remaining / crossing;
+		if(crossings > 0) {
+			lastBounce += crossings * crossing;
+			if(crossings % 2 == 1) {
+				pos = pos == 0 ? limit : 0;
+				delta = -delta;
+			}
+		}
+		state[0] = (int)(pos + (remaining % crossing) * delta);
+		state[1] = delta;
+		return lastBounce;
+	}
+	
+	/**
+	 * Returns the number of ticks until the next bounce on one axis, at 
+	 * least 1, or Long.MAX_VALUE if the shape never bounces.
+	 * @param pos position of the shape.
+	 * @param delta speed and direction of the shape.
+	 * @param size width or height of the shape.
+	 * @param bound width or height of the space the shape moves in.
+	 */
+	static long ticksToBounce(int pos, int delta, int size, int bound) {
+		int limit = bound - size;
+		if(delta == 0) {
+			return pos <= 0 || pos >= limit ? 1 : Long.MAX_VALUE;
+		}
+		if(limit <= 0 || pos < 0 || pos > limit) {
+			// Degenerate or out of bounds, let a single step sort it out.
+			return 1;
+		}
+		return Math.max(1, ceilDiv(delta > 0 ? limit - pos : pos, Math.abs(delta)));
+	}
+	
+	/*
+	 * Moves one axis by a single tick exactly as Shape.move() does, returning
+	 * true if the shape bounced.
+	 */
+	private static boolean step(int[] state, int limit) {
+		int next = state[0] + state[1];
+		if(next <= 0) {
+			state[0] = 0;
+			state[1] = -state[1];
+			return true;
+		} else if(next >= limit) {
+			state[0] = limit;
+			state[1] = -state[1];
+			return true;
+		}
+		state[0] = next;
+		return false;
+	}
+	
+	/*
+	 * Integer division rounding up, for a non-negative dividend and a 
+	 * positive divisor.
+	 */
+	private static long ceilDiv(long dividend, long divisor) {
+		return (dividend + divisor - 1) / divisor;
+	}
+}
@@ -0,0 +1,26 @@
+package spaceshapes;
+
+import java.util.List;
+
+/**
+ * Interface to represent the broad-phase of sibling collision detection. 
+ * A BroadPhase cheaply finds the pairs of shapes whose bounds may overlap,
+ * so that a CarrierShape only has to test those pairs exactly rather than
+ * every pair of its children. A BroadPhase may keep scratch state between
+ * calls, so each CarrierShape needs its own instance.
+ * 
+ * @author lchi184
+ *
+ */
+public interface BroadPhase {
+	/**
+	 * Adds to pairs every pair of shapes whose bounds may overlap, as 
+	 * indices into shapes. Each pair must be added at most once, and every
+	 * pair of overlapping shapes must be added.
+	 * @param shapes the shapes to find pairs among.
+	 * @param width width of the space the shapes move in.
+	 * @param height height of the space the shapes move in.
+	 * @param pairs the CollisionPairs to add pairs to.
+	 */
+	public void findPairs(List<Shape> shapes, int width, int height, CollisionPairs pairs);
+}
@@ -0,0 +1,23 @@
+package spaceshapes;
+
+import java.util.List;
+
+/**
+ * BroadPhase that reports every pair of shapes. Only suitable for small
+ * numbers of children; used as a reference for the other broad-phases.
+ * 
+ * @author lchi184
+ *
+ */
+public class BruteForceBroadPhase implements BroadPhase {
+
+	@Override
+	public void findPairs(List<Shape> shapes, int width, int height, CollisionPairs pairs) {
+		int count = shapes.size();
+		for(int i = 0; i < count; i++) {
+			for(int j = i + 1; j < count; j++) {
+				pairs.add(i, j);
+			}
+		}
+	}
+}
@@ -0,0 +1,229 @@
+package spaceshapes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Class to represent an operation on many shapes that is run as a 
+ * resumable job by the thread that clocks a ShapeModel. Once submitted 
+ * with ShapeModel.submit(), the operation is applied in chunks of 
+ * CHUNK_SIZE shapes at the start of ticks, for as long as the model's job
+ * budget allows, so that the thread submitting it
+ * (e.g. the Swing event dispatch thread) never waits for it and the 
+ * animation keeps running. Every tick that applies part of an operation 
+ * fires ONE ShapesChanged ShapeModelEvent, and since chunks are applied 
+ * while the model is being clocked, views that synchronize on the model 
+ * only ever see it between chunks.
+ * 
+ * Progress can be followed from any thread with completed() and total(), 
+ * and an operation can be cancelled at any time; shapes it has already 
+ * handled are left as they are.
+ * 
+ * @author lchi184
+ *
+ */
+public abstract class BulkOperation {
+	// Number of shapes handled between checks of the time budget.
+	static final int CHUNK_SIZE = 256;
+	
+	private final int _total;
+	
+	private volatile int _completed;
+	
+	private volatile int _rejected;
+	
+	private volatile boolean _cancelled;
+	
+	private volatile boolean _finished;
+	
+	/**
+	 * Creates a BulkOperation handling total shapes.
+	 */
+	BulkOperation(int total) {
+		_total = total;
+	}
+	
+	/**
+	 * Returns an operation adding every Shape in shapes to parent, in 
+	 * order. Shapes that cannot be added, e.g. because they do not fit 
+	 * within parent, are skipped and counted by rejectedCount().
+	 */
+	public static BulkOperation add(List<? extends Shape> shapes, CarrierShape parent) {
+		return new Add(new ArrayList<Shape>(shapes), parent);
+	}
+	
+	/**
+	 * Returns an operation removing every Shape in shapes from its parent. 
+	 * Shapes that have no parent when they are reached are counted by 
+	 * rejectedCount().
+	 */
+	public static BulkOperation remove(List<? extends Shape> shapes) {
+		return new Remove(new ArrayList<Shape>(shapes));
+	}
+	
+	/**
+	 * Returns the number of shapes this operation handles.
+	 */
+	public int total() {
+		return _total;
+	}
+	
+	/**
+	 * Returns the number of shapes handled so far, including rejected ones.
+	 */
+	public int completed() {
+		return _completed;
+	}
+	
+	/**
+	 * Returns the fraction of shapes handled so far, from 0 to 1.
+	 */
+	public double progress() {
+		return _total == 0 ? 1 : (double) _completed / _total;
+	}
+	
+	/**
+	 * Returns the number of shapes that could not be handled.
+	 */
+	public int rejectedCount() {
+		return _rejected;
+	}
+	
+	/**
+	 * Stops this operation before its next chunk. May be called from any 
+	 * thread.
+	 */
+	public void cancel() {
+		_cancelled = true;
+	}
+	
+	/**
+	 * Returns true if cancel() has been called.
+	 */
+	public boolean isCancelled() {
+		return _cancelled;
+	}
+	
+	/**
+	 * Returns true once every shape has been handled or the operation has 
+	 * stopped after being cancelled.
+	 */
+	public boolean isFinished() {
+		return _finished;
+	}
+	
+	/**
+	 * Applies chunks of this operation until it is finished or the deadline
+	 * (a System.nanoTime() value) has passed. At least one chunk is applied.
+	 * @return the number of shapes changed.
+	 */
+	int run(long deadline) {
+		int changed = 0;
+		int completed = _completed;
+		do {
+			if(_cancelled) {
+				break;
+			}
+			int to = Math.min(completed + CHUNK_SIZE, _total);
+			int accepted = apply(completed, to);
+			changed += accepted;
+			_rejected += to - completed - accepted;
+			completed = to;
+		} while(completed < _total && System.nanoTime() < deadline);
+		flush();
+		_completed = completed;
+		if(completed == _total || _cancelled) {
+			_finished = true;
+		}
+		return changed;
+	}
+	
+	/**
+	 * Handles the shapes with indices from to to - 1, or notes them to be 
+	 * handled by flush(), and returns the number accepted.
+	 */
+	abstract int apply(int from, int to);
+	
+	/**
+	 * Completes the work noted by apply() calls since the last flush(). 
+	 * Called at the end of every run().
+	 */
+	void flush() {
+	}
+	
+	/*
+	 * Operation adding shapes to a CarrierShape.
+	 */
+	private static class Add extends BulkOperation {
+		private List<Shape> _shapes;
+		private CarrierShape _parent;
+		
+		Add(List<Shape> shapes, CarrierShape parent) {
+			super(shapes.size());
+			_shapes = shapes;
+			_parent = parent;
+		}
+		
+		@Override
+		int apply(int from, int to) {
+			int applied = 0;
+			for(int i = from; i < to; i++) {
+				try {
+					_parent.add(_shapes.get(i));
+					applied++;
+				} catch(IllegalArgumentException e) {
+					// Counted as rejected.
+				}
+				//let the shapes be collected once they leave the model
+				_shapes.set(i, null);
+			}
+			return applied;
+		}
+	}
+	
+	/*
+	 * Operation removing shapes from their parents. Removing a Shape from 
+	 * the middle of its parent's child list costs a pass over the list, so
+	 * the shapes reached in a run are collected and removed from each 
+	 * parent in a single pass at the end of the run.
+	 */
+	private static class Remove extends BulkOperation {
+		private List<Shape> _shapes;
+		private Set<Shape> _doomed;
+		private Set<CarrierShape> _parents;
+		
+		Remove(List<Shape> shapes) {
+			super(shapes.size());
+			_shapes = shapes;
+			_doomed = Collections.newSetFromMap(new IdentityHashMap<Shape, Boolean>());
+			_parents = Collections.newSetFromMap(new IdentityHashMap<CarrierShape, Boolean>());
+		}
+		
+		@Override
+		int apply(int from, int to) {
+			int accepted = 0;
+			for(int i = from; i < to; i++) {
+				Shape shape = _shapes.get(i);
+				CarrierShape parent = shape.parent();
+				if(parent != null && _doomed.add(shape)) {
+					_parents.add(parent);
+					accepted++;
+				}
+				_shapes.set(i, null);
+			}
+			return accepted;
+		}
+		
+		@Override
+		void flush() {
+			for(CarrierShape parent : _parents) {
+				parent.removeAll(_doomed);
+			}
+			_parents.clear();
+			_doomed.clear();
+		}
+	}
+}
@@ -1,6 +1,9 @@
 package spaceshapes;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
 
 
@@ -11,8 +14,30 @@ import java.util.List;
  *
  */
 public class CarrierShape extends Shape {
+	//largest number of ticks for which stepping with move() is cheaper than
+	//advancing in closed form
+	private static final int STEP_LIMIT = 2;
+	
 	//list that stores contained shapes
-	private List<Shape> _children;
+	private ArrayList<Shape> _children;
+	//contained shapes that have not come to rest, in no particular order
+	List<Shape> _activeChildren = new ArrayList<Shape>();
+	//contained shapes bucketed by ShapeKind, for one move loop per type
+	private List<List<Shape>> _buckets = createBuckets();
+	//broad-phase used to find colliding children, null for no collisions
+	private BroadPhase _broadPhase;
+	//candidate pairs found by the last collide() call
+	private CollisionPairs _pairs;
+	//number of colliding pairs resolved by the last collide() call
+	private int _collisions;
+	//contents are stepped every _tickDivisor-th tick, 1 for every tick
+	private int _tickDivisor = 1;
+	//number of ticks the contents are behind this CarrierShape
+	private int _pendingTicks;
+	//number of ticks on which the contents were not stepped
+	private long _ticksSaved;
+	//occupancy counts of the children, kept by an OccupancyMap, or null
+	OccupancyGrid _occupancy;
 	
 	/**
 	 * Default Constructor
@@ -91,24 +116,479 @@ public class CarrierShape extends Shape {
 	public void move(int width, int height) {
 		//move itself
 		super.move(width, height);
-		//move all shapes inside container with the given width and height of CarrierShape
-		for(Shape shape: _children) {
-			shape.move(_width, _height);
+		//move all shapes inside container with the given width and height of 
+		//CarrierShape. Nested CarrierShapes are walked with an explicit stack
+		//rather than recursion, so deep nesting cannot overflow the stack
+		if(skipContents()) {
+			return;
+		}
+		Deque<CarrierShape> carriers = new ArrayDeque<CarrierShape>();
+		carriers.push(this);
+		while(!carriers.isEmpty()) {
+			CarrierShape carrier = carriers.pop();
+			for(Shape shape: carrier._children) {
+				if(shape._kind == ShapeKind.CARRIER) {
+					CarrierShape nested = (CarrierShape) shape;
+					nested.moveSelf(carrier._width, carrier._height);
+					if(!nested.skipContents()) {
+						carriers.push(nested);
+					}
+				} else {
+					shape.move(carrier._width, carrier._height);
+				}
+			}
+			if(carrier._broadPhase != null) {
+				carrier.collide();
+			}
+		}
+	}
+	
+	/**
+	 * Moves this CarrierShape and all shapes inside it forward by the given
+	 * number of ticks. A CarrierShape's size never changes, so its contents 
+	 * can be advanced independently of its own movement.
+	 * @param ticks - number of ticks to advance by.
+	 * @param width - width of two-dimensional world.
+	 * @param height - height of two-dimensional world.
+	 */
+	public void advance(long ticks, int width, int height) {
+		super.advance(ticks, width, height);
+		advanceContents(ticks);
+	}
+	
+	/*
+	 * Advances the shapes inside this CarrierShape by the given number of 
+	 * ticks, without advancing this CarrierShape itself.
+	 */
+	private void advanceContents(long ticks) {
+		Deque<CarrierShape> carriers = new ArrayDeque<CarrierShape>();
+		carriers.push(this);
+		while(!carriers.isEmpty()) {
+			CarrierShape carrier = carriers.pop();
+			if(carrier._broadPhase != null) {
+				//collisions have no closed form, step the contents instead
+				for(long i = 0; i < ticks; i++) {
+					for(Shape shape: carrier._children) {
+						shape.move(carrier._width, carrier._height);
+					}
+					carrier.collide();
+				}
+				continue;
+			}
+			for(Shape shape: carrier._children) {
+				if(shape._kind == ShapeKind.CARRIER) {
+					CarrierShape nested = (CarrierShape) shape;
+					nested.advanceSelf(ticks, carrier._width, carrier._height);
+					carriers.push(nested);
+				} else if(ticks <= STEP_LIMIT) {
+					for(long i = 0; i < ticks; i++) {
+						shape.move(carrier._width, carrier._height);
+					}
+				} else {
+					shape.advance(ticks, carrier._width, carrier._height);
+				}
+			}
+		}
+	}
+	
+	/*
+	 * Advances this CarrierShape without advancing the shapes it contains.
+	 */
+	private void advanceSelf(long ticks, int width, int height) {
+		super.advance(ticks, width, height);
+	}
+	
+	/**
+	 * Moves this CarrierShape within the specified bounds without moving the
+	 * shapes it contains. Used by TickEngines that schedule the children
+	 * themselves.
+	 */
+	void moveSelf(int width, int height) {
+		super.move(width, height);
+	}
+	
+	/**
+	 * Moves this CarrierShape and all shapes inside it, running one loop per
+	 * ShapeKind so that every move() call site sees a single receiver class.
+	 * Moves are independent of each other, so the order does not matter.
+	 */
+	void moveBatched(int width, int height) {
+		super.move(width, height);
+		if(skipContents()) {
+			return;
+		}
+		int w = _width;
+		int h = _height;
+		for(Shape shape : _buckets.get(ShapeKind.RECTANGLE)) {
+			((RectangleShape) shape).move(w, h);
+		}
+		for(Shape shape : _buckets.get(ShapeKind.OVAL)) {
+			((OvalShape) shape).move(w, h);
+		}
+		for(Shape shape : _buckets.get(ShapeKind.HEXAGON)) {
+			((HexagonShape) shape).move(w, h);
+		}
+		for(Shape shape : _buckets.get(ShapeKind.DYNAMIC)) {
+			((DynamicShape) shape).move(w, h);
+		}
+		for(Shape shape : _buckets.get(ShapeKind.IMAGE)) {
+			((ImageRectangleShape) shape).move(w, h);
+		}
+		for(Shape shape : _buckets.get(ShapeKind.CARRIER)) {
+			((CarrierShape) shape).moveBatched(w, h);
+		}
+		for(Shape shape : _buckets.get(ShapeKind.OTHER)) {
+			shape.move(w, h);
+		}
+		if(_broadPhase != null) {
+			collide();
+		}
+	}
+	
+	/**
+	 * Moves this CarrierShape and its active children, dropping children 
+	 * that have come to rest from the active children. Returns true if this
+	 * CarrierShape has come to rest and has no active children left.
+	 */
+	boolean moveActive(int width, int height) {
+		int x = _x;
+		int y = _y;
+		super.move(width, height);
+		boolean resting = isResting(x, y, 0);
+		if(skipContents()) {
+			return false;
+		}
+		
+		//moves are independent, so order does not matter and resting 
+		//children can be swapped out with the last one
+		List<Shape> active = _activeChildren;
+		int i = 0;
+		while(i < active.size()) {
+			Shape shape = active.get(i);
+			if(shape.moveActive(_width, _height)) {
+				shape._dormant = true;
+				int last = active.size() - 1;
+				active.set(i, active.get(last));
+				active.remove(last);
+			} else {
+				i++;
+			}
+		}
+		//resting children can be hit, and are woken by their new deltas
+		if(_broadPhase != null) {
+			collide();
+		}
+		return resting && active.isEmpty();
+	}
+	
+	/**
+	 * Called by every tick that moves this CarrierShape's contents, before 
+	 * they are moved. Returns true if the contents should be left where 
+	 * they are on this tick. On every tickDivisor()-th tick the contents 
+	 * are first advanced by the ticks they missed, so that moving them once
+	 * more brings them level with this CarrierShape again.
+	 */
+	boolean skipContents() {
+		if(_tickDivisor == 1) {
+			return false;
+		}
+		if(++_pendingTicks < _tickDivisor) {
+			//colliding contents are stepped tick by tick when caught up
+			if(_broadPhase == null) {
+				_ticksSaved++;
+			}
+			return true;
+		}
+		_pendingTicks = 0;
+		advanceContents(_tickDivisor - 1);
+		return false;
+	}
+	
+	/**
+	 * Returns true if this CarrierShape has zero deltas and no ticks of its
+	 * contents are pending because of its tick divisor.
+	 */
+	@Override
+	boolean isStill() {
+		return super.isStill() && _pendingTicks == 0;
+	}
+	
+	/**
+	 * Returns true if no Shape in the tree under this CarrierShape, itself 
+	 * included, would change again however often it is ticked. Colliding 
+	 * shapes only exchange deltas, so shapes with zero deltas stay put.
+	 */
+	boolean isAtRest() {
+		//carriers are walked with an explicit stack, not recursion
+		Deque<CarrierShape> carriers = new ArrayDeque<CarrierShape>();
+		carriers.push(this);
+		while(!carriers.isEmpty()) {
+			CarrierShape carrier = carriers.pop();
+			if(!carrier.isStill()) {
+				return false;
+			}
+			for(Shape shape : carrier._children) {
+				if(shape instanceof CarrierShape) {
+					carriers.push((CarrierShape) shape);
+				} else if(!shape.isStill()) {
+					return false;
+				}
+			}
 		}
+		return true;
+	}
+	
+	/**
+	 * Sets the level of detail of this CarrierShape's contents. With a 
+	 * divisor of k the shapes inside it are only stepped on every k-th 
+	 * tick, by k ticks at a time, and stay where they are in between; this
+	 * CarrierShape itself still moves every tick. After any multiple of k 
+	 * ticks the contents are exactly where moving them every tick would 
+	 * have left them. Divisors of nested CarrierShapes multiply. Any ticks
+	 * the contents are behind by are caught up before the divisor changes.
+	 * 
+	 * The divisor is honoured by the SequentialTickEngine, 
+	 * BatchedTickEngine, ActiveSetTickEngine, ParallelTickEngine and 
+	 * RegionTickEngine; the columnar engines move every shape every tick.
+	 * @param divisor tick divisor, 1 to move the contents every tick.
+	 * @throws IllegalArgumentException if divisor is less than 1.
+	 */
+	public void setTickDivisor(int divisor) {
+		if(divisor < 1) {
+			throw new IllegalArgumentException();
+		}
+		if(divisor == _tickDivisor) {
+			return;
+		}
+		if(_pendingTicks > 0) {
+			advanceContents(_pendingTicks);
+			_pendingTicks = 0;
+		}
+		_tickDivisor = divisor;
+	}
+	
+	/**
+	 * Returns the tick divisor of this CarrierShape's contents.
+	 */
+	public int tickDivisor() {
+		return _tickDivisor;
+	}
+	
+	/**
+	 * Returns the number of ticks on which this CarrierShape's contents were
+	 * not stepped because of its tick divisor.
+	 */
+	public long ticksSaved() {
+		return _ticksSaved;
+	}
+	
+	/**
+	 * Resolves collisions between the children of this CarrierShape, called
+	 * once its children have moved. Candidate pairs found by the broad-phase
+	 * are tested for overlapping bounds in index order, whichever 
+	 * broad-phase found them. Two overlapping shapes that are approaching 
+	 * each other along the axis of least overlap swap their deltas on that 
+	 * axis, as in an elastic collision of equal masses. Positions are not 
+	 * changed, so shapes stay within bounds.
+	 */
+	void collide() {
+		collide(null);
+	}
+	
+	/**
+	 * Resolves collisions as collide() does. Shapes whose deltas change are
+	 * woken, which changes the active children of their ancestors, unless 
+	 * woken is given: dormant shapes are then added to it instead, to be 
+	 * woken by the caller once no other thread is moving shapes.
+	 * @param woken collection of dormant shapes to wake, or null to wake 
+	 * them straight away.
+	 */
+	void collide(Collection<Shape> woken) {
+		CollisionPairs pairs = _pairs;
+		pairs.clear();
+		_collisions = 0;
+		List<Shape> children = _children;
+		if(children.size() < 2) {
+			return;
+		}
+		_broadPhase.findPairs(children, width(), height(), pairs);
+		pairs.sort();
+		for(int i = 0; i < pairs.size(); i++) {
+			Shape a = children.get(pairs.first(i));
+			Shape b = children.get(pairs.second(i));
+			int ax = a.x(), ay = a.y(), aw = a.width(), ah = a.height();
+			int bx = b.x(), by = b.y(), bw = b.width(), bh = b.height();
+			int overlapX = Math.min(ax + aw, bx + bw) - Math.max(ax, bx);
+			int overlapY = Math.min(ay + ah, by + bh) - Math.max(ay, by);
+			if(overlapX <= 0 || overlapY <= 0) {
+				continue;
+			}
+			_collisions++;
+			int adx = a.deltaX(), ady = a.deltaY();
+			int bdx = b.deltaX(), bdy = b.deltaY();
+			if(overlapX < overlapY) {
+				//twice the distance between centres, to avoid halving
+				long apart = (2L * bx + bw) - (2L * ax + aw);
+				if(apart * (bdx - adx) < 0) {
+					a.changeDelta(bdx, ady);
+					b.changeDelta(adx, bdy);
+					wake(a, woken);
+					wake(b, woken);
+				}
+			} else {
+				long apart = (2L * by + bh) - (2L * ay + ah);
+				if(apart * (bdy - ady) < 0) {
+					a.changeDelta(adx, bdy);
+					b.changeDelta(bdx, ady);
+					wake(a, woken);
+					wake(b, woken);
+				}
+			}
+		}
+	}
+	
+	/*
+	 * Wakes shape, or adds it to woken if given and shape is dormant.
+	 */
+	private static void wake(Shape shape, Collection<Shape> woken) {
+		if(woken == null) {
+			shape.wake();
+		} else if(shape._dormant) {
+			woken.add(shape);
+		}
+	}
+	
+	/**
+	 * Sets the broad-phase used to detect collisions between the children 
+	 * of this CarrierShape after they move, e.g. a GridBroadPhase or a 
+	 * SweepAndPruneBroadPhase. Each CarrierShape needs its own instance.
+	 * @param broadPhase the BroadPhase to use, or null for no collisions.
+	 */
+	public void setBroadPhase(BroadPhase broadPhase) {
+		//the columnar layout does not know about the broad-phase
+		detachFromStore();
+		_broadPhase = broadPhase;
+		_pairs = broadPhase == null ? null : new CollisionPairs();
+		_collisions = 0;
+	}
+	
+	/**
+	 * Returns the broad-phase used to detect collisions between children, 
+	 * or null if children do not collide.
+	 */
+	public BroadPhase broadPhase() {
+		return _broadPhase;
+	}
+	
+	/**
+	 * Returns the number of candidate pairs tested for overlap by the last
+	 * collision stage.
+	 */
+	public int collisionPairsTested() {
+		return _pairs == null ? 0 : _pairs.size();
+	}
+	
+	/**
+	 * Returns the number of overlapping pairs found by the last collision
+	 * stage.
+	 */
+	public int collisionCount() {
+		return _collisions;
+	}
+	
+	/**
+	 * Returns the number of shapes beneath this CarrierShape that are still
+	 * active.
+	 */
+	int activeCount() {
+		int count = _activeChildren.size();
+		for(Shape shape : _activeChildren) {
+			if(shape instanceof CarrierShape) {
+				count += ((CarrierShape) shape).activeCount();
+			}
+		}
+		return count;
 	}
 	
 	/**
 	 * Paints this DynamicShape object using the supplied Painter object. 
+	 * Nested CarrierShapes are painted with an explicit stack rather than 
+	 * recursion, in the same order recursive painting would use.
 	 */
 	public void doPaint(Painter painter) {
-		painter.drawRect(_x,_y,_width,_height);
-		//translates origin of painter and paints children
-		painter.translate(_x,_y);
-		for(Shape shape : _children) {
-			shape.paint(painter);
+		Deque<PaintFrame> frames = new ArrayDeque<PaintFrame>();
+		frames.push(beginPaint(painter));
+		while(!frames.isEmpty()) {
+			PaintFrame frame = frames.peek();
+			List<Shape> children = frame._carrier._children;
+			if(frame._next == children.size()) {
+				//returns painter origin to previous position 
+				frames.pop();
+				painter.translate(-frame._x,-frame._y);
+				if(frame._carrier != this) {
+					frame._carrier.paintText(painter);
+				}
+				continue;
+			}
+			
+			//paints children in order, with a separate doPaint() call site 
+			//for each ShapeKind
+			Shape shape = children.get(frame._next++);
+			switch(shape._kind) {
+			case ShapeKind.RECTANGLE:
+				((RectangleShape) shape).doPaint(painter);
+				break;
+			case ShapeKind.OVAL:
+				((OvalShape) shape).doPaint(painter);
+				break;
+			case ShapeKind.HEXAGON:
+				((HexagonShape) shape).doPaint(painter);
+				break;
+			case ShapeKind.DYNAMIC:
+				((DynamicShape) shape).doPaint(painter);
+				break;
+			case ShapeKind.IMAGE:
+				((ImageRectangleShape) shape).doPaint(painter);
+				break;
+			case ShapeKind.CARRIER:
+				//text is painted once the nested carrier's frame is done
+				frames.push(((CarrierShape) shape).beginPaint(painter));
+				continue;
+			default:
+				shape.doPaint(painter);
+			}
+			shape.paintText(painter);
+		}
+	}
+	
+	/*
+	 * Draws this CarrierShape's outline and translates the origin of painter
+	 * so that its children can be painted.
+	 */
+	private PaintFrame beginPaint(Painter painter) {
+		int x = x();
+		int y = y();
+		painter.drawRect(x,y,width(),height());
+		painter.translate(x,y);
+		return new PaintFrame(this, x, y);
+	}
+	
+	/*
+	 * State of a CarrierShape whose children are being painted.
+	 */
+	private static class PaintFrame {
+		private CarrierShape _carrier;
+		private int _x;
+		private int _y;
+		//index of the next child to paint
+		private int _next;
+		
+		PaintFrame(CarrierShape carrier, int x, int y) {
+			_carrier = carrier;
+			_x = x;
+			_y = y;
+			_next = 0;
 		}
-		//returns painter origin to previous position 
-		painter.translate(-_x,-_y);
 	}
 	
 	/**
@@ -116,11 +596,50 @@ public class CarrierShape extends Shape {
 	 * has a parent or if shape is out of bonds relative to carrier shape
 	 */
 	public void add(Shape shape) throws IllegalArgumentException{
-		if(shape.parent() != null || shape.isOutOfBounds(_width, _height)) {
+		if(shape.parent() != null || shape.isOutOfBounds(width(), height())) {
 			throw new IllegalArgumentException();
 		}
+		//the columnar layout no longer matches the tree, hand state back
+		detachFromStore();
+		adopt(shape);
+	}
+	
+	/**
+	 * Adds a Shape that is known to fit and to have no parent, without the
+	 * checks add() makes. This CarrierShape must not be held by a 
+	 * ShapeStore.
+	 */
+	void adopt(Shape shape) {
 		_children.add(shape);
 		shape.addParent(this);
+		//a new shape is active until it is seen to be at rest
+		shape._dormant = false;
+		_activeChildren.add(shape);
+		wake();
+		_buckets.get(shape._kind).add(shape);
+	}
+	
+	/**
+	 * Makes room for the given number of further children, so that adding 
+	 * them in bulk does not grow the child list repeatedly.
+	 */
+	void reserve(int count) {
+		_children.ensureCapacity(_children.size() + count);
+	}
+	
+	/**
+	 * Adds the CarrierShapes among the children of this CarrierShape to 
+	 * carriers, in no particular order, without visiting other children.
+	 */
+	void collectCarriers(List<CarrierShape> carriers) {
+		for(Shape shape : _buckets.get(ShapeKind.CARRIER)) {
+			carriers.add((CarrierShape) shape);
+		}
+		for(Shape shape : _buckets.get(ShapeKind.OTHER)) {
+			if(shape instanceof CarrierShape) {
+				carriers.add((CarrierShape) shape);
+			}
+		}
 	}
 	
 	/**
@@ -134,10 +653,41 @@ public class CarrierShape extends Shape {
 	 * removes shape given from CarrierShape
 	 */
 	public void remove(Shape containedShape) {
-		_children.remove(containedShape);
+		detachFromStore();
+		if(!containedShape._dormant) {
+			_activeChildren.remove(containedShape);
+		}
+		if(_children.remove(containedShape)) {
+			_buckets.get(containedShape._kind).remove(containedShape);
+		}
 		containedShape.removeParent();
 	}
 	
+	/**
+	 * Removes every child of this CarrierShape that is in shapes, in one 
+	 * pass over the children, and returns the number removed.
+	 */
+	int removeAll(Collection<Shape> shapes) {
+		detachFromStore();
+		int removed = 0;
+		for(Shape shape : shapes) {
+			if(shape._parent == this) {
+				shape.removeParent();
+				removed++;
+			}
+		}
+		if(removed == 0) {
+			return 0;
+		}
+		//children that lost their parent above are dropped
+		retainChildren(_children);
+		retainChildren(_activeChildren);
+		for(List<Shape> bucket : _buckets) {
+			retainChildren(bucket);
+		}
+		return removed;
+	}
+	
 	/**
 	 * returns shape at given index
 	 */
@@ -159,4 +709,50 @@ public class CarrierShape extends Shape {
 		return _children.indexOf(shape); 
 	}
 	
+	/**
+	 * Empties this CarrierShape as well as resetting it, keeping the 
+	 * capacity of its lists. Children must already have been detached.
+	 */
+	@Override
+	void reset(int x, int y, int deltaX, int deltaY, int width, int height) {
+		super.reset(x, y, deltaX, deltaY, width, height);
+		_children.clear();
+		_activeChildren.clear();
+		for(List<Shape> bucket : _buckets) {
+			bucket.clear();
+		}
+		setBroadPhase(null);
+		_tickDivisor = 1;
+		_pendingTicks = 0;
+		_ticksSaved = 0;
+		_occupancy = null;
+	}
+	
+	/*
+	 * Removes the elements of list that are no longer children of this 
+	 * CarrierShape, keeping the order of the others.
+	 */
+	private void retainChildren(List<Shape> list) {
+		int kept = 0;
+		int size = list.size();
+		for(int i = 0; i < size; i++) {
+			Shape shape = list.get(i);
+			if(shape._parent == this) {
+				list.set(kept++, shape);
+			}
+		}
+		list.subList(kept, size).clear();
+	}
+	
+	/*
+	 * Creates an empty bucket for each ShapeKind.
+	 */
+	private static List<List<Shape>> createBuckets() {
+		List<List<Shape>> buckets = new ArrayList<List<Shape>>(ShapeKind.COUNT);
+		for(int i = 0; i < ShapeKind.COUNT; i++) {
+			buckets.add(new ArrayList<Shape>());
+		}
+		return buckets;
+	}
+	
 }
\ No newline at end of file
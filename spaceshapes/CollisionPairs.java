@@ -0,0 +1,72 @@
+package spaceshapes;
+
+import java.util.Arrays;
+
+/**
+ * Class to represent a reusable list of candidate collision pairs, each 
+ * pair being two indices into a CarrierShape's children. Pairs are kept 
+ * with the lower index first and can be sorted, so that collisions are 
+ * resolved in the same order whichever BroadPhase found them.
+ * 
+ * @author lchi184
+ *
+ */
+public class CollisionPairs {
+	//pairs packed as (first << 32) | second, first < second
+	private long[] _pairs;
+	
+	private int _size;
+	
+	/**
+	 * Creates an empty CollisionPairs.
+	 */
+	public CollisionPairs() {
+		_pairs = new long[64];
+		_size = 0;
+	}
+	
+	/**
+	 * Adds the pair of two different indices, in either order.
+	 */
+	public void add(int a, int b) {
+		if(_size == _pairs.length) {
+			_pairs = Arrays.copyOf(_pairs, _size * 2);
+		}
+		_pairs[_size++] = a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+	}
+	
+	/**
+	 * Returns the lower index of pair i.
+	 */
+	public int first(int i) {
+		return (int) (_pairs[i] >>> 32);
+	}
+	
+	/**
+	 * Returns the higher index of pair i.
+	 */
+	public int second(int i) {
+		return (int) _pairs[i];
+	}
+	
+	/**
+	 * Returns the number of pairs.
+	 */
+	public int size() {
+		return _size;
+	}
+	
+	/**
+	 * Removes all pairs, keeping the capacity.
+	 */
+	public void clear() {
+		_size = 0;
+	}
+	
+	/**
+	 * Sorts the pairs by their first and then their second index.
+	 */
+	public void sort() {
+		Arrays.sort(_pairs, 0, _size);
+	}
+}
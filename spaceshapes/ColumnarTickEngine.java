@@ -0,0 +1,62 @@
+package spaceshapes;
+
+/**
+ * TickEngine that runs a ShapeModel in a columnar ShapeStore. The store is
+ * built lazily on the first tick and rebuilt whenever it has been released,
+ * e.g. because a Shape was added to or removed from a CarrierShape. By 
+ * default each carrier level is moved in one loop; alternatively a 
+ * MoveKernel can be supplied to move the children of each carrier.
+ * 
+ * @author lchi184
+ *
+ */
+public class ColumnarTickEngine implements TickEngine {
+	//store currently holding the shapes, null until the first tick
+	private ShapeStore _store;
+	
+	//kernel moving the children of each carrier, null to move by level
+	private MoveKernel _kernel;
+	
+	/**
+	 * Creates a ColumnarTickEngine that moves each carrier level in one loop.
+	 */
+	public ColumnarTickEngine() {
+		_kernel = null;
+	}
+	
+	/**
+	 * Creates a ColumnarTickEngine that moves the children of each carrier 
+	 * with the given kernel, e.g. MoveKernel.best().
+	 */
+	public ColumnarTickEngine(MoveKernel kernel) {
+		_kernel = kernel;
+	}
+
+	@Override
+	public void tick(CarrierShape root, int width, int height) {
+		if(_store == null || _store.isReleased()) {
+			_store = new ShapeStore(root);
+		}
+		if(_kernel == null) {
+			_store.move(width, height);
+		} else {
+			_store.move(width, height, _kernel);
+		}
+	}
+
+	@Override
+	public void release(CarrierShape root) {
+		if(_store != null) {
+			_store.release();
+			_store = null;
+		}
+	}
+	
+	/**
+	 * Returns the store currently holding the shapes, or null if the shapes 
+	 * hold their own state.
+	 */
+	public ShapeStore store() {
+		return _store;
+	}
+}
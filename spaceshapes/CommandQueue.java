@@ -0,0 +1,78 @@
+package spaceshapes;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free queue passing values from any number of producer threads to a 
+ * single consumer thread. Producers push onto a linked stack with a single
+ * compare-and-set; the consumer takes the whole stack with one atomic swap
+ * and reverses it, so a drain costs one atomic operation however many 
+ * values are waiting, and values are drained in the order they were 
+ * posted by each producer.
+ * 
+ * @author lchi184
+ *
+ */
+public class CommandQueue<T> {
+	// Most recently posted value, linked to those posted before it.
+	private final AtomicReference<Node<T>> _head;
+	
+	/**
+	 * Creates an empty CommandQueue.
+	 */
+	public CommandQueue() {
+		_head = new AtomicReference<Node<T>>();
+	}
+	
+	/**
+	 * Posts a value. May be called from any thread.
+	 * @return true if the queue was empty, i.e. the consumer may need to be
+	 * woken up.
+	 */
+	public boolean post(T value) {
+		Node<T> node = new Node<T>(value);
+		Node<T> head;
+		do {
+			head = _head.get();
+			node._next = head;
+		} while(!_head.compareAndSet(head, node));
+		return head == null;
+	}
+	
+	/**
+	 * Returns true if no values are waiting. 
+	 */
+	public boolean isEmpty() {
+		return _head.get() == null;
+	}
+	
+	/**
+	 * Removes every waiting value and appends them to batch, oldest first.
+	 * Must only be called by the consumer thread.
+	 * @return the number of values drained.
+	 */
+	public int drain(List<T> batch) {
+		Node<T> node = _head.getAndSet(null);
+		int start = batch.size();
+		while(node != null) {
+			batch.add(node._value);
+			node = node._next;
+		}
+		Collections.reverse(batch.subList(start, batch.size()));
+		return batch.size() - start;
+	}
+	
+	/*
+	 * Entry of the linked stack.
+	 */
+	private static class Node<T> {
+		private final T _value;
+		private Node<T> _next;
+		
+		Node(T value) {
+			_value = value;
+		}
+	}
+}
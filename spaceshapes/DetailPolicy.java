@@ -0,0 +1,21 @@
+package spaceshapes;
+
+/**
+ * Interface to represent a level-of-detail policy, choosing how often the 
+ * contents of each CarrierShape in a ShapeModel are stepped. A ShapeModel
+ * with a DetailPolicy asks it for the tick divisor of every CarrierShape on
+ * each clock() call.
+ * 
+ * @author lchi184
+ *
+ */
+public interface DetailPolicy {
+	/**
+	 * Returns the tick divisor for the contents of carrier, at least 1.
+	 * @param carrier the CarrierShape.
+	 * @param x x position of carrier relative to the root.
+	 * @param y y position of carrier relative to the root.
+	 * @see CarrierShape#setTickDivisor(int)
+	 */
+	public int tickDivisor(CarrierShape carrier, int x, int y);
+}
@@ -15,6 +15,8 @@ public class DynamicShape extends Shape {
 	private boolean _lastBounceHorizontal;
 	//color object that dictates color of shape
 	private Color _color;
+	//color given to a DynamicShape reused from a ShapePool
+	private static final Color DEFAULT_COLOR = new Color(212, 212, 212);
 	
 	/**
 	 * Default Constructor
@@ -124,6 +126,8 @@ public class DynamicShape extends Shape {
 	 * @param height - height of two-dimensional world.
 	 */
 	public void move(int width, int height) {
+		detachFromStore();
+		
 		int nextX = _x + _deltaX;
 		int nextY = _y + _deltaY;
 
@@ -151,22 +155,68 @@ public class DynamicShape extends Shape {
 		_y = nextY;
 	}
 	
+	@Override
+	/**
+	 * Records which bounce came last when advancing by many ticks at once. 
+	 * As in move(), a vertical bounce wins when both happen in the same tick.
+	 */
+	protected void advanced(long lastHorizontalBounce, long lastVerticalBounce) {
+		if(lastHorizontalBounce > 0 || lastVerticalBounce > 0) {
+			_lastBounceHorizontal = lastHorizontalBounce > lastVerticalBounce;
+		}
+	}
+	
 	/**
 	 * Paints this DynamicShape object using the supplied Painter object. 
 	 */
 	public void doPaint(Painter painter) {
-		if(_lastBounceHorizontal) {
+		if(lastBounceHorizontal()) {
 			//if last bounce was horizontal use fillRect
 			Color ogColor = painter.getColor();
 			//change to color specified
 			painter.setColor(_color);
-			painter.fillRect(_x, _y, _width, _height);
+			painter.fillRect(x(), y(), width(), height());
 			//change back to original color
 			painter.setColor(ogColor);
 		}else{
 			//else use drawRect
-			painter.drawRect(_x,_y,_width,_height);
+			painter.drawRect(x(),y(),width(),height());
 		}
 	}
 	
+	/**
+	 * Returns true if the most recent bounce was off the left or right side.
+	 */
+	public boolean lastBounceHorizontal() {
+		if(_store != null) {
+			return (_store._flags[_slot] & ShapeStore.LAST_BOUNCE_HORIZONTAL) != 0;
+		}
+		return _lastBounceHorizontal;
+	}
+	
+	/**
+	 * Returns the colour this DynamicShape is filled with after a horizontal
+	 * bounce.
+	 */
+	Color color() {
+		return _color;
+	}
+	
+	@Override
+	void reset(int x, int y, int deltaX, int deltaY, int width, int height) {
+		super.reset(x, y, deltaX, deltaY, width, height);
+		_lastBounceHorizontal = false;
+		_color = DEFAULT_COLOR;
+	}
+	
+	@Override
+	int storeFlags() {
+		return ShapeStore.DYNAMIC | (_lastBounceHorizontal ? ShapeStore.LAST_BOUNCE_HORIZONTAL : 0);
+	}
+	
+	@Override
+	void restoreFlags(int flags) {
+		_lastBounceHorizontal = (flags & ShapeStore.LAST_BOUNCE_HORIZONTAL) != 0;
+	}
+	
 }
\ No newline at end of file
@@ -38,6 +38,16 @@ public class GraphicsPainter implements Painter {
 		_g.fillRect(x, y, width, height);
 	}
 
+	/**
+	 * @see spaceshapes.Painter.fillRects
+	 */
+	public void fillRects(int[] xs, int[] ys, int count, int width, int height) {
+		Graphics g = _g;
+		for(int i = 0; i < count; i++) {
+			g.fillRect(xs[i], ys[i], width, height);
+		}
+	}
+
 	/**
 	 * @see spaceshapes.Painter.drawOval
 	 */
@@ -0,0 +1,130 @@
+package spaceshapes;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * BroadPhase that buckets shapes into a uniform grid of square cells and
+ * reports the pairs of shapes that share a cell. A pair sharing several 
+ * cells is only reported by the cell holding the top left corner of the 
+ * region where their bounds overlap. Suits scenes of similarly sized 
+ * shapes spread over the whole carrier; the cell size should be around 
+ * the size of a typical shape.
+ * 
+ * @author lchi184
+ *
+ */
+public class GridBroadPhase implements BroadPhase {
+	private final int _cellSize;
+	
+	//first entry of each cell in _entries, plus one past the last entry
+	private int[] _cellStart = new int[0];
+	
+	//indices of the shapes in each cell, cell by cell
+	private int[] _entries = new int[0];
+	
+	//next free entry of each cell while filling _entries
+	private int[] _fill = new int[0];
+	
+	//cell range covered by each shape, by index
+	private int[] _left = new int[0];
+	
+	private int[] _top = new int[0];
+	
+	private int[] _right = new int[0];
+	
+	private int[] _bottom = new int[0];
+	
+	/**
+	 * Creates a GridBroadPhase.
+	 * @param cellSize width and height of a cell in pixels.
+	 */
+	public GridBroadPhase(int cellSize) {
+		if(cellSize < 1) {
+			throw new IllegalArgumentException();
+		}
+		_cellSize = cellSize;
+	}
+
+	@Override
+	public void findPairs(List<Shape> shapes, int width, int height, CollisionPairs pairs) {
+		int count = shapes.size();
+		int columns = Math.max(1, (width + _cellSize - 1) / _cellSize);
+		int rows = Math.max(1, (height + _cellSize - 1) / _cellSize);
+		int cells = columns * rows;
+		if(_left.length < count) {
+			_left = new int[count];
+			_top = new int[count];
+			_right = new int[count];
+			_bottom = new int[count];
+		}
+		if(_cellStart.length < cells + 1) {
+			_cellStart = new int[cells + 1];
+		}
+		int[] left = _left, top = _top, right = _right, bottom = _bottom;
+		int[] cellStart = _cellStart;
+		
+		//count the entries of each cell, shifted by one for the prefix sum
+		Arrays.fill(cellStart, 0, cells + 1, 0);
+		int total = 0;
+		for(int i = 0; i < count; i++) {
+			Shape shape = shapes.get(i);
+			int x = shape.x();
+			int y = shape.y();
+			left[i] = cell(x, columns);
+			top[i] = cell(y, rows);
+			right[i] = cell(x + Math.max(shape.width(), 1) - 1, columns);
+			bottom[i] = cell(y + Math.max(shape.height(), 1) - 1, rows);
+			for(int row = top[i]; row <= bottom[i]; row++) {
+				for(int column = left[i]; column <= right[i]; column++) {
+					cellStart[row * columns + column + 1]++;
+				}
+			}
+			total += (right[i] - left[i] + 1) * (bottom[i] - top[i] + 1);
+		}
+		for(int c = 0; c < cells; c++) {
+			cellStart[c + 1] += cellStart[c];
+		}
+		
+		if(_entries.length < total) {
+			_entries = new int[total];
+		}
+		if(_fill.length < cells) {
+			_fill = new int[cells];
+		}
+		int[] entries = _entries;
+		int[] fill = _fill;
+		System.arraycopy(cellStart, 0, fill, 0, cells);
+		for(int i = 0; i < count; i++) {
+			for(int row = top[i]; row <= bottom[i]; row++) {
+				for(int column = left[i]; column <= right[i]; column++) {
+					entries[fill[row * columns + column]++] = i;
+				}
+			}
+		}
+		
+		for(int row = 0; row < rows; row++) {
+			for(int column = 0; column < columns; column++) {
+				int c = row * columns + column;
+				int end = cellStart[c + 1];
+				for(int p = cellStart[c]; p < end; p++) {
+					int a = entries[p];
+					for(int q = p + 1; q < end; q++) {
+						int b = entries[q];
+						//only the cell of the overlap's top left corner reports
+						if(Math.max(left[a], left[b]) == column && Math.max(top[a], top[b]) == row) {
+							pairs.add(a, b);
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	/*
+	 * Returns the cell column or row holding the given coordinate.
+	 */
+	private int cell(int coordinate, int cells) {
+		return Math.min(Math.max(coordinate / _cellSize, 0), cells - 1);
+	}
+}
@@ -63,7 +63,7 @@ public class HexagonShape extends Shape {
 	 * Paints this HexagonShape object using the supplied Painter object. 
 	 */
 	public void doPaint(Painter painter) {
-		painter.drawHexagon(_x,_y,_width,_height);
+		painter.drawHexagon(x(),y(),width(),height());
 	}
 	
 }
\ No newline at end of file
@@ -21,7 +21,7 @@ public class ImageRectangleShape extends RectangleShape {
 	
 	@Override
 	protected void doPaint(Painter painter) {
-		painter.drawImage(_picture,_x,_y,_width,_height);
+		painter.drawImage(_picture,x(),y(),width(),height());
 	}
 }
 
@@ -0,0 +1,137 @@
+package spaceshapes;
+
+/**
+ * Event-driven TickEngine. Between bounces a Shape simply adds its deltas to
+ * its position every tick, so this engine holds the composition in a 
+ * ShapeStore whose positions are evaluated lazily, and keeps the tick of 
+ * every shape's next wall contact in a priority queue. A tick only does work
+ * for the shapes whose bounce is due, so its cost depends on the number of 
+ * bounces rather than on the number of shapes. Results are identical to 
+ * those of SequentialTickEngine.
+ * 
+ * @author lchi184
+ *
+ */
+public class KineticTickEngine implements TickEngine {
+	// Store holding the shapes, null until the first tick.
+	private ShapeStore _store;
+	
+	// === Binary min-heap of slots ordered by the tick of their next bounce.
+	private int[] _heap;
+	
+	// Tick of the next bounce of each slot, Long.MAX_VALUE for never.
+	private long[] _due;
+	// ===
+	
+	// Number of bounce events processed so far.
+	private long _eventCount;
+
+	@Override
+	public void tick(CarrierShape root, int width, int height) {
+		if(_store == null || _store.isReleased()) {
+			build(root, width, height);
+		}
+		ShapeStore store = _store;
+		store._now++;
+		//off-heap records and particles are not scheduled, they move every tick
+		store.moveContents();
+		
+		while(_due[_heap[0]] <= store._now) {
+			int slot = _heap[0];
+			
+			// Bring the slot up to the previous tick and perform the due
+			// tick as a regular move.
+			store._now--;
+			store.materialize(slot);
+			store._now++;
+			store.moveRange(slot, slot + 1, width, height);
+			store._baseTick[slot] = store._now;
+			_eventCount++;
+			
+			_due[slot] = store._now + ticksToBounce(slot, width, height);
+			siftDown(0);
+		}
+		//a collision changes deltas, releasing the store to be rebuilt
+		store.collide();
+	}
+
+	@Override
+	public void release(CarrierShape root) {
+		if(_store != null) {
+			_store.release();
+			_store = null;
+		}
+	}
+	
+	/**
+	 * Returns the number of bounce events processed so far.
+	 */
+	public long eventCount() {
+		return _eventCount;
+	}
+	
+	/**
+	 * Returns the store currently holding the shapes, or null if the shapes 
+	 * hold their own state.
+	 */
+	public ShapeStore store() {
+		return _store;
+	}
+	
+	/*
+	 * Builds a new store for root and queues every slot.
+	 */
+	private void build(CarrierShape root, int width, int height) {
+		_store = new ShapeStore(root);
+		int size = _store.size();
+		_heap = new int[size];
+		_due = new long[size];
+		for(int i = 0; i < size; i++) {
+			_heap[i] = i;
+			_due[i] = ticksToBounce(i, width, height);
+		}
+		for(int i = size / 2 - 1; i >= 0; i--) {
+			siftDown(i);
+		}
+	}
+	
+	/*
+	 * Returns the number of ticks from the current tick until slot next 
+	 * bounces, or a value past any reachable tick if it never does.
+	 */
+	private long ticksToBounce(int slot, int width, int height) {
+		ShapeStore store = _store;
+		int parent = store._parent[slot];
+		int boundsWidth = parent < 0 ? width : store._width[parent];
+		int boundsHeight = parent < 0 ? height : store._height[parent];
+		long ticks = Math.min(
+				BounceMath.ticksToBounce(store.x(slot), store._deltaX[slot], store._width[slot], boundsWidth),
+				BounceMath.ticksToBounce(store.y(slot), store._deltaY[slot], store._height[slot], boundsHeight));
+		return ticks == Long.MAX_VALUE ? Long.MAX_VALUE - store._now : ticks;
+	}
+	
+	/*
+	 * Restores the heap order below position i.
+	 */
+	private void siftDown(int i) {
+		int[] heap = _heap;
+		int size = heap.length;
+		int slot = heap[i];
+		long due = _due[slot];
+		while(true) {
+			int child = 2 * i + 1;
+			if(child >= size) {
+				break;
+			}
+			if(child + 1 < size && _due[heap[child + 1]] < _due[heap[child]]) {
+				child++;
+			}
+			if(_due[heap[child]] >= due) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = slot;
+	}
+}
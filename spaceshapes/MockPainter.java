@@ -38,6 +38,17 @@ public class MockPainter implements Painter {
 		_log.append("(fillRect " + x + "," + y + "," + width + "," + height + ")");
 	}
 	
+	/**
+	 * Logs each rectangle of the fillRects call.
+	 */
+	public void fillRects(int[] xs, int[] ys, int count, int width, int height) {
+		_log.append("(fillRects");
+		for(int i = 0; i < count; i++) {
+			_log.append(" " + xs[i] + "," + ys[i]);
+		}
+		_log.append(" " + width + "," + height + ")");
+	}
+	
 	/**
 	 * Logs the drawOval call.
 	 */
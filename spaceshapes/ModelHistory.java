@@ -0,0 +1,118 @@
+package spaceshapes;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Record of the most recent versions of a ShapeModel's shape composition. 
+ * Registered as a ShapeModelListener, a ModelHistory records a ShapeVersion
+ * of the root CarrierShape for every event the ShapeModel fires, i.e. once
+ * per tick and once per edit or batch of edits. Each version is captured 
+ * from the previous one, so it shares every node of the tree that has not 
+ * changed and costs memory only for changed shapes and their ancestors; 
+ * capturing still walks the whole tree to find them.
+ * 
+ * Versions are numbered from 0 in the order recorded, and only the latest
+ * capacity() are kept. Since versions are immutable, they may be looked up
+ * and read from any thread without locking, e.g. by a VersionTreeModel; 
+ * recording must be done by the thread that changes the ShapeModel, which 
+ * is the thread that fires its events. A ShapeModel is rolled back to a 
+ * version with ShapeModel.restore().
+ * 
+ * Recording once per event means recording once per shape for a run of 
+ * ShapeModel.add() calls; shapes added in bulk should be added with 
+ * stamp(), posted commands or a BulkOperation, which fire one event per 
+ * batch.
+ * 
+ * @author lchi184
+ *
+ */
+public class ModelHistory implements ShapeModelListener {
+	// One slot more than the capacity, so that the slot record() writes 
+	// never holds a version that is still kept.
+	private final AtomicReferenceArray<ShapeVersion> _versions;
+	
+	private final int _capacity;
+	
+	// Number of versions recorded; written after the version itself.
+	private volatile long _recorded;
+	
+	/**
+	 * Creates a ModelHistory keeping the given number of versions.
+	 * @throws IllegalArgumentException if capacity is less than 1.
+	 */
+	public ModelHistory(int capacity) throws IllegalArgumentException {
+		if(capacity < 1) {
+			throw new IllegalArgumentException();
+		}
+		_capacity = capacity;
+		_versions = new AtomicReferenceArray<ShapeVersion>(capacity + 1);
+	}
+	
+	/**
+	 * Records a version of the ShapeModel that fired event.
+	 */
+	@Override
+	public void update(ShapeModelEvent event) {
+		record(event.source().root());
+	}
+	
+	/**
+	 * Records a version of the tree under root, sharing unchanged nodes 
+	 * with the latest version, and returns it. The oldest version is 
+	 * dropped if capacity() versions are kept already. Must be called by 
+	 * the thread that changes the tree.
+	 */
+	public ShapeVersion record(CarrierShape root) {
+		long number = _recorded;
+		ShapeVersion version = ShapeVersion.capture(root, latest());
+		_versions.set((int) (number % _versions.length()), version);
+		_recorded = number + 1;
+		return version;
+	}
+	
+	/**
+	 * Returns the most recently recorded version, or null if none is.
+	 */
+	public ShapeVersion latest() {
+		return version(_recorded - 1);
+	}
+	
+	/**
+	 * Returns the version with the given number, or null if it has not been
+	 * recorded yet or has been dropped.
+	 */
+	public ShapeVersion version(long number) {
+		if(number < oldest() || number >= _recorded) {
+			return null;
+		}
+		ShapeVersion version = _versions.get((int) (number % _versions.length()));
+		//the slot is only reused once the version is dropped, so if it was 
+		//reused while it was read, the version is seen to be dropped now
+		if(number < oldest()) {
+			return null;
+		}
+		return version;
+	}
+	
+	/**
+	 * Returns the number of the oldest version kept.
+	 */
+	public long oldest() {
+		return Math.max(0, _recorded - _capacity);
+	}
+	
+	/**
+	 * Returns the number of versions recorded so far, including dropped 
+	 * ones.
+	 */
+	public long recordedCount() {
+		return _recorded;
+	}
+	
+	/**
+	 * Returns the maximum number of versions kept.
+	 */
+	public int capacity() {
+		return _capacity;
+	}
+}
@@ -0,0 +1,37 @@
+package spaceshapes;
+
+/**
+ * Interface to represent a kernel that moves a contiguous range of slots in
+ * a ShapeStore by one tick, applying the bounce rules of Shape.move() and 
+ * DynamicShape.move(). All slots in the range share the same bounds, i.e. 
+ * they are the children of one CarrierShape.
+ * 
+ * @author lchi184
+ *
+ */
+public interface MoveKernel {
+	/**
+	 * Moves the slots in [from, to) by one tick.
+	 * @param store the ShapeStore holding the slots.
+	 * @param from first slot to move.
+	 * @param to one past the last slot to move.
+	 * @param width width of the space the slots move in.
+	 * @param height height of the space the slots move in.
+	 */
+	public void moveChildren(ShapeStore store, int from, int to, int width, int height);
+	
+	/**
+	 * Returns the fastest MoveKernel available. This is a VectorMoveKernel
+	 * if the jdk.incubator.vector module can be loaded, and a 
+	 * ScalarMoveKernel otherwise.
+	 */
+	public static MoveKernel best() {
+		try {
+			return (MoveKernel) Class.forName("spaceshapes.VectorMoveKernel")
+					.getDeclaredConstructor().newInstance();
+		} catch(ReflectiveOperationException | LinkageError e) {
+			// The Vector API module is not available at run-time.
+			return new ScalarMoveKernel();
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package spaceshapes;
+
+/**
+ * Grid of occupancy counts over the interior of one CarrierShape, kept by
+ * an OccupancyMap. Cell (column, row) covers the square of side cellSize()
+ * whose top left corner is at (column * cellSize(), row * cellSize()) in 
+ * the carrier's coordinates, and counts the ticks children of the carrier
+ * spent with their centre in it. Counts saturate at Integer.MAX_VALUE 
+ * rather than wrapping. Grids handed out by OccupancyMap.snapshot() are 
+ * copies that no longer change.
+ * 
+ * @author lchi184
+ *
+ */
+public final class OccupancyGrid {
+	// OccupancyMap maintaining this grid.
+	final OccupancyMap _map;
+	
+	private final int _cellSize;
+	
+	private final int _columns;
+	
+	private final int _rows;
+	
+	// Counts in row-major order.
+	final int[] _counts;
+	
+	// Decay window of the OccupancyMap last applied to the counts.
+	long _window;
+	
+	/**
+	 * Creates an empty grid covering width x height.
+	 */
+	OccupancyGrid(OccupancyMap map, int cellSize, int width, int height) {
+		_map = map;
+		_cellSize = cellSize;
+		_columns = Math.max(1, (width + cellSize - 1) / cellSize);
+		_rows = Math.max(1, (height + cellSize - 1) / cellSize);
+		_counts = new int[_columns * _rows];
+	}
+	
+	/*
+	 * Creates a copy of grid.
+	 */
+	private OccupancyGrid(OccupancyGrid grid) {
+		_map = grid._map;
+		_cellSize = grid._cellSize;
+		_columns = grid._columns;
+		_rows = grid._rows;
+		_counts = grid._counts.clone();
+		_window = grid._window;
+	}
+	
+	/**
+	 * Returns the side of a cell.
+	 */
+	public int cellSize() {
+		return _cellSize;
+	}
+	
+	/**
+	 * Returns the number of columns of cells.
+	 */
+	public int columns() {
+		return _columns;
+	}
+	
+	/**
+	 * Returns the number of rows of cells.
+	 */
+	public int rows() {
+		return _rows;
+	}
+	
+	/**
+	 * Returns the count of the given cell.
+	 */
+	public int count(int column, int row) {
+		if(column < 0 || column >= _columns || row < 0 || row >= _rows) {
+			throw new IndexOutOfBoundsException();
+		}
+		return _counts[row * _columns + column];
+	}
+	
+	/**
+	 * Returns a copy of the counts in row-major order.
+	 */
+	public int[] counts() {
+		return _counts.clone();
+	}
+	
+	/**
+	 * Returns the sum of all counts.
+	 */
+	public long total() {
+		long total = 0;
+		for(int count : _counts) {
+			total += count;
+		}
+		return total;
+	}
+	
+	/**
+	 * Returns true if this grid has the given geometry.
+	 */
+	boolean covers(int cellSize, int width, int height) {
+		return _cellSize == cellSize 
+				&& _columns == Math.max(1, (width + cellSize - 1) / cellSize)
+				&& _rows == Math.max(1, (height + cellSize - 1) / cellSize);
+	}
+	
+	/**
+	 * Adds weight to the cell holding the centre of every child of carrier,
+	 * saturating at Integer.MAX_VALUE so that counts never wrap negative.
+	 */
+	void sample(CarrierShape carrier, int weight) {
+		int cellSize = _cellSize;
+		int lastColumn = _columns - 1;
+		int lastRow = _rows - 1;
+		int[] counts = _counts;
+		for(int i = 0; i < carrier.shapeCount(); i++) {
+			Shape shape = carrier.shapeAt(i);
+			int column = (shape.x() + shape.width() / 2) / cellSize;
+			int row = (shape.y() + shape.height() / 2) / cellSize;
+			column = column < 0 ? 0 : column > lastColumn ? lastColumn : column;
+			row = row < 0 ? 0 : row > lastRow ? lastRow : row;
+			int cell = row * _columns + column;
+			int count = counts[cell] + weight;
+			counts[cell] = count < 0 ? Integer.MAX_VALUE : count;
+		}
+	}
+	
+	/**
+	 * Halves every count once for each decay window that has ended since 
+	 * the counts were last decayed.
+	 */
+	void decayTo(long window) {
+		long windows = window - _window;
+		_window = window;
+		if(windows <= 0) {
+			return;
+		}
+		int shift = (int) Math.min(windows, 31);
+		int[] counts = _counts;
+		for(int i = 0; i < counts.length; i++) {
+			counts[i] >>= shift;
+		}
+	}
+	
+	/**
+	 * Returns a copy of this grid, decayed up to the given window.
+	 */
+	OccupancyGrid copy(long window) {
+		OccupancyGrid copy = new OccupancyGrid(this);
+		copy.decayTo(window);
+		return copy;
+	}
+}
@@ -0,0 +1,276 @@
+package spaceshapes;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Accumulator of where shapes spend their time. Once set on a ShapeModel, 
+ * every clock() call hands the shape composition to tick(). Every 
+ * CarrierShape is sampled once per sampleInterval() ticks: the centre of 
+ * each of its children is counted, with a weight of sampleInterval(), in 
+ * the carrier's OccupancyGrid, so that counts approximate the number of 
+ * ticks spent in each cell. Sampling a Shape costs about as much as moving
+ * it, so carriers are staggered and each tick only samples the carriers 
+ * whose turn it is, and the walk visits carriers only; the cost per tick 
+ * is thus about 1 / sampleInterval() of a full pass. Grids are kept on the
+ * carriers themselves and are created the first time a carrier is 
+ * sampled, or again when its size changes. 
+ * 
+ * With a decay window set, all counts are halved at the end of every 
+ * window, so that recent activity dominates. Decay is applied lazily, when
+ * a grid is next sampled or exported.
+ * 
+ * Like ParallelTickEngine, an OccupancyMap created with a ForkJoinPool 
+ * samples subtrees in parallel: every CarrierShape holding at least the 
+ * threshold number of children is walked by a separate task, and since 
+ * each task writes only its own carrier's grid, no locking is needed.
+ * 
+ * @author lchi184
+ *
+ */
+public class OccupancyMap {
+	// Default number of ticks between samples of a carrier.
+	public static final int DEFAULT_SAMPLE_INTERVAL = 32;
+	
+	// Default minimum number of children for a carrier to get its own task.
+	public static final int DEFAULT_THRESHOLD = 256;
+	
+	private final int _cellSize;
+	
+	private final ForkJoinPool _pool;
+	
+	private final int _threshold;
+	
+	private int _sampleInterval;
+	
+	private int _decayWindow;
+	
+	// Number of ticks seen by tick().
+	private long _ticks;
+	
+	// Number of decay windows that have ended.
+	private long _window;
+	
+	// Child carriers of the carrier being walked by sampleTree().
+	private List<CarrierShape> _childCarriers = new ArrayList<CarrierShape>();
+	
+	/**
+	 * Creates an OccupancyMap that samples on the clocking thread.
+	 * @param cellSize side of a grid cell.
+	 */
+	public OccupancyMap(int cellSize) {
+		this(cellSize, null, DEFAULT_THRESHOLD);
+	}
+	
+	/**
+	 * Creates an OccupancyMap that samples subtrees in parallel.
+	 * @param cellSize side of a grid cell.
+	 * @param pool the ForkJoinPool to run tasks in, or null to sample on 
+	 * the clocking thread.
+	 * @param threshold minimum number of children for a CarrierShape to be
+	 * sampled by a task of its own.
+	 */
+	public OccupancyMap(int cellSize, ForkJoinPool pool, int threshold) {
+		if(cellSize < 1 || threshold < 1) {
+			throw new IllegalArgumentException();
+		}
+		_cellSize = cellSize;
+		_pool = pool;
+		_threshold = threshold;
+		_sampleInterval = DEFAULT_SAMPLE_INTERVAL;
+	}
+	
+	/**
+	 * Sets the number of ticks between samples of a carrier. 1 samples 
+	 * every carrier on every tick; larger intervals reduce the overhead per
+	 * tick at the cost of missing short visits.
+	 */
+	public void setSampleInterval(int ticks) {
+		if(ticks < 1) {
+			throw new IllegalArgumentException();
+		}
+		_sampleInterval = ticks;
+	}
+	
+	/**
+	 * Returns the number of ticks between samples.
+	 */
+	public int sampleInterval() {
+		return _sampleInterval;
+	}
+	
+	/**
+	 * Sets the length in ticks of a decay window, at the end of which all
+	 * counts are halved, or 0 to accumulate counts indefinitely.
+	 */
+	public void setDecayWindow(int ticks) {
+		if(ticks < 0) {
+			throw new IllegalArgumentException();
+		}
+		_decayWindow = ticks;
+	}
+	
+	/**
+	 * Returns the length in ticks of a decay window, 0 for no decay.
+	 */
+	public int decayWindow() {
+		return _decayWindow;
+	}
+	
+	/**
+	 * Returns the number of ticks accumulated so far.
+	 */
+	public long ticks() {
+		return _ticks;
+	}
+	
+	/**
+	 * Returns the side of a grid cell.
+	 */
+	public int cellSize() {
+		return _cellSize;
+	}
+	
+	/**
+	 * Accounts for one tick of the composition rooted at root. Called by 
+	 * ShapeModel.clock() after the composition has moved.
+	 */
+	public void tick(CarrierShape root) {
+		_ticks++;
+		if(_pool != null) {
+			_pool.invoke(new SampleContents(root, 0));
+		} else {
+			sampleTree(root);
+		}
+		if(_decayWindow > 0 && _ticks % _decayWindow == 0) {
+			_window++;
+		}
+	}
+	
+	/**
+	 * Returns a copy of the counts of the children of carrier, or null if 
+	 * carrier has not been sampled by this OccupancyMap. Must not be called
+	 * while the model is being clocked.
+	 */
+	public OccupancyGrid snapshot(CarrierShape carrier) {
+		OccupancyGrid grid = carrier._occupancy;
+		if(grid == null || grid._map != this) {
+			return null;
+		}
+		return grid.copy(_window);
+	}
+	
+	/**
+	 * Discards the counts of carrier and of all carriers beneath it.
+	 */
+	public void clear(CarrierShape carrier) {
+		Deque<CarrierShape> carriers = new ArrayDeque<CarrierShape>();
+		carriers.push(carrier);
+		while(!carriers.isEmpty()) {
+			CarrierShape next = carriers.pop();
+			if(next._occupancy != null && next._occupancy._map == this) {
+				next._occupancy = null;
+			}
+			for(int i = 0; i < next.shapeCount(); i++) {
+				Shape shape = next.shapeAt(i);
+				if(shape instanceof CarrierShape) {
+					carriers.push((CarrierShape) shape);
+				}
+			}
+		}
+	}
+	
+	/*
+	 * Samples the carriers in the tree rooted at root whose turn it is.
+	 */
+	private void sampleTree(CarrierShape root) {
+		//nested carriers are walked with an explicit stack, not recursion
+		Deque<CarrierShape> carriers = new ArrayDeque<CarrierShape>();
+		Deque<Integer> indices = new ArrayDeque<Integer>();
+		carriers.push(root);
+		indices.push(0);
+		while(!carriers.isEmpty()) {
+			CarrierShape carrier = carriers.pop();
+			sample(carrier, indices.pop());
+			List<CarrierShape> children = _childCarriers;
+			carrier.collectCarriers(children);
+			for(int i = 0; i < children.size(); i++) {
+				carriers.push(children.get(i));
+				indices.push(i);
+			}
+			children.clear();
+		}
+	}
+	
+	/*
+	 * Counts the children of carrier in its grid if it is the carrier's 
+	 * turn, given its index among its parent's carriers, creating the grid
+	 * if needed and applying any pending decay first.
+	 */
+	private void sample(CarrierShape carrier, int index) {
+		if((_ticks + index) % _sampleInterval != 0 || carrier.shapeCount() == 0) {
+			return;
+		}
+		OccupancyGrid grid = carrier._occupancy;
+		int width = carrier.width();
+		int height = carrier.height();
+		if(grid == null || grid._map != this || !grid.covers(_cellSize, width, height)) {
+			grid = new OccupancyGrid(this, _cellSize, width, height);
+			grid._window = _window;
+			carrier._occupancy = grid;
+		}
+		grid.decayTo(_window);
+		grid.sample(carrier, _sampleInterval);
+	}
+	
+	/*
+	 * Task that samples a CarrierShape and the carriers beneath it, forking
+	 * a further task for every child carrier with at least the threshold 
+	 * number of children.
+	 */
+	@SuppressWarnings("serial")
+	private class SampleContents extends RecursiveAction {
+		private CarrierShape _carrier;
+		private int _index;
+		
+		SampleContents(CarrierShape carrier, int index) {
+			_carrier = carrier;
+			_index = index;
+		}
+		
+		@Override
+		protected void compute() {
+			List<SampleContents> subtasks = null;
+			List<CarrierShape> children = new ArrayList<CarrierShape>();
+			Deque<CarrierShape> carriers = new ArrayDeque<CarrierShape>();
+			Deque<Integer> indices = new ArrayDeque<Integer>();
+			carriers.push(_carrier);
+			indices.push(_index);
+			while(!carriers.isEmpty()) {
+				CarrierShape carrier = carriers.pop();
+				sample(carrier, indices.pop());
+				carrier.collectCarriers(children);
+				for(int i = 0; i < children.size(); i++) {
+					CarrierShape child = children.get(i);
+					if(child.shapeCount() >= _threshold) {
+						if(subtasks == null) {
+							subtasks = new ArrayList<SampleContents>();
+						}
+						subtasks.add(new SampleContents(child, i));
+					} else {
+						carriers.push(child);
+						indices.push(i);
+					}
+				}
+				children.clear();
+			}
+			if(subtasks != null) {
+				invokeAll(subtasks);
+			}
+		}
+	}
+}
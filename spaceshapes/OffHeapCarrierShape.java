@@ -0,0 +1,118 @@
+package spaceshapes;
+
+/**
+ * Class to represent a CarrierShape whose contents are held in an
+ * OffHeapShapeStore rather than as Shape objects. It appears as a single
+ * node in the model, so views only hold heap objects for the records they
+ * ask to materialize. Regular shapes can still be added to it as well.
+ *
+ * An OffHeapCarrierShape owns its OffHeapShapeStore. Removing it from the 
+ * model does not free the store's native memory, since it may be added 
+ * again; ShapeModel.recycle() and ShapePool.release() close the store, and
+ * otherwise whoever removes it for good should close records().
+ *
+ * @author lchi184
+ *
+ */
+public class OffHeapCarrierShape extends CarrierShape {
+	private OffHeapShapeStore _records;
+	
+	/**
+	 * Creates an OffHeapCarrierShape instance with specified values for
+	 * instance variables.
+	 * @param x x position.
+	 * @param y y position.
+	 * @param deltaX speed (pixels per move call) and direction for horizontal
+	 *        axis.
+	 * @param deltaY speed (pixels per move call) and direction for vertical
+	 *        axis.
+	 * @param width width in pixels.
+	 * @param height height in pixels.
+	 * @param capacity maximum number of records held off-heap.
+	 */
+	public OffHeapCarrierShape(int x, int y, int deltaX, int deltaY, int width, int height, int capacity) {
+		super(x,y,deltaX,deltaY,width,height);
+		_records = new OffHeapShapeStore(capacity, width, height);
+	}
+	
+	/**
+	 * Returns the store holding the records carried by this shape. Records
+	 * should be added with addRecord() rather than through the store, so 
+	 * that a carrier at rest starts moving them.
+	 */
+	public OffHeapShapeStore records() {
+		return _records;
+	}
+	
+	/**
+	 * Adds a record to this shape's store, as OffHeapShapeStore.add() does,
+	 * and wakes this shape if it had come to rest. Like other changes to the
+	 * model this must be made by the thread that clocks it; other threads 
+	 * should use ShapeModel.postAddRecord(), which also resumes an idle 
+	 * SimulationLoop.
+	 * @return the index of the new record.
+	 * @throws IllegalArgumentException if the record does not fit.
+	 * @throws IllegalStateException if the store is full.
+	 */
+	public int addRecord(int parent, int kind, int x, int y, int deltaX, int deltaY, int width, int height) {
+		int record = _records.add(parent, kind, x, y, deltaX, deltaY, width, height);
+		wake();
+		return record;
+	}
+	
+	/**
+	 * Moves this shape, its regular children and its records.
+	 */
+	@Override
+	public void move(int width, int height) {
+		super.move(width, height);
+		_records.move();
+	}
+	
+	/**
+	 * Moves this shape and its records, used when regular children are moved
+	 * separately.
+	 */
+	@Override
+	void moveSelf(int width, int height) {
+		super.moveSelf(width, height);
+		_records.move();
+	}
+	
+	/**
+	 * Moves this shape and its records; never at rest while it holds records.
+	 */
+	@Override
+	boolean moveActive(int width, int height) {
+		boolean resting = super.moveActive(width, height);
+		_records.move();
+		return resting && _records.size() == 0;
+	}
+	
+	/**
+	 * Returns true if this shape is still and holds no records.
+	 */
+	@Override
+	boolean isStill() {
+		return super.isStill() && _records.size() == 0;
+	}
+	
+	@Override
+	public void advance(long ticks, int width, int height) {
+		super.advance(ticks, width, height);
+		_records.advance(ticks);
+	}
+	
+	/**
+	 * Paints this shape, its regular children and its records.
+	 */
+	@Override
+	public void doPaint(Painter painter) {
+		super.doPaint(painter);
+		int x = x();
+		int y = y();
+		painter.translate(x,y);
+		_records.paint(painter);
+		painter.translate(-x,-y);
+	}
+}
@@ -0,0 +1,380 @@
+package spaceshapes;
+
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+
+/**
+ * Class to represent shapes held outside the Java heap. Each shape is a
+ * fixed size record of int fields in one native MemorySegment, so holding
+ * tens of millions of shapes adds no objects for the garbage collector to
+ * trace. Records have no text and cannot hold images or bounce state; a
+ * record can be a CarrierShape for the records added after it.
+ *
+ * Records are moved with the same bounce rules as Shape.move(). Top level
+ * records move within the bounds given to the constructor, other records
+ * within their parent record. The memory is freed by close(), after which
+ * the store cannot be used.
+ *
+ * Requires the jdk.incubator.foreign module
+ * (--add-modules jdk.incubator.foreign).
+ *
+ * @author lchi184
+ *
+ */
+public class OffHeapShapeStore implements AutoCloseable {
+	// === Kinds of record.
+	public static final int RECTANGLE = ShapeKind.RECTANGLE;
+	
+	public static final int OVAL = ShapeKind.OVAL;
+	
+	public static final int HEXAGON = ShapeKind.HEXAGON;
+	
+	public static final int CARRIER = ShapeKind.CARRIER;
+	// ===
+	
+	// === Record layout, as int offsets into a record.
+	private static final int X = 0;
+	
+	private static final int Y = 1;
+	
+	private static final int DELTA_X = 2;
+	
+	private static final int DELTA_Y = 3;
+	
+	private static final int WIDTH = 4;
+	
+	private static final int HEIGHT = 5;
+	
+	//record of parent carrier, -1 for top level records
+	private static final int PARENT = 6;
+	
+	private static final int KIND = 7;
+	
+	private static final int RECORD_INTS = 8;
+	// ===
+	
+	/**
+	 * Size in bytes of one record.
+	 */
+	public static final int RECORD_BYTES = RECORD_INTS * Integer.BYTES;
+	
+	private final ResourceScope _scope;
+	
+	private final MemorySegment _records;
+	
+	private final int _capacity;
+	
+	private final int _width;
+	
+	private final int _height;
+	
+	private int _size;
+	
+	/**
+	 * Creates an empty OffHeapShapeStore.
+	 * @param capacity maximum number of records.
+	 * @param width width of the space top level records move in.
+	 * @param height height of the space top level records move in.
+	 */
+	public OffHeapShapeStore(int capacity, int width, int height) {
+		if(capacity < 0) {
+			throw new IllegalArgumentException();
+		}
+		//shared, as records are moved and painted from different threads
+		_scope = ResourceScope.newSharedScope();
+		_records = MemorySegment.allocateNative((long) capacity * RECORD_BYTES, _scope);
+		_capacity = capacity;
+		_width = width;
+		_height = height;
+		_size = 0;
+	}
+	
+	/**
+	 * Adds a record and returns its index. Records are kept in the order they
+	 * are added, so a parent always comes before its children.
+	 * @param parent index of a CARRIER record to add to, or -1 for the top
+	 * level.
+	 * @param kind one of RECTANGLE, OVAL, HEXAGON or CARRIER.
+	 * @throws IllegalArgumentException if parent is not a CARRIER record,
+	 * kind is unknown or the record does not fit within its parent.
+	 * @throws IllegalStateException if the store is full.
+	 */
+	public int add(int parent, int kind, int x, int y, int deltaX, int deltaY, int width, int height) {
+		if(kind != RECTANGLE && kind != OVAL && kind != HEXAGON && kind != CARRIER) {
+			throw new IllegalArgumentException();
+		}
+		int boundsWidth = _width;
+		int boundsHeight = _height;
+		if(parent != -1) {
+			if(parent < 0 || parent >= _size || get(parent, KIND) != CARRIER) {
+				throw new IllegalArgumentException();
+			}
+			boundsWidth = get(parent, WIDTH);
+			boundsHeight = get(parent, HEIGHT);
+		}
+		//same test as Shape.isOutOfBounds()
+		if(x < 0 || x + width > boundsWidth || y < 0 || y + height > boundsHeight) {
+			throw new IllegalArgumentException();
+		}
+		if(_size == _capacity) {
+			throw new IllegalStateException();
+		}
+		
+		int record = _size++;
+		set(record, X, x);
+		set(record, Y, y);
+		set(record, DELTA_X, deltaX);
+		set(record, DELTA_Y, deltaY);
+		set(record, WIDTH, width);
+		set(record, HEIGHT, height);
+		set(record, PARENT, parent);
+		set(record, KIND, kind);
+		return record;
+	}
+	
+	/**
+	 * Moves every record by one tick.
+	 */
+	public void move() {
+		final MemorySegment records = _records;
+		for(int i = 0; i < _size; i++) {
+			long base = (long) i * RECORD_INTS;
+			int parent = MemoryAccess.getIntAtIndex(records, base + PARENT);
+			int boundsWidth = _width;
+			int boundsHeight = _height;
+			if(parent >= 0) {
+				long parentBase = (long) parent * RECORD_INTS;
+				boundsWidth = MemoryAccess.getIntAtIndex(records, parentBase + WIDTH);
+				boundsHeight = MemoryAccess.getIntAtIndex(records, parentBase + HEIGHT);
+			}
+			int width = MemoryAccess.getIntAtIndex(records, base + WIDTH);
+			int height = MemoryAccess.getIntAtIndex(records, base + HEIGHT);
+			int deltaX = MemoryAccess.getIntAtIndex(records, base + DELTA_X);
+			int deltaY = MemoryAccess.getIntAtIndex(records, base + DELTA_Y);
+			int nextX = MemoryAccess.getIntAtIndex(records, base + X) + deltaX;
+			int nextY = MemoryAccess.getIntAtIndex(records, base + Y) + deltaY;
+			
+			if (nextX <= 0) {
+				nextX = 0;
+				MemoryAccess.setIntAtIndex(records, base + DELTA_X, -deltaX);
+			} else if (nextX + width >= boundsWidth) {
+				nextX = boundsWidth - width;
+				MemoryAccess.setIntAtIndex(records, base + DELTA_X, -deltaX);
+			}
+			
+			if (nextY <= 0) {
+				nextY = 0;
+				MemoryAccess.setIntAtIndex(records, base + DELTA_Y, -deltaY);
+			} else if (nextY + height >= boundsHeight) {
+				nextY = boundsHeight - height;
+				MemoryAccess.setIntAtIndex(records, base + DELTA_Y, -deltaY);
+			}
+			
+			MemoryAccess.setIntAtIndex(records, base + X, nextX);
+			MemoryAccess.setIntAtIndex(records, base + Y, nextY);
+		}
+	}
+	
+	/**
+	 * Moves every record forward by the given number of ticks, ending up
+	 * exactly where the same number of move() calls would leave it.
+	 */
+	public void advance(long ticks) {
+		if(ticks <= 0) {
+			return;
+		}
+		int[] axis = new int[2];
+		for(int i = 0; i < _size; i++) {
+			int parent = get(i, PARENT);
+			int boundsWidth = parent < 0 ? _width : get(parent, WIDTH);
+			int boundsHeight = parent < 0 ? _height : get(parent, HEIGHT);
+			
+			axis[0] = get(i, X);
+			axis[1] = get(i, DELTA_X);
+			BounceMath.advance(axis, get(i, WIDTH), boundsWidth, ticks);
+			set(i, X, axis[0]);
+			set(i, DELTA_X, axis[1]);
+			
+			axis[0] = get(i, Y);
+			axis[1] = get(i, DELTA_Y);
+			BounceMath.advance(axis, get(i, HEIGHT), boundsHeight, ticks);
+			set(i, Y, axis[0]);
+			set(i, DELTA_Y, axis[1]);
+		}
+	}
+	
+	/**
+	 * Paints every record with the given painter, relative to the painter's
+	 * current origin.
+	 */
+	public void paint(Painter painter) {
+		for(int i = 0; i < _size; i++) {
+			//records are painted at absolute positions rather than by
+			//translating the painter, as children need not follow parents
+			int x = get(i, X);
+			int y = get(i, Y);
+			for(int p = get(i, PARENT); p >= 0; p = get(p, PARENT)) {
+				x += get(p, X);
+				y += get(p, Y);
+			}
+			int width = get(i, WIDTH);
+			int height = get(i, HEIGHT);
+			switch(get(i, KIND)) {
+			case OVAL:
+				painter.drawOval(x, y, width, height);
+				break;
+			case HEXAGON:
+				painter.drawHexagon(x, y, width, height);
+				break;
+			default:
+				painter.drawRect(x, y, width, height);
+			}
+		}
+	}
+	
+	/**
+	 * Returns a new heap Shape with the current state of a record, e.g. for
+	 * a view to display. The Shape is a copy and is not kept up to date; a
+	 * CARRIER record is returned as an empty CarrierShape.
+	 */
+	public Shape materialize(int record) {
+		checkRecord(record);
+		int x = get(record, X);
+		int y = get(record, Y);
+		int deltaX = get(record, DELTA_X);
+		int deltaY = get(record, DELTA_Y);
+		int width = get(record, WIDTH);
+		int height = get(record, HEIGHT);
+		switch(get(record, KIND)) {
+		case OVAL:
+			return new OvalShape(x, y, deltaX, deltaY, width, height);
+		case HEXAGON:
+			return new HexagonShape(x, y, deltaX, deltaY, width, height);
+		case CARRIER:
+			return new CarrierShape(x, y, deltaX, deltaY, width, height);
+		default:
+			return new RectangleShape(x, y, deltaX, deltaY, width, height);
+		}
+	}
+	
+	/**
+	 * Frees the memory holding the records.
+	 */
+	@Override
+	public void close() {
+		_scope.close();
+	}
+	
+	/**
+	 * Returns true until close() is called.
+	 */
+	public boolean isOpen() {
+		return _scope.isAlive();
+	}
+	
+	/**
+	 * Returns the x position of a record, relative to its parent record or,
+	 * for a top level record, to the space it moves in.
+	 */
+	public int x(int record) {
+		checkRecord(record);
+		return get(record, X);
+	}
+	
+	/**
+	 * Returns the y position of a record, relative to its parent record or,
+	 * for a top level record, to the space it moves in.
+	 */
+	public int y(int record) {
+		checkRecord(record);
+		return get(record, Y);
+	}
+	
+	/**
+	 * Returns the horizontal speed and direction of a record.
+	 */
+	public int deltaX(int record) {
+		checkRecord(record);
+		return get(record, DELTA_X);
+	}
+	
+	/**
+	 * Returns the vertical speed and direction of a record.
+	 */
+	public int deltaY(int record) {
+		checkRecord(record);
+		return get(record, DELTA_Y);
+	}
+	
+	/**
+	 * Returns the width of a record.
+	 */
+	public int width(int record) {
+		checkRecord(record);
+		return get(record, WIDTH);
+	}
+	
+	/**
+	 * Returns the height of a record.
+	 */
+	public int height(int record) {
+		checkRecord(record);
+		return get(record, HEIGHT);
+	}
+	
+	/**
+	 * Returns the parent record of a record, or -1 for a top level record.
+	 */
+	public int parent(int record) {
+		checkRecord(record);
+		return get(record, PARENT);
+	}
+	
+	/**
+	 * Returns the kind of a record, one of RECTANGLE, OVAL, HEXAGON or 
+	 * CARRIER.
+	 */
+	public int kind(int record) {
+		checkRecord(record);
+		return get(record, KIND);
+	}
+	
+	/**
+	 * Returns the number of records held.
+	 */
+	public int size() {
+		return _size;
+	}
+	
+	/**
+	 * Returns the maximum number of records.
+	 */
+	public int capacity() {
+		return _capacity;
+	}
+	
+	/**
+	 * Returns the number of bytes of native memory held.
+	 */
+	public long byteSize() {
+		return _records.byteSize();
+	}
+	
+	/*
+	 * Throws IndexOutOfBoundsException for a record that has not been added.
+	 */
+	private void checkRecord(int record) {
+		if(record < 0 || record >= _size) {
+			throw new IndexOutOfBoundsException();
+		}
+	}
+	
+	private int get(int record, int field) {
+		return MemoryAccess.getIntAtIndex(_records, (long) record * RECORD_INTS + field);
+	}
+	
+	private void set(int record, int field, int value) {
+		MemoryAccess.setIntAtIndex(_records, (long) record * RECORD_INTS + field, value);
+	}
+}
@@ -22,6 +22,12 @@ public interface Painter {
 	 * color specifies the color.
 	 */
 	public void fillRect(int x, int y, int width, int height);
+	
+	/**
+	 * Draws count colored rectangles of the same size in one call. The top
+	 * left corner of rectangle i is given by xs[i] and ys[i].
+	 */
+	public void fillRects(int[] xs, int[] ys, int count, int width, int height);
 
 	
 	/**
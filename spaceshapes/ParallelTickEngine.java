@@ -0,0 +1,145 @@
+package spaceshapes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * TickEngine that moves the shape composition in parallel using fork/join.
+ * Sibling subtrees never interact (a Shape's move only depends on its own
+ * state and on its parent's width and height, which move() never changes) 
+ * so every CarrierShape's children are moved by a separate task, and child
+ * lists longer than the threshold are split further. Collisions only 
+ * involve the children of one CarrierShape, so they are resolved by the 
+ * task that moved them once all of them have moved. Positions are 
+ * therefore bit-identical to those produced by SequentialTickEngine. 
+ * Waking a Shape that was left dormant, e.g. by an ActiveSetTickEngine, 
+ * changes the active children of its ancestors, which other tasks share, 
+ * so shapes woken by collisions are woken once all tasks have finished.
+ * 
+ * @author lchi184
+ *
+ */
+public class ParallelTickEngine implements TickEngine {
+	// Default maximum number of children moved by a single task.
+	public static final int DEFAULT_THRESHOLD = 256;
+	
+	private ForkJoinPool _pool;
+	
+	private int _threshold;
+	
+	// Dormant shapes whose deltas were changed by collisions this tick.
+	private Queue<Shape> _woken = new ConcurrentLinkedQueue<Shape>();
+	
+	/**
+	 * Creates a ParallelTickEngine that runs in the common ForkJoinPool.
+	 */
+	public ParallelTickEngine() {
+		this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+	}
+	
+	/**
+	 * Creates a ParallelTickEngine.
+	 * @param pool the ForkJoinPool to run tasks in.
+	 * @param threshold maximum number of children moved by a single task.
+	 */
+	public ParallelTickEngine(ForkJoinPool pool, int threshold) {
+		if(threshold < 1) {
+			throw new IllegalArgumentException();
+		}
+		_pool = pool;
+		_threshold = threshold;
+	}
+
+	@Override
+	public void tick(CarrierShape root, int width, int height) {
+		//hand back any columnar state before tasks start moving shapes
+		root.detachFromStore();
+		root.moveSelf(width, height);
+		if(!root.skipContents()) {
+			_pool.invoke(new MoveContents(root));
+		}
+		for(Shape shape = _woken.poll(); shape != null; shape = _woken.poll()) {
+			shape.wake();
+		}
+	}
+
+	@Override
+	public void release(CarrierShape root) {
+		// All state is already held by the Shape objects.
+	}
+	
+	/*
+	 * Task that moves all children of a CarrierShape and then resolves 
+	 * collisions between them, if the CarrierShape has a broad-phase.
+	 */
+	@SuppressWarnings("serial")
+	private class MoveContents extends RecursiveAction {
+		private CarrierShape _carrier;
+		
+		MoveContents(CarrierShape carrier) {
+			_carrier = carrier;
+		}
+		
+		@Override
+		protected void compute() {
+			new MoveChildren(_carrier, 0, _carrier.shapeCount()).invoke();
+			if(_carrier.broadPhase() != null) {
+				_carrier.collide(_woken);
+			}
+		}
+	}
+	
+	/*
+	 * Task that moves the children of a CarrierShape in the index range 
+	 * [from, to), forking a further task for the contents of each child 
+	 * CarrierShape.
+	 */
+	@SuppressWarnings("serial")
+	private class MoveChildren extends RecursiveAction {
+		private CarrierShape _carrier;
+		private int _from;
+		private int _to;
+		
+		MoveChildren(CarrierShape carrier, int from, int to) {
+			_carrier = carrier;
+			_from = from;
+			_to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if(_to - _from > _threshold) {
+				int middle = (_from + _to) >>> 1;
+				invokeAll(new MoveChildren(_carrier, _from, middle), 
+						new MoveChildren(_carrier, middle, _to));
+				return;
+			}
+			
+			int width = _carrier.width();
+			int height = _carrier.height();
+			List<MoveContents> subtasks = null;
+			for(int i = _from; i < _to; i++) {
+				Shape shape = _carrier.shapeAt(i);
+				if(shape instanceof CarrierShape) {
+					CarrierShape carrier = (CarrierShape) shape;
+					carrier.moveSelf(width, height);
+					if(!carrier.skipContents() && carrier.shapeCount() > 0) {
+						if(subtasks == null) {
+							subtasks = new ArrayList<MoveContents>();
+						}
+						subtasks.add(new MoveContents(carrier));
+					}
+				} else {
+					shape.move(width, height);
+				}
+			}
+			if(subtasks != null) {
+				invokeAll(subtasks);
+			}
+		}
+	}
+}
@@ -0,0 +1,311 @@
+package spaceshapes;
+
+import java.util.Random;
+
+/**
+ * Class to represent a CarrierShape that emits particles. Particles are not
+ * Shape objects: their state is held in primitive arrays, they are moved in
+ * one loop with the same bounce rules as Shape.move() and they are painted
+ * with a single Painter.fillRects() call. A ParticleCarrierShape therefore
+ * appears as a single node in the model however many particles it holds,
+ * and spawning or expiring particles fires no ShapeModelEvents.
+ *
+ * Every tick each particle moves and ages by one, particles that reach the
+ * lifetime are removed and up to spawnRate new particles are spawned at the
+ * centre of the carrier, each with deltas drawn from the velocity range.
+ * Spawning is driven by a seeded Random, so two carriers created with the
+ * same values behave identically.
+ *
+ * @author lchi184
+ *
+ */
+public class ParticleCarrierShape extends CarrierShape {
+	// Width and height of a particle in pixels.
+	public static final int PARTICLE_SIZE = 2;
+
+	// === Particle state, one entry per live particle in [0, _count).
+	private final int[] _px;
+
+	private final int[] _py;
+
+	private final int[] _pdx;
+
+	private final int[] _pdy;
+
+	//number of ticks each particle has lived
+	private final int[] _age;
+
+	private int _count;
+	// ===
+
+	private int _spawnRate;
+
+	private int _lifetime;
+
+	private int _minDelta;
+
+	private int _maxDelta;
+
+	private final Random _random;
+
+	/**
+	 * Creates a ParticleCarrierShape instance with specified values for
+	 * instance variables.
+	 * @param x x position.
+	 * @param y y position.
+	 * @param deltaX speed (pixels per move call) and direction for horizontal
+	 *        axis.
+	 * @param deltaY speed (pixels per move call) and direction for vertical
+	 *        axis.
+	 * @param width width in pixels.
+	 * @param height height in pixels.
+	 * @param capacity maximum number of live particles.
+	 * @param spawnRate number of particles spawned per tick.
+	 * @param lifetime number of ticks a particle lives for.
+	 * @param minDelta smallest delta of a new particle, on either axis.
+	 * @param maxDelta largest delta of a new particle, on either axis.
+	 * @param seed seed for the deltas of new particles.
+	 */
+	public ParticleCarrierShape(int x, int y, int deltaX, int deltaY, int width, int height,
+			int capacity, int spawnRate, int lifetime, int minDelta, int maxDelta, long seed) {
+		super(x,y,deltaX,deltaY,width,height);
+		if(capacity < 0 || spawnRate < 0 || lifetime < 1 || minDelta > maxDelta
+				|| width < PARTICLE_SIZE || height < PARTICLE_SIZE) {
+			throw new IllegalArgumentException();
+		}
+		_px = new int[capacity];
+		_py = new int[capacity];
+		_pdx = new int[capacity];
+		_pdy = new int[capacity];
+		_age = new int[capacity];
+		_count = 0;
+		_spawnRate = spawnRate;
+		_lifetime = lifetime;
+		_minDelta = minDelta;
+		_maxDelta = maxDelta;
+		_random = new Random(seed);
+	}
+
+	/**
+	 * Moves this shape, its regular children and its particles.
+	 */
+	@Override
+	public void move(int width, int height) {
+		super.move(width, height);
+		moveParticles();
+	}
+
+	/**
+	 * Moves this shape and its particles, used when regular children are
+	 * moved separately.
+	 */
+	@Override
+	void moveSelf(int width, int height) {
+		super.moveSelf(width, height);
+		moveParticles();
+	}
+
+	/**
+	 * Moves this shape and its particles; never at rest while it holds or
+	 * spawns particles.
+	 */
+	@Override
+	boolean moveActive(int width, int height) {
+		boolean resting = super.moveActive(width, height);
+		moveParticles();
+		return resting && _count == 0 && _spawnRate == 0;
+	}
+
+	/**
+	 * Returns true if this shape is still and holds and spawns no 
+	 * particles.
+	 */
+	@Override
+	boolean isStill() {
+		return super.isStill() && _count == 0 && _spawnRate == 0;
+	}
+
+	/**
+	 * Advances this shape and its regular children in closed form. Particles
+	 * are spawned at random, so they are moved one tick at a time, but only
+	 * over the last lifetime() ticks: every particle alive before those has
+	 * expired, so older ones are dropped and earlier ticks are skipped. The
+	 * skipped ticks draw nothing from the Random, so after advancing by more
+	 * than lifetime() ticks the particles no longer match those of a carrier
+	 * clocked tick by tick, though their number and ages do while capacity 
+	 * is not reached.
+	 */
+	@Override
+	public void advance(long ticks, int width, int height) {
+		super.advance(ticks, width, height);
+		long replay = ticks;
+		if(ticks > _lifetime) {
+			_count = 0;
+			replay = _lifetime;
+		}
+		for(long i = 0; i < replay; i++) {
+			moveParticles();
+		}
+	}
+
+	/**
+	 * Paints this shape, its regular children and its particles.
+	 */
+	@Override
+	public void doPaint(Painter painter) {
+		super.doPaint(painter);
+		int x = x();
+		int y = y();
+		painter.translate(x,y);
+		painter.fillRects(_px, _py, _count, PARTICLE_SIZE, PARTICLE_SIZE);
+		painter.translate(-x,-y);
+	}
+
+	/**
+	 * Moves and ages every particle by one tick, removes particles that
+	 * have reached their lifetime and spawns new ones. Particles move
+	 * relative to this carrier, so its own position does not matter.
+	 */
+	void moveParticles() {
+		final int[] xs = _px, ys = _py, dxs = _pdx, dys = _pdy, ages = _age;
+		final int boundsWidth = width();
+		final int boundsHeight = height();
+		final int lifetime = _lifetime;
+
+		int i = 0;
+		while(i < _count) {
+			if(++ages[i] >= lifetime) {
+				//order does not matter, so the last particle takes its place
+				int last = --_count;
+				xs[i] = xs[last];
+				ys[i] = ys[last];
+				dxs[i] = dxs[last];
+				dys[i] = dys[last];
+				ages[i] = ages[last];
+				continue;
+			}
+
+			int nextX = xs[i] + dxs[i];
+			int nextY = ys[i] + dys[i];
+
+			if (nextX <= 0) {
+				nextX = 0;
+				dxs[i] = -dxs[i];
+			} else if (nextX + PARTICLE_SIZE >= boundsWidth) {
+				nextX = boundsWidth - PARTICLE_SIZE;
+				dxs[i] = -dxs[i];
+			}
+
+			if (nextY <= 0) {
+				nextY = 0;
+				dys[i] = -dys[i];
+			} else if (nextY + PARTICLE_SIZE >= boundsHeight) {
+				nextY = boundsHeight - PARTICLE_SIZE;
+				dys[i] = -dys[i];
+			}
+
+			xs[i] = nextX;
+			ys[i] = nextY;
+			i++;
+		}
+
+		int spawn = Math.min(_spawnRate, xs.length - _count);
+		int range = _maxDelta - _minDelta + 1;
+		for(int j = 0; j < spawn; j++) {
+			int particle = _count++;
+			xs[particle] = (boundsWidth - PARTICLE_SIZE) / 2;
+			ys[particle] = (boundsHeight - PARTICLE_SIZE) / 2;
+			dxs[particle] = _minDelta + _random.nextInt(range);
+			dys[particle] = _minDelta + _random.nextInt(range);
+			ages[particle] = 0;
+		}
+	}
+
+	/**
+	 * Changes the number of particles spawned per tick.
+	 */
+	public void setSpawnRate(int spawnRate) {
+		if(spawnRate < 0) {
+			throw new IllegalArgumentException();
+		}
+		_spawnRate = spawnRate;
+		wake();
+	}
+
+	/**
+	 * Returns the number of particles spawned per tick.
+	 */
+	public int spawnRate() {
+		return _spawnRate;
+	}
+
+	/**
+	 * Returns the number of ticks a particle lives for.
+	 */
+	public int lifetime() {
+		return _lifetime;
+	}
+
+	/**
+	 * Returns the number of live particles.
+	 */
+	public int particleCount() {
+		return _count;
+	}
+
+	/**
+	 * Returns the maximum number of live particles.
+	 */
+	public int particleCapacity() {
+		return _px.length;
+	}
+
+	/**
+	 * Returns the x position of a particle, relative to this carrier.
+	 */
+	public int particleX(int particle) {
+		checkParticle(particle);
+		return _px[particle];
+	}
+
+	/**
+	 * Returns the y position of a particle, relative to this carrier.
+	 */
+	public int particleY(int particle) {
+		checkParticle(particle);
+		return _py[particle];
+	}
+
+	/**
+	 * Returns the horizontal speed and direction of a particle.
+	 */
+	public int particleDeltaX(int particle) {
+		checkParticle(particle);
+		return _pdx[particle];
+	}
+
+	/**
+	 * Returns the vertical speed and direction of a particle.
+	 */
+	public int particleDeltaY(int particle) {
+		checkParticle(particle);
+		return _pdy[particle];
+	}
+
+	/**
+	 * Returns the number of ticks a particle has lived.
+	 */
+	public int particleAge(int particle) {
+		checkParticle(particle);
+		return _age[particle];
+	}
+
+	/*
+	 * Throws IndexOutOfBoundsException for a particle that is not live.
+	 */
+	private void checkParticle(int particle) {
+		if(particle < 0 || particle >= _count) {
+			throw new IndexOutOfBoundsException();
+		}
+	}
+}
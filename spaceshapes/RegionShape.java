@@ -0,0 +1,70 @@
+package spaceshapes;
+
+/**
+ * Class to represent one region of a chunked world: a stationary 
+ * CarrierShape tiling part of the root. Shapes in a region bounce within
+ * it, so regions never interact and a RegionTickEngine can leave regions 
+ * far from the viewport unsimulated. A region that is not being simulated
+ * is not painted either.
+ * 
+ * @author lchi184
+ *
+ */
+public class RegionShape extends CarrierShape {
+	//tick this region was last brought up to date at, -1 if not yet seen
+	long _lastTick = -1;
+	
+	//false while a RegionTickEngine leaves this region unsimulated
+	boolean _active = true;
+	
+	/**
+	 * Creates a RegionShape covering the given area of its parent.
+	 * @param x x position.
+	 * @param y y position.
+	 * @param width width in pixels.
+	 * @param height height in pixels.
+	 */
+	public RegionShape(int x, int y, int width, int height) {
+		super(x,y,0,0,width,height);
+	}
+	
+	/**
+	 * Returns false while this region is left unsimulated by a 
+	 * RegionTickEngine, i.e. it is far from the viewport.
+	 */
+	public boolean isActive() {
+		return _active;
+	}
+	
+	/**
+	 * Paints this region and its contents, unless it is inactive.
+	 */
+	@Override
+	public void doPaint(Painter painter) {
+		if(_active) {
+			super.doPaint(painter);
+		}
+	}
+	
+	/**
+	 * Covers the area of root with regions of at most regionSize by 
+	 * regionSize pixels, adding them to model.
+	 * @return the number of regions added.
+	 */
+	public static int tile(ShapeModel model, int regionSize) {
+		if(regionSize < 1) {
+			throw new IllegalArgumentException();
+		}
+		CarrierShape root = model.root();
+		int count = 0;
+		for(int y = 0; y < root.height(); y += regionSize) {
+			for(int x = 0; x < root.width(); x += regionSize) {
+				int width = Math.min(regionSize, root.width() - x);
+				int height = Math.min(regionSize, root.height() - y);
+				model.add(new RegionShape(x, y, width, height), root);
+				count++;
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,149 @@
+package spaceshapes;
+
+import java.awt.Rectangle;
+
+/**
+ * TickEngine for chunked worlds, where the children of the root include 
+ * RegionShapes tiling a world far larger than the viewport. Only regions 
+ * within a margin of the viewport are simulated every tick; other children
+ * of the root are always moved. A region that is left behind is either 
+ * frozen, resuming from where it stopped, or caught up in closed form with
+ * CarrierShape.advance() when it becomes active again, so that it ends up
+ * exactly where ticking it all along would have left it. 
+ * 
+ * The viewport may be changed from any thread, e.g. by a view on the 
+ * event dispatch thread while the model is clocked on another.
+ * 
+ * @author lchi184
+ *
+ */
+public class RegionTickEngine implements TickEngine {
+	// How regions far from the viewport are treated.
+	public enum Policy {FREEZE, CATCH_UP};
+	
+	private final Policy _policy;
+	
+	private final int _margin;
+	
+	// Area being looked at, null to simulate every region.
+	private volatile Rectangle _viewport;
+	
+	// Number of ticks performed.
+	private long _now;
+	
+	// Number of regions simulated by the last tick.
+	private int _activeCount;
+	
+	/**
+	 * Creates a RegionTickEngine that simulates every region until a 
+	 * viewport is set.
+	 * @param policy how regions away from the viewport are treated.
+	 * @param margin distance in pixels around the viewport within which 
+	 * regions are simulated.
+	 */
+	public RegionTickEngine(Policy policy, int margin) {
+		if(margin < 0) {
+			throw new IllegalArgumentException();
+		}
+		_policy = policy;
+		_margin = margin;
+		_viewport = null;
+	}
+	
+	/**
+	 * Sets the area of the root being looked at.
+	 * @param viewport the area, or null to simulate every region.
+	 */
+	public void setViewport(Rectangle viewport) {
+		_viewport = viewport == null ? null : new Rectangle(viewport);
+	}
+	
+	/**
+	 * Returns the area of the root being looked at, or null.
+	 */
+	public Rectangle viewport() {
+		Rectangle viewport = _viewport;
+		return viewport == null ? null : new Rectangle(viewport);
+	}
+
+	@Override
+	public void tick(CarrierShape root, int width, int height) {
+		root.detachFromStore();
+		_now++;
+		Rectangle viewport = _viewport;
+		int left = 0, top = 0, right = 0, bottom = 0;
+		if(viewport != null) {
+			left = viewport.x - _margin;
+			top = viewport.y - _margin;
+			right = viewport.x + viewport.width + _margin;
+			bottom = viewport.y + viewport.height + _margin;
+		}
+		
+		root.moveSelf(width, height);
+		int rootWidth = root.width();
+		int rootHeight = root.height();
+		int active = 0;
+		for(int i = 0; i < root.shapeCount(); i++) {
+			Shape shape = root.shapeAt(i);
+			if(!(shape instanceof RegionShape)) {
+				shape.move(rootWidth, rootHeight);
+				continue;
+			}
+			RegionShape region = (RegionShape) shape;
+			if(region._lastTick < 0) {
+				region._lastTick = _now - 1;
+			}
+			region._active = viewport == null 
+					|| (region.x() < right && left < region.x() + region.width()
+					&& region.y() < bottom && top < region.y() + region.height());
+			if(region._active) {
+				catchUp(region, _now - 1, rootWidth, rootHeight);
+				region.move(rootWidth, rootHeight);
+				region._lastTick = _now;
+				active++;
+			}
+		}
+		if(root.broadPhase() != null) {
+			root.collide();
+		}
+		_activeCount = active;
+	}
+
+	/**
+	 * Catches up every region that was left behind (unless regions are 
+	 * frozen) and makes every region active again.
+	 */
+	@Override
+	public void release(CarrierShape root) {
+		for(int i = 0; i < root.shapeCount(); i++) {
+			Shape shape = root.shapeAt(i);
+			if(shape instanceof RegionShape) {
+				RegionShape region = (RegionShape) shape;
+				if(region._lastTick >= 0) {
+					catchUp(region, _now, root.width(), root.height());
+				}
+				region._lastTick = -1;
+				region._active = true;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of regions simulated by the last tick.
+	 */
+	public int activeCount() {
+		return _activeCount;
+	}
+	
+	/*
+	 * Brings region up to the given tick, unless regions are frozen in which
+	 * case the ticks it missed are skipped.
+	 */
+	private void catchUp(RegionShape region, long tick, int width, int height) {
+		long lag = tick - region._lastTick;
+		if(lag > 0 && _policy == Policy.CATCH_UP) {
+			region.advance(lag, width, height);
+		}
+		region._lastTick = tick;
+	}
+}
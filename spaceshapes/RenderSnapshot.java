@@ -0,0 +1,255 @@
+package spaceshapes;
+
+import java.awt.Color;
+import java.awt.Image;
+import java.util.Arrays;
+
+/**
+ * Class to represent a recorded frame of a shape composition. A 
+ * RenderSnapshot is filled by painting a CarrierShape into it (it implements
+ * Painter) and can later be replayed onto any other Painter, e.g. on a 
+ * different thread from the one that recorded it. Once published a 
+ * RenderSnapshot must not be recorded into again until its reader has 
+ * finished with it; TripleBuffer guarantees this.
+ * 
+ * @author lchi184
+ *
+ */
+public class RenderSnapshot implements Painter {
+	// === Op codes.
+	private static final int DRAW_RECT = 0;
+	
+	private static final int FILL_RECT = 1;
+	
+	private static final int DRAW_OVAL = 2;
+	
+	private static final int DRAW_LINE = 3;
+	
+	private static final int DRAW_HEXAGON = 4;
+	
+	private static final int SET_COLOR = 5;
+	
+	private static final int TRANSLATE = 6;
+	
+	private static final int DRAW_STRING = 7;
+	
+	private static final int DRAW_IMAGE = 8;
+	
+	private static final int FILL_RECTS = 9;
+	// ===
+	
+	// Ints per recorded op: op code, four arguments, object index.
+	private static final int OP_SIZE = 6;
+	
+	private int[] _ops;
+	
+	private int _opCount;
+	
+	//colors, strings and images referenced by ops
+	private Object[] _objects;
+	
+	private int _objectCount;
+	
+	//color at the time of recording, null means the replay painter's own color
+	private Color _color;
+	
+	//number of the tick this snapshot was recorded after
+	private long _tick;
+	
+	/**
+	 * Creates an empty RenderSnapshot.
+	 */
+	public RenderSnapshot() {
+		_ops = new int[OP_SIZE * 64];
+		_objects = new Object[16];
+		_tick = -1;
+	}
+	
+	/**
+	 * Discards any recorded ops and records a frame of root.
+	 * @param root the CarrierShape to record.
+	 * @param tick number of the tick the frame shows.
+	 */
+	public void record(CarrierShape root, long tick) {
+		Arrays.fill(_objects, 0, _objectCount, null);
+		_opCount = 0;
+		_objectCount = 0;
+		_color = null;
+		_tick = tick;
+		root.paint(this);
+	}
+	
+	/**
+	 * Replays the recorded frame onto painter.
+	 */
+	public void replay(Painter painter) {
+		Color original = painter.getColor();
+		for(int i = 0; i < _opCount; i++) {
+			int base = i * OP_SIZE;
+			int a = _ops[base + 1];
+			int b = _ops[base + 2];
+			int c = _ops[base + 3];
+			int d = _ops[base + 4];
+			Object object = _objects[_ops[base + 5]];
+			
+			switch(_ops[base]) {
+			case DRAW_RECT:
+				painter.drawRect(a, b, c, d);
+				break;
+			case FILL_RECT:
+				painter.fillRect(a, b, c, d);
+				break;
+			case FILL_RECTS:
+				int[][] positions = (int[][]) object;
+				painter.fillRects(positions[0], positions[1], a, b, c);
+				break;
+			case DRAW_OVAL:
+				painter.drawOval(a, b, c, d);
+				break;
+			case DRAW_LINE:
+				painter.drawLine(a, b, c, d);
+				break;
+			case DRAW_HEXAGON:
+				painter.drawHexagon(a, b, c, d);
+				break;
+			case SET_COLOR:
+				painter.setColor(object == null ? original : (Color) object);
+				break;
+			case TRANSLATE:
+				painter.translate(a, b);
+				break;
+			case DRAW_STRING:
+				painter.drawCentredString((String) object, a, b, c, d);
+				break;
+			case DRAW_IMAGE:
+				painter.drawImage((Image) object, a, b, c, d);
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of the tick this snapshot was recorded after, or -1
+	 * if nothing has been recorded.
+	 */
+	public long tick() {
+		return _tick;
+	}
+	
+	/**
+	 * Returns the number of recorded ops.
+	 */
+	public int size() {
+		return _opCount;
+	}
+	
+	/**
+	 * Records the drawRect call.
+	 */
+	public void drawRect(int x, int y, int width, int height) {
+		add(DRAW_RECT, x, y, width, height, null);
+	}
+	
+	/**
+	 * Records the fillRect call.
+	 */
+	public void fillRect(int x, int y, int width, int height) {
+		add(FILL_RECT, x, y, width, height, null);
+	}
+	
+	/**
+	 * Records the fillRects call, copying the positions.
+	 */
+	public void fillRects(int[] xs, int[] ys, int count, int width, int height) {
+		int[][] positions = {Arrays.copyOf(xs, count), Arrays.copyOf(ys, count)};
+		add(FILL_RECTS, count, width, height, 0, positions);
+	}
+	
+	/**
+	 * Records the drawOval call.
+	 */
+	public void drawOval(int x, int y, int width, int height) {
+		add(DRAW_OVAL, x, y, width, height, null);
+	}
+	
+	/**
+	 * Records the drawLine call.
+	 */
+	public void drawLine(int x1, int y1, int x2, int y2) {
+		add(DRAW_LINE, x1, y1, x2, y2, null);
+	}
+	
+	/**
+	 * Records the drawHexagon call.
+	 */
+	public void drawHexagon(int x, int y, int width, int height) {
+		add(DRAW_HEXAGON, x, y, width, height, null);
+	}
+	
+	/**
+	 * Returns the color most recently set while recording. Shapes only use
+	 * this to restore the color afterwards, so before any color has been 
+	 * set null is returned and replayed as the replay painter's own color.
+	 */
+	public Color getColor() {
+		return _color;
+	}
+	
+	/**
+	 * Records the setColor call.
+	 */
+	public void setColor(Color color) {
+		_color = color;
+		add(SET_COLOR, 0, 0, 0, 0, color);
+	}
+	
+	/**
+	 * Records the translate call.
+	 */
+	public void translate(int x, int y) {
+		add(TRANSLATE, x, y, 0, 0, null);
+	}
+	
+	/**
+	 * Records the drawCentredString call.
+	 */
+	public void drawCentredString(String string, int x, int y, int width, int height) {
+		add(DRAW_STRING, x, y, width, height, string);
+	}
+	
+	/**
+	 * Records the drawImage call.
+	 */
+	public void drawImage(Image img, int x, int y, int width, int height) {
+		add(DRAW_IMAGE, x, y, width, height, img);
+	}
+	
+	/*
+	 * Appends an op, growing the arrays as required. Index 0 of _objects is
+	 * kept null for ops without an object argument.
+	 */
+	private void add(int op, int a, int b, int c, int d, Object object) {
+		int base = _opCount * OP_SIZE;
+		if(base + OP_SIZE > _ops.length) {
+			_ops = Arrays.copyOf(_ops, _ops.length * 2);
+		}
+		int objectIndex = 0;
+		if(object != null) {
+			if(_objectCount == 0) {
+				_objectCount = 1;
+			}
+			if(_objectCount == _objects.length) {
+				_objects = Arrays.copyOf(_objects, _objects.length * 2);
+			}
+			objectIndex = _objectCount++;
+			_objects[objectIndex] = object;
+		}
+		_ops[base] = op;
+		_ops[base + 1] = a;
+		_ops[base + 2] = b;
+		_ops[base + 3] = c;
+		_ops[base + 4] = d;
+		_ops[base + 5] = objectIndex;
+		_opCount++;
+	}
+}
@@ -0,0 +1,57 @@
+package spaceshapes;
+
+/**
+ * MoveKernel that moves one slot at a time.
+ * 
+ * @author lchi184
+ *
+ */
+public class ScalarMoveKernel implements MoveKernel {
+
+	@Override
+	public void moveChildren(ShapeStore store, int from, int to, int width, int height) {
+		move(store, from, to, width, height);
+	}
+	
+	/**
+	 * Moves the slots in [from, to) by one tick. Also used by other kernels
+	 * for the slots left over after their last full chunk.
+	 */
+	static void move(ShapeStore store, int from, int to, int width, int height) {
+		final int[] xs = store._x, ys = store._y, dxs = store._deltaX, dys = store._deltaY;
+		final int[] ws = store._width, hs = store._height, fs = store._flags;
+		
+		for(int i = from; i < to; i++) {
+			int flags = fs[i];
+			int nextX = xs[i] + dxs[i];
+			int nextY = ys[i] + dys[i];
+			
+			if (nextX <= 0) {
+				nextX = 0;
+				dxs[i] = -dxs[i];
+				flags |= ShapeStore.LAST_BOUNCE_HORIZONTAL;
+			} else if (nextX + ws[i] >= width) {
+				nextX = width - ws[i];
+				dxs[i] = -dxs[i];
+				flags |= ShapeStore.LAST_BOUNCE_HORIZONTAL;
+			}
+			
+			if (nextY <= 0) {
+				nextY = 0;
+				dys[i] = -dys[i];
+				flags &= ~ShapeStore.LAST_BOUNCE_HORIZONTAL;
+			} else if (nextY + hs[i] >= height) {
+				nextY = height - hs[i];
+				dys[i] = -dys[i];
+				flags &= ~ShapeStore.LAST_BOUNCE_HORIZONTAL;
+			}
+			
+			xs[i] = nextX;
+			ys[i] = nextY;
+			//bounce state is only tracked for DynamicShapes
+			if((flags & ShapeStore.DYNAMIC) != 0) {
+				fs[i] = flags;
+			}
+		}
+	}
+}
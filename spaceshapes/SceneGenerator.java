@@ -0,0 +1,115 @@
+package spaceshapes;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Helper class that populates a ShapeModel with a randomly generated, 
+ * nested scene. Scenes are fully determined by the seed, so two models 
+ * populated with the same seed are identical. Used by tests and benchmarks 
+ * that compare TickEngines against each other.
+ * 
+ * @author lchi184
+ *
+ */
+public class SceneGenerator {
+	private Random _random;
+	
+	private int _maxDepth;
+	
+	private int _maxChildren;
+	
+	/**
+	 * Creates a SceneGenerator.
+	 * @param seed seed for the random number generator.
+	 * @param maxDepth maximum nesting depth of CarrierShapes below the root.
+	 * @param maxChildren maximum number of children of each CarrierShape.
+	 */
+	public SceneGenerator(long seed, int maxDepth, int maxChildren) {
+		_random = new Random(seed);
+		_maxDepth = maxDepth;
+		_maxChildren = maxChildren;
+	}
+	
+	/**
+	 * Populates the root of the given model and returns the number of shapes
+	 * added.
+	 */
+	public int populate(ShapeModel model) {
+		return populate(model, model.root(), 0);
+	}
+	
+	/*
+	 * Adds random children to parent, recursing into new CarrierShapes.
+	 */
+	private int populate(ShapeModel model, CarrierShape parent, int depth) {
+		int count = 0;
+		int children = 1 + _random.nextInt(_maxChildren);
+		for(int i = 0; i < children; i++) {
+			int width = 2 + _random.nextInt(Math.max(1, parent.width() / 3));
+			int height = 2 + _random.nextInt(Math.max(1, parent.height() / 3));
+			if(width >= parent.width() || height >= parent.height()) {
+				continue;
+			}
+			int x = _random.nextInt(parent.width() - width + 1);
+			int y = _random.nextInt(parent.height() - height + 1);
+			int deltaX = _random.nextInt(21) - 10;
+			int deltaY = _random.nextInt(21) - 10;
+			
+			Shape shape;
+			int kind = _random.nextInt(5);
+			if(kind == 0 && depth < _maxDepth && width > 20 && height > 20) {
+				CarrierShape carrier = new CarrierShape(x, y, deltaX, deltaY, width, height);
+				count += populate(model, carrier, depth + 1);
+				shape = carrier;
+			} else if(kind == 1) {
+				shape = new DynamicShape(x, y, deltaX, deltaY, width, height, Color.ORANGE);
+			} else if(kind == 2) {
+				shape = new OvalShape(x, y, deltaX, deltaY, width, height);
+			} else if(kind == 3) {
+				shape = new HexagonShape(x, y, deltaX, deltaY, width, height);
+			} else {
+				shape = new RectangleShape(x, y, deltaX, deltaY, width, height);
+			}
+			if(model.add(shape, parent)) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Returns the position, delta and bounce state of every shape beneath 
+	 * (and including) root, in depth-first order.
+	 */
+	public static int[] state(CarrierShape root) {
+		List<Integer> values = new ArrayList<Integer>();
+		addState(root, values);
+		int[] result = new int[values.size()];
+		for(int i = 0; i < result.length; i++) {
+			result[i] = values.get(i);
+		}
+		return result;
+	}
+	
+	/*
+	 * Appends the state of shape and its descendants to values.
+	 */
+	private static void addState(Shape shape, List<Integer> values) {
+		values.add(shape.x());
+		values.add(shape.y());
+		values.add(shape.deltaX());
+		values.add(shape.deltaY());
+		if(shape instanceof DynamicShape) {
+			values.add(((DynamicShape) shape).lastBounceHorizontal() ? 1 : 0);
+		}
+		if(shape instanceof CarrierShape) {
+			CarrierShape carrier = (CarrierShape) shape;
+			for(int i = 0; i < carrier.shapeCount(); i++) {
+				addState(carrier.shapeAt(i), values);
+			}
+		}
+	}
+}
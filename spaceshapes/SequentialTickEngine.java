@@ -0,0 +1,22 @@
+package spaceshapes;
+
+/**
+ * Default TickEngine that walks the shape composition through 
+ * CarrierShape.move(), which visits nested CarrierShapes with an explicit 
+ * stack rather than recursion.
+ * 
+ * @author lchi184
+ *
+ */
+public class SequentialTickEngine implements TickEngine {
+
+	@Override
+	public void tick(CarrierShape root, int width, int height) {
+		root.move(width, height);
+	}
+
+	@Override
+	public void release(CarrierShape root) {
+		// All state is already held by the Shape objects.
+	}
+}
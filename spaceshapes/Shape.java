@@ -1,6 +1,7 @@
 package spaceshapes;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -45,6 +46,18 @@ public abstract class Shape {
 	protected String _text;
 	// ===
 
+	// === Columnar backing state, set while a ShapeStore holds this Shape.
+	ShapeStore _store;
+
+	int _slot;
+	// ===
+	
+	// True while this Shape is left out of its parent's active children.
+	boolean _dormant;
+	
+	// ShapeKind of this Shape's concrete class.
+	final int _kind = ShapeKind.of(getClass());
+
 	/**
 	 * Creates a Shape object with default values for instance variables.
 	 */
@@ -104,6 +117,8 @@ public abstract class Shape {
 	 * @param height - height of two-dimensional world.
 	 */
 	public void move(int width, int height) {
+		detachFromStore();
+		
 		int nextX = _x + _deltaX;
 		int nextY = _y + _deltaY;
 
@@ -127,6 +142,67 @@ public abstract class Shape {
 		_y = nextY;
 	}
 
+	/**
+	 * Moves this Shape object forward by the given number of ticks within the
+	 * specified bounds, ending up exactly where the same number of move() 
+	 * calls would leave it. The position is computed in closed form, so the 
+	 * cost does not depend on the number of ticks.
+	 * @param ticks - number of ticks to advance by.
+	 * @param width - width of two-dimensional world.
+	 * @param height - height of two-dimensional world.
+	 */
+	public void advance(long ticks, int width, int height) {
+		detachFromStore();
+		if(ticks <= 0) {
+			return;
+		}
+		
+		//motion is linear, so if neither the first nor the last tick reaches
+		//a wall no tick in between does; a moving shape reaches one within 
+		//the width of the world, which also keeps the products from 
+		//overflowing
+		if(ticks < width - _width && ticks < height - _height) {
+			long lastX = _x + ticks * _deltaX;
+			long lastY = _y + ticks * _deltaY;
+			if(clearOfWalls(_x + _deltaX, lastX, width - _width) 
+					&& clearOfWalls(_y + _deltaY, lastY, height - _height)) {
+				_x = (int) lastX;
+				_y = (int) lastY;
+				advanced(0, 0);
+				return;
+			}
+		}
+		
+		int[] axis = {_x, _deltaX};
+		long lastHorizontalBounce = BounceMath.advance(axis, _width, width, ticks);
+		_x = axis[0];
+		_deltaX = axis[1];
+		
+		axis[0] = _y;
+		axis[1] = _deltaY;
+		long lastVerticalBounce = BounceMath.advance(axis, _height, height, ticks);
+		_y = axis[0];
+		_deltaY = axis[1];
+		
+		advanced(lastHorizontalBounce, lastVerticalBounce);
+	}
+	
+	/*
+	 * Returns true if positions first and last along one axis both lie 
+	 * strictly between the walls, i.e. in (0, limit).
+	 */
+	private static boolean clearOfWalls(long first, long last, int limit) {
+		return first > 0 && first < limit && last > 0 && last < limit;
+	}
+	
+	/**
+	 * Optionally overidden, called at the end of advance() with the tick 
+	 * numbers of the last bounce off the left or right side and off the top
+	 * or bottom. Either is 0 if there was no such bounce.
+	 */
+	protected void advanced(long lastHorizontalBounce, long lastVerticalBounce) {
+	}
+	
 	/**
 	 * Paints the shape and the related text. Acts as a template method that cannot
 	 * be overidden. (Template Method Pattern)
@@ -148,7 +224,7 @@ public abstract class Shape {
 	 */
 	protected void paintText(Painter painter) {
 		if(_text != null) {
-			painter.drawCentredString(_text, _x, _y, _width, _height);
+			painter.drawCentredString(_text, x(), y(), width(), height());
 		}
 	}
 	
@@ -156,42 +232,61 @@ public abstract class Shape {
 	 * Returns this Shape object's x position.
 	 */
 	public int x() {
-		return _x;
+		return _store == null ? _x : _store.x(_slot);
 	}
 	
 	/**
 	 * Returns this Shape object's y position.
 	 */
 	public int y() {
-		return _y;
+		return _store == null ? _y : _store.y(_slot);
 	}
 	
 	/**
 	 * Returns this Shape object's speed and direction.
 	 */
 	public int deltaX() {
-		return _deltaX;
+		return _store == null ? _deltaX : _store._deltaX[_slot];
 	}
 	
 	/**
 	 * Returns this Shape object's speed and direction.
 	 */
 	public int deltaY() {
-		return _deltaY;
+		return _store == null ? _deltaY : _store._deltaY[_slot];
+	}
+	
+	/**
+	 * Changes this Shape object's speed and direction. A Shape that had 
+	 * come to rest is woken up so that it moves again on the next tick.
+	 */
+	public void setDelta(int deltaX, int deltaY) {
+		changeDelta(deltaX, deltaY);
+		wake();
+	}
+	
+	/**
+	 * Changes this Shape object's speed and direction without waking it, 
+	 * for callers that wake shapes themselves.
+	 */
+	void changeDelta(int deltaX, int deltaY) {
+		detachFromStore();
+		_deltaX = deltaX;
+		_deltaY = deltaY;
 	}
 	
 	/**
 	 * Returns this Shape's width.
 	 */
 	public int width() {
-		return _width;
+		return _store == null ? _width : _store._width[_slot];
 	}
 	
 	/**
 	 * Returns this Shape's height.
 	 */
 	public int height() {
-		return _height;
+		return _store == null ? _height : _store._height[_slot];
 	}
 	
 	/**
@@ -239,10 +334,13 @@ public abstract class Shape {
 	 * Will make a path from the parent to the child called on
 	 */
 	public List<Shape> addShapeToPath(List<Shape> path) {
-		if(_parent != null) {
-			_parent.addShapeToPath(path);
+		//walks up the parents iteratively, so deep nesting cannot overflow 
+		//the stack, then puts the added part of the path in root first order
+		int start = path.size();
+		for(Shape shape = this; shape != null; shape = shape._parent) {
+			path.add(shape);
 		}
-		path.add(this);
+		Collections.reverse(path.subList(start, path.size()));
 		return path;
 	}
 	
@@ -250,10 +348,10 @@ public abstract class Shape {
 	 * Checks if current shape is out of bounds relative to the size of the container given
 	 */
 	public boolean isOutOfBounds(int width, int height) {
-		if (_x < 0 || _x + _width > width) {
+		if (x() < 0 || x() + width() > width) {
 			return true;
 		}
-		if (_y < 0 || _y + _height > height) {
+		if (y() < 0 || y() + height() > height) {
 			return true;
 		}
 		return false;
@@ -274,4 +372,99 @@ public abstract class Shape {
 	public String text() {
 		return _text;
 	}
+	
+	/**
+	 * Hands this Shape's state back from the ShapeStore that currently holds
+	 * it, if any. Every Shape sharing that store is released along with it.
+	 */
+	void detachFromStore() {
+		if(_store != null) {
+			_store.release();
+		}
+	}
+	
+	/**
+	 * Puts this Shape back in the state of a newly constructed one with the
+	 * given values, so that a ShapePool can hand it out again. Subclasses 
+	 * with further state override this and call it.
+	 */
+	void reset(int x, int y, int deltaX, int deltaY, int width, int height) {
+		_x = x;
+		_y = y;
+		_deltaX = deltaX;
+		_deltaY = deltaY;
+		_width = width;
+		_height = height;
+		_parent = null;
+		_text = null;
+		_store = null;
+		_slot = 0;
+		_dormant = false;
+	}
+	
+	/**
+	 * Returns subclass specific state to be held in the flags column of a
+	 * ShapeStore.
+	 */
+	int storeFlags() {
+		return 0;
+	}
+	
+	/**
+	 * Returns the subclass specific state this Shape has now, from the 
+	 * ShapeStore holding it if any.
+	 */
+	int currentFlags() {
+		return _store == null ? storeFlags() : _store._flags[_slot];
+	}
+	
+	/**
+	 * Restores subclass specific state from the flags column of a ShapeStore.
+	 */
+	void restoreFlags(int flags) {
+	}
+	
+	/**
+	 * Moves this Shape within the specified bounds and returns true if it 
+	 * has come to rest, i.e. the move left its state unchanged. Since move()
+	 * only depends on a Shape's own state and its bounds, a resting Shape
+	 * would never change again.
+	 */
+	boolean moveActive(int width, int height) {
+		int x = _x;
+		int y = _y;
+		int flags = storeFlags();
+		move(width, height);
+		return isResting(x, y, flags);
+	}
+	
+	/**
+	 * Returns true if this Shape has zero deltas and the given previous 
+	 * state matches its current state.
+	 */
+	boolean isResting(int x, int y, int flags) {
+		return _deltaX == 0 && _deltaY == 0 && _x == x && _y == y && storeFlags() == flags;
+	}
+	
+	/**
+	 * Returns true if this Shape, on its own, would never change again, 
+	 * i.e. it has zero deltas. Subclasses with further moving state 
+	 * override this and call it.
+	 */
+	boolean isStill() {
+		return deltaX() == 0 && deltaY() == 0;
+	}
+	
+	/**
+	 * Puts this Shape, and every dormant ancestor, back among its parent's
+	 * active children.
+	 */
+	void wake() {
+		for(Shape shape = this; shape != null && shape._dormant; shape = shape._parent) {
+			shape._dormant = false;
+			if(shape._parent != null) {
+				shape._parent._activeChildren.add(shape);
+			}
+		}
+	}
 }
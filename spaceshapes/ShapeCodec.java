@@ -0,0 +1,208 @@
+package spaceshapes;
+
+import java.awt.Color;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Binary encoding of shape subtrees, used to hand subtrees to another 
+ * process and to stream their state back. A tree is written in pre-order 
+ * with the class, geometry, text and children of every Shape; its state is
+ * written in the same order with only what move() changes, i.e. position,
+ * deltas and bounce flags. RectangleShape, OvalShape, HexagonShape, 
+ * DynamicShape and CarrierShape can be encoded.
+ * 
+ * @author lchi184
+ *
+ */
+public final class ShapeCodec {
+	// Number of bytes of state written per Shape by writeState().
+	public static final int STATE_BYTES = 17;
+	
+	/*
+	 * Hidden constructor, all methods are static.
+	 */
+	private ShapeCodec() {
+	}
+	
+	/**
+	 * Writes shape and all shapes beneath it.
+	 * @throws IllegalArgumentException if the tree holds a Shape of a class
+	 * that cannot be encoded.
+	 */
+	public static void writeTree(Shape shape, DataOutput out) throws IOException {
+		shape.detachFromStore();
+		//nested carriers are walked with an explicit stack, not recursion
+		Deque<Shape> shapes = new ArrayDeque<Shape>();
+		shapes.push(shape);
+		while(!shapes.isEmpty()) {
+			Shape next = shapes.pop();
+			int kind = next._kind;
+			if(kind == ShapeKind.IMAGE || kind == ShapeKind.OTHER) {
+				throw new IllegalArgumentException();
+			}
+			out.writeByte(kind);
+			out.writeInt(next._x);
+			out.writeInt(next._y);
+			out.writeInt(next._deltaX);
+			out.writeInt(next._deltaY);
+			out.writeInt(next._width);
+			out.writeInt(next._height);
+			out.writeInt(next.storeFlags());
+			out.writeBoolean(next._text != null);
+			if(next._text != null) {
+				out.writeUTF(next._text);
+			}
+			if(kind == ShapeKind.DYNAMIC) {
+				out.writeInt(((DynamicShape) next).color().getRGB());
+			} else if(kind == ShapeKind.CARRIER) {
+				CarrierShape carrier = (CarrierShape) next;
+				out.writeInt(carrier.shapeCount());
+				//pushed in reverse so that children are written in order
+				for(int i = carrier.shapeCount() - 1; i >= 0; i--) {
+					shapes.push(carrier.shapeAt(i));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Reads a tree written by writeTree() and returns its top Shape, which 
+	 * has no parent.
+	 * @throws IOException if the stream does not hold a valid tree.
+	 */
+	public static Shape readTree(DataInput in) throws IOException {
+		Shape top = null;
+		//carriers still being filled, with the number of children to go
+		Deque<CarrierShape> carriers = new ArrayDeque<CarrierShape>();
+		Deque<int[]> remaining = new ArrayDeque<int[]>();
+		do {
+			int kind = in.readByte();
+			int x = in.readInt();
+			int y = in.readInt();
+			int deltaX = in.readInt();
+			int deltaY = in.readInt();
+			int width = in.readInt();
+			int height = in.readInt();
+			int flags = in.readInt();
+			String text = in.readBoolean() ? in.readUTF() : null;
+			Shape shape;
+			int children = 0;
+			switch(kind) {
+			case ShapeKind.RECTANGLE:
+				shape = new RectangleShape(x, y, deltaX, deltaY, width, height);
+				break;
+			case ShapeKind.OVAL:
+				shape = new OvalShape(x, y, deltaX, deltaY, width, height);
+				break;
+			case ShapeKind.HEXAGON:
+				shape = new HexagonShape(x, y, deltaX, deltaY, width, height);
+				break;
+			case ShapeKind.DYNAMIC:
+				shape = new DynamicShape(x, y, deltaX, deltaY, width, height, new Color(in.readInt()));
+				break;
+			case ShapeKind.CARRIER:
+				shape = new CarrierShape(x, y, deltaX, deltaY, width, height);
+				children = in.readInt();
+				break;
+			default:
+				throw new IOException("Unknown shape kind " + kind);
+			}
+			shape.restoreFlags(flags);
+			shape._text = text;
+			
+			if(top == null) {
+				top = shape;
+			} else {
+				carriers.peek().add(shape);
+				remaining.peek()[0]--;
+			}
+			if(children > 0) {
+				carriers.push((CarrierShape) shape);
+				remaining.push(new int[] {children});
+			}
+			while(!remaining.isEmpty() && remaining.peek()[0] == 0) {
+				carriers.pop();
+				remaining.pop();
+			}
+		} while(!carriers.isEmpty());
+		return top;
+	}
+	
+	/**
+	 * Writes the position, deltas and bounce flags of shape and all shapes 
+	 * beneath it, in the order writeTree() uses. Exactly STATE_BYTES bytes 
+	 * are written per Shape.
+	 * @throws java.nio.BufferOverflowException if state has too little room.
+	 */
+	public static void writeState(Shape shape, ByteBuffer state) {
+		shape.detachFromStore();
+		Deque<Shape> shapes = new ArrayDeque<Shape>();
+		shapes.push(shape);
+		while(!shapes.isEmpty()) {
+			Shape next = shapes.pop();
+			state.putInt(next._x);
+			state.putInt(next._y);
+			state.putInt(next._deltaX);
+			state.putInt(next._deltaY);
+			state.put((byte) next.storeFlags());
+			if(next._kind == ShapeKind.CARRIER) {
+				CarrierShape carrier = (CarrierShape) next;
+				for(int i = carrier.shapeCount() - 1; i >= 0; i--) {
+					shapes.push(carrier.shapeAt(i));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Reads state written by writeState() into shape and the shapes beneath
+	 * it, which must have the structure of the tree the state was written 
+	 * from.
+	 * @throws java.nio.BufferUnderflowException if state holds too little.
+	 */
+	public static void readState(Shape shape, ByteBuffer state) {
+		shape.detachFromStore();
+		Deque<Shape> shapes = new ArrayDeque<Shape>();
+		shapes.push(shape);
+		while(!shapes.isEmpty()) {
+			Shape next = shapes.pop();
+			next._x = state.getInt();
+			next._y = state.getInt();
+			next._deltaX = state.getInt();
+			next._deltaY = state.getInt();
+			next.restoreFlags(state.get());
+			if(next._kind == ShapeKind.CARRIER) {
+				CarrierShape carrier = (CarrierShape) next;
+				for(int i = carrier.shapeCount() - 1; i >= 0; i--) {
+					shapes.push(carrier.shapeAt(i));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of shapes in the subtree below and including shape,
+	 * so that its state takes size() * STATE_BYTES bytes.
+	 */
+	public static int size(Shape shape) {
+		int size = 0;
+		Deque<Shape> shapes = new ArrayDeque<Shape>();
+		shapes.push(shape);
+		while(!shapes.isEmpty()) {
+			Shape next = shapes.pop();
+			size++;
+			if(next instanceof CarrierShape) {
+				CarrierShape carrier = (CarrierShape) next;
+				for(int i = 0; i < carrier.shapeCount(); i++) {
+					shapes.push(carrier.shapeAt(i));
+				}
+			}
+		}
+		return size;
+	}
+}
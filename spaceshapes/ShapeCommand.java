@@ -0,0 +1,22 @@
+package spaceshapes;
+
+/**
+ * Interface to represent a change to a ShapeModel posted from any thread 
+ * with ShapeModel.post(), and applied by the thread that clocks the model 
+ * at the next tick boundary. A command changes shapes directly, e.g. 
+ * through CarrierShape.add() or Shape.setDelta(), rather than through the
+ * ShapeModel methods that fire events: the model fires one ShapesChanged
+ * event for each batch of commands instead.
+ * 
+ * @author lchi184
+ *
+ */
+public interface ShapeCommand {
+	/**
+	 * Applies this command.
+	 * @param model the ShapeModel the command was posted to.
+	 * @throws IllegalArgumentException if the command cannot be applied, in
+	 * which case it is dropped.
+	 */
+	public void apply(ShapeModel model);
+}
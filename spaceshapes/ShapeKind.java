@@ -0,0 +1,55 @@
+package spaceshapes;
+
+/**
+ * Constants identifying the concrete Shape classes that CarrierShape 
+ * dispatches to through dedicated call sites, so that each call site only
+ * ever sees one receiver class and can be inlined by the JIT. Any other 
+ * class (including subclasses of the classes below) is OTHER and is 
+ * dispatched through a regular virtual call.
+ * 
+ * @author lchi184
+ *
+ */
+final class ShapeKind {
+	static final int RECTANGLE = 0;
+	
+	static final int OVAL = 1;
+	
+	static final int HEXAGON = 2;
+	
+	static final int DYNAMIC = 3;
+	
+	static final int IMAGE = 4;
+	
+	static final int CARRIER = 5;
+	
+	static final int OTHER = 6;
+	
+	static final int COUNT = 7;
+	
+	/*
+	 * Hidden constructor, all members are static.
+	 */
+	private ShapeKind() {
+	}
+	
+	/**
+	 * Returns the kind of the given concrete Shape class.
+	 */
+	static int of(Class<?> cls) {
+		if(cls == RectangleShape.class) {
+			return RECTANGLE;
+		} else if(cls == OvalShape.class) {
+			return OVAL;
+		} else if(cls == HexagonShape.class) {
+			return HEXAGON;
+		} else if(cls == DynamicShape.class) {
+			return DYNAMIC;
+		} else if(cls == ImageRectangleShape.class) {
+			return IMAGE;
+		} else if(cls == CarrierShape.class) {
+			return CARRIER;
+		}
+		return OTHER;
+	}
+}
@@ -1,8 +1,13 @@
 package spaceshapes;
 
 import java.awt.Dimension;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.StampedLock;
 
 /**
  * Class to represent a shape composition. Classes whose instances are 
@@ -13,10 +18,20 @@ import java.util.List;
  * move() request) the ShapeModel notifies all registered listeners by firing a
  * ShapeModelEvent.
  * 
+ * Threads other than the one that changes a ShapeModel read it with read(),
+ * which runs a ShapeReader optimistically: every ShapeModel method that 
+ * changes shapes holds a StampedLock's write lock, and a read is retried if
+ * a change started while it ran. Readers never block changes and changes 
+ * never wait for readers. Shapes changed other than through this 
+ * ShapeModel's methods, e.g. through CarrierShape.add() directly, are not
+ * covered.
+ * 
  * @author Paramvir Singh (Original Author - Ian Warren)
  *
  */
 public class ShapeModel {
+	// Default time in nanoseconds bulk operations may take per tick.
+	public static final long DEFAULT_JOB_BUDGET = 2000000;
 	
 	// Root of the shape composition.
 	private CarrierShape _root;
@@ -27,6 +42,48 @@ public class ShapeModel {
 	// List of ShapeModelListeners.
 	private List<ShapeModelListener> _listeners;
 	
+	// Strategy used by clock() to move the shape composition.
+	private TickEngine _engine;
+	
+	// Shapes handed back by recycle(), reused by acquire().
+	private ShapePool _pool;
+	
+	// Policy setting the tick divisor of every CarrierShape, or null.
+	private DetailPolicy _detailPolicy;
+	
+	// Accumulator of where shapes spend their time, or null.
+	private OccupancyMap _occupancy;
+	
+	// Commands posted from any thread, applied at the next tick boundary.
+	private CommandQueue<ShapeCommand> _commands;
+	
+	// Commands being applied, kept to reuse its capacity.
+	private List<ShapeCommand> _batch;
+	
+	// Number of posted commands dropped because they could not be applied.
+	private long _rejectedCommands;
+	
+	// Run when a command is posted while none are waiting, or null.
+	private volatile Runnable _commandListener;
+	
+	// Bulk operations submitted from any thread, not yet started.
+	private CommandQueue<BulkOperation> _submitted;
+	
+	// Bulk operations in progress, in the order submitted.
+	private List<BulkOperation> _jobs;
+	
+	// Time in nanoseconds bulk operations may take per tick.
+	private volatile long _jobBudget;
+	
+	// Held in write mode while shapes are changed, validated by read().
+	private final StampedLock _lock = new StampedLock();
+	
+	// Thread holding _lock in write mode, or null.
+	private volatile Thread _writer;
+	
+	// Number of read() calls and of runs discarded because of a change.
+	private final AtomicLong _reads = new AtomicLong();
+	private final AtomicLong _retries = new AtomicLong();
 	
 	/**
 	 * Creates a ShapeModel with specified height and width bounds.
@@ -35,6 +92,13 @@ public class ShapeModel {
 		_root = new CarrierShape(0, 0, 0, 0, bounds.width, bounds.height);
 		_bounds = bounds;
 		_listeners = new ArrayList<ShapeModelListener>();
+		_engine = new SequentialTickEngine();
+		_pool = new ShapePool();
+		_commands = new CommandQueue<ShapeCommand>();
+		_batch = new ArrayList<ShapeCommand>();
+		_submitted = new CommandQueue<BulkOperation>();
+		_jobs = new ArrayList<BulkOperation>();
+		_jobBudget = DEFAULT_JOB_BUDGET;
 	}
 
 	/**
@@ -56,17 +120,24 @@ public class ShapeModel {
 	 * @param parent the intended parent of the new shape.
 	 */
 	public boolean add(Shape shape, CarrierShape parent) {
-		boolean success = true;
-		
+		long stamp = beginWrite();
 		try {
-			parent.add(shape);
+			boolean success = true;
+		
+			try {
+				parent.add(shape);
 			
-			// Fire event.
-			fire(ShapeModelEvent.makeShapeAddedEvent(shape, this));
-		} catch(IllegalArgumentException e) {
-			success = false;
+				// Fire event, if anyone is listening.
+				if(!_listeners.isEmpty()) {
+					fire(ShapeModelEvent.makeShapeAddedEvent(shape, this));
+				}
+			} catch(IllegalArgumentException e) {
+				success = false;
+			}
+			return success;
+		} finally {
+			endWrite(stamp);
 		}
-		return success;
 	}
 	
 	/**
@@ -78,31 +149,598 @@ public class ShapeModel {
 	 * @param shape the Shape to remove.
 	 */
 	public void remove(Shape shape) {
-		// Remove shape from its parent.
-		CarrierShape parent = shape.parent();
+		long stamp = beginWrite();
+		try {
+			// Remove shape from its parent.
+			CarrierShape parent = shape.parent();
 		
-		if(parent != null) {
-			int index = parent.indexOf(shape);
-			parent.remove(shape);
+			if(parent != null) {
+				int index = parent.indexOf(shape);
+				parent.remove(shape);
 		
-			// Fire event.
-			fire(ShapeModelEvent.makeShapeRemovedEvent(shape, parent, index, this));
+				// Fire event, if anyone is listening.
+				if(!_listeners.isEmpty()) {
+					fire(ShapeModelEvent.makeShapeRemovedEvent(shape, parent, index, this));
+				}
+			}
+		} finally {
+			endWrite(stamp);
 		}
 	}
 
+	/**
+	 * Adds one instance of template to parent at each of the given positions
+	 * in a single bulk operation. Only the top Shape of each instance is 
+	 * checked against parent's bounds, since the shapes beneath it fitted 
+	 * when the template was captured. Either every instance is added or, if
+	 * any would not fit, none is and an IllegalArgumentException is thrown.
+	 * Instances are added one after the other at the end of parent, and 
+	 * registered listeners are sent ONE ShapesChanged ShapeModelEvent for 
+	 * the whole batch.
+	 * @param template the subtree to copy.
+	 * @param parent the intended parent of the new instances.
+	 * @param xs x position of each instance.
+	 * @param ys y position of each instance.
+	 * @return the top Shape of each instance, in order.
+	 */
+	public List<Shape> stamp(ShapeTemplate template, CarrierShape parent, int[] xs, int[] ys) {
+		long stamp = beginWrite();
+		try {
+			if(xs.length != ys.length) {
+				throw new IllegalArgumentException();
+			}
+			int width = parent.width();
+			int height = parent.height();
+			for(int i = 0; i < xs.length; i++) {
+				if(!template.fits(xs[i], ys[i], width, height)) {
+					throw new IllegalArgumentException();
+				}
+			}
+			List<Shape> instances = new ArrayList<Shape>(xs.length);
+			if(xs.length == 0) {
+				return instances;
+			}
+			//the columnar layout no longer matches the tree, hand state back
+			parent.detachFromStore();
+			parent.reserve(xs.length);
+			for(int i = 0; i < xs.length; i++) {
+				Shape instance = template.instantiate(xs[i], ys[i]);
+				parent.adopt(instance);
+				instances.add(instance);
+			}
+		
+			// Fire event, if anyone is listening.
+			if(!_listeners.isEmpty()) {
+				fire(ShapeModelEvent.makeShapesChangedEvent(_root, this));
+			}
+			return instances;
+		} finally {
+			endWrite(stamp);
+		}
+	}
+	
+	/**
+	 * Rolls this ShapeModel back to a recorded version of its root: every
+	 * child of the root CarrierShape is removed and the children recorded by
+	 * version are rebuilt in their place. Either the whole version is 
+	 * restored or, if a recorded Shape cannot be rebuilt or does not fit 
+	 * within the root, nothing changes and IllegalArgumentException is 
+	 * thrown. If anyone is listening, ONE ShapesChanged ShapeModelEvent is 
+	 * fired. The root's own position is left as it is.
+	 * @param version a version of a CarrierShape, e.g. from a ModelHistory.
+	 * @see ShapeVersion#instantiate()
+	 */
+	public void restore(ShapeVersion version) throws IllegalArgumentException {
+		long stamp = beginWrite();
+		try {
+			if(!version.isCarrier()) {
+				throw new IllegalArgumentException();
+			}
+			List<Shape> children = new ArrayList<Shape>(version.childCount());
+			for(int i = 0; i < version.childCount(); i++) {
+				Shape child = version.childAt(i).instantiate();
+				if(child.isOutOfBounds(_root.width(), _root.height())) {
+					throw new IllegalArgumentException();
+				}
+				children.add(child);
+			}
+			List<Shape> doomed = new ArrayList<Shape>(_root.shapeCount());
+			for(int i = 0; i < _root.shapeCount(); i++) {
+				doomed.add(_root.shapeAt(i));
+			}
+			_engine.release(_root);
+			_root.removeAll(doomed);
+			_root.reserve(children.size());
+			for(int i = 0; i < children.size(); i++) {
+				_root.adopt(children.get(i));
+			}
+		
+			// Fire event, if anyone is listening.
+			if(!_listeners.isEmpty()) {
+				fire(ShapeModelEvent.makeShapesChangedEvent(_root, this));
+			}
+		} finally {
+			endWrite(stamp);
+		}
+	}
+	
+	/**
+	 * Returns a Shape of the given class from this ShapeModel's ShapePool, 
+	 * ready to be added with add(). 
+	 * @see ShapePool#acquire
+	 */
+	public <T extends Shape> T acquire(Class<T> cls, int x, int y, int deltaX, int deltaY, int width, int height) {
+		return _pool.acquire(cls, x, y, deltaX, deltaY, width, height);
+	}
+	
+	/**
+	 * Removes the specified Shape as remove() does and hands it, along with
+	 * any shapes it carries, back to this ShapeModel's ShapePool. The shape
+	 * must no longer be used by the caller.
+	 * @param shape the Shape to remove and recycle.
+	 */
+	public void recycle(Shape shape) {
+		remove(shape);
+		_pool.release(shape);
+	}
+	
+	/**
+	 * Returns the ShapePool used by acquire() and recycle().
+	 */
+	public ShapePool pool() {
+		return _pool;
+	}
+	
+	/**
+	 * Posts a command to be applied at the start of the next clock() or 
+	 * advance() call, or by applyCommands(). Unlike the other methods of 
+	 * ShapeModel, this method may be called from any thread without 
+	 * synchronization.
+	 */
+	public void post(ShapeCommand command) {
+		if(_commands.post(command)) {
+			Runnable listener = _commandListener;
+			if(listener != null) {
+				listener.run();
+			}
+		}
+	}
+	
+	/**
+	 * Sets a Runnable that post() runs, on the posting thread, when a 
+	 * command is posted while no other commands are waiting; e.g. to wake a
+	 * SimulationLoop that has stopped ticking an idle model.
+	 * @param listener the Runnable, or null for none.
+	 */
+	public void setCommandListener(Runnable listener) {
+		_commandListener = listener;
+	}
+	
+	/**
+	 * Posts a command adding shape to parent. The command is dropped if the
+	 * shape cannot be added, for the reasons add() would return false.
+	 * May be called from any thread.
+	 */
+	public void postAdd(final Shape shape, final CarrierShape parent) {
+		post(new ShapeCommand() {
+			@Override
+			public void apply(ShapeModel model) {
+				parent.add(shape);
+			}
+		});
+	}
+	
+	/**
+	 * Posts a command adding a record to carrier with 
+	 * OffHeapCarrierShape.addRecord(). The command is dropped if the record
+	 * does not fit or carrier's store is full. May be called from any 
+	 * thread.
+	 */
+	public void postAddRecord(final OffHeapCarrierShape carrier, final int parent, final int kind, 
+			final int x, final int y, final int deltaX, final int deltaY, final int width, final int height) {
+		post(new ShapeCommand() {
+			@Override
+			public void apply(ShapeModel model) {
+				if(carrier.records().size() == carrier.records().capacity()) {
+					throw new IllegalArgumentException();
+				}
+				carrier.addRecord(parent, kind, x, y, deltaX, deltaY, width, height);
+			}
+		});
+	}
+	
+	/**
+	 * Posts a command removing shape from its parent, if it still has one 
+	 * when the command is applied. May be called from any thread.
+	 */
+	public void postRemove(final Shape shape) {
+		post(new ShapeCommand() {
+			@Override
+			public void apply(ShapeModel model) {
+				CarrierShape parent = shape.parent();
+				if(parent != null) {
+					parent.remove(shape);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Applies every posted command in the order posted and, if there were 
+	 * any and anyone is listening, fires ONE ShapesChanged ShapeModelEvent 
+	 * for the whole batch. Called by clock() and advance(); must be called 
+	 * by the thread that clocks this ShapeModel. A command that throws 
+	 * IllegalArgumentException is dropped; any other exception is passed 
+	 * on once the commands applied so far have been reported, and the rest
+	 * of the batch is dropped. Dropped commands are counted by 
+	 * rejectedCommandCount().
+	 * @return the number of commands applied.
+	 */
+	public int applyCommands() {
+		long stamp = beginWrite();
+		try {
+			if(_commands.isEmpty()) {
+				return 0;
+			}
+			List<ShapeCommand> batch = _batch;
+			_commands.drain(batch);
+			int applied = 0;
+			int i = 0;
+			try {
+				for(; i < batch.size(); i++) {
+					try {
+						batch.get(i).apply(this);
+						applied++;
+					} catch(IllegalArgumentException e) {
+						_rejectedCommands++;
+					}
+				}
+			} finally {
+				//any other exception drops the rest of the batch, which must 
+				//not be applied again by the next call
+				_rejectedCommands += batch.size() - i;
+				batch.clear();
+			
+				// Fire event, if anyone is listening.
+				if(applied > 0 && !_listeners.isEmpty()) {
+					fire(ShapeModelEvent.makeShapesChangedEvent(_root, this));
+				}
+			}
+			return applied;
+		} finally {
+			endWrite(stamp);
+		}
+	}
+	
+	/**
+	 * Returns the number of posted commands dropped because they could not
+	 * be applied.
+	 */
+	public long rejectedCommandCount() {
+		return _rejectedCommands;
+	}
+	
+	/**
+	 * Submits a BulkOperation, to be applied in chunks at the start of the
+	 * following ticks. Operations run one after the other in the order 
+	 * submitted. May be called from any thread; the command listener is 
+	 * run as for post().
+	 */
+	public void submit(BulkOperation operation) {
+		if(_submitted.post(operation)) {
+			Runnable listener = _commandListener;
+			if(listener != null) {
+				listener.run();
+			}
+		}
+	}
+	
+	/**
+	 * Sets the time bulk operations may take per tick. An operation always
+	 * gets at least one chunk of BulkOperation.CHUNK_SIZE shapes per tick.
+	 * @param nanos budget per tick in nanoseconds.
+	 */
+	public void setJobBudget(long nanos) {
+		if(nanos <= 0) {
+			throw new IllegalArgumentException();
+		}
+		_jobBudget = nanos;
+	}
+	
+	/**
+	 * Returns the time in nanoseconds bulk operations may take per tick.
+	 */
+	public long jobBudget() {
+		return _jobBudget;
+	}
+	
+	/**
+	 * Returns true if submitted bulk operations are not finished yet. Must 
+	 * be called by the thread that clocks this ShapeModel.
+	 */
+	public boolean hasPendingJobs() {
+		return !_jobs.isEmpty() || !_submitted.isEmpty();
+	}
+	
+	/**
+	 * Returns true if further ticks would change nothing: every Shape has 
+	 * zero deltas, no CarrierShape has ticks pending because of its tick 
+	 * divisor, no ParticleCarrierShape holds or spawns particles and no 
+	 * commands or bulk operations are waiting. Must be called by the thread
+	 * that clocks this ShapeModel.
+	 */
+	public boolean isAtRest() {
+		return _commands.isEmpty() && !hasPendingJobs() && _root.isAtRest();
+	}
+	
+	/**
+	 * Applies submitted bulk operations until they are finished or the job
+	 * budget is spent and, if any shapes were changed and anyone is 
+	 * listening, fires ONE ShapesChanged ShapeModelEvent. Called by clock()
+	 * and advance(); must be called by the thread that clocks this 
+	 * ShapeModel.
+	 * @return the number of shapes changed.
+	 */
+	public int runJobs() {
+		long stamp = beginWrite();
+		try {
+			_submitted.drain(_jobs);
+			if(_jobs.isEmpty()) {
+				return 0;
+			}
+			long deadline = System.nanoTime() + _jobBudget;
+			int changed = 0;
+			boolean progressed = false;
+			while(!_jobs.isEmpty()) {
+				BulkOperation job = _jobs.get(0);
+				int completed = job.completed();
+				changed += job.run(deadline);
+				progressed |= job.completed() > completed;
+				if(!job.isFinished()) {
+					break;
+				}
+				_jobs.remove(0);
+				//cancelled operations do not use up the tick
+				if(progressed && System.nanoTime() >= deadline) {
+					break;
+				}
+			}
+		
+			// Fire event, if anyone is listening.
+			if(changed > 0 && !_listeners.isEmpty()) {
+				fire(ShapeModelEvent.makeShapesChangedEvent(_root, this));
+			}
+			return changed;
+		} finally {
+			endWrite(stamp);
+		}
+	}
+	
 	/**
 	 * Progresses the animation. Calling this method causes each Shape in this 
 	 * ShapeModel to move before notifying each registered ShapeModelListener 
 	 * of the movement. Note that a clock() call results in ONE ShapeModelEvent
-	 * being fired; the event identifies the root CarrierShape.
+	 * being fired; the event identifies the root CarrierShape. Any posted
+	 * commands and a share of any bulk operations are applied first, with 
+	 * their own ShapesChanged events.
 	 */
 	public void clock() {
-		_root.move(_bounds.width, _bounds.height);
+		long stamp = beginWrite();
+		try {
+			applyCommands();
+			runJobs();
+			if(_detailPolicy != null) {
+				applyDetailPolicy(_detailPolicy);
+			}
+			_engine.tick(_root, _bounds.width, _bounds.height);
+			if(_occupancy != null) {
+				_occupancy.tick(_root);
+			}
+		
+			// Fire event, if anyone is listening.
+			if(!_listeners.isEmpty()) {
+				fire(ShapeModelEvent.makeShapeMovedEvent(_root, this));
+			}
+		} finally {
+			endWrite(stamp);
+		}
+	}
+
+	/**
+	 * Fast-forwards the animation. The effect is the same as calling clock()
+	 * the given number of times, but positions are computed in closed form 
+	 * so the cost depends only on the number of shapes. The exception is 
+	 * a ParticleCarrierShape, which replays at most its particle lifetime 
+	 * and so ends up with particles of different, though equally random, 
+	 * deltas. ONE ShapeModelEvent is fired, identifying the root 
+	 * CarrierShape.
+	 * @param ticks number of ticks to advance by.
+	 */
+	public void advance(long ticks) {
+		long stamp = beginWrite();
+		try {
+			applyCommands();
+			runJobs();
+			_engine.release(_root);
+			_root.advance(ticks, _bounds.width, _bounds.height);
 		
-		// Fire event.
-		fire(ShapeModelEvent.makeShapeMovedEvent(_root, this));
+			// Fire event, if anyone is listening.
+			if(!_listeners.isEmpty()) {
+				fire(ShapeModelEvent.makeShapeMovedEvent(_root, this));
+			}
+		} finally {
+			endWrite(stamp);
+		}
+	}
+	
+	/**
+	 * Replaces the TickEngine used by clock(). The current engine is asked to
+	 * hand any state it holds back to the Shape objects before it is 
+	 * replaced. 
+	 * @param engine the TickEngine to use, e.g. a ColumnarTickEngine to run
+	 * the model in a columnar ShapeStore.
+	 */
+	public void setTickEngine(TickEngine engine) {
+		long stamp = beginWrite();
+		try {
+			_engine.release(_root);
+			_engine = engine;
+		} finally {
+			endWrite(stamp);
+		}
+	}
+	
+	/**
+	 * Returns the TickEngine used by clock().
+	 */
+	public TickEngine tickEngine() {
+		return _engine;
 	}
 
+	/**
+	 * Sets the level-of-detail policy that chooses the tick divisor of 
+	 * every CarrierShape before each clock() call. Setting the policy to 
+	 * null sets every divisor back to 1. 
+	 * @param policy the DetailPolicy to use, e.g. a ViewportDetailPolicy, 
+	 * or null to leave divisors to be set by hand.
+	 * @see CarrierShape#setTickDivisor(int)
+	 */
+	public void setDetailPolicy(DetailPolicy policy) {
+		long stamp = beginWrite();
+		try {
+			_detailPolicy = policy;
+			if(policy == null) {
+				applyDetailPolicy(null);
+			}
+		} finally {
+			endWrite(stamp);
+		}
+	}
+	
+	/**
+	 * Returns the level-of-detail policy, or null.
+	 */
+	public DetailPolicy detailPolicy() {
+		return _detailPolicy;
+	}
+	
+	/**
+	 * Sets an OccupancyMap that accumulates where shapes spend their time,
+	 * ticked by every clock() call after the composition has moved; ticks 
+	 * skipped with advance() are not accumulated.
+	 * @param map the OccupancyMap, or null for none.
+	 */
+	public void setOccupancyMap(OccupancyMap map) {
+		_occupancy = map;
+	}
+	
+	/**
+	 * Returns the OccupancyMap, or null.
+	 */
+	public OccupancyMap occupancyMap() {
+		return _occupancy;
+	}
+	
+	/**
+	 * Returns the total number of ticks on which the contents of a 
+	 * CarrierShape in this ShapeModel were not stepped because of its tick
+	 * divisor.
+	 */
+	public long ticksSaved() {
+		long saved = 0;
+		Deque<CarrierShape> carriers = new ArrayDeque<CarrierShape>();
+		carriers.push(_root);
+		while(!carriers.isEmpty()) {
+			CarrierShape carrier = carriers.pop();
+			saved += carrier.ticksSaved();
+			for(int i = 0; i < carrier.shapeCount(); i++) {
+				if(carrier.shapeAt(i) instanceof CarrierShape) {
+					carriers.push((CarrierShape) carrier.shapeAt(i));
+				}
+			}
+		}
+		return saved;
+	}
+	
+	/*
+	 * Sets the tick divisor of every CarrierShape as chosen by policy, or to
+	 * 1 if policy is null. Positions relative to the root are tracked 
+	 * alongside the carriers.
+	 */
+	private void applyDetailPolicy(DetailPolicy policy) {
+		Deque<CarrierShape> carriers = new ArrayDeque<CarrierShape>();
+		Deque<int[]> origins = new ArrayDeque<int[]>();
+		carriers.push(_root);
+		origins.push(new int[] {0, 0});
+		while(!carriers.isEmpty()) {
+			CarrierShape carrier = carriers.pop();
+			int[] origin = origins.pop();
+			int x = origin[0] + carrier.x();
+			int y = origin[1] + carrier.y();
+			carrier.setTickDivisor(policy == null ? 1 : policy.tickDivisor(carrier, x, y));
+			for(int i = 0; i < carrier.shapeCount(); i++) {
+				if(carrier.shapeAt(i) instanceof CarrierShape) {
+					carriers.push((CarrierShape) carrier.shapeAt(i));
+					origins.push(new int[] {x, y});
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs reader against a consistent state of this ShapeModel and returns
+	 * its result. May be called from any thread. The reader is run without
+	 * locking and run again if shapes were changed through this ShapeModel
+	 * while it ran, or if it failed with a RuntimeException because of such
+	 * a change; while shapes are being changed, the calling thread waits 
+	 * for the change to end. A read() from a listener, or from any other 
+	 * code running in the middle of a change, runs reader once.
+	 * @throws RuntimeException whatever reader throws against a consistent
+	 * state.
+	 */
+	public <T> T read(ShapeReader<T> reader) {
+		_reads.incrementAndGet();
+		if(_writer == Thread.currentThread()) {
+			return reader.read(_root);
+		}
+		while(true) {
+			long stamp = _lock.tryOptimisticRead();
+			if(stamp != 0) {
+				T result = null;
+				RuntimeException failure = null;
+				try {
+					result = reader.read(_root);
+				} catch(RuntimeException e) {
+					failure = e;
+				}
+				if(_lock.validate(stamp)) {
+					if(failure != null) {
+						throw failure;
+					}
+					return result;
+				}
+				_retries.incrementAndGet();
+			}
+			//a change is in progress, give the changing thread the CPU
+			LockSupport.parkNanos(1000);
+		}
+	}
+	
+	/**
+	 * Returns the number of read() calls made so far.
+	 */
+	public long readCount() {
+		return _reads.get();
+	}
+	
+	/**
+	 * Returns the number of times read() ran a ShapeReader again because 
+	 * shapes were changed while it ran.
+	 */
+	public long readRetryCount() {
+		return _retries.get();
+	}
+	
 	/**
 	 * Registers a ShapeModelListener on this ShapeModel object.
 	 */
@@ -117,13 +755,38 @@ public class ShapeModel {
 		_listeners.remove(listener);
 	}
 	
+	/*
+	 * Takes the write lock unless the current thread already holds it, and 
+	 * returns the stamp to pass to endWrite(), 0 if the lock was held.
+	 */
+	private long beginWrite() {
+		Thread current = Thread.currentThread();
+		if(_writer == current) {
+			return 0;
+		}
+		long stamp = _lock.writeLock();
+		_writer = current;
+		return stamp;
+	}
+	
+	/*
+	 * Releases the write lock taken by the beginWrite() call that returned
+	 * stamp.
+	 */
+	private void endWrite(long stamp) {
+		if(stamp != 0) {
+			_writer = null;
+			_lock.unlockWrite(stamp);
+		}
+	}
+	
 	/*
 	 * Iterates through registered ShapeModelListeners and fires a 
 	 * ShapeModelEvent to each in turn.
 	 */
 	private void fire(ShapeModelEvent event) {
-		for(ShapeModelListener listener : _listeners) {
-			listener.update(event);
+		for(int i = 0; i < _listeners.size(); i++) {
+			_listeners.get(i).update(event);
 		}
 	}
 }
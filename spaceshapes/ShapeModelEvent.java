@@ -10,8 +10,11 @@ package spaceshapes;
  */
 public class ShapeModelEvent {
 
-	// Set of event types.
-	public enum EventType {ShapeAdded, ShapeRemoved, ShapeMoved};
+	// Set of event types. ShapesChanged is fired once for a batch of posted
+	// ShapeCommands, which may have changed any part of the composition, 
+	// once for a batch of stamped ShapeTemplate instances and once per tick
+	// for the shapes changed by BulkOperations.
+	public enum EventType {ShapeAdded, ShapeRemoved, ShapeMoved, ShapesChanged};
 	
 	private EventType _type;      // Type of event.
 	private Shape _operand;       // Shape to which the event relates.
@@ -69,6 +72,17 @@ public class ShapeModelEvent {
 		return new ShapeModelEvent(EventType.ShapeMoved, shapeMoved, parent, index, source);
 	}
 	
+	/**
+	 * Creates a ShapesChanged ShapeModelEvent, for a batch of ShapeCommands,
+	 * stamped instances or chunks of BulkOperations.
+	 * @param root the root CarrierShape of source.
+	 * @param source the ShapeModel object that fires the event.
+	 */
+	public static ShapeModelEvent makeShapesChangedEvent(
+			CarrierShape root, ShapeModel source) {
+		return new ShapeModelEvent(EventType.ShapesChanged, root, null, -1, source);
+	}
+	
 	/*
 	 * Hidden constructor used by the static factory methods. 
 	 */
@@ -82,7 +96,7 @@ public class ShapeModelEvent {
 	
 	/**
 	 * Returns the type of the event, one of ShapeAdded, ShapeRemoved, 
-	 * ShapeMoved.
+	 * ShapeMoved, ShapesChanged.
 	 */
 	public EventType eventType() {
 		return _type;
@@ -0,0 +1,179 @@
+package spaceshapes;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Class to represent a pool of Shape objects for workloads that add and
+ * remove shapes at a high rate. Shapes handed back with release() are kept
+ * in one free list per ShapeKind and reset when they are acquired again, so
+ * a steady churn of shapes allocates no new Shape objects, and a pooled
+ * CarrierShape keeps the backing arrays of its child lists.
+ *
+ * RectangleShape, OvalShape, HexagonShape, DynamicShape and CarrierShape
+ * are pooled; shapes of any other class (including subclasses) are left to
+ * the garbage collector. A released Shape must no longer be used by the
+ * caller.
+ *
+ * @author lchi184
+ *
+ */
+public class ShapePool {
+	// Default maximum number of free shapes kept per ShapeKind.
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	//free shapes of each ShapeKind
+	private final List<List<Shape>> _free;
+
+	private final int _capacity;
+
+	private long _created;
+
+	private long _reused;
+
+	/**
+	 * Creates a ShapePool keeping up to DEFAULT_CAPACITY free shapes per
+	 * class.
+	 */
+	public ShapePool() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a ShapePool.
+	 * @param capacity maximum number of free shapes kept per class.
+	 */
+	public ShapePool(int capacity) {
+		if(capacity < 0) {
+			throw new IllegalArgumentException();
+		}
+		_free = new ArrayList<List<Shape>>(ShapeKind.COUNT);
+		for(int i = 0; i < ShapeKind.COUNT; i++) {
+			_free.add(new ArrayList<Shape>());
+		}
+		_capacity = capacity;
+	}
+
+	/**
+	 * Returns a Shape of the given class with the given values, reusing a
+	 * released one if there is one. The Shape has no parent and no text.
+	 * @param cls one of RectangleShape, OvalShape, HexagonShape, DynamicShape
+	 * or CarrierShape.
+	 * @throws IllegalArgumentException if cls is not pooled.
+	 */
+	public <T extends Shape> T acquire(Class<T> cls, int x, int y, int deltaX, int deltaY, int width, int height) {
+		int kind = kindOf(cls);
+		if(kind < 0) {
+			throw new IllegalArgumentException();
+		}
+		List<Shape> free = _free.get(kind);
+		if(free.isEmpty()) {
+			_created++;
+			return cls.cast(create(kind, x, y, deltaX, deltaY, width, height));
+		}
+		Shape shape = free.remove(free.size() - 1);
+		shape.reset(x, y, deltaX, deltaY, width, height);
+		_reused++;
+		return cls.cast(shape);
+	}
+
+	/**
+	 * Hands a Shape back to this pool. The contents of a CarrierShape are
+	 * released along with it, and the records of an OffHeapCarrierShape are
+	 * closed, freeing their native memory.
+	 * @throws IllegalArgumentException if shape still has a parent.
+	 */
+	public void release(Shape shape) {
+		if(shape.parent() != null) {
+			throw new IllegalArgumentException();
+		}
+		if(!(shape instanceof CarrierShape)) {
+			free(shape);
+			return;
+		}
+		//nested carriers are emptied with an explicit stack, not recursion
+		Deque<Shape> shapes = new ArrayDeque<Shape>();
+		shapes.push(shape);
+		while(!shapes.isEmpty()) {
+			Shape next = shapes.pop();
+			if(next instanceof CarrierShape) {
+				CarrierShape carrier = (CarrierShape) next;
+				for(int i = 0; i < carrier.shapeCount(); i++) {
+					Shape child = carrier.shapeAt(i);
+					child.removeParent();
+					shapes.push(child);
+				}
+			}
+			free(next);
+		}
+	}
+	
+	/*
+	 * Resets a Shape with no parent and no children and adds it to its free
+	 * list, unless it is not pooled or the free list is full.
+	 */
+	private void free(Shape shape) {
+		if(shape instanceof OffHeapCarrierShape) {
+			//not pooled, but its records hold native memory until closed
+			OffHeapShapeStore records = ((OffHeapCarrierShape) shape).records();
+			if(records.isOpen()) {
+				records.close();
+			}
+		}
+		int kind = kindOf(shape.getClass());
+		if(kind >= 0 && _free.get(kind).size() < _capacity) {
+			shape.reset(0, 0, 0, 0, 0, 0);
+			_free.get(kind).add(shape);
+		}
+	}
+
+	/**
+	 * Returns the number of free shapes of the given class.
+	 */
+	public int freeCount(Class<? extends Shape> cls) {
+		int kind = kindOf(cls);
+		return kind < 0 ? 0 : _free.get(kind).size();
+	}
+
+	/**
+	 * Returns the number of shapes acquire() has had to create.
+	 */
+	public long createdCount() {
+		return _created;
+	}
+
+	/**
+	 * Returns the number of shapes acquire() has reused.
+	 */
+	public long reusedCount() {
+		return _reused;
+	}
+
+	/*
+	 * Returns the ShapeKind of a pooled class, or -1 for other classes.
+	 */
+	private static int kindOf(Class<?> cls) {
+		int kind = ShapeKind.of(cls);
+		return kind == ShapeKind.IMAGE || kind == ShapeKind.OTHER ? -1 : kind;
+	}
+
+	/*
+	 * Creates a new Shape of the given pooled ShapeKind.
+	 */
+	private static Shape create(int kind, int x, int y, int deltaX, int deltaY, int width, int height) {
+		switch(kind) {
+		case ShapeKind.OVAL:
+			return new OvalShape(x, y, deltaX, deltaY, width, height);
+		case ShapeKind.HEXAGON:
+			return new HexagonShape(x, y, deltaX, deltaY, width, height);
+		case ShapeKind.DYNAMIC:
+			return new DynamicShape(x, y, deltaX, deltaY, width, height);
+		case ShapeKind.CARRIER:
+			return new CarrierShape(x, y, deltaX, deltaY, width, height);
+		default:
+			return new RectangleShape(x, y, deltaX, deltaY, width, height);
+		}
+	}
+}
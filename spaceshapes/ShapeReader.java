@@ -0,0 +1,20 @@
+package spaceshapes;
+
+/**
+ * Interface to represent a read of a ShapeModel's shapes by a thread other
+ * than the one that changes the model, run with ShapeModel.read(). A 
+ * ShapeReader may be run several times for one read() call and may see the 
+ * model while it is being changed, in which case its result is discarded; 
+ * it must therefore only read shapes, keep no state between runs and 
+ * return its result rather than acting on it.
+ * 
+ * @author lchi184
+ *
+ */
+public interface ShapeReader<T> {
+	/**
+	 * Reads shapes and returns what was read.
+	 * @param root the root CarrierShape of the model being read.
+	 */
+	public T read(CarrierShape root);
+}
@@ -0,0 +1,351 @@
+package spaceshapes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class to represent a columnar (structure-of-arrays) backing store for a
+ * shape composition. Position, delta and size state for every Shape in the
+ * composition is held in primitive int columns, laid out breadth-first so
+ * that each carrier level occupies a contiguous range of slots. While a 
+ * Shape is held by a store its accessors read from the columns; calling any
+ * object level mutator (e.g. move(), or adding/removing children) releases 
+ * the store and hands the state back to the Shape objects.
+ * 
+ * Positions may be evaluated lazily: a slot's x and y columns hold its 
+ * position at its base tick, and the position at the store's current tick is
+ * extrapolated along its deltas. Engines that move every slot every tick 
+ * (e.g. ColumnarTickEngine) never advance the current tick, so the columns 
+ * always hold the current position.
+ * 
+ * @author lchi184
+ *
+ */
+public class ShapeStore {
+	// === Bits of the flags column.
+	static final int DYNAMIC = 1;
+	
+	static final int LAST_BOUNCE_HORIZONTAL = 2;
+	// ===
+	
+	// === Columns, one entry per slot.
+	final int[] _x;
+	
+	final int[] _y;
+	
+	final int[] _deltaX;
+	
+	final int[] _deltaY;
+	
+	final int[] _width;
+	
+	final int[] _height;
+	
+	//slot of parent CarrierShape, -1 for the root
+	final int[] _parent;
+	
+	final int[] _flags;
+	
+	final Shape[] _shapes;
+	
+	//tick at which x and y of each slot were last brought up to date
+	final long[] _baseTick;
+	// ===
+	
+	//current tick, positions of slots are extrapolated from their base tick
+	long _now;
+	
+	//first slot of each carrier level, plus one past the last slot
+	private final int[] _levelStart;
+	
+	//slots of CarrierShapes with children, in layout order
+	private final int[] _carriers;
+	
+	//range of child slots of each slot in _carriers; children are contiguous
+	private final int[] _firstChild;
+	
+	private final int[] _childEnd;
+	
+	//shapes whose contents are held outside the tree, moved by moveContents()
+	private final OffHeapCarrierShape[] _offHeap;
+	
+	private final ParticleCarrierShape[] _emitters;
+	
+	//CarrierShapes whose children collide, resolved by collide()
+	private final CarrierShape[] _colliding;
+	
+	private boolean _released;
+	
+	/**
+	 * Creates a ShapeStore holding root and all of its descendants. Any store
+	 * already holding one of these shapes is released first.
+	 */
+	public ShapeStore(CarrierShape root) {
+		root.detachFromStore();
+		
+		//breadth-first layout so each level is one contiguous range of slots
+		List<Shape> order = new ArrayList<Shape>();
+		List<Integer> parents = new ArrayList<Integer>();
+		List<Integer> levels = new ArrayList<Integer>();
+		List<Integer> carriers = new ArrayList<Integer>();
+		List<Integer> firstChildren = new ArrayList<Integer>();
+		List<Integer> childEnds = new ArrayList<Integer>();
+		List<OffHeapCarrierShape> offHeap = new ArrayList<OffHeapCarrierShape>();
+		List<ParticleCarrierShape> emitters = new ArrayList<ParticleCarrierShape>();
+		List<CarrierShape> colliding = new ArrayList<CarrierShape>();
+		order.add(root);
+		parents.add(-1);
+		levels.add(0);
+		int levelEnd = 1;
+		for(int i = 0; i < order.size(); i++) {
+			if(i == levelEnd) {
+				levels.add(i);
+				levelEnd = order.size();
+			}
+			Shape shape = order.get(i);
+			if(shape instanceof OffHeapCarrierShape) {
+				offHeap.add((OffHeapCarrierShape) shape);
+			} else if(shape instanceof ParticleCarrierShape) {
+				emitters.add((ParticleCarrierShape) shape);
+			}
+			if(shape instanceof CarrierShape && ((CarrierShape) shape).shapeCount() > 0) {
+				CarrierShape carrier = (CarrierShape) shape;
+				if(carrier.broadPhase() != null) {
+					colliding.add(carrier);
+				}
+				carriers.add(i);
+				firstChildren.add(order.size());
+				childEnds.add(order.size() + carrier.shapeCount());
+				for(int j = 0; j < carrier.shapeCount(); j++) {
+					Shape child = carrier.shapeAt(j);
+					child.detachFromStore();
+					order.add(child);
+					parents.add(i);
+				}
+			}
+		}
+		levels.add(order.size());
+		
+		int size = order.size();
+		_x = new int[size];
+		_y = new int[size];
+		_deltaX = new int[size];
+		_deltaY = new int[size];
+		_width = new int[size];
+		_height = new int[size];
+		_parent = new int[size];
+		_flags = new int[size];
+		_shapes = order.toArray(new Shape[size]);
+		_baseTick = new long[size];
+		_now = 0;
+		_levelStart = new int[levels.size()];
+		for(int i = 0; i < _levelStart.length; i++) {
+			_levelStart[i] = levels.get(i);
+		}
+		_carriers = new int[carriers.size()];
+		_firstChild = new int[carriers.size()];
+		_childEnd = new int[carriers.size()];
+		for(int i = 0; i < _carriers.length; i++) {
+			_carriers[i] = carriers.get(i);
+			_firstChild[i] = firstChildren.get(i);
+			_childEnd[i] = childEnds.get(i);
+		}
+		
+		for(int i = 0; i < size; i++) {
+			Shape shape = _shapes[i];
+			_x[i] = shape._x;
+			_y[i] = shape._y;
+			_deltaX[i] = shape._deltaX;
+			_deltaY[i] = shape._deltaY;
+			_width[i] = shape._width;
+			_height[i] = shape._height;
+			_parent[i] = parents.get(i);
+			_flags[i] = shape.storeFlags();
+			shape._store = this;
+			shape._slot = i;
+		}
+		_offHeap = offHeap.toArray(new OffHeapCarrierShape[offHeap.size()]);
+		_emitters = emitters.toArray(new ParticleCarrierShape[emitters.size()]);
+		_colliding = colliding.toArray(new CarrierShape[colliding.size()]);
+		_released = false;
+	}
+	
+	/**
+	 * Moves every Shape held by this store by one tick, applying the same
+	 * bounce rules as Shape.move() and DynamicShape.move(). The root is 
+	 * moved within the given bounds, all other shapes within their parent.
+	 * @param width width of two-dimensional world.
+	 * @param height height of two-dimensional world.
+	 */
+	public void move(int width, int height) {
+		if(_released) {
+			throw new IllegalStateException();
+		}
+		for(int level = 0; level < _levelStart.length - 1; level++) {
+			moveRange(_levelStart[level], _levelStart[level + 1], width, height);
+		}
+		moveContents();
+		collide();
+	}
+	
+	/**
+	 * Moves every Shape held by this store by one tick, using kernel to move
+	 * the children of each CarrierShape. Children of one carrier occupy a 
+	 * contiguous range of slots and share the same bounds.
+	 * @param width width of two-dimensional world.
+	 * @param height height of two-dimensional world.
+	 * @param kernel the MoveKernel to move children with.
+	 */
+	public void move(int width, int height, MoveKernel kernel) {
+		if(_released) {
+			throw new IllegalStateException();
+		}
+		moveRange(0, 1, width, height);
+		for(int i = 0; i < _carriers.length; i++) {
+			int carrier = _carriers[i];
+			kernel.moveChildren(this, _firstChild[i], _childEnd[i], _width[carrier], _height[carrier]);
+		}
+		moveContents();
+		collide();
+	}
+	
+	/**
+	 * Moves the records of every OffHeapCarrierShape and the particles of 
+	 * every ParticleCarrierShape held by this store by one tick. Both are 
+	 * relative to their carrier, so this does not depend on the carrier's
+	 * position.
+	 */
+	void moveContents() {
+		for(OffHeapCarrierShape shape : _offHeap) {
+			shape.records().move();
+		}
+		for(ParticleCarrierShape shape : _emitters) {
+			shape.moveParticles();
+		}
+	}
+	
+	/**
+	 * Resolves collisions between the children of every CarrierShape held
+	 * by this store that has a broad-phase, once every slot has moved. A 
+	 * collision changes deltas through Shape.setDelta(), which releases the
+	 * store.
+	 */
+	void collide() {
+		for(CarrierShape carrier : _colliding) {
+			carrier.collide();
+		}
+	}
+	
+	/*
+	 * Moves the slots in [from, to) by one tick.
+	 */
+	void moveRange(int from, int to, int rootWidth, int rootHeight) {
+		final int[] xs = _x, ys = _y, dxs = _deltaX, dys = _deltaY;
+		final int[] ws = _width, hs = _height, ps = _parent, fs = _flags;
+		
+		for(int i = from; i < to; i++) {
+			int p = ps[i];
+			int boundsWidth = p < 0 ? rootWidth : ws[p];
+			int boundsHeight = p < 0 ? rootHeight : hs[p];
+			int flags = fs[i];
+			int nextX = xs[i] + dxs[i];
+			int nextY = ys[i] + dys[i];
+			
+			if (nextX <= 0) {
+				nextX = 0;
+				dxs[i] = -dxs[i];
+				flags |= LAST_BOUNCE_HORIZONTAL;
+			} else if (nextX + ws[i] >= boundsWidth) {
+				nextX = boundsWidth - ws[i];
+				dxs[i] = -dxs[i];
+				flags |= LAST_BOUNCE_HORIZONTAL;
+			}
+			
+			if (nextY <= 0) {
+				nextY = 0;
+				dys[i] = -dys[i];
+				flags &= ~LAST_BOUNCE_HORIZONTAL;
+			} else if (nextY + hs[i] >= boundsHeight) {
+				nextY = boundsHeight - hs[i];
+				dys[i] = -dys[i];
+				flags &= ~LAST_BOUNCE_HORIZONTAL;
+			}
+			
+			xs[i] = nextX;
+			ys[i] = nextY;
+			//bounce state is only tracked for DynamicShapes
+			if((flags & DYNAMIC) != 0) {
+				fs[i] = flags;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the x position of a slot at the current tick.
+	 */
+	int x(int slot) {
+		return (int)(_x[slot] + (_now - _baseTick[slot]) * _deltaX[slot]);
+	}
+	
+	/**
+	 * Returns the y position of a slot at the current tick.
+	 */
+	int y(int slot) {
+		return (int)(_y[slot] + (_now - _baseTick[slot]) * _deltaY[slot]);
+	}
+	
+	/**
+	 * Brings the x and y columns of a slot up to date with the current tick.
+	 */
+	void materialize(int slot) {
+		_x[slot] = x(slot);
+		_y[slot] = y(slot);
+		_baseTick[slot] = _now;
+	}
+	
+	/**
+	 * Copies the state held in the columns back into the Shape objects and
+	 * detaches them from this store. Has no effect if the store has already
+	 * been released.
+	 */
+	public void release() {
+		if(_released) {
+			return;
+		}
+		_released = true;
+		for(int i = 0; i < _shapes.length; i++) {
+			Shape shape = _shapes[i];
+			materialize(i);
+			shape._x = _x[i];
+			shape._y = _y[i];
+			shape._deltaX = _deltaX[i];
+			shape._deltaY = _deltaY[i];
+			shape._width = _width[i];
+			shape._height = _height[i];
+			shape.restoreFlags(_flags[i]);
+			shape._store = null;
+			shape._slot = 0;
+		}
+	}
+	
+	/**
+	 * Returns true if this store no longer holds its shapes.
+	 */
+	public boolean isReleased() {
+		return _released;
+	}
+	
+	/**
+	 * Returns the number of shapes held by this store.
+	 */
+	public int size() {
+		return _shapes.length;
+	}
+	
+	/**
+	 * Returns the number of carrier levels, the root being level 0.
+	 */
+	public int levelCount() {
+		return _levelStart.length - 1;
+	}
+}
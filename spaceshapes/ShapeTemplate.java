@@ -0,0 +1,187 @@
+package spaceshapes;
+
+import java.awt.Color;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Immutable snapshot of a shape subtree from which any number of copies can
+ * be instantiated. The subtree is captured in pre-order into flat arrays 
+ * holding the geometry, deltas, bounce flags, text and colour of every 
+ * Shape and the number of children of every CarrierShape. Since the 
+ * captured tree already satisfied CarrierShape.add(), copies are built 
+ * without repeating its checks, and the nodes of a copy are allocated one
+ * after the other in pre-order. RectangleShape, OvalShape, HexagonShape,
+ * DynamicShape and CarrierShape can be captured; broad-phases and tick 
+ * divisors are not.
+ * 
+ * @author lchi184
+ *
+ */
+public final class ShapeTemplate {
+	private final int[] _kinds;
+	private final int[] _x;
+	private final int[] _y;
+	private final int[] _deltaX;
+	private final int[] _deltaY;
+	private final int[] _width;
+	private final int[] _height;
+	private final int[] _flags;
+	private final String[] _texts;
+	private final Color[] _colors;
+	// Number of children of each CarrierShape, 0 for other shapes.
+	private final int[] _children;
+	
+	/**
+	 * Captures shape and all shapes beneath it. Later changes to the tree do
+	 * not affect the template.
+	 * @throws IllegalArgumentException if the tree holds a Shape of a class
+	 * that cannot be captured.
+	 */
+	public ShapeTemplate(Shape shape) {
+		int size = ShapeCodec.size(shape);
+		_kinds = new int[size];
+		_x = new int[size];
+		_y = new int[size];
+		_deltaX = new int[size];
+		_deltaY = new int[size];
+		_width = new int[size];
+		_height = new int[size];
+		_flags = new int[size];
+		_texts = new String[size];
+		_colors = new Color[size];
+		_children = new int[size];
+		
+		shape.detachFromStore();
+		//nested carriers are walked with an explicit stack, not recursion
+		Deque<Shape> shapes = new ArrayDeque<Shape>();
+		shapes.push(shape);
+		int i = 0;
+		while(!shapes.isEmpty()) {
+			Shape next = shapes.pop();
+			int kind = next._kind;
+			if(kind == ShapeKind.IMAGE || kind == ShapeKind.OTHER) {
+				throw new IllegalArgumentException();
+			}
+			_kinds[i] = kind;
+			_x[i] = next._x;
+			_y[i] = next._y;
+			_deltaX[i] = next._deltaX;
+			_deltaY[i] = next._deltaY;
+			_width[i] = next._width;
+			_height[i] = next._height;
+			_flags[i] = next.storeFlags();
+			_texts[i] = next._text;
+			if(kind == ShapeKind.DYNAMIC) {
+				_colors[i] = ((DynamicShape) next).color();
+			} else if(kind == ShapeKind.CARRIER) {
+				CarrierShape carrier = (CarrierShape) next;
+				_children[i] = carrier.shapeCount();
+				//pushed in reverse so that children are captured in order
+				for(int j = carrier.shapeCount() - 1; j >= 0; j--) {
+					shapes.push(carrier.shapeAt(j));
+				}
+			}
+			i++;
+		}
+	}
+	
+	/**
+	 * Returns the number of shapes in the template.
+	 */
+	public int size() {
+		return _kinds.length;
+	}
+	
+	/**
+	 * Returns the width of the top Shape.
+	 */
+	public int width() {
+		return _width[0];
+	}
+	
+	/**
+	 * Returns the height of the top Shape.
+	 */
+	public int height() {
+		return _height[0];
+	}
+	
+	/**
+	 * Returns a copy of the captured tree, at the captured position. The 
+	 * copy's top Shape has no parent.
+	 */
+	public Shape instantiate() {
+		return instantiate(_x[0], _y[0]);
+	}
+	
+	/**
+	 * Returns a copy of the captured tree with its top Shape at the given 
+	 * position; shapes beneath it keep their positions relative to their 
+	 * parents. The copy's top Shape has no parent.
+	 */
+	public Shape instantiate(int x, int y) {
+		Shape top = create(0, x, y);
+		if(_children[0] == 0) {
+			return top;
+		}
+		//carriers still being filled, with the number of children to go
+		CarrierShape[] carriers = new CarrierShape[_kinds.length];
+		int[] remaining = new int[_kinds.length];
+		int depth = 0;
+		carriers[0] = (CarrierShape) top;
+		remaining[0] = _children[0];
+		carriers[0].reserve(_children[0]);
+		for(int i = 1; i < _kinds.length; i++) {
+			Shape shape = create(i, _x[i], _y[i]);
+			carriers[depth].adopt(shape);
+			remaining[depth]--;
+			if(_children[i] > 0) {
+				depth++;
+				carriers[depth] = (CarrierShape) shape;
+				remaining[depth] = _children[i];
+				carriers[depth].reserve(_children[i]);
+			}
+			while(depth >= 0 && remaining[depth] == 0) {
+				depth--;
+			}
+		}
+		return top;
+	}
+	
+	/**
+	 * Returns true if the top Shape would fit within the given bounds at 
+	 * the given position.
+	 */
+	boolean fits(int x, int y, int width, int height) {
+		return x >= 0 && x + _width[0] <= width && y >= 0 && y + _height[0] <= height;
+	}
+	
+	/*
+	 * Creates the i-th captured Shape, without children, at the given 
+	 * position.
+	 */
+	private Shape create(int i, int x, int y) {
+		Shape shape;
+		switch(_kinds[i]) {
+		case ShapeKind.RECTANGLE:
+			shape = new RectangleShape(x, y, _deltaX[i], _deltaY[i], _width[i], _height[i]);
+			break;
+		case ShapeKind.OVAL:
+			shape = new OvalShape(x, y, _deltaX[i], _deltaY[i], _width[i], _height[i]);
+			break;
+		case ShapeKind.HEXAGON:
+			shape = new HexagonShape(x, y, _deltaX[i], _deltaY[i], _width[i], _height[i]);
+			break;
+		case ShapeKind.DYNAMIC:
+			shape = new DynamicShape(x, y, _deltaX[i], _deltaY[i], _width[i], _height[i], _colors[i]);
+			break;
+		default:
+			shape = new CarrierShape(x, y, _deltaX[i], _deltaY[i], _width[i], _height[i]);
+			break;
+		}
+		shape.restoreFlags(_flags[i]);
+		shape._text = _texts[i];
+		return shape;
+	}
+}
@@ -0,0 +1,408 @@
+package spaceshapes;
+
+import java.awt.Color;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Immutable record of the state of a Shape, and for a CarrierShape of its 
+ * children, at one point in time. Versions of a tree are persistent: 
+ * capture() builds a new version from the live tree and reuses every node
+ * of the previous version whose Shape has not changed, along with that 
+ * node's whole subtree, so a version costs memory only for the shapes that
+ * changed and their ancestors. Since nodes never change once built, 
+ * versions may be read from any thread without locking, and may be shared
+ * between versions freely.
+ * 
+ * The particles of a ParticleCarrierShape are recorded with it, as their 
+ * positions only. The records of an OffHeapCarrierShape are not recorded:
+ * they are kept off-heap precisely because there are too many to copy.
+ * 
+ * @author lchi184
+ *
+ */
+public final class ShapeVersion {
+	private static final ShapeVersion[] NO_CHILDREN = new ShapeVersion[0];
+	private static final int[] NO_PARTICLES = new int[0];
+	
+	private final Class<? extends Shape> _class;
+	private final int _kind;
+	private final int _x;
+	private final int _y;
+	private final int _deltaX;
+	private final int _deltaY;
+	private final int _width;
+	private final int _height;
+	private final int _flags;
+	private final String _text;
+	private final Color _color;
+	// Never changed once built, and shared between versions.
+	private final ShapeVersion[] _children;
+	private final boolean _carrier;
+	// Particle positions of a ParticleCarrierShape, relative to it.
+	private final int[] _particleX;
+	private final int[] _particleY;
+	
+	/*
+	 * Creates a node recording shape, with the given children.
+	 */
+	private ShapeVersion(Shape shape, ShapeVersion[] children) {
+		_class = shape.getClass();
+		_kind = shape._kind;
+		_x = shape.x();
+		_y = shape.y();
+		_deltaX = shape.deltaX();
+		_deltaY = shape.deltaY();
+		_width = shape.width();
+		_height = shape.height();
+		_flags = shape.currentFlags();
+		_text = shape.text();
+		_color = _kind == ShapeKind.DYNAMIC ? ((DynamicShape) shape).color() : null;
+		_children = children;
+		_carrier = shape instanceof CarrierShape;
+		if(shape instanceof ParticleCarrierShape && ((ParticleCarrierShape) shape).particleCount() > 0) {
+			ParticleCarrierShape emitter = (ParticleCarrierShape) shape;
+			_particleX = new int[emitter.particleCount()];
+			_particleY = new int[emitter.particleCount()];
+			for(int i = 0; i < _particleX.length; i++) {
+				_particleX[i] = emitter.particleX(i);
+				_particleY[i] = emitter.particleY(i);
+			}
+		} else {
+			_particleX = NO_PARTICLES;
+			_particleY = NO_PARTICLES;
+		}
+	}
+	
+	/**
+	 * Returns a version of shape and all shapes beneath it, reusing the 
+	 * nodes of previous wherever shapes have not changed. Children are 
+	 * matched by index, so shapes that only moved within their parent's 
+	 * child list are recorded afresh. Must be called while the tree is not
+	 * being changed, e.g. by the thread that clocks it.
+	 * @param shape the top of the live tree.
+	 * @param previous an earlier version of the same tree, or null.
+	 */
+	public static ShapeVersion capture(Shape shape, ShapeVersion previous) {
+		//carriers are walked with an explicit stack, not recursion, and a 
+		//carrier's node is built once all of its children's nodes are
+		Deque<Frame> frames = new ArrayDeque<Frame>();
+		ShapeVersion result = visit(shape, previous, frames);
+		while(!frames.isEmpty()) {
+			Frame frame = frames.peek();
+			if(frame._next == frame._children.length) {
+				frames.pop();
+				ShapeVersion node = frame.build();
+				if(frames.isEmpty()) {
+					result = node;
+				} else {
+					Frame parent = frames.peek();
+					parent._children[parent._next++] = node;
+				}
+				continue;
+			}
+			int i = frame._next;
+			Shape child = frame._carrier.shapeAt(i);
+			ShapeVersion node = visit(child, frame.previousChild(i), frames);
+			if(node != null) {
+				frame._children[frame._next++] = node;
+			}
+		}
+		return result;
+	}
+	
+	/*
+	 * Returns the node for a Shape that is not a CarrierShape, or pushes a 
+	 * frame for a CarrierShape and returns null.
+	 */
+	private static ShapeVersion visit(Shape shape, ShapeVersion previous, Deque<Frame> frames) {
+		if(shape instanceof CarrierShape) {
+			frames.push(new Frame((CarrierShape) shape, previous));
+			return null;
+		}
+		if(previous != null && previous.records(shape) && !previous._carrier) {
+			return previous;
+		}
+		return new ShapeVersion(shape, NO_CHILDREN);
+	}
+	
+	/*
+	 * A CarrierShape whose children are being captured.
+	 */
+	private static class Frame {
+		private CarrierShape _carrier;
+		private ShapeVersion _previous;
+		private ShapeVersion[] _children;
+		private int _next;
+		
+		Frame(CarrierShape carrier, ShapeVersion previous) {
+			_carrier = carrier;
+			_previous = previous != null && previous._carrier ? previous : null;
+			_children = new ShapeVersion[carrier.shapeCount()];
+		}
+		
+		ShapeVersion previousChild(int i) {
+			if(_previous == null || i >= _previous._children.length) {
+				return null;
+			}
+			return _previous._children[i];
+		}
+		
+		/*
+		 * Returns the node for the carrier, reusing the previous node, or at
+		 * least its child array, if nothing has changed.
+		 */
+		ShapeVersion build() {
+			ShapeVersion[] children = _children;
+			if(_previous != null && _previous._children.length == children.length) {
+				boolean same = true;
+				for(int i = 0; i < children.length && same; i++) {
+					same = children[i] == _previous._children[i];
+				}
+				if(same) {
+					if(_previous.records(_carrier)) {
+						return _previous;
+					}
+					children = _previous._children;
+				}
+			}
+			return new ShapeVersion(_carrier, children.length == 0 ? NO_CHILDREN : children);
+		}
+	}
+	
+	/*
+	 * Returns true if this node records the current state of shape.
+	 */
+	private boolean records(Shape shape) {
+		return _class == shape.getClass() && _x == shape.x() && _y == shape.y() 
+				&& _deltaX == shape.deltaX() && _deltaY == shape.deltaY() 
+				&& _width == shape.width() && _height == shape.height() 
+				&& _flags == shape.currentFlags() && equal(_text, shape.text())
+				&& (_kind != ShapeKind.DYNAMIC || _color.equals(((DynamicShape) shape).color()))
+				&& recordsParticles(shape);
+	}
+	
+	/*
+	 * Returns true if this node records the current particles of shape, if
+	 * it is a ParticleCarrierShape.
+	 */
+	private boolean recordsParticles(Shape shape) {
+		if(!(shape instanceof ParticleCarrierShape)) {
+			return true;
+		}
+		ParticleCarrierShape emitter = (ParticleCarrierShape) shape;
+		if(emitter.particleCount() != _particleX.length) {
+			return false;
+		}
+		for(int i = 0; i < _particleX.length; i++) {
+			if(emitter.particleX(i) != _particleX[i] || emitter.particleY(i) != _particleY[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static boolean equal(String a, String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+	
+	/**
+	 * Returns a new live tree in the state this version records, whose top 
+	 * Shape has no parent.
+	 * @throws IllegalArgumentException if the version records a Shape of a
+	 * class that cannot be rebuilt; RectangleShape, OvalShape, HexagonShape,
+	 * DynamicShape and CarrierShape can be.
+	 */
+	public Shape instantiate() {
+		Shape top = create();
+		//carriers are walked with an explicit stack, not recursion
+		Deque<ShapeVersion> nodes = new ArrayDeque<ShapeVersion>();
+		Deque<CarrierShape> shapes = new ArrayDeque<CarrierShape>();
+		if(_children.length > 0) {
+			nodes.push(this);
+			shapes.push((CarrierShape) top);
+		}
+		while(!nodes.isEmpty()) {
+			ShapeVersion node = nodes.pop();
+			CarrierShape carrier = shapes.pop();
+			carrier.reserve(node._children.length);
+			for(ShapeVersion child : node._children) {
+				Shape shape = child.create();
+				carrier.adopt(shape);
+				if(child._children.length > 0) {
+					nodes.push(child);
+					shapes.push((CarrierShape) shape);
+				}
+			}
+		}
+		return top;
+	}
+	
+	/*
+	 * Creates a Shape in the state recorded by this node, without children.
+	 */
+	private Shape create() {
+		Shape shape;
+		switch(_kind) {
+		case ShapeKind.RECTANGLE:
+			shape = new RectangleShape(_x, _y, _deltaX, _deltaY, _width, _height);
+			break;
+		case ShapeKind.OVAL:
+			shape = new OvalShape(_x, _y, _deltaX, _deltaY, _width, _height);
+			break;
+		case ShapeKind.HEXAGON:
+			shape = new HexagonShape(_x, _y, _deltaX, _deltaY, _width, _height);
+			break;
+		case ShapeKind.DYNAMIC:
+			shape = new DynamicShape(_x, _y, _deltaX, _deltaY, _width, _height, _color);
+			break;
+		case ShapeKind.CARRIER:
+			shape = new CarrierShape(_x, _y, _deltaX, _deltaY, _width, _height);
+			break;
+		default:
+			throw new IllegalArgumentException();
+		}
+		shape.restoreFlags(_flags);
+		shape._text = _text;
+		return shape;
+	}
+	
+	/**
+	 * Returns the class of the recorded Shape.
+	 */
+	public Class<? extends Shape> shapeClass() {
+		return _class;
+	}
+	
+	/**
+	 * Returns true if the recorded Shape is a CarrierShape.
+	 */
+	public boolean isCarrier() {
+		return _carrier;
+	}
+	
+	/**
+	 * Returns the recorded Shape's x position.
+	 */
+	public int x() {
+		return _x;
+	}
+	
+	/**
+	 * Returns the recorded Shape's y position.
+	 */
+	public int y() {
+		return _y;
+	}
+	
+	/**
+	 * Returns the recorded Shape's speed and direction.
+	 */
+	public int deltaX() {
+		return _deltaX;
+	}
+	
+	/**
+	 * Returns the recorded Shape's speed and direction.
+	 */
+	public int deltaY() {
+		return _deltaY;
+	}
+	
+	/**
+	 * Returns the recorded Shape's width.
+	 */
+	public int width() {
+		return _width;
+	}
+	
+	/**
+	 * Returns the recorded Shape's height.
+	 */
+	public int height() {
+		return _height;
+	}
+	
+	/**
+	 * Returns the recorded Shape's text, or null if it has none.
+	 */
+	public String text() {
+		return _text;
+	}
+	
+	/**
+	 * Returns the number of recorded particles, 0 unless the recorded 
+	 * Shape is a ParticleCarrierShape.
+	 */
+	public int particleCount() {
+		return _particleX.length;
+	}
+	
+	/**
+	 * Returns the recorded x position of a particle, relative to the 
+	 * recorded ParticleCarrierShape.
+	 */
+	public int particleX(int particle) throws IndexOutOfBoundsException {
+		return _particleX[particle];
+	}
+	
+	/**
+	 * Returns the recorded y position of a particle, relative to the 
+	 * recorded ParticleCarrierShape.
+	 */
+	public int particleY(int particle) throws IndexOutOfBoundsException {
+		return _particleY[particle];
+	}
+	
+	/**
+	 * Returns the number of recorded children.
+	 */
+	public int childCount() {
+		return _children.length;
+	}
+	
+	/**
+	 * Returns the recorded child at the given index.
+	 */
+	public ShapeVersion childAt(int index) throws IndexOutOfBoundsException {
+		return _children[index];
+	}
+	
+	/**
+	 * Returns the index of child among the recorded children, or -1.
+	 */
+	public int indexOf(ShapeVersion child) {
+		for(int i = 0; i < _children.length; i++) {
+			if(_children[i] == child) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Returns the number of nodes in this version.
+	 */
+	public int size() {
+		int size = 0;
+		Deque<ShapeVersion> nodes = new ArrayDeque<ShapeVersion>();
+		nodes.push(this);
+		while(!nodes.isEmpty()) {
+			ShapeVersion node = nodes.pop();
+			size++;
+			for(ShapeVersion child : node._children) {
+				nodes.push(child);
+			}
+		}
+		return size;
+	}
+	
+	/**
+	 * Returns the name of the recorded Shape's class, as Shape.toString() 
+	 * does.
+	 */
+	@Override
+	public String toString() {
+		return _class.getName();
+	}
+}
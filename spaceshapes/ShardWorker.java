@@ -0,0 +1,73 @@
+package spaceshapes;
+
+import java.awt.Dimension;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Worker process of a ShardedTickEngine. A worker connects to the 
+ * coordinator, receives the size of the world and the top-level subtrees 
+ * assigned to it, and then moves them one tick per TICK command, replying
+ * with their state, until it receives STOP or the connection closes.
+ * 
+ * @author lchi184
+ *
+ */
+public class ShardWorker {
+	// === Commands sent by the coordinator.
+	static final int TICK = 1;
+	
+	static final int STOP = 2;
+	// ===
+	
+	/**
+	 * Runs a worker.
+	 * @param args the port the coordinator listens on, on the loopback 
+	 * address.
+	 */
+	public static void main(String[] args) throws IOException {
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]));
+		socket.setTcpNoDelay(true);
+		try {
+			run(new DataInputStream(new BufferedInputStream(socket.getInputStream())),
+					new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())));
+		} finally {
+			socket.close();
+		}
+	}
+	
+	/*
+	 * Receives the subtrees and serves commands until told to stop.
+	 */
+	private static void run(DataInputStream in, DataOutputStream out) throws IOException {
+		ShapeModel model = new ShapeModel(new Dimension(in.readInt(), in.readInt()));
+		int count = in.readInt();
+		List<Shape> subtrees = new ArrayList<Shape>(count);
+		int size = 0;
+		for(int i = 0; i < count; i++) {
+			Shape shape = ShapeCodec.readTree(in);
+			model.root().add(shape);
+			subtrees.add(shape);
+			size += ShapeCodec.size(shape);
+		}
+		
+		ByteBuffer state = ByteBuffer.allocate(size * ShapeCodec.STATE_BYTES);
+		while(in.readByte() == TICK) {
+			model.clock();
+			state.clear();
+			for(Shape shape : subtrees) {
+				ShapeCodec.writeState(shape, state);
+			}
+			out.write(state.array());
+			out.flush();
+		}
+	}
+}
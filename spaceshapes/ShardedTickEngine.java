@@ -0,0 +1,255 @@
+package spaceshapes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TickEngine that spreads the children of the root over worker processes.
+ * Children of the root never interact, so each ShardWorker moves its share
+ * of them on its own, and the ShapeModel this engine is set on becomes a 
+ * replica whose shapes are updated from the state the workers stream back
+ * over loopback sockets. Workers are ticked in lockstep: every tick is sent
+ * to all of them before any reply is read, and a tick returns once every 
+ * worker has replied, so results are identical to those of 
+ * SequentialTickEngine.
+ * 
+ * Workers are started on the first tick, each being sent whole subtrees, 
+ * balanced by their number of shapes. Shapes must be of the classes 
+ * ShapeCodec can encode; broad-phases and tick divisors are not sent. After
+ * the structure of the scene changes, or shapes are changed by anything but
+ * ticks, the engine must be released (e.g. by setting it on the model 
+ * again) so that fresh subtrees are sent on the next tick.
+ * 
+ * @author lchi184
+ *
+ */
+public class ShardedTickEngine implements TickEngine {
+	// Longest time in milliseconds to wait for a worker to connect.
+	private static final int CONNECT_TIMEOUT = 30000;
+	
+	// Longest time in milliseconds to wait for a worker to exit.
+	private static final int EXIT_TIMEOUT = 5000;
+	
+	private final int _workerCount;
+	
+	// === Per worker state, empty while no workers are running.
+	private final List<Process> _processes;
+	
+	private final List<Socket> _sockets;
+	
+	private final List<DataInputStream> _inputs;
+	
+	private final List<DataOutputStream> _outputs;
+	
+	// Children of the root assigned to each worker, in the order sent.
+	private final List<List<Shape>> _assigned;
+	
+	// Buffer for the state of each worker's shapes.
+	private final List<ByteBuffer> _states;
+	// ===
+	
+	/**
+	 * Creates a ShardedTickEngine.
+	 * @param workerCount number of worker processes to start.
+	 */
+	public ShardedTickEngine(int workerCount) {
+		if(workerCount <= 0) {
+			throw new IllegalArgumentException();
+		}
+		_workerCount = workerCount;
+		_processes = new ArrayList<Process>();
+		_sockets = new ArrayList<Socket>();
+		_inputs = new ArrayList<DataInputStream>();
+		_outputs = new ArrayList<DataOutputStream>();
+		_assigned = new ArrayList<List<Shape>>();
+		_states = new ArrayList<ByteBuffer>();
+	}
+
+	@Override
+	public void tick(CarrierShape root, int width, int height) {
+		try {
+			if(_processes.isEmpty()) {
+				startWorkers(root, width, height);
+			}
+			root.moveSelf(width, height);
+			for(DataOutputStream out : _outputs) {
+				out.writeByte(ShardWorker.TICK);
+				out.flush();
+			}
+			for(int i = 0; i < _inputs.size(); i++) {
+				ByteBuffer state = _states.get(i);
+				_inputs.get(i).readFully(state.array());
+				state.clear();
+				for(Shape shape : _assigned.get(i)) {
+					ShapeCodec.readState(shape, state);
+				}
+			}
+		} catch(IOException e) {
+			stopWorkers();
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Stops the workers. The replica already holds the state of the last 
+	 * tick.
+	 */
+	@Override
+	public void release(CarrierShape root) {
+		stopWorkers();
+	}
+	
+	/**
+	 * Returns the number of worker processes running.
+	 */
+	public int runningWorkers() {
+		return _processes.size();
+	}
+	
+	/**
+	 * Returns the children of the root assigned to the given worker, or an
+	 * empty list if workers are not running.
+	 */
+	public List<Shape> assigned(int worker) {
+		return worker < _assigned.size() ? new ArrayList<Shape>(_assigned.get(worker)) 
+				: new ArrayList<Shape>();
+	}
+	
+	/*
+	 * Starts the workers, waits for each to connect and sends it its share
+	 * of the children of root.
+	 */
+	private void startWorkers(CarrierShape root, int width, int height) throws IOException {
+		root.detachFromStore();
+		//largest subtrees first, each to the worker with fewest shapes so far
+		List<Shape> children = new ArrayList<Shape>();
+		List<Integer> sizes = new ArrayList<Integer>();
+		for(int i = 0; i < root.shapeCount(); i++) {
+			Shape child = root.shapeAt(i);
+			int size = ShapeCodec.size(child);
+			int at = 0;
+			while(at < sizes.size() && sizes.get(at) >= size) {
+				at++;
+			}
+			children.add(at, child);
+			sizes.add(at, size);
+		}
+		int[] loads = new int[_workerCount];
+		for(int i = 0; i < _workerCount; i++) {
+			_assigned.add(new ArrayList<Shape>());
+		}
+		for(int i = 0; i < children.size(); i++) {
+			int least = 0;
+			for(int j = 1; j < _workerCount; j++) {
+				if(loads[j] < loads[least]) {
+					least = j;
+				}
+			}
+			_assigned.get(least).add(children.get(i));
+			loads[least] += sizes.get(i);
+		}
+		for(int i = 0; i < _workerCount; i++) {
+			_states.add(ByteBuffer.allocate(loads[i] * ShapeCodec.STATE_BYTES));
+		}
+		
+		ServerSocket server = new ServerSocket(0, _workerCount, InetAddress.getLoopbackAddress());
+		try {
+			server.setSoTimeout(CONNECT_TIMEOUT);
+			for(int i = 0; i < _workerCount; i++) {
+				_processes.add(launch(server.getLocalPort()));
+			}
+			for(int i = 0; i < _workerCount; i++) {
+				Socket socket = server.accept();
+				socket.setTcpNoDelay(true);
+				_sockets.add(socket);
+				_inputs.add(new DataInputStream(new BufferedInputStream(socket.getInputStream())));
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+				_outputs.add(out);
+				
+				List<Shape> shapes = _assigned.get(i);
+				out.writeInt(width);
+				out.writeInt(height);
+				out.writeInt(shapes.size());
+				for(Shape shape : shapes) {
+					ShapeCodec.writeTree(shape, out);
+				}
+				out.flush();
+			}
+		} catch(IOException | RuntimeException e) {
+			stopWorkers();
+			throw e;
+		} finally {
+			server.close();
+		}
+	}
+	
+	/*
+	 * Starts a worker process on the class path of this JVM.
+	 */
+	private static Process launch(int port) throws IOException {
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		//the shapes may need the same incubator modules as this JVM
+		for(String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+			if(argument.startsWith("--add-modules")) {
+				command.add(argument);
+			}
+		}
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(ShardWorker.class.getName());
+		command.add(Integer.toString(port));
+		return new ProcessBuilder(command).redirectOutput(ProcessBuilder.Redirect.DISCARD)
+				.redirectError(ProcessBuilder.Redirect.INHERIT).start();
+	}
+	
+	/*
+	 * Tells the workers to stop and waits for them to exit.
+	 */
+	private void stopWorkers() {
+		for(DataOutputStream out : _outputs) {
+			try {
+				out.writeByte(ShardWorker.STOP);
+				out.flush();
+			} catch(IOException e) {
+				// Already gone.
+			}
+		}
+		for(Socket socket : _sockets) {
+			try {
+				socket.close();
+			} catch(IOException e) {
+				// Already closed.
+			}
+		}
+		for(Process process : _processes) {
+			try {
+				if(!process.waitFor(EXIT_TIMEOUT, TimeUnit.MILLISECONDS)) {
+					process.destroyForcibly();
+				}
+			} catch(InterruptedException e) {
+				process.destroy();
+				Thread.currentThread().interrupt();
+			}
+		}
+		_processes.clear();
+		_sockets.clear();
+		_inputs.clear();
+		_outputs.clear();
+		_assigned.clear();
+		_states.clear();
+	}
+}
@@ -0,0 +1,78 @@
+package spaceshapes;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * BroadPhase that sorts shapes by their left edge and sweeps along the x 
+ * axis, reporting the pairs whose horizontal extents overlap. The order
+ * of the previous call is kept and re-sorted by insertion sort, which is
+ * close to linear as shapes only move a few pixels per tick; when shapes 
+ * are added or removed the order is rebuilt with a full sort. Suits scenes
+ * where shapes are spread out horizontally.
+ * 
+ * @author lchi184
+ *
+ */
+public class SweepAndPruneBroadPhase implements BroadPhase {
+	//shapes in order of left edge, packed as (x << 32) | index
+	private long[] _order = new long[0];
+	
+	//right edge of each shape, by index
+	private int[] _right = new int[0];
+
+	@Override
+	public void findPairs(List<Shape> shapes, int width, int height, CollisionPairs pairs) {
+		int count = shapes.size();
+		long[] order = _order;
+		int[] right = _right;
+		boolean rebuilt = order.length != count;
+		if(rebuilt) {
+			//children were added or removed, start from index order
+			order = new long[count];
+			right = new int[count];
+			for(int i = 0; i < count; i++) {
+				order[i] = i;
+			}
+			_order = order;
+			_right = right;
+		}
+		
+		for(int i = 0; i < count; i++) {
+			int index = (int) order[i];
+			Shape shape = shapes.get(index);
+			int x = shape.x();
+			order[i] = ((long) x << 32) | index;
+			right[index] = x + shape.width();
+		}
+		if(rebuilt) {
+			//index order is unrelated to position, so insertion sort is O(n^2)
+			Arrays.sort(order);
+		} else {
+			insertionSort(order);
+		}
+		
+		for(int i = 0; i < count; i++) {
+			int index = (int) order[i];
+			int end = right[index];
+			for(int j = i + 1; j < count && (int) (order[j] >> 32) < end; j++) {
+				pairs.add(index, (int) order[j]);
+			}
+		}
+	}
+	
+	/*
+	 * Sorts keys in place, in close to linear time if they are nearly sorted.
+	 */
+	private static void insertionSort(long[] keys) {
+		for(int i = 1; i < keys.length; i++) {
+			long key = keys[i];
+			int j = i - 1;
+			while(j >= 0 && keys[j] > key) {
+				keys[j + 1] = keys[j];
+				j--;
+			}
+			keys[j + 1] = key;
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package spaceshapes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Dimension;
+
+import org.junit.Test;
+
+/**
+ * Class to test that ActiveSetTickEngine skips shapes at rest, wakes them
+ * when required and otherwise behaves exactly as SequentialTickEngine.
+ * 
+ * @author lchi184
+ *
+ */
+public class TestActiveSetTickEngine {
+	
+	/**
+	 * Checks generated scenes with parked shapes added, tick by tick.
+	 */
+	@Test
+	public void testMatchesSequentialOnGeneratedScenes() {
+		for(long seed = 1; seed <= 5; seed++) {
+			ShapeModel sequential = new ShapeModel(new Dimension(1000, 1000));
+			ShapeModel active = new ShapeModel(new Dimension(1000, 1000));
+			new SceneGenerator(seed, 4, 30).populate(sequential);
+			new SceneGenerator(seed, 4, 30).populate(active);
+			park(sequential);
+			park(active);
+			active.setTickEngine(new ActiveSetTickEngine());
+			
+			for(int i = 0; i < 2000; i++) {
+				sequential.clock();
+				active.clock();
+				assertArrayEquals("seed " + seed + " tick " + i, 
+						SceneGenerator.state(sequential.root()), 
+						SceneGenerator.state(active.root()));
+			}
+		}
+	}
+	
+	/**
+	 * Checks that parked shapes are dropped from the active set and woken by
+	 * add() and setDelta().
+	 */
+	@Test
+	public void testDormantShapesAreSkippedAndWoken() {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		ActiveSetTickEngine engine = new ActiveSetTickEngine();
+		model.setTickEngine(engine);
+		park(model);
+		
+		// Root, carrier and its four children, and the parked DynamicShape.
+		assertEquals(1 + 1 + 4 + 1, engine.activeCount(model.root()));
+		model.clock();
+		model.clock();
+		model.clock();
+		assertEquals(0, engine.activeCount(model.root()));
+		
+		CarrierShape carrier = (CarrierShape) model.root().shapeAt(0);
+		Shape parked = carrier.shapeAt(1);
+		parked.setDelta(3, 0);
+		assertEquals(3, engine.activeCount(model.root()));
+		model.clock();
+		assertEquals(23, parked.x());
+		
+		model.add(new RectangleShape(50, 50, 0, 1, 10, 10), model.root());
+		assertEquals(4, engine.activeCount(model.root()));
+		
+		parked.setDelta(0, 0);
+		model.remove(parked);
+		model.clock();
+		model.clock();
+		assertEquals(2, engine.activeCount(model.root()));
+	}
+	
+	/**
+	 * Checks that posting a record to a parked OffHeapCarrierShape runs the
+	 * command listener and puts the carrier back in the active set.
+	 */
+	@Test
+	public void testPostedRecordWakesParkedCarrier() {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		ActiveSetTickEngine engine = new ActiveSetTickEngine();
+		model.setTickEngine(engine);
+		OffHeapCarrierShape carrier = new OffHeapCarrierShape(0, 0, 0, 0, 200, 200, 4);
+		model.add(carrier, model.root());
+		model.clock();
+		model.clock();
+		assertEquals(0, engine.activeCount(model.root()));
+		assertTrue(model.isAtRest());
+		
+		final int[] pings = new int[1];
+		model.setCommandListener(new Runnable() {
+			@Override
+			public void run() {
+				pings[0]++;
+			}
+		});
+		model.postAddRecord(carrier, -1, OffHeapShapeStore.RECTANGLE, 10, 10, 2, 0, 5, 5);
+		assertEquals(1, pings[0]);
+		assertFalse(model.isAtRest());
+		
+		model.clock();
+		assertEquals(1, carrier.records().size());
+		assertEquals(2, engine.activeCount(model.root()));
+		model.clock();
+		assertEquals(14, carrier.records().x(0));
+		assertFalse(model.isAtRest());
+		carrier.records().close();
+	}
+	
+	/*
+	 * Adds a still carrier holding parked shapes, some resting against walls,
+	 * and a parked DynamicShape in the corner of the root.
+	 */
+	private void park(ShapeModel model) {
+		CarrierShape carrier = new CarrierShape(0, 0, 0, 0, 200, 200);
+		model.add(carrier, model.root());
+		model.add(new RectangleShape(0, 40, 0, 0, 10, 10), carrier);
+		model.add(new OvalShape(20, 20, 0, 0, 10, 10), carrier);
+		model.add(new DynamicShape(190, 190, 0, 0, 10, 10, Color.RED), carrier);
+		model.add(new DynamicShape(30, 0, 0, 0, 10, 10, Color.RED), carrier);
+		model.add(new DynamicShape(0, 0, 0, 0, 10, 10, Color.GREEN), model.root());
+	}
+}
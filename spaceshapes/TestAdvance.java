@@ -0,0 +1,119 @@
+package spaceshapes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.awt.Dimension;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Class to test that Shape.advance() and ShapeModel.advance() end up 
+ * exactly where repeated move() and clock() calls would.
+ * 
+ * @author lchi184
+ *
+ */
+public class TestAdvance {
+	
+	/**
+	 * Checks single shapes with random, including degenerate, parameters:
+	 * zero deltas, shapes larger than their bounds and shapes that start out
+	 * of bounds.
+	 */
+	@Test
+	public void testSingleShapesMatchRepeatedMoves() {
+		Random random = new Random(11);
+		for(int i = 0; i < 3000; i++) {
+			int bound = 1 + random.nextInt(60);
+			int size = random.nextInt(70);
+			int x = random.nextInt(80) - 10;
+			int y = random.nextInt(80) - 10;
+			int deltaX = random.nextInt(41) - 20;
+			int deltaY = random.nextInt(7) - 3;
+			int ticks = random.nextInt(200);
+			
+			DynamicShape moved = new DynamicShape(x, y, deltaX, deltaY, size, size);
+			DynamicShape advanced = new DynamicShape(x, y, deltaX, deltaY, size, size);
+			for(int t = 0; t < ticks; t++) {
+				moved.move(bound, bound);
+			}
+			advanced.advance(ticks, bound, bound);
+			
+			String message = "case " + i;
+			assertEquals(message, moved.x(), advanced.x());
+			assertEquals(message, moved.y(), advanced.y());
+			assertEquals(message, moved.deltaX(), advanced.deltaX());
+			assertEquals(message, moved.deltaY(), advanced.deltaY());
+			assertEquals(message, moved.lastBounceHorizontal(), advanced.lastBounceHorizontal());
+		}
+	}
+	
+	/**
+	 * Checks generated nested scenes against repeated clock() calls, and 
+	 * that one ShapeMoved event is fired.
+	 */
+	@Test
+	public void testModelMatchesRepeatedClocks() {
+		for(long seed = 1; seed <= 4; seed++) {
+			ShapeModel clocked = new ShapeModel(new Dimension(700, 700));
+			ShapeModel advanced = new ShapeModel(new Dimension(700, 700));
+			new SceneGenerator(seed, 3, 25).populate(clocked);
+			new SceneGenerator(seed, 3, 25).populate(advanced);
+			
+			final ShapeModelEvent[] events = new ShapeModelEvent[2];
+			advanced.addShapeModelListener(new ShapeModelListener() {
+				public void update(ShapeModelEvent event) {
+					events[events[0] == null ? 0 : 1] = event;
+				}
+			});
+			
+			for(int i = 0; i < 1234; i++) {
+				clocked.clock();
+			}
+			advanced.advance(1234);
+			assertArrayEquals(SceneGenerator.state(clocked.root()), SceneGenerator.state(advanced.root()));
+			assertEquals(ShapeModelEvent.EventType.ShapeMoved, events[0].eventType());
+			assertSame(advanced.root(), events[0].operand());
+			assertEquals(null, events[1]);
+		}
+	}
+	
+	/**
+	 * Checks that huge jumps are consistent with being split into parts, and
+	 * that a model running in a ColumnarTickEngine can be advanced.
+	 */
+	@Test
+	public void testHugeJumps() {
+		ShapeModel whole = new ShapeModel(new Dimension(900, 900));
+		ShapeModel parts = new ShapeModel(new Dimension(900, 900));
+		new SceneGenerator(5, 3, 25).populate(whole);
+		new SceneGenerator(5, 3, 25).populate(parts);
+		parts.setTickEngine(new ColumnarTickEngine());
+		parts.clock();
+		
+		whole.advance(1000000000001L);
+		parts.advance(999999999999L);
+		parts.clock();
+		assertArrayEquals(SceneGenerator.state(whole.root()), SceneGenerator.state(parts.root()));
+	}
+	
+	/**
+	 * Checks that a jump whose distance overflows a long is not mistaken 
+	 * for one that stays clear of the walls.
+	 */
+	@Test
+	public void testOverflowingJump() {
+		DynamicShape whole = new DynamicShape(10, 10, 4, 0, 10, 10);
+		DynamicShape parts = new DynamicShape(10, 10, 4, 0, 10, 10);
+		
+		// 4 * 2^62 wraps to 0, which would put the shape at 30.
+		whole.advance((1L << 62) + 5, 500, 500);
+		parts.advance(1L << 61, 500, 500);
+		parts.advance((1L << 61) + 5, 500, 500);
+		assertEquals(parts.x(), whole.x());
+		assertEquals(parts.deltaX(), whole.deltaX());
+	}
+}
@@ -0,0 +1,80 @@
+package spaceshapes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Dimension;
+
+import org.junit.Test;
+
+/**
+ * Class to test that BatchedTickEngine moves shapes exactly as 
+ * SequentialTickEngine does, and that CarrierShape keeps painting its 
+ * children in order.
+ * 
+ * @author lchi184
+ *
+ */
+public class TestBatchedTickEngine {
+	
+	/**
+	 * Checks generated scenes, with shapes removed and re-added on the way.
+	 */
+	@Test
+	public void testMatchesSequentialOnGeneratedScenes() {
+		for(long seed = 1; seed <= 5; seed++) {
+			ShapeModel sequential = new ShapeModel(new Dimension(1000, 1000));
+			ShapeModel batched = new ShapeModel(new Dimension(1000, 1000));
+			new SceneGenerator(seed, 4, 30).populate(sequential);
+			new SceneGenerator(seed, 4, 30).populate(batched);
+			batched.setTickEngine(new BatchedTickEngine());
+			
+			for(int i = 0; i < 1500; i++) {
+				if(i % 100 == 99) {
+					moveFirstToEnd(sequential);
+					moveFirstToEnd(batched);
+				}
+				sequential.clock();
+				batched.clock();
+				assertArrayEquals("seed " + seed + " tick " + i, 
+						SceneGenerator.state(sequential.root()), 
+						SceneGenerator.state(batched.root()));
+			}
+		}
+	}
+	
+	/**
+	 * Checks that shapes of other classes are moved and painted, and that 
+	 * painting follows the order of the children rather than their type.
+	 */
+	@Test
+	public void testOtherClassesAndPaintOrder() {
+		ShapeModel model = new ShapeModel(new Dimension(100, 100));
+		model.setTickEngine(new BatchedTickEngine());
+		Shape other = new RectangleShape(10, 10, 2, 2, 10, 10) {
+			@Override
+			protected void doPaint(Painter painter) {
+				painter.drawLine(x(), y(), x() + width(), y() + height());
+			}
+		};
+		model.add(new OvalShape(0, 0, 1, 1, 5, 5), model.root());
+		model.add(other, model.root());
+		model.add(new RectangleShape(20, 20, 1, 1, 5, 5), model.root());
+		model.add(new OvalShape(30, 30, 1, 1, 5, 5), model.root());
+		model.clock();
+		
+		MockPainter painter = new MockPainter();
+		model.root().paint(painter);
+		assertEquals("(rectangle 0,0,100,100)(oval 1,1,5,5)(line 12,12,22,22)"
+				+ "(rectangle 21,21,5,5)(oval 31,31,5,5)", painter.toString());
+	}
+	
+	/*
+	 * Removes the first child of the root and adds it again at the end.
+	 */
+	private void moveFirstToEnd(ShapeModel model) {
+		Shape first = model.root().shapeAt(0);
+		model.remove(first);
+		model.add(first, model.root());
+	}
+}
@@ -0,0 +1,147 @@
+package spaceshapes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Class to test that BulkOperations are applied in chunks across ticks, 
+ * with one event per tick, and can be followed and cancelled.
+ *
+ * @author lchi184
+ *
+ */
+public class TestBulkOperation {
+	private static final int CHUNK = BulkOperation.CHUNK_SIZE;
+
+	/**
+	 * Checks that an add operation is spread over ticks, one chunk and one
+	 * event per tick with the smallest budget, and rejects shapes that do 
+	 * not fit.
+	 */
+	@Test
+	public void testAddInChunks() {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		model.setJobBudget(1);
+		List<ShapeModelEvent> events = listen(model);
+		List<Shape> shapes = shapes(3 * CHUNK);
+		shapes.add(new RectangleShape(495, 0, 0, 0, 10, 10));
+		BulkOperation add = BulkOperation.add(shapes, model.root());
+		model.submit(add);
+		assertEquals(0, add.completed());
+		
+		model.clock();
+		assertEquals(CHUNK, add.completed());
+		assertEquals(CHUNK, model.root().shapeCount());
+		assertFalse(add.isFinished());
+		assertEquals(ShapeModelEvent.EventType.ShapesChanged, events.get(0).eventType());
+		assertEquals(ShapeModelEvent.EventType.ShapeMoved, events.get(1).eventType());
+		
+		for(int i = 0; i < 3; i++) {
+			model.clock();
+		}
+		assertTrue(add.isFinished());
+		assertEquals(1.0, add.progress(), 0);
+		assertEquals(1, add.rejectedCount());
+		assertEquals(3 * CHUNK, model.root().shapeCount());
+		for(int i = 0; i < 3 * CHUNK; i++) {
+			assertSame(shapes.get(i), model.root().shapeAt(i));
+		}
+		// No ShapesChanged event for the last tick, which only rejected.
+		assertEquals(7, events.size());
+		assertFalse(model.hasPendingJobs());
+	}
+	
+	/**
+	 * Checks that a remove operation removes shapes from every parent, 
+	 * keeping the other shapes in order and moving as before.
+	 */
+	@Test
+	public void testRemove() {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		CarrierShape carrier = new CarrierShape(0, 0, 1, 1, 200, 200);
+		model.add(carrier, model.root());
+		List<Shape> shapes = shapes(2 * CHUNK);
+		List<Shape> doomed = new ArrayList<Shape>();
+		for(int i = 0; i < shapes.size(); i++) {
+			model.add(shapes.get(i), i % 2 == 0 ? model.root() : carrier);
+			if(i % 4 < 2) {
+				doomed.add(shapes.get(i));
+			}
+		}
+		BulkOperation remove = BulkOperation.remove(doomed);
+		model.submit(remove);
+		model.advance(1);
+		
+		assertTrue(remove.isFinished());
+		assertEquals(0, remove.rejectedCount());
+		assertEquals(1 + CHUNK / 2, model.root().shapeCount());
+		assertEquals(CHUNK / 2, carrier.shapeCount());
+		for(Shape shape : doomed) {
+			assertNull(shape.parent());
+		}
+		for(int i = 0; i < carrier.shapeCount(); i++) {
+			assertSame(shapes.get(4 * i + 3), carrier.shapeAt(i));
+		}
+		
+		Shape kept = carrier.shapeAt(0);
+		int x = kept.x();
+		model.clock();
+		assertEquals(x + kept.deltaX(), kept.x(), Math.abs(2 * kept.deltaX()));
+		assertEquals(CHUNK / 2, carrier.shapeCount());
+	}
+	
+	/**
+	 * Checks that a cancelled operation stops before its next chunk and 
+	 * that later operations still run.
+	 */
+	@Test
+	public void testCancel() {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		model.setJobBudget(1);
+		BulkOperation add = BulkOperation.add(shapes(4 * CHUNK), model.root());
+		List<Shape> more = shapes(1);
+		model.submit(add);
+		model.submit(BulkOperation.add(more, model.root()));
+		model.clock();
+		add.cancel();
+		model.clock();
+		
+		assertTrue(add.isFinished());
+		assertTrue(add.isCancelled());
+		assertEquals(CHUNK, add.completed());
+		assertEquals(CHUNK + 1, model.root().shapeCount());
+		assertSame(more.get(0), model.root().shapeAt(CHUNK));
+		assertFalse(model.hasPendingJobs());
+	}
+	
+	/*
+	 * Creates count small shapes.
+	 */
+	private static List<Shape> shapes(int count) {
+		List<Shape> shapes = new ArrayList<Shape>();
+		for(int i = 0; i < count; i++) {
+			shapes.add(new RectangleShape((i * 7) % 150, (i * 13) % 150, i % 5 - 2, i % 3 - 1, 10, 10));
+		}
+		return shapes;
+	}
+	
+	private static List<ShapeModelEvent> listen(ShapeModel model) {
+		final List<ShapeModelEvent> events = new ArrayList<ShapeModelEvent>();
+		model.addShapeModelListener(new ShapeModelListener() {
+			@Override
+			public void update(ShapeModelEvent event) {
+				events.add(event);
+			}
+		});
+		return events;
+	}
+}
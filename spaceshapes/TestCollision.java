@@ -0,0 +1,181 @@
+package spaceshapes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * Class to test sibling collisions: that the broad-phases find every
+ * overlapping pair exactly once, that collisions are resolved as expected
+ * and that every TickEngine resolves them identically.
+ *
+ * @author lchi184
+ *
+ */
+public class TestCollision {
+
+	/**
+	 * Checks that two shapes meeting head on swap their horizontal deltas
+	 * and then move apart.
+	 */
+	@Test
+	public void testHeadOnCollision() {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		model.root().setBroadPhase(new SweepAndPruneBroadPhase());
+		RectangleShape left = new RectangleShape(100, 100, 5, 1, 20, 20);
+		RectangleShape right = new RectangleShape(126, 105, -3, 1, 20, 20);
+		model.add(left, model.root());
+		model.add(right, model.root());
+
+		model.clock();
+		assertEquals(1, model.root().collisionCount());
+		assertEquals(-3, left.deltaX());
+		assertEquals(5, right.deltaX());
+		assertEquals(1, left.deltaY());
+
+		model.clock();
+		assertEquals(0, model.root().collisionCount());
+		assertEquals(-3, left.deltaX());
+		assertEquals(5, right.deltaX());
+	}
+
+	/**
+	 * Checks that without a broad-phase shapes pass through each other.
+	 */
+	@Test
+	public void testNoBroadPhase() {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		RectangleShape left = new RectangleShape(100, 100, 5, 0, 20, 20);
+		RectangleShape right = new RectangleShape(128, 100, -3, 0, 20, 20);
+		model.add(left, model.root());
+		model.add(right, model.root());
+		model.clock();
+		assertEquals(5, left.deltaX());
+		assertEquals(0, model.root().collisionPairsTested());
+	}
+
+	/**
+	 * Checks that the grid and sweep-and-prune broad-phases report every
+	 * overlapping pair, and no pair twice, on random scenes.
+	 */
+	@Test
+	public void testBroadPhasesFindAllOverlaps() {
+		Random random = new Random(7);
+		for(int scene = 0; scene < 50; scene++) {
+			List<Shape> shapes = new ArrayList<Shape>();
+			int count = 1 + random.nextInt(200);
+			for(int i = 0; i < count; i++) {
+				int width = 1 + random.nextInt(60);
+				int height = 1 + random.nextInt(60);
+				shapes.add(new RectangleShape(random.nextInt(500 - width), random.nextInt(400 - height),
+						0, 0, width, height));
+			}
+			Set<Long> expected = overlapping(shapes, new BruteForceBroadPhase());
+			assertEquals(expected, overlapping(shapes, new GridBroadPhase(1 + random.nextInt(80))));
+			assertEquals(expected, overlapping(shapes, new SweepAndPruneBroadPhase()));
+		}
+	}
+
+	/**
+	 * Checks that every TickEngine, each broad-phase and ShapeModel.advance()
+	 * give the same result as SequentialTickEngine with brute force pairs.
+	 */
+	@Test
+	public void testEnginesAndBroadPhasesAgree() {
+		for(long seed = 1; seed <= 3; seed++) {
+			int[] expected = run(seed, new SequentialTickEngine(), 0, false);
+			TickEngine[] engines = {new ColumnarTickEngine(), new KineticTickEngine(),
+					new ActiveSetTickEngine(), new BatchedTickEngine(), new ParallelTickEngine()};
+			for(TickEngine engine : engines) {
+				assertArrayEquals(engine.getClass().getSimpleName(), expected, run(seed, engine, 0, false));
+			}
+			assertArrayEquals("grid", expected, run(seed, new SequentialTickEngine(), 1, false));
+			assertArrayEquals("sweep", expected, run(seed, new SequentialTickEngine(), 2, false));
+			assertArrayEquals("advance", expected, run(seed, new SequentialTickEngine(), 2, true));
+		}
+	}
+
+	/**
+	 * Checks that a resting shape that is hit starts moving under
+	 * ActiveSetTickEngine.
+	 */
+	@Test
+	public void testRestingShapeIsWoken() {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		model.setTickEngine(new ActiveSetTickEngine());
+		model.root().setBroadPhase(new GridBroadPhase(32));
+		RectangleShape resting = new RectangleShape(200, 100, 0, 0, 20, 20);
+		model.add(resting, model.root());
+		for(int i = 0; i < 3; i++) {
+			model.clock();
+		}
+		model.add(new RectangleShape(150, 100, 4, 0, 20, 20), model.root());
+		for(int i = 0; i < 20; i++) {
+			model.clock();
+		}
+		assertEquals(4, resting.deltaX());
+		assertTrue(resting.x() > 200);
+	}
+
+	/*
+	 * Populates a scene, gives every carrier a broad-phase of the given
+	 * kind, clocks it 400 times (or advances it) and returns its state.
+	 */
+	private static int[] run(long seed, TickEngine engine, int broadPhase, boolean advance) {
+		ShapeModel model = new ShapeModel(new Dimension(800, 800));
+		new SceneGenerator(seed, 3, 25).populate(model);
+		List<CarrierShape> carriers = new ArrayList<CarrierShape>();
+		carriers.add(model.root());
+		for(int i = 0; i < carriers.size(); i++) {
+			CarrierShape carrier = carriers.get(i);
+			carrier.setBroadPhase(broadPhase == 0 ? new BruteForceBroadPhase()
+					: broadPhase == 1 ? new GridBroadPhase(40) : new SweepAndPruneBroadPhase());
+			for(int j = 0; j < carrier.shapeCount(); j++) {
+				if(carrier.shapeAt(j) instanceof CarrierShape) {
+					carriers.add((CarrierShape) carrier.shapeAt(j));
+				}
+			}
+		}
+		model.setTickEngine(engine);
+		if(advance) {
+			model.advance(400);
+		} else {
+			for(int i = 0; i < 400; i++) {
+				model.clock();
+			}
+		}
+		model.setTickEngine(new SequentialTickEngine());
+		return SceneGenerator.state(model.root());
+	}
+
+	/*
+	 * Returns the overlapping pairs among the candidates found by
+	 * broadPhase, checking that no candidate is reported twice.
+	 */
+	private static Set<Long> overlapping(List<Shape> shapes, BroadPhase broadPhase) {
+		CollisionPairs pairs = new CollisionPairs();
+		broadPhase.findPairs(shapes, 500, 400, pairs);
+		Set<Long> candidates = new TreeSet<Long>();
+		Set<Long> result = new TreeSet<Long>();
+		for(int i = 0; i < pairs.size(); i++) {
+			long pair = ((long) pairs.first(i) << 32) | pairs.second(i);
+			assertTrue(candidates.add(pair));
+			Shape a = shapes.get(pairs.first(i));
+			Shape b = shapes.get(pairs.second(i));
+			if(a.x() < b.x() + b.width() && b.x() < a.x() + a.width()
+					&& a.y() < b.y() + b.height() && b.y() < a.y() + a.height()) {
+				result.add(pair);
+			}
+		}
+		return result;
+	}
+}
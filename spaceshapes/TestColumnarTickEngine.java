@@ -0,0 +1,125 @@
+package spaceshapes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.awt.Color;
+import java.awt.Dimension;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Class to test that a ShapeModel running in a ColumnarTickEngine behaves
+ * exactly as one using the default SequentialTickEngine.
+ * 
+ * @author lchi184
+ *
+ */
+public class TestColumnarTickEngine {
+	
+	private ShapeModel _sequential;
+	private ShapeModel _columnar;
+	private ColumnarTickEngine _engine;
+	
+	/**
+	 * Creates two identical models, one of which runs in a ColumnarTickEngine.
+	 */
+	@Before
+	public void setUpModels() {
+		_sequential = new ShapeModel(new Dimension(500, 500));
+		_columnar = new ShapeModel(new Dimension(500, 500));
+		populate(_sequential);
+		populate(_columnar);
+		_engine = new ColumnarTickEngine();
+		_columnar.setTickEngine(_engine);
+	}
+	
+	/**
+	 * Checks that both models paint identically over many ticks, including
+	 * DynamicShape bounce state and nested CarrierShapes.
+	 */
+	@Test
+	public void testMatchesSequentialEngine() {
+		for(int i = 0; i < 2000; i++) {
+			_sequential.clock();
+			_columnar.clock();
+			assertEquals(paint(_sequential), paint(_columnar));
+		}
+		assertEquals(9, _engine.store().size());
+		assertEquals(4, _engine.store().levelCount());
+	}
+	
+	/**
+	 * Checks that Shape accessors read through to the columns while a store
+	 * holds the shapes, and that the state is handed back on release.
+	 */
+	@Test
+	public void testAccessorsAndRelease() {
+		Shape shape = _columnar.root().shapeAt(0);
+		_columnar.clock();
+		assertEquals(15, shape.x());
+		assertEquals(10, shape.y());
+		
+		_columnar.setTickEngine(new SequentialTickEngine());
+		assertNull(_engine.store());
+		assertEquals(15, shape.x());
+		assertEquals(10, shape.y());
+	}
+	
+	/**
+	 * Checks that adding and removing shapes releases the store, and that
+	 * the store is rebuilt on the next tick.
+	 */
+	@Test
+	public void testStructuralChangeRebuildsStore() {
+		_sequential.clock();
+		_columnar.clock();
+		ShapeStore store = _engine.store();
+		
+		Shape added = new OvalShape(10, 10, 3, 3, 20, 20);
+		_columnar.add(added, _columnar.root());
+		_sequential.add(new OvalShape(10, 10, 3, 3, 20, 20), _sequential.root());
+		assertEquals(true, store.isReleased());
+		
+		_sequential.clock();
+		_columnar.clock();
+		assertNotNull(_engine.store());
+		assertEquals(10, _engine.store().size());
+		assertEquals(paint(_sequential), paint(_columnar));
+		
+		_columnar.remove(added);
+		assertSame(null, added.parent());
+		assertEquals(13, added.x());
+		assertEquals(null, added._store);
+	}
+	
+	/*
+	 * Populates a model with a small nested scene.
+	 */
+	private void populate(ShapeModel model) {
+		CarrierShape root = model.root();
+		model.add(new RectangleShape(10, 5, 5, 5, 20, 20), root);
+		model.add(new DynamicShape(0, 0, 7, 3, 40, 30, Color.RED), root);
+		model.add(new HexagonShape(100, 100, -4, 9, 50, 40), root);
+		
+		CarrierShape carrier = new CarrierShape(50, 50, 3, -2, 200, 150);
+		model.add(new DynamicShape(10, 10, -6, 5, 30, 30, Color.CYAN), carrier);
+		model.add(new OvalShape(20, 20, 11, 1, 25, 25), carrier);
+		CarrierShape inner = new CarrierShape(5, 5, 1, 1, 60, 60);
+		model.add(new RectangleShape(1, 1, 2, 5, 10, 10), inner);
+		model.add(inner, carrier);
+		model.add(carrier, root);
+	}
+	
+	/*
+	 * Returns a painted log of the model.
+	 */
+	private String paint(ShapeModel model) {
+		MockPainter painter = new MockPainter();
+		model.root().paint(painter);
+		return painter.toString();
+	}
+}
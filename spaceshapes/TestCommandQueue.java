@@ -0,0 +1,162 @@
+package spaceshapes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Class to test that CommandQueue passes every value from many producers 
+ * to one consumer in order, and that a ShapeModel applies posted commands
+ * in batches at the tick boundary.
+ *
+ * @author lchi184
+ *
+ */
+public class TestCommandQueue {
+
+	/**
+	 * Checks that values from concurrent producers are all drained, in the 
+	 * order each producer posted them, while the consumer drains as they 
+	 * arrive.
+	 */
+	@Test
+	public void testManyProducers() throws InterruptedException {
+		final CommandQueue<int[]> queue = new CommandQueue<int[]>();
+		final int producers = 4;
+		final int values = 20000;
+		Thread[] threads = new Thread[producers];
+		for(int p = 0; p < producers; p++) {
+			final int producer = p;
+			threads[p] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for(int i = 0; i < values; i++) {
+						queue.post(new int[] {producer, i});
+					}
+				}
+			});
+			threads[p].start();
+		}
+
+		int[] next = new int[producers];
+		List<int[]> batch = new ArrayList<int[]>();
+		int drained = 0;
+		boolean done = false;
+		while(!done) {
+			done = true;
+			for(Thread thread : threads) {
+				done &= !thread.isAlive();
+			}
+			batch.clear();
+			drained += queue.drain(batch);
+			for(int[] value : batch) {
+				assertEquals(next[value[0]]++, value[1]);
+			}
+		}
+		batch.clear();
+		drained += queue.drain(batch);
+		for(int[] value : batch) {
+			assertEquals(next[value[0]]++, value[1]);
+		}
+		assertEquals(producers * values, drained);
+		assertTrue(queue.isEmpty());
+	}
+
+	/**
+	 * Checks that commands posted to a ShapeModel are applied by clock() 
+	 * before moving, with one ShapesChanged event for the batch, and that
+	 * commands that cannot be applied are dropped.
+	 */
+	@Test
+	public void testCommandsAppliedAtTickBoundary() {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		final RectangleShape kept = new RectangleShape(10, 10, 1, 1, 20, 20);
+		RectangleShape removed = new RectangleShape(100, 100, 1, 1, 20, 20);
+		model.add(removed, model.root());
+		final List<ShapeModelEvent.EventType> events = new ArrayList<ShapeModelEvent.EventType>();
+		model.addShapeModelListener(new ShapeModelListener() {
+			@Override
+			public void update(ShapeModelEvent event) {
+				events.add(event.eventType());
+			}
+		});
+
+		model.postAdd(kept, model.root());
+		model.postAdd(new RectangleShape(490, 0, 1, 1, 20, 20), model.root());
+		model.postRemove(removed);
+		model.post(new ShapeCommand() {
+			@Override
+			public void apply(ShapeModel model) {
+				kept.setDelta(5, 0);
+			}
+		});
+		assertEquals(1, model.root().shapeCount());
+
+		model.clock();
+		assertEquals(2, events.size());
+		assertEquals(ShapeModelEvent.EventType.ShapesChanged, events.get(0));
+		assertEquals(ShapeModelEvent.EventType.ShapeMoved, events.get(1));
+		assertEquals(1, model.root().shapeCount());
+		assertSame(kept, model.root().shapeAt(0));
+		assertNull(removed.parent());
+		assertEquals(15, kept.x());
+		assertEquals(1, model.rejectedCommandCount());
+
+		//no event without commands
+		events.clear();
+		assertEquals(0, model.applyCommands());
+		assertTrue(events.isEmpty());
+	}
+	
+	/**
+	 * Checks that a command throwing an unexpected exception leaves no 
+	 * command to be applied again, and that the commands applied before it
+	 * are still reported.
+	 */
+	@Test
+	public void testFailingCommandEndsBatch() {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		final int[] applied = {0};
+		final List<ShapeModelEvent.EventType> events = new ArrayList<ShapeModelEvent.EventType>();
+		model.addShapeModelListener(new ShapeModelListener() {
+			@Override
+			public void update(ShapeModelEvent event) {
+				events.add(event.eventType());
+			}
+		});
+		ShapeCommand counting = new ShapeCommand() {
+			@Override
+			public void apply(ShapeModel model) {
+				applied[0]++;
+			}
+		};
+		model.post(counting);
+		model.post(new ShapeCommand() {
+			@Override
+			public void apply(ShapeModel model) {
+				throw new IllegalStateException();
+			}
+		});
+		model.post(counting);
+		try {
+			model.applyCommands();
+			fail();
+		} catch(IllegalStateException e) {
+			// Expected.
+		}
+		assertEquals(1, applied[0]);
+		assertEquals(1, events.size());
+		assertEquals(2, model.rejectedCommandCount());
+		
+		assertEquals(0, model.applyCommands());
+		assertEquals(1, applied[0]);
+	}
+}
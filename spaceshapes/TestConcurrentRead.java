@@ -0,0 +1,128 @@
+package spaceshapes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * Class to test that ShapeModel.read() gives other threads consistent 
+ * views of positions and structure while the model is being clocked and
+ * changed.
+ *
+ * @author lchi184
+ *
+ */
+public class TestConcurrentRead {
+	private static final int MOVERS = 500;
+
+	/**
+	 * Clocks and changes a model on one thread while another reads it, and
+	 * checks that every read sees all movers at the same position and an 
+	 * even number of shapes in a carrier that gains and loses them in 
+	 * pairs.
+	 */
+	@Test
+	public void testReadsAreConsistent() throws InterruptedException {
+		final ShapeModel model = new ShapeModel(new Dimension(100000, 500));
+		final CarrierShape movers = new CarrierShape(0, 0, 0, 0, 100000, 100);
+		final CarrierShape pairs = new CarrierShape(0, 100, 0, 0, 500, 400);
+		model.add(movers, model.root());
+		model.add(pairs, model.root());
+		for(int i = 0; i < MOVERS; i++) {
+			model.add(new RectangleShape(0, 0, 1, 0, 10, 10), movers);
+		}
+		
+		final AtomicBoolean running = new AtomicBoolean(true);
+		Thread writer = new Thread() {
+			@Override
+			public void run() {
+				List<Shape> added = new ArrayList<Shape>();
+				for(int tick = 0; running.get(); tick++) {
+					if(tick % 3 == 0 || added.isEmpty()) {
+						final Shape a = new OvalShape(1, 1, 1, 1, 10, 10);
+						final Shape b = new OvalShape(2, 2, 1, 1, 10, 10);
+						added.add(a);
+						added.add(b);
+						model.post(new ShapeCommand() {
+							@Override
+							public void apply(ShapeModel model) {
+								pairs.add(a);
+								pairs.add(b);
+							}
+						});
+					} else {
+						final Shape a = added.remove(added.size() - 1);
+						final Shape b = added.remove(added.size() - 1);
+						model.post(new ShapeCommand() {
+							@Override
+							public void apply(ShapeModel model) {
+								pairs.remove(a);
+								pairs.remove(b);
+							}
+						});
+					}
+					model.clock();
+				}
+			}
+		};
+		writer.start();
+		
+		ShapeReader<int[]> reader = new ShapeReader<int[]>() {
+			@Override
+			public int[] read(CarrierShape root) {
+				CarrierShape movers = (CarrierShape) root.shapeAt(0);
+				int first = movers.shapeAt(0).x();
+				int same = 0;
+				for(int i = 0; i < movers.shapeCount(); i++) {
+					if(movers.shapeAt(i).x() == first) {
+						same++;
+					}
+				}
+				return new int[] {same, ((CarrierShape) root.shapeAt(1)).shapeCount()};
+			}
+		};
+		int reads = 0;
+		long deadline = System.currentTimeMillis() + 500;
+		while(System.currentTimeMillis() < deadline) {
+			int[] result = model.read(reader);
+			assertEquals(MOVERS, result[0]);
+			assertEquals(0, result[1] % 2);
+			reads++;
+		}
+		running.set(false);
+		writer.join();
+		
+		assertTrue(reads > 0);
+		assertEquals(reads, model.readCount());
+	}
+	
+	/**
+	 * Checks that a listener can read the model from within a change.
+	 */
+	@Test
+	public void testReadFromListener() {
+		final ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		final int[] counts = new int[1];
+		model.addShapeModelListener(new ShapeModelListener() {
+			@Override
+			public void update(ShapeModelEvent event) {
+				counts[0] = model.read(new ShapeReader<Integer>() {
+					@Override
+					public Integer read(CarrierShape root) {
+						return root.shapeCount();
+					}
+				});
+			}
+		});
+		model.add(new RectangleShape(0, 0, 1, 1, 10, 10), model.root());
+		model.clock();
+		assertEquals(1, counts[0]);
+		assertEquals(0, model.readRetryCount());
+	}
+}
@@ -0,0 +1,142 @@
+package spaceshapes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Image;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Class to test that moving, painting and path building work on very deeply
+ * nested CarrierShapes without overflowing the stack.
+ * 
+ * @author lchi184
+ *
+ */
+public class TestDeepNesting {
+	
+	private static final int DEPTH = 100000;
+	
+	private ShapeModel _model;
+	
+	private CarrierShape _top;
+	
+	private RectangleShape _leaf;
+	
+	/**
+	 * Builds a chain of DEPTH CarrierShapes, each holding the next, with a
+	 * moving RectangleShape at the bottom.
+	 */
+	@Before
+	public void setUpChain() {
+		_model = new ShapeModel(new Dimension(500, 500));
+		_top = new CarrierShape(0, 0, 0, 0, 100, 100);
+		CarrierShape carrier = _top;
+		for(int i = 1; i < DEPTH; i++) {
+			CarrierShape nested = new CarrierShape(0, 0, 0, 0, 100, 100);
+			carrier.add(nested);
+			carrier = nested;
+		}
+		_leaf = new RectangleShape(10, 20, 3, 4, 10, 10);
+		carrier.add(_leaf);
+		_model.add(_top, _model.root());
+	}
+	
+	/**
+	 * Checks that a clock() reaches the shape at the bottom of the chain.
+	 */
+	@Test
+	public void testClock() {
+		_model.clock();
+		assertEquals(13, _leaf.x());
+		assertEquals(24, _leaf.y());
+	}
+	
+	/**
+	 * Checks that advance() reaches the shape at the bottom of the chain.
+	 */
+	@Test
+	public void testAdvance() {
+		_model.advance(5);
+		assertEquals(25, _leaf.x());
+		assertEquals(40, _leaf.y());
+	}
+	
+	/**
+	 * Checks that every CarrierShape outline and the leaf are painted, and
+	 * that the painter's origin is returned to where it started.
+	 */
+	@Test
+	public void testPaint() {
+		CountingPainter painter = new CountingPainter();
+		_model.root().paint(painter);
+		assertEquals(DEPTH + 2, painter._rects);
+		assertEquals(0, painter._x);
+		assertEquals(0, painter._y);
+	}
+	
+	/**
+	 * Checks that the path of the leaf runs from the root to the leaf.
+	 */
+	@Test
+	public void testPath() {
+		List<Shape> path = _leaf.path();
+		assertEquals(DEPTH + 2, path.size());
+		assertSame(_model.root(), path.get(0));
+		assertSame(_top, path.get(1));
+		assertSame(_leaf, path.get(path.size() - 1));
+		assertSame(_leaf.parent(), path.get(path.size() - 2));
+	}
+	
+	/*
+	 * Painter that only counts rectangles and tracks its origin, since 
+	 * MockPainter's log would be very large for a chain this deep.
+	 */
+	private static class CountingPainter implements Painter {
+		private int _rects;
+		private int _x;
+		private int _y;
+		
+		public void drawRect(int x, int y, int width, int height) {
+			_rects++;
+		}
+		
+		public void fillRect(int x, int y, int width, int height) {
+		}
+		
+		public void fillRects(int[] xs, int[] ys, int count, int width, int height) {
+		}
+		
+		public void drawOval(int x, int y, int width, int height) {
+		}
+		
+		public void drawLine(int x1, int y1, int x2, int y2) {
+		}
+		
+		public void drawHexagon(int x, int y, int width, int height) {
+		}
+		
+		public void drawCentredString(String string, int x, int y, int width, int height) {
+		}
+		
+		public void drawImage(Image img, int x, int y, int width, int height) {
+		}
+		
+		public Color getColor() {
+			return Color.BLACK;
+		}
+		
+		public void setColor(Color color) {
+		}
+		
+		public void translate(int x, int y) {
+			_x += x;
+			_y += y;
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package spaceshapes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Dimension;
+
+import org.junit.Test;
+
+/**
+ * Differential test that runs KineticTickEngine side by side with the 
+ * SequentialTickEngine, and checks that it only does work for bounces.
+ * 
+ * @author lchi184
+ *
+ */
+public class TestKineticTickEngine {
+	
+	/**
+	 * Checks generated scenes tick by tick, reading positions lazily.
+	 */
+	@Test
+	public void testMatchesSequentialOnGeneratedScenes() {
+		for(long seed = 1; seed <= 5; seed++) {
+			ShapeModel sequential = new ShapeModel(new Dimension(1000, 1000));
+			ShapeModel kinetic = new ShapeModel(new Dimension(1000, 1000));
+			new SceneGenerator(seed, 4, 30).populate(sequential);
+			new SceneGenerator(seed, 4, 30).populate(kinetic);
+			kinetic.setTickEngine(new KineticTickEngine());
+			
+			for(int i = 0; i < 3000; i++) {
+				sequential.clock();
+				kinetic.clock();
+				assertArrayEquals("seed " + seed + " tick " + i, 
+						SceneGenerator.state(sequential.root()), 
+						SceneGenerator.state(kinetic.root()));
+			}
+		}
+	}
+	
+	/**
+	 * Checks that structural changes and engine switches hand the lazily 
+	 * evaluated state back correctly.
+	 */
+	@Test
+	public void testStructuralChangesAndRelease() {
+		ShapeModel sequential = new ShapeModel(new Dimension(600, 600));
+		ShapeModel kinetic = new ShapeModel(new Dimension(600, 600));
+		new SceneGenerator(9, 3, 20).populate(sequential);
+		new SceneGenerator(9, 3, 20).populate(kinetic);
+		kinetic.setTickEngine(new KineticTickEngine());
+		
+		for(int round = 0; round < 5; round++) {
+			for(int i = 0; i < 97; i++) {
+				sequential.clock();
+				kinetic.clock();
+			}
+			sequential.add(new OvalShape(1, 1, 3, -2, 10, 10), sequential.root());
+			kinetic.add(new OvalShape(1, 1, 3, -2, 10, 10), kinetic.root());
+			sequential.remove(sequential.root().shapeAt(0));
+			kinetic.remove(kinetic.root().shapeAt(0));
+		}
+		kinetic.setTickEngine(new SequentialTickEngine());
+		sequential.clock();
+		kinetic.clock();
+		assertArrayEquals(SceneGenerator.state(sequential.root()), SceneGenerator.state(kinetic.root()));
+	}
+	
+	/**
+	 * Checks that slow shapes in a large carrier cost work only when they
+	 * bounce.
+	 */
+	@Test
+	public void testWorkProportionalToBounces() {
+		ShapeModel model = new ShapeModel(new Dimension(1000, 1000));
+		CarrierShape carrier = new CarrierShape(0, 0, 0, 0, 1000, 1000);
+		model.add(carrier, model.root());
+		for(int i = 0; i < 2000; i++) {
+			model.add(new RectangleShape(i % 990, (i * 7) % 990, 1, 1, 5, 5), carrier);
+		}
+		KineticTickEngine engine = new KineticTickEngine();
+		model.setTickEngine(engine);
+		
+		for(int i = 0; i < 1000; i++) {
+			model.clock();
+		}
+		// Each small shape bounces about twice per axis in 1000 ticks; the
+		// root and the resting carrier bounce in place every tick.
+		assertTrue(engine.eventCount() < 2 * 1000 + 4 * 2000 * 2);
+		assertEquals(2002, engine.store().size());
+	}
+}
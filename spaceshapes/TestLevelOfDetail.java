@@ -0,0 +1,142 @@
+package spaceshapes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Class to test CarrierShape tick divisors: that contents stepped every 
+ * k-th tick end up where moving them every tick leaves them, and that
+ * ViewportDetailPolicy picks divisors by visibility and size.
+ *
+ * @author lchi184
+ *
+ */
+public class TestLevelOfDetail {
+
+	/**
+	 * Checks that contents stay put between steps, catch up on every k-th
+	 * tick and that skipped ticks are counted.
+	 */
+	@Test
+	public void testContentsSteppedEveryKthTick() {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		CarrierShape carrier = new CarrierShape(10, 10, 1, 0, 300, 300);
+		RectangleShape shape = new RectangleShape(10, 10, 3, 0, 20, 20);
+		carrier.add(shape);
+		model.add(carrier, model.root());
+		carrier.setTickDivisor(4);
+
+		for(int i = 0; i < 3; i++) {
+			model.clock();
+			assertEquals(10, shape.x());
+		}
+		assertEquals(13, carrier.x());
+		model.clock();
+		assertEquals(22, shape.x());
+		assertEquals(14, carrier.x());
+		assertEquals(3, carrier.ticksSaved());
+		assertEquals(3, model.ticksSaved());
+
+		//pending ticks are caught up when the divisor changes
+		model.clock();
+		carrier.setTickDivisor(1);
+		assertEquals(25, shape.x());
+		model.clock();
+		assertEquals(28, shape.x());
+	}
+
+	/**
+	 * Checks that a divisor of 1 everywhere is indistinguishable from plain
+	 * CarrierShape.move().
+	 */
+	@Test
+	public void testDivisorOfOneMatchesMove() {
+		int[] expected = run(new SequentialTickEngine(), 0, 100);
+		assertArrayEquals(expected, run(new SequentialTickEngine(), 1, 100));
+	}
+
+	/**
+	 * Checks that with mixed divisors the tree-walking engines agree with 
+	 * SequentialTickEngine without divisors at multiples of every divisor.
+	 */
+	@Test
+	public void testEnginesMatchAtMultiples() {
+		int[] expected = run(new SequentialTickEngine(), 0, 512);
+		TickEngine[] engines = {new SequentialTickEngine(), new BatchedTickEngine(),
+				new ActiveSetTickEngine(), new ParallelTickEngine()};
+		for(TickEngine engine : engines) {
+			assertArrayEquals(engine.getClass().getSimpleName(), expected, run(engine, 4, 512));
+		}
+	}
+
+	/**
+	 * Checks divisors chosen by ViewportDetailPolicy.
+	 */
+	@Test
+	public void testViewportDetailPolicy() {
+		ShapeModel model = new ShapeModel(new Dimension(1000, 1000));
+		CarrierShape large = new CarrierShape(0, 0, 0, 0, 400, 400);
+		CarrierShape small = new CarrierShape(10, 10, 0, 0, 30, 30);
+		CarrierShape hidden = new CarrierShape(600, 600, 0, 0, 300, 300);
+		large.add(small);
+		model.add(large, model.root());
+		model.add(hidden, model.root());
+		ViewportDetailPolicy policy = new ViewportDetailPolicy(new Rectangle(0, 0, 500, 500), 100, 8);
+		model.setDetailPolicy(policy);
+		model.clock();
+		assertEquals(1, model.root().tickDivisor());
+		assertEquals(1, large.tickDivisor());
+		assertEquals(4, small.tickDivisor());
+		assertEquals(8, hidden.tickDivisor());
+
+		policy.setViewport(new Rectangle(500, 500, 500, 500));
+		model.clock();
+		assertEquals(8, large.tickDivisor());
+		assertEquals(8, small.tickDivisor());
+		assertEquals(1, hidden.tickDivisor());
+
+		model.setDetailPolicy(null);
+		assertEquals(1, small.tickDivisor());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidDivisor() {
+		new CarrierShape().setTickDivisor(0);
+	}
+
+	/*
+	 * Populates a scene, gives every CarrierShape a divisor of 1, 2 or 4 
+	 * (all 1 if maxDivisor is 0), clocks it with engine and returns its 
+	 * state.
+	 */
+	private static int[] run(TickEngine engine, int maxDivisor, int ticks) {
+		ShapeModel model = new ShapeModel(new Dimension(800, 800));
+		new SceneGenerator(11, 3, 25).populate(model);
+		List<CarrierShape> carriers = new ArrayList<CarrierShape>();
+		carriers.add(model.root());
+		for(int i = 0; i < carriers.size(); i++) {
+			CarrierShape carrier = carriers.get(i);
+			if(maxDivisor > 0) {
+				carrier.setTickDivisor(Math.min(maxDivisor, 1 << (i % 3)));
+			}
+			for(int j = 0; j < carrier.shapeCount(); j++) {
+				if(carrier.shapeAt(j) instanceof CarrierShape) {
+					carriers.add((CarrierShape) carrier.shapeAt(j));
+				}
+			}
+		}
+		model.setTickEngine(engine);
+		for(int i = 0; i < ticks; i++) {
+			model.clock();
+		}
+		model.setTickEngine(new SequentialTickEngine());
+		return SceneGenerator.state(model.root());
+	}
+}
@@ -0,0 +1,233 @@
+package spaceshapes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.Dimension;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Class to test that ModelHistory records versions that share unchanged 
+ * subtrees, stay as recorded and can be restored with ShapeModel.restore().
+ *
+ * @author lchi184
+ *
+ */
+public class TestModelHistory {
+	private ShapeModel _model;
+	private ModelHistory _history;
+	private CarrierShape _still;
+	private CarrierShape _moving;
+	private Shape _mover;
+
+	/**
+	 * Creates a model holding a carrier of shapes at rest and a carrier of 
+	 * which one child moves, with a ModelHistory registered on it.
+	 */
+	@Before
+	public void setUpModel() {
+		_model = new ShapeModel(new Dimension(500, 500));
+		_still = new CarrierShape(10, 10, 0, 0, 200, 200, "still");
+		_still.add(new RectangleShape(10, 10, 0, 0, 20, 20));
+		_still.add(new OvalShape(50, 50, 0, 0, 20, 20));
+		_moving = new CarrierShape(250, 250, 0, 0, 200, 200);
+		_moving.add(new HexagonShape(10, 10, 0, 0, 30, 30));
+		_mover = new DynamicShape(50, 50, 3, 2, 20, 20);
+		_moving.add(_mover);
+		_model.add(_still, _model.root());
+		_model.add(_moving, _model.root());
+		_history = new ModelHistory(16);
+		_model.addShapeModelListener(_history);
+	}
+	
+	/**
+	 * Checks that a tick records a version sharing every node whose Shape 
+	 * did not change, and new nodes for the moved Shape and its ancestors.
+	 */
+	@Test
+	public void testUnchangedSubtreesAreShared() {
+		ShapeVersion before = _history.record(_model.root());
+		_model.clock();
+		ShapeVersion after = _history.latest();
+		assertEquals(2, _history.recordedCount());
+		assertNotSame(before, after);
+		assertSame(before.childAt(0), after.childAt(0));
+		assertNotSame(before.childAt(1), after.childAt(1));
+		assertSame(before.childAt(1).childAt(0), after.childAt(1).childAt(0));
+		assertNotSame(before.childAt(1).childAt(1), after.childAt(1).childAt(1));
+		assertEquals(53, after.childAt(1).childAt(1).x());
+		assertEquals(7, after.size());
+	}
+	
+	/**
+	 * Checks that a tick in which nothing changes records the same root.
+	 */
+	@Test
+	public void testStillTickSharesRoot() {
+		_moving.remove(_mover);
+		ShapeVersion before = _history.record(_model.root());
+		_model.clock();
+		assertSame(before, _history.latest());
+	}
+	
+	/**
+	 * Checks that a ParticleCarrierShape that keeps still is recorded 
+	 * afresh when its particles move, and that versions keep the particles
+	 * as recorded.
+	 */
+	@Test
+	public void testParticlesAreRecorded() {
+		ParticleCarrierShape emitter = new ParticleCarrierShape(0, 0, 0, 0, 100, 100, 25, 3, 50, 1, 2, 1);
+		_model.add(emitter, _model.root());
+		_model.clock();
+		ShapeVersion before = _history.latest().childAt(2);
+		assertEquals(3, before.particleCount());
+		int x = before.particleX(0);
+		_model.clock();
+		ShapeVersion after = _history.latest().childAt(2);
+		assertNotSame(before, after);
+		assertEquals(6, after.particleCount());
+		assertEquals(emitter.particleX(0), after.particleX(0));
+		assertEquals(x, before.particleX(0));
+		assertEquals(3, before.particleCount());
+	}
+	
+	/**
+	 * Checks that older versions keep their recorded state as the model 
+	 * moves on and changes shape.
+	 */
+	@Test
+	public void testOldVersionsStayAsRecorded() {
+		_history.record(_model.root());
+		for(int i = 0; i < 10; i++) {
+			_model.clock();
+		}
+		_model.remove(_still);
+		ShapeVersion first = _history.version(0);
+		assertEquals(2, first.childCount());
+		assertEquals("still", first.childAt(0).text());
+		assertEquals(50, first.childAt(1).childAt(1).x());
+		assertEquals(50, first.childAt(1).childAt(1).y());
+		assertEquals(1, _history.latest().childCount());
+		assertEquals(80, _history.latest().childAt(0).childAt(1).x());
+	}
+	
+	/**
+	 * Checks that restore() rebuilds the recorded tree, which then moves 
+	 * as the original did.
+	 */
+	@Test
+	public void testRestore() {
+		ShapeVersion start = _history.record(_model.root());
+		for(int i = 0; i < 5; i++) {
+			_model.clock();
+		}
+		ShapeVersion fifth = _history.latest();
+		_model.remove(_still);
+		_model.restore(start);
+		assertEquals(2, _model.root().shapeCount());
+		assertEquals("still", _model.root().shapeAt(0).text());
+		CarrierShape moving = (CarrierShape) _model.root().shapeAt(1);
+		assertEquals(50, moving.shapeAt(1).x());
+		for(int i = 0; i < 5; i++) {
+			_model.clock();
+		}
+		assertEquals(fifth.childAt(1).childAt(1).x(), moving.shapeAt(1).x());
+		assertEquals(fifth.childAt(1).childAt(1).y(), moving.shapeAt(1).y());
+	}
+	
+	/**
+	 * Checks that a version which cannot be restored leaves the model as it
+	 * was.
+	 */
+	@Test
+	public void testRestoreIsAllOrNothing() {
+		ShapeModel small = new ShapeModel(new Dimension(100, 100));
+		try {
+			small.restore(_history.record(_model.root()));
+			fail();
+		} catch(IllegalArgumentException e) {
+			// Expected: the recorded carriers do not fit.
+		}
+		assertEquals(0, small.root().shapeCount());
+	}
+	
+	/**
+	 * Checks that only the latest capacity() versions are kept.
+	 */
+	@Test
+	public void testCapacity() {
+		ModelHistory history = new ModelHistory(3);
+		for(int i = 0; i < 5; i++) {
+			history.record(_model.root());
+			_model.clock();
+		}
+		assertEquals(5, history.recordedCount());
+		assertEquals(2, history.oldest());
+		assertNull(history.version(1));
+		assertNull(history.version(5));
+		assertSame(history.latest(), history.version(4));
+	}
+	
+	/**
+	 * Looks up the oldest kept version from another thread while versions 
+	 * are being recorded, and checks that every version found is the one 
+	 * asked for, never a newer one recorded into a reused slot.
+	 */
+	@Test
+	public void testConcurrentLookup() throws InterruptedException {
+		final ShapeModel model = new ShapeModel(new Dimension(Integer.MAX_VALUE, 100));
+		model.add(new RectangleShape(0, 0, 1, 0, 10, 10), model.root());
+		final ModelHistory history = new ModelHistory(2);
+		final AtomicBoolean running = new AtomicBoolean(true);
+		Thread writer = new Thread() {
+			@Override
+			public void run() {
+				// Version n records the Shape after n ticks.
+				while(running.get()) {
+					history.record(model.root());
+					model.clock();
+				}
+			}
+		};
+		writer.start();
+		
+		int found = 0;
+		long deadline = System.currentTimeMillis() + 500;
+		while(System.currentTimeMillis() < deadline) {
+			long number = history.oldest();
+			ShapeVersion version = history.version(number);
+			if(version != null) {
+				assertEquals(number, version.childAt(0).x());
+				found++;
+			}
+		}
+		running.set(false);
+		writer.join();
+		assertTrue(found > 0);
+	}
+	
+	/**
+	 * Checks that versions are captured correctly from a columnar 
+	 * ShapeStore.
+	 */
+	@Test
+	public void testColumnarStore() {
+		_model.setTickEngine(new ColumnarTickEngine());
+		ShapeVersion before = _history.record(_model.root());
+		for(int i = 0; i < 3; i++) {
+			_model.clock();
+		}
+		ShapeVersion after = _history.latest();
+		assertSame(before.childAt(0), after.childAt(0));
+		assertEquals(59, after.childAt(1).childAt(1).x());
+		assertEquals(56, after.childAt(1).childAt(1).y());
+	}
+}
@@ -0,0 +1,58 @@
+package spaceshapes;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.awt.Dimension;
+
+import org.junit.Test;
+
+/**
+ * Differential test for MoveKernels, run through a ColumnarTickEngine side 
+ * by side with the SequentialTickEngine.
+ * 
+ * @author lchi184
+ *
+ */
+public class TestMoveKernel {
+	
+	/**
+	 * Checks the scalar kernel.
+	 */
+	@Test
+	public void testScalarKernel() {
+		compare(new ScalarMoveKernel());
+	}
+	
+	/**
+	 * Checks the best available kernel; this is the VectorMoveKernel when
+	 * the tests are run with the jdk.incubator.vector module.
+	 */
+	@Test
+	public void testBestKernel() {
+		compare(MoveKernel.best());
+	}
+	
+	/*
+	 * Runs generated scenes, with wide carriers so that kernels process 
+	 * full chunks as well as leftover slots.
+	 */
+	private void compare(MoveKernel kernel) {
+		for(long seed = 1; seed <= 4; seed++) {
+			ShapeModel sequential = new ShapeModel(new Dimension(1000, 1000));
+			ShapeModel columnar = new ShapeModel(new Dimension(1000, 1000));
+			new SceneGenerator(seed, 2, 90).populate(sequential);
+			new SceneGenerator(seed, 2, 90).populate(columnar);
+			columnar.setTickEngine(new ColumnarTickEngine(kernel));
+			
+			for(int i = 0; i < 2000; i++) {
+				sequential.clock();
+				columnar.clock();
+				if(i % 10 == 0) {
+					assertArrayEquals(kernel + " seed " + seed + " tick " + i, 
+							SceneGenerator.state(sequential.root()), 
+							SceneGenerator.state(columnar.root()));
+				}
+			}
+		}
+	}
+}
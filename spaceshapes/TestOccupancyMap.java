@@ -0,0 +1,178 @@
+package spaceshapes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.awt.Dimension;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * Class to test that an OccupancyMap counts where shapes spend their time,
+ * including with sampling intervals, decay and parallel sampling.
+ *
+ * @author lchi184
+ *
+ */
+public class TestOccupancyMap {
+
+	/**
+	 * Checks that a still Shape is counted in the cell holding its centre on
+	 * every tick, and that snapshots are copies.
+	 */
+	@Test
+	public void testStillShapeCounted() {
+		ShapeModel model = new ShapeModel(new Dimension(100, 50));
+		model.add(new RectangleShape(25, 5, 0, 0, 10, 10), model.root());
+		OccupancyMap map = new OccupancyMap(10);
+		map.setSampleInterval(1);
+		model.setOccupancyMap(map);
+		for(int i = 0; i < 5; i++) {
+			model.clock();
+		}
+		
+		OccupancyGrid grid = map.snapshot(model.root());
+		assertEquals(10, grid.columns());
+		assertEquals(5, grid.rows());
+		assertEquals(5, grid.count(3, 1));
+		assertEquals(5, grid.total());
+		model.clock();
+		assertEquals(5, grid.count(3, 1));
+		assertEquals(6, map.snapshot(model.root()).count(3, 1));
+	}
+	
+	/**
+	 * Checks that samples are weighted by the sampling interval.
+	 */
+	@Test
+	public void testSampleInterval() {
+		ShapeModel model = new ShapeModel(new Dimension(100, 100));
+		model.add(new RectangleShape(0, 0, 0, 0, 10, 10), model.root());
+		OccupancyMap map = new OccupancyMap(10);
+		map.setSampleInterval(4);
+		model.setOccupancyMap(map);
+		for(int i = 0; i < 3; i++) {
+			model.clock();
+		}
+		assertNull(map.snapshot(model.root()));
+		for(int i = 0; i < 5; i++) {
+			model.clock();
+		}
+		assertEquals(8, map.snapshot(model.root()).count(0, 0));
+	}
+	
+	/**
+	 * Checks that counts are halved at the end of every decay window.
+	 */
+	@Test
+	public void testDecay() {
+		ShapeModel model = new ShapeModel(new Dimension(100, 100));
+		model.add(new RectangleShape(0, 0, 0, 0, 10, 10), model.root());
+		OccupancyMap map = new OccupancyMap(10);
+		map.setSampleInterval(1);
+		map.setDecayWindow(4);
+		model.setOccupancyMap(map);
+		for(int i = 0; i < 8; i++) {
+			model.clock();
+		}
+		// (4 / 2 + 4) / 2
+		assertEquals(3, map.snapshot(model.root()).count(0, 0));
+	}
+	
+	/**
+	 * Checks that counts saturate instead of wrapping, and stay positive 
+	 * when decayed.
+	 */
+	@Test
+	public void testCountsSaturate() {
+		CarrierShape carrier = new CarrierShape(0, 0, 0, 0, 100, 100);
+		carrier.add(new RectangleShape(0, 0, 0, 0, 10, 10));
+		OccupancyGrid grid = new OccupancyGrid(null, 10, 100, 100);
+		grid.sample(carrier, Integer.MAX_VALUE - 1);
+		grid.sample(carrier, Integer.MAX_VALUE - 1);
+		assertEquals(Integer.MAX_VALUE, grid.count(0, 0));
+		grid.decayTo(1);
+		assertEquals(Integer.MAX_VALUE / 2, grid.count(0, 0));
+	}
+	
+	/**
+	 * Checks that every carrier gets a grid of its own and that parallel
+	 * sampling counts exactly what sequential sampling does.
+	 */
+	@Test
+	public void testParallelMatchesSequential() {
+		ShapeModel sequential = scene();
+		ShapeModel parallel = scene();
+		OccupancyMap sequentialMap = new OccupancyMap(25);
+		OccupancyMap parallelMap = new OccupancyMap(25, new ForkJoinPool(4), 1);
+		sequentialMap.setSampleInterval(1);
+		parallelMap.setSampleInterval(1);
+		sequential.setOccupancyMap(sequentialMap);
+		parallel.setOccupancyMap(parallelMap);
+		for(int i = 0; i < 300; i++) {
+			sequential.clock();
+			parallel.clock();
+		}
+		
+		assertGrid(sequentialMap.snapshot(sequential.root()), parallelMap.snapshot(parallel.root()));
+		for(int i = 0; i < sequential.root().shapeCount(); i++) {
+			CarrierShape a = (CarrierShape) sequential.root().shapeAt(i);
+			CarrierShape b = (CarrierShape) parallel.root().shapeAt(i);
+			assertNotNull(sequentialMap.snapshot(a));
+			assertEquals(300, sequentialMap.snapshot(a).total());
+			assertGrid(sequentialMap.snapshot(a), parallelMap.snapshot(b));
+		}
+		
+		sequentialMap.clear(sequential.root());
+		assertNull(sequentialMap.snapshot(sequential.root()));
+		assertNull(sequentialMap.snapshot((CarrierShape) sequential.root().shapeAt(0)));
+	}
+	
+	/**
+	 * Checks that carriers are sampled on staggered ticks, in turn with 
+	 * their index.
+	 */
+	@Test
+	public void testStaggeredSampling() {
+		ShapeModel model = scene();
+		OccupancyMap map = new OccupancyMap(25);
+		map.setSampleInterval(4);
+		model.setOccupancyMap(map);
+		model.clock();
+		// Only the carriers at index 3 and 7 are due on tick 1.
+		for(int i = 0; i < model.root().shapeCount(); i++) {
+			OccupancyGrid grid = map.snapshot((CarrierShape) model.root().shapeAt(i));
+			assertEquals(i == 3 || i == 7, grid != null);
+		}
+		for(int i = 0; i < 7; i++) {
+			model.clock();
+		}
+		for(int i = 0; i < model.root().shapeCount(); i++) {
+			assertEquals(8, map.snapshot((CarrierShape) model.root().shapeAt(i)).total());
+		}
+		// Eight children sampled on ticks 4 and 8.
+		assertEquals(64, map.snapshot(model.root()).total());
+	}
+	
+	/*
+	 * Builds a scene of carriers holding one moving shape each.
+	 */
+	private static ShapeModel scene() {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		for(int i = 0; i < 8; i++) {
+			CarrierShape carrier = new CarrierShape(i * 50, i * 40, i % 3 - 1, 2 - i % 5, 100, 100);
+			model.add(carrier, model.root());
+			model.add(new RectangleShape(i * 7, i * 9, 3 - i % 7, i % 4 + 1, 10, 10), carrier);
+		}
+		return model;
+	}
+	
+	private static void assertGrid(OccupancyGrid expected, OccupancyGrid actual) {
+		assertEquals(expected.columns(), actual.columns());
+		assertEquals(expected.rows(), actual.rows());
+		assertArrayEquals(expected.counts(), actual.counts());
+	}
+}
@@ -0,0 +1,231 @@
+package spaceshapes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Class to test that OffHeapShapeStore records and OffHeapCarrierShape
+ * behave like the equivalent tree of Shape objects. Requires
+ * --add-modules jdk.incubator.foreign.
+ *
+ * @author lchi184
+ *
+ */
+public class TestOffHeapShapeStore {
+	private static final int[] KINDS = {OffHeapShapeStore.RECTANGLE, OffHeapShapeStore.OVAL,
+			OffHeapShapeStore.HEXAGON, OffHeapShapeStore.CARRIER};
+	
+	/**
+	 * Checks that records move exactly like heap shapes made from them, with
+	 * each of the engines that can hold an OffHeapCarrierShape.
+	 */
+	@Test
+	public void testMoveMatchesHeapShapes() {
+		TickEngine[] engines = {new SequentialTickEngine(), new ColumnarTickEngine(),
+				new KineticTickEngine(), new ActiveSetTickEngine(), new BatchedTickEngine(),
+				new ParallelTickEngine()};
+		for(TickEngine engine : engines) {
+			ShapeModel model = new ShapeModel(new Dimension(700, 700));
+			OffHeapCarrierShape offHeap = new OffHeapCarrierShape(20, 30, 2, 3, 400, 400, 500);
+			CarrierShape heap = new CarrierShape(20, 30, 2, 3, 400, 400);
+			List<Shape> mirror = populate(offHeap.records(), heap, new Random(3));
+			model.add(offHeap, model.root());
+			model.add(heap, model.root());
+			model.setTickEngine(engine);
+			
+			String message = engine.getClass().getSimpleName();
+			for(int i = 0; i < 300; i++) {
+				model.clock();
+			}
+			assertEquals(message, heap.x(), offHeap.x());
+			assertEquals(message, heap.y(), offHeap.y());
+			assertArrayEquals(message, state(mirror), state(offHeap.records()));
+			offHeap.records().close();
+		}
+	}
+	
+	/**
+	 * Checks that ShapeModel.advance() moves records exactly like repeated
+	 * clock() calls.
+	 */
+	@Test
+	public void testAdvanceMatchesClock() {
+		OffHeapCarrierShape clocked = new OffHeapCarrierShape(0, 0, 1, 1, 300, 300, 500);
+		OffHeapCarrierShape advanced = new OffHeapCarrierShape(0, 0, 1, 1, 300, 300, 500);
+		populate(clocked.records(), new CarrierShape(0, 0, 1, 1, 300, 300), new Random(5));
+		populate(advanced.records(), new CarrierShape(0, 0, 1, 1, 300, 300), new Random(5));
+		ShapeModel clockedModel = new ShapeModel(new Dimension(500, 500));
+		ShapeModel advancedModel = new ShapeModel(new Dimension(500, 500));
+		clockedModel.add(clocked, clockedModel.root());
+		advancedModel.add(advanced, advancedModel.root());
+		
+		for(int i = 0; i < 777; i++) {
+			clockedModel.clock();
+		}
+		advancedModel.advance(777);
+		assertArrayEquals(state(clocked.records()), state(advanced.records()));
+		clocked.records().close();
+		advanced.records().close();
+	}
+	
+	/**
+	 * Checks that records are painted at their absolute positions within
+	 * the OffHeapCarrierShape.
+	 */
+	@Test
+	public void testPaint() {
+		OffHeapCarrierShape shape = new OffHeapCarrierShape(0, 0, 1, 1, 300, 300, 3);
+		OffHeapShapeStore records = shape.records();
+		int carrier = records.add(-1, OffHeapShapeStore.CARRIER, 10, 10, 1, 1, 100, 100);
+		records.add(carrier, OffHeapShapeStore.OVAL, 5, 5, 1, 1, 20, 20);
+		records.add(-1, OffHeapShapeStore.RECTANGLE, 200, 50, 1, 1, 20, 10);
+		
+		MockPainter painter = new MockPainter();
+		shape.paint(painter);
+		assertEquals("(rectangle 0,0,300,300)(rectangle 10,10,100,100)(oval 15,15,20,20)"
+				+ "(rectangle 200,50,20,10)", painter.toString());
+		records.close();
+	}
+	
+	/**
+	 * Checks that records which do not fit, records added to a non carrier
+	 * and records added to a full store are rejected.
+	 */
+	@Test
+	public void testAddRejected() {
+		OffHeapShapeStore records = new OffHeapShapeStore(2, 100, 100);
+		int carrier = records.add(-1, OffHeapShapeStore.CARRIER, 0, 0, 1, 1, 50, 50);
+		int oval = records.add(carrier, OffHeapShapeStore.OVAL, 0, 0, 1, 1, 10, 10);
+		try {
+			records.add(-1, OffHeapShapeStore.RECTANGLE, 95, 0, 1, 1, 10, 10);
+			fail();
+		} catch(IllegalArgumentException e) {
+		}
+		try {
+			records.add(oval, OffHeapShapeStore.RECTANGLE, 0, 0, 1, 1, 5, 5);
+			fail();
+		} catch(IllegalArgumentException e) {
+		}
+		try {
+			records.add(carrier, OffHeapShapeStore.RECTANGLE, 0, 0, 1, 1, 5, 5);
+			fail();
+		} catch(IllegalStateException e) {
+		}
+		assertEquals(2, records.size());
+		assertEquals(2L * OffHeapShapeStore.RECORD_BYTES, records.byteSize());
+		records.close();
+	}
+	
+	/**
+	 * Checks that materialized shapes copy the record and that a closed
+	 * store cannot be used.
+	 */
+	@Test
+	public void testMaterializeAndClose() {
+		OffHeapShapeStore records = new OffHeapShapeStore(1, 100, 100);
+		records.add(-1, OffHeapShapeStore.HEXAGON, 1, 2, 3, 4, 50, 60);
+		Shape shape = records.materialize(0);
+		assertTrue(shape instanceof HexagonShape);
+		assertEquals(1, shape.x());
+		assertEquals(2, shape.y());
+		assertEquals(3, shape.deltaX());
+		assertEquals(4, shape.deltaY());
+		assertEquals(50, shape.width());
+		assertEquals(60, shape.height());
+		
+		records.close();
+		assertFalse(records.isOpen());
+		try {
+			records.move();
+			fail();
+		} catch(IllegalStateException e) {
+		}
+	}
+	
+	/**
+	 * Checks that recycling a carrier frees the records of the 
+	 * OffHeapCarrierShapes it carries, and that removing one does not.
+	 */
+	@Test
+	public void testRecycleClosesRecords() {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		CarrierShape holder = new CarrierShape(0, 0, 1, 1, 300, 300);
+		OffHeapCarrierShape kept = new OffHeapCarrierShape(0, 0, 1, 1, 100, 100, 10);
+		OffHeapCarrierShape recycled = new OffHeapCarrierShape(0, 0, 1, 1, 100, 100, 10);
+		model.add(kept, model.root());
+		model.add(recycled, holder);
+		model.add(holder, model.root());
+		
+		model.remove(kept);
+		assertTrue(kept.records().isOpen());
+		model.recycle(holder);
+		assertFalse(recycled.records().isOpen());
+		kept.records().close();
+	}
+	
+	/*
+	 * Adds random records to records and a heap copy of each to heap,
+	 * returning the heap copies in record order.
+	 */
+	private static List<Shape> populate(OffHeapShapeStore records, CarrierShape heap, Random random) {
+		List<Shape> mirror = new ArrayList<Shape>();
+		List<Integer> carriers = new ArrayList<Integer>();
+		for(int i = 0; i < 200; i++) {
+			int parent = -1;
+			int boundsWidth = heap.width();
+			int boundsHeight = heap.height();
+			if(!carriers.isEmpty() && random.nextBoolean()) {
+				parent = carriers.get(random.nextInt(carriers.size()));
+				boundsWidth = records.width(parent);
+				boundsHeight = records.height(parent);
+			}
+			int kind = KINDS[random.nextInt(KINDS.length)];
+			int width = 5 + random.nextInt(boundsWidth / 3);
+			int height = 5 + random.nextInt(boundsHeight / 3);
+			int record = records.add(parent, kind, random.nextInt(boundsWidth - width),
+					random.nextInt(boundsHeight - height), random.nextInt(21) - 10,
+					random.nextInt(21) - 10, width, height);
+			if(kind == OffHeapShapeStore.CARRIER && width >= 30 && height >= 30) {
+				carriers.add(record);
+			}
+			
+			Shape shape = records.materialize(record);
+			mirror.add(shape);
+			(parent < 0 ? heap : (CarrierShape) mirror.get(parent)).add(shape);
+		}
+		return mirror;
+	}
+	
+	private static int[] state(List<Shape> shapes) {
+		int[] state = new int[shapes.size() * 4];
+		for(int i = 0; i < shapes.size(); i++) {
+			Shape shape = shapes.get(i);
+			state[i * 4] = shape.x();
+			state[i * 4 + 1] = shape.y();
+			state[i * 4 + 2] = shape.deltaX();
+			state[i * 4 + 3] = shape.deltaY();
+		}
+		return state;
+	}
+	
+	private static int[] state(OffHeapShapeStore records) {
+		int[] state = new int[records.size() * 4];
+		for(int i = 0; i < records.size(); i++) {
+			state[i * 4] = records.x(i);
+			state[i * 4 + 1] = records.y(i);
+			state[i * 4 + 2] = records.deltaX(i);
+			state[i * 4 + 3] = records.deltaY(i);
+		}
+		return state;
+	}
+}
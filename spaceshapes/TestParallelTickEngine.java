@@ -0,0 +1,132 @@
+package spaceshapes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Dimension;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * Differential test that runs ParallelTickEngine side by side with the 
+ * SequentialTickEngine on generated scenes and checks that every shape's
+ * state is identical after every tick.
+ * 
+ * @author lchi184
+ *
+ */
+public class TestParallelTickEngine {
+	private static final int TICKS = 3000;
+	
+	/**
+	 * Checks many small generated scenes with a tiny threshold, so that
+	 * child lists are split into many tasks.
+	 */
+	@Test
+	public void testMatchesSequentialOnGeneratedScenes() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for(long seed = 1; seed <= 5; seed++) {
+				compare(seed, 4, 30, TICKS, new ParallelTickEngine(pool, 2));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	/**
+	 * Checks a wide scene with the default threshold and common pool.
+	 */
+	@Test
+	public void testMatchesSequentialOnWideScene() {
+		compare(42, 1, 400, 200, new ParallelTickEngine());
+	}
+	
+	/**
+	 * Checks that switching from a ColumnarTickEngine hands state back 
+	 * before the parallel engine runs.
+	 */
+	@Test
+	public void testMatchesAfterColumnarEngine() {
+		ShapeModel sequential = new ShapeModel(new Dimension(800, 800));
+		ShapeModel parallel = new ShapeModel(new Dimension(800, 800));
+		new SceneGenerator(7, 3, 10).populate(sequential);
+		new SceneGenerator(7, 3, 10).populate(parallel);
+		
+		parallel.setTickEngine(new ColumnarTickEngine());
+		for(int i = 0; i < 100; i++) {
+			sequential.clock();
+			parallel.clock();
+		}
+		parallel.setTickEngine(new ParallelTickEngine());
+		for(int i = 0; i < 100; i++) {
+			sequential.clock();
+			parallel.clock();
+		}
+		assertArrayEquals(SceneGenerator.state(sequential.root()), SceneGenerator.state(parallel.root()));
+	}
+	
+	/**
+	 * Checks that shapes left dormant by an ActiveSetTickEngine and hit 
+	 * inside parallel tasks are woken, once the tasks have finished, back 
+	 * into their parents' active children.
+	 */
+	@Test
+	public void testCollisionWakesDormantShapes() {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		CarrierShape carrier = new CarrierShape(0, 0, 0, 0, 400, 400);
+		carrier.setBroadPhase(new BruteForceBroadPhase());
+		RectangleShape resting = new RectangleShape(200, 100, 0, 0, 20, 20);
+		carrier.add(resting);
+		model.add(carrier, model.root());
+		model.setTickEngine(new ActiveSetTickEngine());
+		for(int i = 0; i < 3; i++) {
+			model.clock();
+		}
+		assertTrue(resting._dormant);
+		assertTrue(carrier._dormant);
+		
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			model.setTickEngine(new ParallelTickEngine(pool, 1));
+			model.add(new RectangleShape(150, 100, 4, 0, 20, 20), carrier);
+			for(int i = 0; i < 20; i++) {
+				model.clock();
+			}
+		} finally {
+			pool.shutdown();
+		}
+		assertEquals(4, resting.deltaX());
+		assertFalse(resting._dormant);
+		assertTrue(carrier._activeChildren.contains(resting));
+		
+		model.setTickEngine(new ActiveSetTickEngine());
+		int x = resting.x();
+		model.clock();
+		assertEquals(x + 4, resting.x());
+	}
+	
+	/*
+	 * Runs both engines for the given number of ticks on the scene generated
+	 * by seed.
+	 */
+	private void compare(long seed, int depth, int children, int ticks, ParallelTickEngine engine) {
+		ShapeModel sequential = new ShapeModel(new Dimension(1000, 1000));
+		ShapeModel parallel = new ShapeModel(new Dimension(1000, 1000));
+		int count = new SceneGenerator(seed, depth, children).populate(sequential);
+		new SceneGenerator(seed, depth, children).populate(parallel);
+		parallel.setTickEngine(engine);
+		assertTrue(count > 0);
+		
+		for(int i = 0; i < ticks; i++) {
+			sequential.clock();
+			parallel.clock();
+			assertArrayEquals("seed " + seed + " tick " + i, 
+					SceneGenerator.state(sequential.root()), 
+					SceneGenerator.state(parallel.root()));
+		}
+	}
+}
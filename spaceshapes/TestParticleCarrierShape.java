@@ -0,0 +1,167 @@
+package spaceshapes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Dimension;
+
+import org.junit.Test;
+
+/**
+ * Class to test that ParticleCarrierShape spawns, moves, expires and paints
+ * its particles, and that every TickEngine moves them the same way.
+ *
+ * @author lchi184
+ *
+ */
+public class TestParticleCarrierShape {
+
+	/**
+	 * Checks that particles are spawned at the centre each tick and expire
+	 * after their lifetime, and that the capacity is never exceeded.
+	 */
+	@Test
+	public void testSpawnAndLifetime() {
+		ParticleCarrierShape shape = new ParticleCarrierShape(0, 0, 0, 0, 100, 100, 25, 3, 5, -2, 2, 1);
+		shape.move(500, 500);
+		assertEquals(3, shape.particleCount());
+		for(int i = 0; i < 3; i++) {
+			assertEquals(49, shape.particleX(i));
+			assertEquals(49, shape.particleY(i));
+			assertEquals(0, shape.particleAge(i));
+			assertTrue(shape.particleDeltaX(i) >= -2 && shape.particleDeltaX(i) <= 2);
+		}
+		for(int i = 0; i < 5; i++) {
+			shape.move(500, 500);
+		}
+		//particles of the first tick have aged out, those of five ticks remain
+		assertEquals(15, shape.particleCount());
+
+		ParticleCarrierShape full = new ParticleCarrierShape(0, 0, 0, 0, 100, 100, 10, 4, 1000, 1, 1, 1);
+		for(int i = 0; i < 5; i++) {
+			full.move(500, 500);
+		}
+		assertEquals(10, full.particleCount());
+	}
+
+	/**
+	 * Checks that particles bounce within the carrier's bounds.
+	 */
+	@Test
+	public void testParticlesStayInBounds() {
+		ParticleCarrierShape shape = new ParticleCarrierShape(0, 0, 3, 2, 60, 40, 500, 5, 80, -9, 9, 2);
+		for(int tick = 0; tick < 200; tick++) {
+			shape.move(300, 300);
+			for(int i = 0; i < shape.particleCount(); i++) {
+				assertTrue(shape.particleX(i) >= 0);
+				assertTrue(shape.particleX(i) + ParticleCarrierShape.PARTICLE_SIZE <= 60);
+				assertTrue(shape.particleY(i) >= 0);
+				assertTrue(shape.particleY(i) + ParticleCarrierShape.PARTICLE_SIZE <= 40);
+			}
+		}
+	}
+
+	/**
+	 * Checks that every TickEngine, and ShapeModel.advance() within the 
+	 * particle lifetime, leave the particles in the same state as 
+	 * SequentialTickEngine.
+	 */
+	@Test
+	public void testEnginesAgree() {
+		TickEngine[] engines = {new ColumnarTickEngine(), new KineticTickEngine(),
+				new ActiveSetTickEngine(), new BatchedTickEngine(), new ParallelTickEngine()};
+		int[] expected = run(new SequentialTickEngine(), false, 300);
+		for(TickEngine engine : engines) {
+			assertArrayEquals(engine.getClass().getSimpleName(), expected, run(engine, false, 300));
+		}
+		assertArrayEquals("advance", run(new SequentialTickEngine(), false, 50), 
+				run(new SequentialTickEngine(), true, 50));
+	}
+
+	/**
+	 * Checks that advancing far beyond the particle lifetime only replays 
+	 * the last lifetime() ticks, leaving as many particles as clocking does.
+	 */
+	@Test
+	public void testAdvanceReplaysLifetime() {
+		ParticleCarrierShape clocked = new ParticleCarrierShape(0, 0, 0, 0, 200, 150, 400, 4, 60, -7, 7, 3);
+		ParticleCarrierShape advanced = new ParticleCarrierShape(0, 0, 0, 0, 200, 150, 400, 4, 60, -7, 7, 3);
+		for(int i = 0; i < 300; i++) {
+			clocked.moveParticles();
+		}
+		advanced.moveParticles();
+		advanced.advance(1000000000000L, 500, 500);
+		advanced.advance(299, 500, 500);
+
+		assertEquals(clocked.particleCount(), advanced.particleCount());
+		for(int i = 0; i < advanced.particleCount(); i++) {
+			assertTrue(advanced.particleAge(i) < 60);
+			assertTrue(advanced.particleX(i) >= 0);
+			assertTrue(advanced.particleX(i) + ParticleCarrierShape.PARTICLE_SIZE <= 200);
+		}
+	}
+
+	/**
+	 * Checks that particles are painted with a single fillRects() call
+	 * relative to the carrier, and that the carrier is a single node.
+	 */
+	@Test
+	public void testPaint() {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		ParticleCarrierShape shape = new ParticleCarrierShape(10, 20, 0, 0, 50, 50, 10, 2, 10, 1, 1, 1);
+		model.add(shape, model.root());
+		model.clock();
+		assertEquals(1, model.root().shapeCount());
+		assertEquals(0, shape.shapeCount());
+
+		MockPainter painter = new MockPainter();
+		shape.paint(painter);
+		assertEquals("(rectangle 10,20,50,50)(fillRects 24,24 24,24 2,2)", painter.toString());
+	}
+
+	/*
+	 * Clocks a scene holding two emitters the given number of times with 
+	 * engine, or advances it by that many ticks, and returns the state of 
+	 * the particles.
+	 */
+	private static int[] run(TickEngine engine, boolean advance, int ticks) {
+		ShapeModel model = new ShapeModel(new Dimension(600, 600));
+		CarrierShape carrier = new CarrierShape(5, 5, 2, 1, 400, 400);
+		ParticleCarrierShape nested = new ParticleCarrierShape(10, 10, 3, -2, 200, 150, 400, 4, 60, -7, 7, 3);
+		ParticleCarrierShape top = new ParticleCarrierShape(0, 300, 1, 1, 100, 100, 100, 2, 90, -3, 5, 4);
+		model.add(carrier, model.root());
+		model.add(nested, carrier);
+		model.add(new RectangleShape(0, 0, 4, 4, 10, 10), nested);
+		model.add(top, model.root());
+		model.setTickEngine(engine);
+		if(advance) {
+			model.advance(ticks);
+		} else {
+			for(int i = 0; i < ticks; i++) {
+				model.clock();
+			}
+		}
+		model.setTickEngine(new SequentialTickEngine());
+
+		int[] particles = state(nested);
+		int[] state = new int[particles.length + state(top).length + 2];
+		System.arraycopy(particles, 0, state, 0, particles.length);
+		System.arraycopy(state(top), 0, state, particles.length, state(top).length);
+		state[state.length - 2] = nested.x();
+		state[state.length - 1] = nested.shapeAt(0).x();
+		return state;
+	}
+
+	private static int[] state(ParticleCarrierShape shape) {
+		int[] state = new int[shape.particleCount() * 5];
+		for(int i = 0; i < shape.particleCount(); i++) {
+			state[i * 5] = shape.particleX(i);
+			state[i * 5 + 1] = shape.particleY(i);
+			state[i * 5 + 2] = shape.particleDeltaX(i);
+			state[i * 5 + 3] = shape.particleDeltaY(i);
+			state[i * 5 + 4] = shape.particleAge(i);
+		}
+		return state;
+	}
+}
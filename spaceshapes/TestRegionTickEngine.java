@@ -0,0 +1,137 @@
+package spaceshapes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Class to test that RegionTickEngine only simulates regions near the
+ * viewport, and that caught up regions match regions ticked all along.
+ *
+ * @author lchi184
+ *
+ */
+public class TestRegionTickEngine {
+
+	/**
+	 * Checks that with a viewport moving across the world, every region
+	 * ends up exactly where SequentialTickEngine leaves it.
+	 */
+	@Test
+	public void testCatchUpMatchesSequential() {
+		ShapeModel sequential = createWorld();
+		ShapeModel chunked = createWorld();
+		RegionTickEngine engine = new RegionTickEngine(RegionTickEngine.Policy.CATCH_UP, 50);
+		chunked.setTickEngine(engine);
+
+		for(int i = 0; i < 1200; i++) {
+			if(i % 100 == 0) {
+				engine.setViewport(new Rectangle((i / 100) % 4 * 500, (i / 400) * 500, 400, 300));
+			}
+			sequential.clock();
+			chunked.clock();
+			assertTrue(engine.activeCount() < 16);
+		}
+		chunked.setTickEngine(new SequentialTickEngine());
+		assertArrayEquals(SceneGenerator.state(sequential.root()), SceneGenerator.state(chunked.root()));
+	}
+
+	/**
+	 * Checks that regions away from the viewport are frozen, and not painted,
+	 * while other children of the root keep moving.
+	 */
+	@Test
+	public void testFreeze() {
+		ShapeModel model = new ShapeModel(new Dimension(2000, 1000));
+		RegionShape.tile(model, 1000);
+		RegionShape near = (RegionShape) model.root().shapeAt(0);
+		RegionShape far = (RegionShape) model.root().shapeAt(1);
+		RectangleShape nearShape = new RectangleShape(10, 10, 2, 0, 10, 10);
+		RectangleShape farShape = new RectangleShape(10, 10, 2, 0, 10, 10);
+		RectangleShape free = new RectangleShape(10, 10, 2, 0, 10, 10);
+		model.add(nearShape, near);
+		model.add(farShape, far);
+		model.add(free, model.root());
+		RegionTickEngine engine = new RegionTickEngine(RegionTickEngine.Policy.FREEZE, 0);
+		engine.setViewport(new Rectangle(0, 0, 500, 500));
+		model.setTickEngine(engine);
+
+		for(int i = 0; i < 10; i++) {
+			model.clock();
+		}
+		assertEquals(1, engine.activeCount());
+		assertEquals(30, nearShape.x());
+		assertEquals(10, farShape.x());
+		assertEquals(30, free.x());
+		assertTrue(near.isActive());
+		assertFalse(far.isActive());
+
+		MockPainter painter = new MockPainter();
+		far.paint(painter);
+		assertEquals("", painter.toString());
+
+		//frozen regions resume where they stopped
+		engine.setViewport(new Rectangle(1000, 0, 500, 500));
+		model.clock();
+		assertEquals(12, farShape.x());
+		model.setTickEngine(new SequentialTickEngine());
+		assertEquals(30, nearShape.x());
+		assertTrue(far.isActive());
+	}
+
+	/**
+	 * Checks that a region added part way through is not caught up for the
+	 * ticks before it was added.
+	 */
+	@Test
+	public void testRegionAddedLater() {
+		ShapeModel model = new ShapeModel(new Dimension(1000, 1000));
+		RegionTickEngine engine = new RegionTickEngine(RegionTickEngine.Policy.CATCH_UP, 0);
+		engine.setViewport(new Rectangle(0, 0, 100, 100));
+		model.setTickEngine(engine);
+		for(int i = 0; i < 50; i++) {
+			model.clock();
+		}
+		RegionShape region = new RegionShape(500, 500, 200, 200);
+		RectangleShape shape = new RectangleShape(0, 50, 1, 0, 10, 10);
+		model.add(shape, region);
+		model.add(region, model.root());
+		for(int i = 0; i < 5; i++) {
+			model.clock();
+		}
+		assertEquals(0, shape.x());
+		engine.setViewport(null);
+		model.clock();
+		assertEquals(6, shape.x());
+	}
+
+	/*
+	 * Creates a 2000 by 1000 world of 32 regions filled with random shapes.
+	 */
+	private static ShapeModel createWorld() {
+		ShapeModel model = new ShapeModel(new Dimension(2000, 1000));
+		RegionShape.tile(model, 250);
+		Random random = new Random(17);
+		for(int i = 0; i < model.root().shapeCount(); i++) {
+			CarrierShape region = (CarrierShape) model.root().shapeAt(i);
+			for(int j = 0; j < 10; j++) {
+				int size = 5 + random.nextInt(40);
+				Shape shape = random.nextBoolean()
+						? new DynamicShape(random.nextInt(200), random.nextInt(200),
+								random.nextInt(21) - 10, random.nextInt(21) - 10, size, size)
+						: new OvalShape(random.nextInt(200), random.nextInt(200),
+								random.nextInt(21) - 10, random.nextInt(21) - 10, size, size);
+				model.add(shape, region);
+			}
+		}
+		model.add(new RectangleShape(0, 0, 7, 3, 30, 30), model.root());
+		return model;
+	}
+}
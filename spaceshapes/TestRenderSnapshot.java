@@ -0,0 +1,80 @@
+package spaceshapes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Dimension;
+
+import org.junit.Test;
+
+/**
+ * Class to test RenderSnapshot recording and replay, and the hand-over 
+ * rules of TripleBuffer.
+ * 
+ * @author lchi184
+ *
+ */
+public class TestRenderSnapshot {
+	
+	/**
+	 * Checks that replaying a snapshot paints exactly what painting the 
+	 * model directly would, including color changes made by DynamicShapes.
+	 */
+	@Test
+	public void testReplayMatchesDirectPaint() {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		new SceneGenerator(3, 3, 20).populate(model);
+		model.add(new DynamicShape(0, 0, -5, 0, 40, 40, "text", Color.RED), model.root());
+		model.clock();
+		
+		RenderSnapshot snapshot = new RenderSnapshot();
+		snapshot.record(model.root(), 1);
+		
+		MockPainter direct = new MockPainter();
+		model.root().paint(direct);
+		MockPainter replayed = new MockPainter();
+		snapshot.replay(replayed);
+		
+		assertEquals(direct.toString(), replayed.toString());
+		assertEquals(1, snapshot.tick());
+		
+		// Later changes to the model do not affect the recorded frame.
+		model.clock();
+		MockPainter again = new MockPainter();
+		snapshot.replay(again);
+		assertEquals(direct.toString(), again.toString());
+	}
+	
+	/**
+	 * Checks that the consumer always sees the most recently published value
+	 * and that the producer never gets the consumer's current value back.
+	 */
+	@Test
+	public void testTripleBufferHandOver() {
+		String a = "a", b = "b", c = "c";
+		TripleBuffer<String> buffer = new TripleBuffer<String>(a, b, c);
+		assertSame(a, buffer.latest());
+		assertFalse(buffer.hasFresh());
+		
+		String first = buffer.back();
+		buffer.publish();
+		String second = buffer.back();
+		buffer.publish();
+		assertTrue(buffer.hasFresh());
+		
+		// Only the latest of the two publications is seen.
+		assertSame(second, buffer.latest());
+		assertFalse(buffer.hasFresh());
+		assertSame(first, buffer.back());
+		
+		// The producer keeps cycling without touching the consumer's value.
+		for(int i = 0; i < 10; i++) {
+			assertTrue(buffer.back() != second);
+			buffer.publish();
+		}
+		assertTrue(buffer.latest() != second);
+	}
+}
@@ -0,0 +1,151 @@
+package spaceshapes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Class to test that ShapePool reuses shapes, resets them fully and that
+ * ShapeModel behaves the same whether shapes are pooled or not.
+ *
+ * @author lchi184
+ *
+ */
+public class TestShapePool {
+
+	/**
+	 * Checks that a recycled Shape is handed out again, reset to the new
+	 * values.
+	 */
+	@Test
+	public void testRecycledShapeIsReset() {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		DynamicShape shape = model.acquire(DynamicShape.class, 0, 10, -5, 3, 20, 20);
+		shape.addText("old");
+		model.add(shape, model.root());
+		model.clock();
+		model.recycle(shape);
+		assertEquals(0, model.root().shapeCount());
+		assertNull(shape.parent());
+		assertEquals(1, model.pool().freeCount(DynamicShape.class));
+
+		DynamicShape reused = model.acquire(DynamicShape.class, 1, 2, 3, 4, 5, 6);
+		assertSame(shape, reused);
+		assertEquals(1, reused.x());
+		assertEquals(2, reused.y());
+		assertEquals(3, reused.deltaX());
+		assertEquals(4, reused.deltaY());
+		assertEquals(5, reused.width());
+		assertEquals(6, reused.height());
+		assertNull(reused.text());
+		assertFalse(reused.lastBounceHorizontal());
+		assertEquals(1, model.pool().createdCount());
+		assertEquals(1, model.pool().reusedCount());
+	}
+
+	/**
+	 * Checks that recycling a CarrierShape pools its contents and leaves it
+	 * empty.
+	 */
+	@Test
+	public void testRecycleCarrier() {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		CarrierShape carrier = model.acquire(CarrierShape.class, 0, 0, 1, 1, 200, 200);
+		CarrierShape nested = model.acquire(CarrierShape.class, 0, 0, 1, 1, 100, 100);
+		model.add(carrier, model.root());
+		model.add(nested, carrier);
+		model.add(model.acquire(OvalShape.class, 0, 0, 1, 1, 10, 10), nested);
+		model.add(model.acquire(RectangleShape.class, 0, 0, 1, 1, 10, 10), carrier);
+		model.add(new ImageRectangleShape(1, 1, new BufferedImage(5, 5, BufferedImage.TYPE_INT_RGB)), carrier);
+
+		model.recycle(carrier);
+		assertEquals(2, model.pool().freeCount(CarrierShape.class));
+		assertEquals(1, model.pool().freeCount(OvalShape.class));
+		assertEquals(1, model.pool().freeCount(RectangleShape.class));
+		assertEquals(0, model.pool().freeCount(ImageRectangleShape.class));
+
+		CarrierShape reused = model.acquire(CarrierShape.class, 0, 0, 1, 1, 50, 50);
+		assertEquals(0, reused.shapeCount());
+		model.add(reused, model.root());
+		HexagonShape hexagon = model.acquire(HexagonShape.class, 0, 0, 2, 2, 10, 10);
+		model.add(hexagon, reused);
+		model.clock();
+		assertEquals(1, reused.shapeCount());
+		assertEquals(2, hexagon.x());
+	}
+
+	/**
+	 * Checks that classes that are not pooled are rejected by acquire(),
+	 * that shapes still in a model are rejected by release() and that the
+	 * capacity is respected.
+	 */
+	@Test
+	public void testRejectedAndCapacity() {
+		ShapePool pool = new ShapePool(1);
+		try {
+			pool.acquire(ImageRectangleShape.class, 0, 0, 0, 0, 1, 1);
+			fail();
+		} catch(IllegalArgumentException e) {
+		}
+		CarrierShape carrier = new CarrierShape(0, 0, 0, 0, 100, 100);
+		RectangleShape child = pool.acquire(RectangleShape.class, 0, 0, 0, 0, 10, 10);
+		carrier.add(child);
+		try {
+			pool.release(child);
+			fail();
+		} catch(IllegalArgumentException e) {
+		}
+		pool.release(new RectangleShape());
+		pool.release(new RectangleShape());
+		assertEquals(1, pool.freeCount(RectangleShape.class));
+	}
+
+	/**
+	 * Checks that a model churning pooled shapes ends up in the same state
+	 * as one churning newly created shapes, with every engine.
+	 */
+	@Test
+	public void testChurnMatchesNewShapes() {
+		TickEngine[] engines = {new SequentialTickEngine(), new ColumnarTickEngine(),
+				new KineticTickEngine(), new ActiveSetTickEngine(), new BatchedTickEngine()};
+		for(TickEngine engine : engines) {
+			ShapeModel plain = new ShapeModel(new Dimension(600, 600));
+			ShapeModel pooled = new ShapeModel(new Dimension(600, 600));
+			pooled.setTickEngine(engine);
+			List<Shape> plainShapes = new ArrayList<Shape>();
+			List<Shape> pooledShapes = new ArrayList<Shape>();
+			for(int i = 0; i < 400; i++) {
+				int x = (i * 37) % 550;
+				int y = (i * 91) % 550;
+				int deltaX = i % 11 - 5;
+				int deltaY = i % 7 - 3;
+				Shape shape = i % 2 == 0 ? new DynamicShape(x, y, deltaX, deltaY, 20, 20)
+						: new OvalShape(x, y, deltaX, deltaY, 20, 20);
+				plain.add(shape, plain.root());
+				plainShapes.add(shape);
+				shape = i % 2 == 0 ? pooled.acquire(DynamicShape.class, x, y, deltaX, deltaY, 20, 20)
+						: pooled.acquire(OvalShape.class, x, y, deltaX, deltaY, 20, 20);
+				pooled.add(shape, pooled.root());
+				pooledShapes.add(shape);
+				if(i >= 30) {
+					plain.remove(plainShapes.remove(i % 30));
+					pooled.recycle(pooledShapes.remove(i % 30));
+				}
+				plain.clock();
+				pooled.clock();
+			}
+			assertArrayEquals(engine.getClass().getSimpleName(),
+					SceneGenerator.state(plain.root()), SceneGenerator.state(pooled.root()));
+		}
+	}
+}
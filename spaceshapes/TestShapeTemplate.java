@@ -0,0 +1,163 @@
+package spaceshapes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Class to test that ShapeTemplate copies subtrees faithfully and that 
+ * ShapeModel.stamp() adds instances in bulk with a single event.
+ *
+ * @author lchi184
+ *
+ */
+public class TestShapeTemplate {
+
+	/**
+	 * Checks that an instance matches the captured tree, is independent of
+	 * it and moves exactly like it.
+	 */
+	@Test
+	public void testInstanceMatchesOriginal() {
+		CarrierShape original = fleet();
+		ShapeTemplate template = new ShapeTemplate(original);
+		assertEquals(5, template.size());
+		Shape copy = template.instantiate();
+		assertNull(copy.parent());
+		assertNotSame(original, copy);
+		assertTree(original, copy);
+		
+		ShapeModel a = new ShapeModel(new Dimension(500, 500));
+		ShapeModel b = new ShapeModel(new Dimension(500, 500));
+		a.add(original, a.root());
+		b.add(copy, b.root());
+		for(int i = 0; i < 200; i++) {
+			a.clock();
+			b.clock();
+		}
+		assertTree(original, copy);
+		
+		// The template is unaffected by the original having moved.
+		assertTree(fleet(), template.instantiate());
+	}
+	
+	/**
+	 * Checks that instantiate(x, y) moves only the top Shape.
+	 */
+	@Test
+	public void testInstantiateAtPosition() {
+		CarrierShape copy = (CarrierShape) new ShapeTemplate(fleet()).instantiate(300, 250);
+		assertEquals(300, copy.x());
+		assertEquals(250, copy.y());
+		assertEquals(10, copy.shapeAt(0).x());
+		assertEquals(Color.RED, ((DynamicShape) copy.shapeAt(1)).color());
+		assertEquals("hull", copy.text());
+	}
+	
+	/**
+	 * Checks that stamp() adds every instance in order and fires one event.
+	 */
+	@Test
+	public void testStampFiresOneEvent() {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		final List<ShapeModelEvent> events = new ArrayList<ShapeModelEvent>();
+		model.addShapeModelListener(new ShapeModelListener() {
+			@Override
+			public void update(ShapeModelEvent event) {
+				events.add(event);
+			}
+		});
+		ShapeTemplate template = new ShapeTemplate(fleet());
+		List<Shape> instances = model.stamp(template, model.root(), 
+				new int[] {0, 100, 200}, new int[] {0, 50, 300});
+		
+		assertEquals(1, events.size());
+		assertEquals(ShapeModelEvent.EventType.ShapesChanged, events.get(0).eventType());
+		assertEquals(3, model.root().shapeCount());
+		for(int i = 0; i < 3; i++) {
+			assertSame(instances.get(i), model.root().shapeAt(i));
+			assertSame(model.root(), instances.get(i).parent());
+			assertEquals(3, ((CarrierShape) instances.get(i)).shapeCount());
+		}
+		assertEquals(200, instances.get(2).x());
+		assertEquals(300, instances.get(2).y());
+	}
+	
+	/**
+	 * Checks that stamp() adds nothing if any instance would not fit.
+	 */
+	@Test
+	public void testStampIsAllOrNothing() {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		ShapeTemplate template = new ShapeTemplate(fleet());
+		try {
+			model.stamp(template, model.root(), new int[] {0, 450}, new int[] {0, 0});
+			fail();
+		} catch(IllegalArgumentException e) {
+			// Expected.
+		}
+		assertEquals(0, model.root().shapeCount());
+	}
+	
+	/**
+	 * Checks that a tree holding a Shape that cannot be copied is rejected.
+	 */
+	@Test
+	public void testUnsupportedShape() {
+		CarrierShape carrier = new CarrierShape(0, 0, 0, 0, 200, 200);
+		carrier.add(new ImageRectangleShape(1, 1, new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB)));
+		try {
+			new ShapeTemplate(carrier);
+			fail();
+		} catch(IllegalArgumentException e) {
+			// Expected.
+		}
+	}
+	
+	/*
+	 * Builds a carrier holding a shape, a DynamicShape and a nested carrier
+	 * with a shape of its own.
+	 */
+	private static CarrierShape fleet() {
+		CarrierShape hull = new CarrierShape(20, 30, 3, -2, 100, 100, "hull");
+		hull.add(new RectangleShape(10, 10, 2, 1, 10, 10));
+		hull.add(new DynamicShape(40, 5, -3, 4, 15, 15, Color.RED));
+		CarrierShape bay = new CarrierShape(50, 50, 1, 1, 40, 40);
+		bay.add(new OvalShape(5, 5, 2, -1, 8, 8));
+		hull.add(bay);
+		return hull;
+	}
+	
+	/*
+	 * Asserts that two trees have the same classes, state and structure.
+	 */
+	private static void assertTree(Shape expected, Shape actual) {
+		assertSame(expected.getClass(), actual.getClass());
+		assertEquals(expected.x(), actual.x());
+		assertEquals(expected.y(), actual.y());
+		assertEquals(expected.deltaX(), actual.deltaX());
+		assertEquals(expected.deltaY(), actual.deltaY());
+		assertEquals(expected.width(), actual.width());
+		assertEquals(expected.height(), actual.height());
+		assertEquals(expected.storeFlags(), actual.storeFlags());
+		assertEquals(expected.text(), actual.text());
+		if(expected instanceof CarrierShape) {
+			CarrierShape expectedCarrier = (CarrierShape) expected;
+			CarrierShape actualCarrier = (CarrierShape) actual;
+			assertEquals(expectedCarrier.shapeCount(), actualCarrier.shapeCount());
+			for(int i = 0; i < expectedCarrier.shapeCount(); i++) {
+				assertTree(expectedCarrier.shapeAt(i), actualCarrier.shapeAt(i));
+			}
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package spaceshapes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * Class to test ShapeCodec and that a ShardedTickEngine running the root's
+ * subtrees in worker processes keeps its replica identical to a model 
+ * moved by SequentialTickEngine.
+ *
+ * @author lchi184
+ *
+ */
+public class TestShardedTickEngine {
+
+	/**
+	 * Checks that a tree read back from its encoding has the same 
+	 * structure, state, text and colours.
+	 */
+	@Test
+	public void testTreeRoundTrip() throws IOException {
+		ShapeModel model = new ShapeModel(new Dimension(600, 600));
+		new SceneGenerator(5, 3, 10).populate(model);
+		model.root().shapeAt(0).addText("first");
+		DynamicShape dynamic = new DynamicShape(1, 2, 3, 4, 5, 6, Color.MAGENTA);
+		model.root().add(dynamic);
+		for(int i = 0; i < 30; i++) {
+			model.clock();
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ShapeCodec.writeTree(model.root(), new DataOutputStream(bytes));
+		CarrierShape copy = (CarrierShape) ShapeCodec.readTree(
+				new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+		assertArrayEquals(SceneGenerator.state(model.root()), SceneGenerator.state(copy));
+		assertEquals("first", copy.shapeAt(0).text());
+		DynamicShape dynamicCopy = (DynamicShape) copy.shapeAt(copy.shapeCount() - 1);
+		assertEquals(Color.MAGENTA, dynamicCopy.color());
+		assertEquals(dynamic.width(), dynamicCopy.width());
+	}
+
+	/**
+	 * Checks that state written after ticks brings an untouched copy level
+	 * with the original.
+	 */
+	@Test
+	public void testStateRoundTrip() throws IOException {
+		ShapeModel model = new ShapeModel(new Dimension(600, 600));
+		new SceneGenerator(6, 3, 10).populate(model);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ShapeCodec.writeTree(model.root(), new DataOutputStream(bytes));
+		CarrierShape copy = (CarrierShape) ShapeCodec.readTree(
+				new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		for(int i = 0; i < 50; i++) {
+			model.clock();
+		}
+
+		ByteBuffer state = ByteBuffer.allocate(ShapeCodec.size(model.root()) * ShapeCodec.STATE_BYTES);
+		ShapeCodec.writeState(model.root(), state);
+		assertEquals(0, state.remaining());
+		state.flip();
+		ShapeCodec.readState(copy, state);
+		assertArrayEquals(SceneGenerator.state(model.root()), SceneGenerator.state(copy));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedShape() throws IOException {
+		ShapeCodec.writeTree(new ParticleCarrierShape(0, 0, 0, 0, 100, 100, 10, 1, 10, -1, 1, 1),
+				new DataOutputStream(new ByteArrayOutputStream()));
+	}
+
+	/**
+	 * Runs a scene on two worker processes and checks the replica against
+	 * SequentialTickEngine, also after the engine is released and workers
+	 * are started again.
+	 */
+	@Test
+	public void testShardedMatchesSequential() {
+		ShapeModel sequential = new ShapeModel(new Dimension(800, 800));
+		ShapeModel sharded = new ShapeModel(new Dimension(800, 800));
+		new SceneGenerator(9, 3, 20).populate(sequential);
+		new SceneGenerator(9, 3, 20).populate(sharded);
+		ShardedTickEngine engine = new ShardedTickEngine(2);
+		sharded.setTickEngine(engine);
+
+		for(int i = 0; i < 100; i++) {
+			sequential.clock();
+			sharded.clock();
+		}
+		assertEquals(2, engine.runningWorkers());
+		assertTrue(engine.assigned(0).size() + engine.assigned(1).size() == sharded.root().shapeCount());
+		assertArrayEquals(SceneGenerator.state(sequential.root()), SceneGenerator.state(sharded.root()));
+
+		sharded.setTickEngine(new SequentialTickEngine());
+		assertEquals(0, engine.runningWorkers());
+		sharded.setTickEngine(engine);
+		for(int i = 0; i < 50; i++) {
+			sequential.clock();
+			sharded.clock();
+		}
+		sharded.setTickEngine(new SequentialTickEngine());
+		assertArrayEquals(SceneGenerator.state(sequential.root()), SceneGenerator.state(sharded.root()));
+	}
+}
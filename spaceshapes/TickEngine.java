@@ -0,0 +1,27 @@
+package spaceshapes;
+
+/**
+ * Interface to represent a strategy for progressing the animation of a 
+ * ShapeModel. A ShapeModel delegates each clock() call to its TickEngine, 
+ * which is responsible for moving every Shape beneath the root CarrierShape
+ * exactly as CarrierShape.move() would.
+ * 
+ * @author lchi184
+ *
+ */
+public interface TickEngine {
+	/**
+	 * Moves the root CarrierShape and all of its descendants by one tick.
+	 * @param root the root CarrierShape of the ShapeModel.
+	 * @param width width of two-dimensional world.
+	 * @param height height of two-dimensional world.
+	 */
+	public void tick(CarrierShape root, int width, int height);
+	
+	/**
+	 * Hands any state held outside the Shape objects back to them. Called
+	 * by a ShapeModel when the engine is replaced.
+	 * @param root the root CarrierShape of the ShapeModel.
+	 */
+	public void release(CarrierShape root);
+}
@@ -0,0 +1,78 @@
+package spaceshapes;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free triple buffer that passes values from a single producer thread
+ * to a single consumer thread. The producer fills back() and calls 
+ * publish(); the consumer calls latest() to obtain the most recently 
+ * published value. Neither side ever waits for the other, and a value 
+ * returned by latest() is not handed back to the producer until the 
+ * consumer's next latest() call picks up a newer one.
+ * 
+ * @author lchi184
+ *
+ */
+public class TripleBuffer<T> {
+	// Bit set in _middle when it holds a value the consumer has not seen.
+	private static final int FRESH = 4;
+	
+	private static final int INDEX = 3;
+	
+	private final Object[] _buffers;
+	
+	// Index owned by the producer.
+	private int _back;
+	
+	// Index owned by the consumer.
+	private int _front;
+	
+	// Index of the buffer in flight between the two, plus the FRESH bit.
+	private final AtomicInteger _middle;
+	
+	/**
+	 * Creates a TripleBuffer over three distinct values. The first is 
+	 * returned by latest() until something has been published.
+	 */
+	public TripleBuffer(T front, T middle, T back) {
+		_buffers = new Object[] {front, middle, back};
+		_front = 0;
+		_middle = new AtomicInteger(1);
+		_back = 2;
+	}
+	
+	/**
+	 * Returns the value the producer should fill next. 
+	 */
+	@SuppressWarnings("unchecked")
+	public T back() {
+		return (T) _buffers[_back];
+	}
+	
+	/**
+	 * Publishes the value returned by back() and hands the producer a new 
+	 * value to fill.
+	 */
+	public void publish() {
+		_back = _middle.getAndSet(_back | FRESH) & INDEX;
+	}
+	
+	/**
+	 * Returns true if a value has been published since the consumer last
+	 * called latest().
+	 */
+	public boolean hasFresh() {
+		return (_middle.get() & FRESH) != 0;
+	}
+	
+	/**
+	 * Returns the most recently published value.
+	 */
+	@SuppressWarnings("unchecked")
+	public T latest() {
+		if(hasFresh()) {
+			_front = _middle.getAndSet(_front) & INDEX;
+		}
+		return (T) _buffers[_front];
+	}
+}
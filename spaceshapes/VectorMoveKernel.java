@@ -0,0 +1,62 @@
+package spaceshapes;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * MoveKernel built on the Java Vector API. Slots are processed in chunks of
+ * the preferred vector width, with the bounce branches of Shape.move() 
+ * turned into lane-wise masks; the remaining slots are moved by the scalar
+ * kernel. This class needs the jdk.incubator.vector module (add it with 
+ * --add-modules jdk.incubator.vector when compiling and running); obtain it
+ * through MoveKernel.best(), which falls back on ScalarMoveKernel when the 
+ * module is missing.
+ * 
+ * @author lchi184
+ *
+ */
+public class VectorMoveKernel implements MoveKernel {
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+	@Override
+	public void moveChildren(ShapeStore store, int from, int to, int width, int height) {
+		final int[] xs = store._x, ys = store._y, dxs = store._deltaX, dys = store._deltaY;
+		final int[] ws = store._width, hs = store._height, fs = store._flags;
+		
+		int chunkEnd = from + SPECIES.loopBound(to - from);
+		int i = from;
+		for(; i < chunkEnd; i += SPECIES.length()) {
+			IntVector flags = IntVector.fromArray(SPECIES, fs, i);
+			VectorMask<Integer> dynamic = flags.and(ShapeStore.DYNAMIC).compare(VectorOperators.NE, 0);
+			
+			// Horizontal axis.
+			IntVector x = IntVector.fromArray(SPECIES, xs, i);
+			IntVector dx = IntVector.fromArray(SPECIES, dxs, i);
+			IntVector limitX = IntVector.broadcast(SPECIES, width).sub(IntVector.fromArray(SPECIES, ws, i));
+			IntVector nextX = x.add(dx);
+			VectorMask<Integer> lowX = nextX.compare(VectorOperators.LE, 0);
+			VectorMask<Integer> highX = nextX.compare(VectorOperators.GE, limitX).andNot(lowX);
+			VectorMask<Integer> bounceX = lowX.or(highX);
+			nextX.blend(0, lowX).blend(limitX, highX).intoArray(xs, i);
+			dx.blend(dx.neg(), bounceX).intoArray(dxs, i);
+			flags = flags.blend(flags.or(ShapeStore.LAST_BOUNCE_HORIZONTAL), bounceX.and(dynamic));
+			
+			// Vertical axis.
+			IntVector y = IntVector.fromArray(SPECIES, ys, i);
+			IntVector dy = IntVector.fromArray(SPECIES, dys, i);
+			IntVector limitY = IntVector.broadcast(SPECIES, height).sub(IntVector.fromArray(SPECIES, hs, i));
+			IntVector nextY = y.add(dy);
+			VectorMask<Integer> lowY = nextY.compare(VectorOperators.LE, 0);
+			VectorMask<Integer> highY = nextY.compare(VectorOperators.GE, limitY).andNot(lowY);
+			VectorMask<Integer> bounceY = lowY.or(highY);
+			nextY.blend(0, lowY).blend(limitY, highY).intoArray(ys, i);
+			dy.blend(dy.neg(), bounceY).intoArray(dys, i);
+			flags = flags.blend(flags.and(~ShapeStore.LAST_BOUNCE_HORIZONTAL), bounceY.and(dynamic));
+			
+			flags.intoArray(fs, i);
+		}
+		ScalarMoveKernel.move(store, i, to, width, height);
+	}
+}
@@ -0,0 +1,73 @@
+package spaceshapes;
+
+import java.awt.Rectangle;
+
+/**
+ * DetailPolicy based on visibility and on-screen size. CarrierShapes 
+ * outside the viewport get the maximum divisor. Visible CarrierShapes at 
+ * least fullDetailSize pixels across are stepped every tick, and smaller 
+ * ones less often in proportion to their size, since a shape moving one 
+ * pixel inside a small carrier is hard to tell from one that stays put.
+ * 
+ * The viewport may be changed from any thread.
+ * 
+ * @author lchi184
+ *
+ */
+public class ViewportDetailPolicy implements DetailPolicy {
+	private final int _fullDetailSize;
+	
+	private final int _maxDivisor;
+	
+	// Area being looked at, relative to the root.
+	private volatile Rectangle _viewport;
+	
+	/**
+	 * Creates a ViewportDetailPolicy.
+	 * @param viewport area of the root being looked at.
+	 * @param fullDetailSize width or height in pixels at which a visible 
+	 * CarrierShape's contents are stepped every tick.
+	 * @param maxDivisor divisor for CarrierShapes outside the viewport.
+	 */
+	public ViewportDetailPolicy(Rectangle viewport, int fullDetailSize, int maxDivisor) {
+		if(fullDetailSize < 1 || maxDivisor < 1) {
+			throw new IllegalArgumentException();
+		}
+		_fullDetailSize = fullDetailSize;
+		_maxDivisor = maxDivisor;
+		setViewport(viewport);
+	}
+	
+	/**
+	 * Sets the area of the root being looked at.
+	 */
+	public void setViewport(Rectangle viewport) {
+		_viewport = new Rectangle(viewport);
+	}
+	
+	/**
+	 * Returns the area of the root being looked at.
+	 */
+	public Rectangle viewport() {
+		return new Rectangle(_viewport);
+	}
+
+	@Override
+	public int tickDivisor(CarrierShape carrier, int x, int y) {
+		Rectangle viewport = _viewport;
+		int width = carrier.width();
+		int height = carrier.height();
+		if(x >= viewport.x + viewport.width || x + width <= viewport.x
+				|| y >= viewport.y + viewport.height || y + height <= viewport.y) {
+			return _maxDivisor;
+		}
+		int size = Math.max(width, height);
+		if(size >= _fullDetailSize) {
+			return 1;
+		}
+		if(size < 1) {
+			return _maxDivisor;
+		}
+		return Math.min(_maxDivisor, (_fullDetailSize + size - 1) / size);
+	}
+}
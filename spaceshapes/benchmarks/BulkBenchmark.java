@@ -0,0 +1,114 @@
+package spaceshapes.benchmarks;
+
+import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.List;
+
+import spaceshapes.BulkOperation;
+import spaceshapes.RectangleShape;
+import spaceshapes.Shape;
+import spaceshapes.ShapeModel;
+import spaceshapes.ShapeModelEvent;
+import spaceshapes.ShapeModelListener;
+
+/**
+ * Benchmark comparing the longest time the model is unavailable while 
+ * 500k shapes are imported and then deleted, one ShapeModel call at a time
+ * and as BulkOperations spread over ticks. Deleting every Shape with 
+ * remove() would take hours, so the time for all is extrapolated from a 
+ * sample. A listener is registered so 
+ * that events are fired, as they would be to the application's views.
+ *
+ * @author lchi184
+ *
+ */
+public class BulkBenchmark {
+	private static final int SHAPES = 500000;
+	// remove() costs a pass over the child list, so only some are timed.
+	private static final int DIRECT_REMOVALS = 2000;
+	private static final int ROUNDS = 2;
+
+	public static void main(String[] args) {
+		for(int round = 0; round < ROUNDS; round++) {
+			direct();
+			bulk();
+		}
+	}
+
+	/*
+	 * Adds the shapes with add() and removes some with remove(), which hold
+	 * the model for the whole time, and prints the time taken.
+	 */
+	private static void direct() {
+		ShapeModel model = model();
+		List<Shape> shapes = shapes();
+		long start = System.nanoTime();
+		for(Shape shape : shapes) {
+			model.add(shape, model.root());
+		}
+		long added = System.nanoTime();
+		for(int i = 0; i < DIRECT_REMOVALS; i++) {
+			model.remove(shapes.get(i * (SHAPES / DIRECT_REMOVALS)));
+		}
+		long removed = System.nanoTime();
+		System.out.printf("direct  add %8.1f ms   remove %8.1f ms for %d shapes, %8.1f ms for all%n", 
+				(added - start) / 1e6, (removed - added) / 1e6, DIRECT_REMOVALS, 
+				(removed - added) / 1e6 * SHAPES / DIRECT_REMOVALS);
+	}
+	
+	/*
+	 * Adds and removes the shapes with BulkOperations, clocking the model 
+	 * until each is finished, and prints the longest tick and tick count.
+	 */
+	private static void bulk() {
+		ShapeModel model = model();
+		List<Shape> shapes = shapes();
+		BulkOperation add = BulkOperation.add(shapes, model.root());
+		model.submit(add);
+		long[] addTicks = clockUntilFinished(model, add);
+		BulkOperation remove = BulkOperation.remove(shapes);
+		model.submit(remove);
+		long[] removeTicks = clockUntilFinished(model, remove);
+		System.out.printf("bulk    add %8.1f ms / %4d ticks, longest %5.1f ms   remove %8.1f ms / %4d ticks, longest %5.1f ms%n", 
+				addTicks[0] / 1e6, addTicks[1], addTicks[2] / 1e6, 
+				removeTicks[0] / 1e6, removeTicks[1], removeTicks[2] / 1e6);
+	}
+	
+	/*
+	 * Clocks model until operation is finished and returns the total time,
+	 * the number of ticks and the longest tick.
+	 */
+	private static long[] clockUntilFinished(ShapeModel model, BulkOperation operation) {
+		long total = 0;
+		long ticks = 0;
+		long longest = 0;
+		while(!operation.isFinished()) {
+			long start = System.nanoTime();
+			model.clock();
+			long elapsed = System.nanoTime() - start;
+			total += elapsed;
+			ticks++;
+			longest = Math.max(longest, elapsed);
+		}
+		return new long[] {total, ticks, longest};
+	}
+	
+	private static ShapeModel model() {
+		ShapeModel model = new ShapeModel(new Dimension(10000, 10000));
+		model.addShapeModelListener(new ShapeModelListener() {
+			@Override
+			public void update(ShapeModelEvent event) {
+				event.operand();
+			}
+		});
+		return model;
+	}
+	
+	private static List<Shape> shapes() {
+		List<Shape> shapes = new ArrayList<Shape>(SHAPES);
+		for(int i = 0; i < SHAPES; i++) {
+			shapes.add(new RectangleShape((i * 37) % 9990, (i * 91) % 9990, i % 5 - 2, i % 3 - 1, 10, 10));
+		}
+		return shapes;
+	}
+}
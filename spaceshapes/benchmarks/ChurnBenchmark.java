@@ -0,0 +1,103 @@
+package spaceshapes.benchmarks;
+
+import java.awt.Dimension;
+import java.lang.management.ManagementFactory;
+
+import spaceshapes.DynamicShape;
+import spaceshapes.OvalShape;
+import spaceshapes.Shape;
+import spaceshapes.ShapeModel;
+
+/**
+ * Benchmark measuring the allocation caused by a spawner that adds and
+ * removes shapes continuously. A model holding a fixed number of live
+ * shapes replaces the oldest shape with a new one for every operation and
+ * is clocked every SPAWNS_PER_TICK operations. Shapes are either created
+ * with new and removed with ShapeModel.remove(), or taken from and handed
+ * back to the model's ShapePool. Bytes allocated per operation on the
+ * benchmark thread are reported, as counted by the HotSpot
+ * com.sun.management.ThreadMXBean.
+ *
+ * @author lchi184
+ *
+ */
+public class ChurnBenchmark {
+	private static final int LIVE_SHAPES = 2000;
+	private static final int SPAWNS_PER_TICK = 100;
+	private static final int WARMUP_OPERATIONS = 1000000;
+	private static final int MEASUREMENT_OPERATIONS = 2000000;
+
+	public static void main(String[] args) {
+		run("new/remove", false);
+		run("pooled", true);
+	}
+
+	/*
+	 * Runs the churn with or without the pool and prints the results.
+	 */
+	private static void run(String name, boolean pooled) {
+		ShapeModel model = new ShapeModel(new Dimension(1000, 1000));
+		Shape[] live = new Shape[LIVE_SHAPES];
+		for(int i = 0; i < LIVE_SHAPES; i++) {
+			live[i] = spawn(model, i, pooled);
+		}
+		churn(model, live, WARMUP_OPERATIONS, pooled);
+
+		long bytes = allocatedBytes();
+		long start = System.nanoTime();
+		churn(model, live, MEASUREMENT_OPERATIONS, pooled);
+		long elapsed = System.nanoTime() - start;
+		bytes = allocatedBytes() - bytes;
+
+		System.out.printf("%-12s %8.1f bytes/op %8.1f MB/s %8.1f ns/op%n", name,
+				(double) bytes / MEASUREMENT_OPERATIONS,
+				bytes / (elapsed / 1e9) / (1 << 20),
+				(double) elapsed / MEASUREMENT_OPERATIONS);
+	}
+
+	/*
+	 * Replaces the oldest live shape operations times.
+	 */
+	private static void churn(ShapeModel model, Shape[] live, int operations, boolean pooled) {
+		for(int i = 0; i < operations; i++) {
+			int oldest = i % live.length;
+			if(pooled) {
+				model.recycle(live[oldest]);
+			} else {
+				model.remove(live[oldest]);
+			}
+			live[oldest] = spawn(model, i, pooled);
+			if(i % SPAWNS_PER_TICK == 0) {
+				model.clock();
+			}
+		}
+	}
+
+	/*
+	 * Adds a new shape to the root of model.
+	 */
+	private static Shape spawn(ShapeModel model, int i, boolean pooled) {
+		int x = (i * 37) % 950;
+		int y = (i * 91) % 950;
+		int deltaX = i % 11 - 5;
+		int deltaY = i % 7 - 3;
+		Shape shape;
+		if(pooled) {
+			shape = i % 2 == 0 ? model.acquire(DynamicShape.class, x, y, deltaX, deltaY, 20, 20)
+					: model.acquire(OvalShape.class, x, y, deltaX, deltaY, 20, 20);
+		} else {
+			shape = i % 2 == 0 ? new DynamicShape(x, y, deltaX, deltaY, 20, 20)
+					: new OvalShape(x, y, deltaX, deltaY, 20, 20);
+		}
+		model.add(shape, model.root());
+		return shape;
+	}
+
+	/*
+	 * Returns the number of bytes allocated by the current thread so far.
+	 */
+	private static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+				.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
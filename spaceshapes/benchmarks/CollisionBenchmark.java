@@ -0,0 +1,78 @@
+package spaceshapes.benchmarks;
+
+import java.awt.Dimension;
+
+import spaceshapes.BroadPhase;
+import spaceshapes.BruteForceBroadPhase;
+import spaceshapes.CarrierShape;
+import spaceshapes.GridBroadPhase;
+import spaceshapes.RectangleShape;
+import spaceshapes.ShapeModel;
+import spaceshapes.SweepAndPruneBroadPhase;
+
+/**
+ * Benchmark comparing the broad-phases of sibling collision detection as
+ * the number of children grows. One CarrierShape holds n small shapes at a
+ * constant density, so the number of actually overlapping pairs grows
+ * linearly with n. For each broad-phase the mean number of candidate pairs
+ * tested per tick and the mean time per tick are reported. The brute force
+ * broad-phase is only run for small n.
+ *
+ * @author lchi184
+ *
+ */
+public class CollisionBenchmark {
+	private static final int[] SHAPE_COUNTS = {1000, 4000, 16000, 64000};
+	private static final int BRUTE_FORCE_LIMIT = 4000;
+	private static final int SHAPE_SIZE = 8;
+	//area per shape in square pixels, about 2% of it covered by shapes
+	private static final int AREA_PER_SHAPE = 3200;
+	private static final int WARMUP_TICKS = 100;
+	private static final int MEASUREMENT_TICKS = 200;
+
+	public static void main(String[] args) {
+		System.out.printf("%-8s %-16s %14s %12s %12s%n", "n", "broad-phase", "pairs/tick",
+				"hits/tick", "us/tick");
+		for(int n : SHAPE_COUNTS) {
+			if(n <= BRUTE_FORCE_LIMIT) {
+				run(n, "brute force", new BruteForceBroadPhase());
+			}
+			run(n, "grid", new GridBroadPhase(2 * SHAPE_SIZE));
+			run(n, "sweep and prune", new SweepAndPruneBroadPhase());
+		}
+	}
+
+	/*
+	 * Clocks a scene of n shapes with the given broad-phase and prints the
+	 * results.
+	 */
+	private static void run(int n, String name, BroadPhase broadPhase) {
+		int side = (int) Math.sqrt((double) n * AREA_PER_SHAPE);
+		ShapeModel model = new ShapeModel(new Dimension(side + 10, side + 10));
+		CarrierShape carrier = new CarrierShape(0, 0, 0, 0, side, side);
+		carrier.setBroadPhase(broadPhase);
+		for(int i = 0; i < n; i++) {
+			long position = (long) i * 7919;
+			carrier.add(new RectangleShape((int) (position % (side - SHAPE_SIZE)),
+					(int) ((position / 13) % (side - SHAPE_SIZE)), i % 9 - 4, (i / 9) % 7 - 3,
+					SHAPE_SIZE, SHAPE_SIZE));
+		}
+		model.add(carrier, model.root());
+
+		for(int i = 0; i < WARMUP_TICKS; i++) {
+			model.clock();
+		}
+		long pairs = 0;
+		long hits = 0;
+		long start = System.nanoTime();
+		for(int i = 0; i < MEASUREMENT_TICKS; i++) {
+			model.clock();
+			pairs += carrier.collisionPairsTested();
+			hits += carrier.collisionCount();
+		}
+		long elapsed = System.nanoTime() - start;
+		System.out.printf("%-8d %-16s %14.1f %12.1f %12.1f%n", n, name,
+				(double) pairs / MEASUREMENT_TICKS, (double) hits / MEASUREMENT_TICKS,
+				elapsed / 1000.0 / MEASUREMENT_TICKS);
+	}
+}
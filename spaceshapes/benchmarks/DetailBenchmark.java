@@ -0,0 +1,59 @@
+package spaceshapes.benchmarks;
+
+import java.awt.Dimension;
+
+import spaceshapes.CarrierShape;
+import spaceshapes.DynamicShape;
+import spaceshapes.ShapeModel;
+
+/**
+ * Benchmark measuring the cost per tick of a scene of many CarrierShapes 
+ * when their contents are stepped at reduced frequency. Every carrier is 
+ * given the same tick divisor; the mean time per tick and the number of 
+ * ticks saved per tick are reported.
+ *
+ * @author lchi184
+ *
+ */
+public class DetailBenchmark {
+	private static final int CARRIERS = 1000;
+	private static final int SHAPES_PER_CARRIER = 100;
+	private static final int[] DIVISORS = {1, 2, 4, 8};
+	private static final int WARMUP_TICKS = 400;
+	private static final int MEASUREMENT_TICKS = 800;
+
+	public static void main(String[] args) {
+		for(int divisor : DIVISORS) {
+			run(divisor);
+		}
+	}
+
+	/*
+	 * Clocks the scene with every carrier's divisor set to divisor and 
+	 * prints the results.
+	 */
+	private static void run(int divisor) {
+		ShapeModel model = new ShapeModel(new Dimension(4000, 4000));
+		for(int i = 0; i < CARRIERS; i++) {
+			CarrierShape carrier = new CarrierShape((i * 37) % 3800, (i * 91) % 3800, i % 5 - 2, i % 3 - 1, 200, 200);
+			for(int j = 0; j < SHAPES_PER_CARRIER; j++) {
+				carrier.add(new DynamicShape((j * 13) % 180, (j * 29) % 180, j % 11 - 5, j % 7 - 3, 10, 10));
+			}
+			carrier.setTickDivisor(divisor);
+			model.add(carrier, model.root());
+		}
+
+		for(int i = 0; i < WARMUP_TICKS; i++) {
+			model.clock();
+		}
+		long saved = model.ticksSaved();
+		long start = System.nanoTime();
+		for(int i = 0; i < MEASUREMENT_TICKS; i++) {
+			model.clock();
+		}
+		long elapsed = System.nanoTime() - start;
+		System.out.printf("divisor %-4d %10.1f us/tick %10.1f ticks saved/tick%n", divisor,
+				elapsed / 1000.0 / MEASUREMENT_TICKS, 
+				(double) (model.ticksSaved() - saved) / MEASUREMENT_TICKS);
+	}
+}
@@ -0,0 +1,99 @@
+package spaceshapes.benchmarks;
+
+import java.awt.Dimension;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import spaceshapes.CarrierShape;
+import spaceshapes.DynamicShape;
+import spaceshapes.ModelHistory;
+import spaceshapes.RectangleShape;
+import spaceshapes.ShapeModel;
+import spaceshapes.ShapeTemplate;
+import spaceshapes.ShapeVersion;
+
+/**
+ * Benchmark comparing the cost per tick of recording a ModelHistory with 
+ * that of deep copying the tree with a ShapeTemplate, for a world of 
+ * carriers in which only a few carriers hold moving shapes. Also prints the
+ * number of distinct nodes held by all kept versions together, against the
+ * number deep copies would hold.
+ *
+ * @author lchi184
+ *
+ */
+public class HistoryBenchmark {
+	private static final int CARRIERS = 200;
+	private static final int SHAPES_PER_CARRIER = 100;
+	private static final int MOVING_CARRIERS = 5;
+	private static final int CAPACITY = 100;
+	private static final int WARMUP_TICKS = 100;
+	private static final int MEASUREMENT_TICKS = 300;
+
+	public static void main(String[] args) {
+		ShapeModel model = world();
+		ModelHistory history = new ModelHistory(CAPACITY);
+		model.addShapeModelListener(history);
+		for(int i = 0; i < WARMUP_TICKS; i++) {
+			model.clock();
+		}
+		long start = System.nanoTime();
+		for(int i = 0; i < MEASUREMENT_TICKS; i++) {
+			model.clock();
+		}
+		long recording = System.nanoTime() - start;
+		model.removeShapeModelListener(history);
+		
+		for(int i = 0; i < WARMUP_TICKS; i++) {
+			model.clock();
+			new ShapeTemplate(model.root());
+		}
+		start = System.nanoTime();
+		for(int i = 0; i < MEASUREMENT_TICKS; i++) {
+			model.clock();
+			new ShapeTemplate(model.root());
+		}
+		long copying = System.nanoTime() - start;
+		
+		Set<ShapeVersion> distinct = Collections.newSetFromMap(new IdentityHashMap<ShapeVersion, Boolean>());
+		for(long n = history.oldest(); n < history.recordedCount(); n++) {
+			collect(history.version(n), distinct);
+		}
+		int size = history.latest().size();
+		System.out.printf("%-10s %12.1f us/tick%n", "history", recording / 1000.0 / MEASUREMENT_TICKS);
+		System.out.printf("%-10s %12.1f us/tick%n", "deep copy", copying / 1000.0 / MEASUREMENT_TICKS);
+		System.out.printf("%d versions of %d nodes: %d distinct nodes, %d for deep copies%n", 
+				CAPACITY, size, distinct.size(), (long) CAPACITY * size);
+	}
+	
+	/*
+	 * Builds a world of carriers of which the first few hold moving shapes
+	 * and the rest hold shapes at rest.
+	 */
+	private static ShapeModel world() {
+		ShapeModel model = new ShapeModel(new Dimension(5000, 5000));
+		for(int i = 0; i < CARRIERS; i++) {
+			CarrierShape carrier = new CarrierShape((i % 20) * 240, (i / 20) * 240, 0, 0, 220, 220);
+			for(int j = 0; j < SHAPES_PER_CARRIER; j++) {
+				int x = (j * 37) % 200;
+				int y = (j * 91) % 200;
+				if(i < MOVING_CARRIERS) {
+					carrier.add(new DynamicShape(x, y, j % 11 - 5, j % 7 - 3, 20, 20));
+				} else {
+					carrier.add(new RectangleShape(x, y, 0, 0, 20, 20));
+				}
+			}
+			model.add(carrier, model.root());
+		}
+		return model;
+	}
+	
+	private static void collect(ShapeVersion version, Set<ShapeVersion> distinct) {
+		if(distinct.add(version)) {
+			for(int i = 0; i < version.childCount(); i++) {
+				collect(version.childAt(i), distinct);
+			}
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package spaceshapes.benchmarks;
+
+import java.awt.Dimension;
+
+import spaceshapes.CarrierShape;
+import spaceshapes.ColumnarTickEngine;
+import spaceshapes.MoveKernel;
+import spaceshapes.RectangleShape;
+import spaceshapes.ScalarMoveKernel;
+import spaceshapes.SequentialTickEngine;
+import spaceshapes.ShapeModel;
+import spaceshapes.TickEngine;
+
+/**
+ * Benchmark comparing the MoveKernels against each other, against the
+ * per-level loop of ColumnarTickEngine and against SequentialTickEngine. A
+ * wide scene of small shapes inside a few large CarrierShapes is clocked 
+ * repeatedly; after warm-up iterations the mean time per tick over the 
+ * measurement iterations is reported. Run 
+ * with --add-modules jdk.incubator.vector to include the VectorMoveKernel.
+ * 
+ * @author lchi184
+ *
+ */
+public class MoveKernelBenchmark {
+	private static final int CARRIERS = 8;
+	private static final int SHAPES_PER_CARRIER = 25000;
+	private static final int WARMUP_ITERATIONS = 5;
+	private static final int MEASUREMENT_ITERATIONS = 10;
+	private static final int TICKS_PER_ITERATION = 200;
+	
+	public static void main(String[] args) {
+		System.out.println("Shapes: " + CARRIERS * SHAPES_PER_CARRIER);
+		run("SequentialTickEngine", new SequentialTickEngine());
+		run("per-level loop", new ColumnarTickEngine());
+		run("ScalarMoveKernel", new ColumnarTickEngine(new ScalarMoveKernel()));
+		MoveKernel best = MoveKernel.best();
+		if(best instanceof ScalarMoveKernel) {
+			System.out.println("VectorMoveKernel: jdk.incubator.vector not available");
+		} else {
+			run(best.getClass().getSimpleName(), new ColumnarTickEngine(best));
+		}
+	}
+	
+	/*
+	 * Times one engine and prints the mean time per tick.
+	 */
+	private static void run(String name, TickEngine engine) {
+		ShapeModel model = createModel();
+		model.setTickEngine(engine);
+		
+		for(int i = 0; i < WARMUP_ITERATIONS; i++) {
+			iteration(model);
+		}
+		long total = 0;
+		for(int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+			total += iteration(model);
+		}
+		double perTick = (double) total / (MEASUREMENT_ITERATIONS * TICKS_PER_ITERATION);
+		System.out.printf("%-20s %10.1f us/tick%n", name, perTick / 1000);
+	}
+	
+	/*
+	 * Clocks the model TICKS_PER_ITERATION times, returning elapsed nanos.
+	 */
+	private static long iteration(ShapeModel model) {
+		long start = System.nanoTime();
+		for(int i = 0; i < TICKS_PER_ITERATION; i++) {
+			model.clock();
+		}
+		return System.nanoTime() - start;
+	}
+	
+	/*
+	 * Creates the benchmark scene.
+	 */
+	private static ShapeModel createModel() {
+		ShapeModel model = new ShapeModel(new Dimension(1000, 1000));
+		for(int c = 0; c < CARRIERS; c++) {
+			CarrierShape carrier = new CarrierShape(c * 10, c * 10, 1, 2, 900, 900);
+			for(int i = 0; i < SHAPES_PER_CARRIER; i++) {
+				model.add(new RectangleShape(i % 850, (i * 31) % 850, 1 + i % 7, 3 - i % 5, 10, 10), carrier);
+			}
+			model.add(carrier, model.root());
+		}
+		return model;
+	}
+}
@@ -0,0 +1,70 @@
+package spaceshapes.benchmarks;
+
+import java.awt.Dimension;
+
+import spaceshapes.CarrierShape;
+import spaceshapes.DynamicShape;
+import spaceshapes.OccupancyMap;
+import spaceshapes.ShapeModel;
+
+/**
+ * Benchmark measuring the overhead per tick of an OccupancyMap on a scene
+ * of many CarrierShapes, for several sampling intervals. The mean time per
+ * tick is reported with and without the map.
+ *
+ * @author lchi184
+ *
+ */
+public class OccupancyBenchmark {
+	private static final int CARRIERS = 1000;
+	private static final int SHAPES_PER_CARRIER = 100;
+	private static final int[] INTERVALS = {0, 1, 8, 32, 64};
+	private static final int WARMUP_TICKS = 400;
+	private static final int MEASUREMENT_TICKS = 800;
+	private static final int ROUNDS = 3;
+
+	public static void main(String[] args) {
+		for(int round = 0; round < ROUNDS; round++) {
+			double baseline = 0;
+			for(int interval : INTERVALS) {
+				double perTick = run(interval);
+				if(interval == 0) {
+					baseline = perTick;
+					System.out.printf("no map       %10.1f us/tick%n", perTick);
+				} else {
+					System.out.printf("interval %-4d%10.1f us/tick %6.1f%% overhead%n", interval, 
+							perTick, (perTick - baseline) * 100 / baseline);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Clocks the scene with a map sampling every interval ticks, or none 
+	 * for 0, and returns the mean time per tick in microseconds.
+	 */
+	private static double run(int interval) {
+		ShapeModel model = new ShapeModel(new Dimension(4000, 4000));
+		for(int i = 0; i < CARRIERS; i++) {
+			CarrierShape carrier = new CarrierShape((i * 37) % 3800, (i * 91) % 3800, i % 5 - 2, i % 3 - 1, 200, 200);
+			for(int j = 0; j < SHAPES_PER_CARRIER; j++) {
+				carrier.add(new DynamicShape((j * 13) % 180, (j * 29) % 180, j % 11 - 5, j % 7 - 3, 10, 10));
+			}
+			model.add(carrier, model.root());
+		}
+		if(interval > 0) {
+			OccupancyMap map = new OccupancyMap(20);
+			map.setSampleInterval(interval);
+			model.setOccupancyMap(map);
+		}
+
+		for(int i = 0; i < WARMUP_TICKS; i++) {
+			model.clock();
+		}
+		long start = System.nanoTime();
+		for(int i = 0; i < MEASUREMENT_TICKS; i++) {
+			model.clock();
+		}
+		return (System.nanoTime() - start) / 1000.0 / MEASUREMENT_TICKS;
+	}
+}
@@ -0,0 +1,130 @@
+package spaceshapes.benchmarks;
+
+import java.awt.Dimension;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+import spaceshapes.CarrierShape;
+import spaceshapes.OffHeapCarrierShape;
+import spaceshapes.OffHeapShapeStore;
+import spaceshapes.RectangleShape;
+import spaceshapes.ShapeModel;
+
+/**
+ * Benchmark comparing heap Shape objects with OffHeapShapeStore records at
+ * large scale. For each scene size the same rectangles are held once as
+ * RectangleShapes in CarrierShapes and once as records of an
+ * OffHeapCarrierShape. The heap and native bytes held per shape are
+ * reported, along with the time spent in garbage collection while the
+ * scene is clocked and the pause of a full collection with the scene live.
+ * Run with --add-modules jdk.incubator.foreign and a heap large enough for
+ * the heap scenes, e.g. -Xmx16g; a heap scene that does not fit is
+ * reported as such.
+ *
+ * @author lchi184
+ *
+ */
+public class OffHeapBenchmark {
+	private static final int[] SHAPE_COUNTS = {10000000, 50000000};
+	private static final int SHAPES_PER_CARRIER = 1000000;
+	private static final int TICKS = 20;
+
+	public static void main(String[] args) {
+		System.out.printf("%-10s %-9s %12s %12s %12s %12s%n", "shapes", "storage",
+				"heap B/shape", "native B/sh", "tick GC ms", "full GC ms");
+		for(int shapes : SHAPE_COUNTS) {
+			run(shapes, false);
+			run(shapes, true);
+		}
+	}
+
+	/*
+	 * Builds, measures and clocks one scene and prints a line of results.
+	 */
+	private static void run(int shapes, boolean offHeap) {
+		String storage = offHeap ? "off-heap" : "heap";
+		long before = usedHeap();
+		ShapeModel model;
+		try {
+			model = offHeap ? createOffHeapModel(shapes) : createHeapModel(shapes);
+		} catch(OutOfMemoryError e) {
+			System.out.printf("%-10d %-9s does not fit in -Xmx%dm%n", shapes, storage,
+					Runtime.getRuntime().maxMemory() >> 20);
+			return;
+		}
+		long heapBytes = usedHeap() - before;
+		long nativeBytes = 0;
+		if(offHeap) {
+			nativeBytes = ((OffHeapCarrierShape) model.root().shapeAt(0)).records().byteSize();
+		}
+
+		long gcBefore = gcMillis();
+		for(int i = 0; i < TICKS; i++) {
+			model.clock();
+		}
+		long tickGc = gcMillis() - gcBefore;
+
+		gcBefore = gcMillis();
+		System.gc();
+		long fullGc = gcMillis() - gcBefore;
+
+		System.out.printf("%-10d %-9s %12.1f %12.1f %12d %12d%n", shapes, storage,
+				(double) heapBytes / shapes, (double) nativeBytes / shapes, tickGc, fullGc);
+
+		if(offHeap) {
+			((OffHeapCarrierShape) model.root().shapeAt(0)).records().close();
+		}
+	}
+
+	/*
+	 * Creates a scene of heap RectangleShapes spread over CarrierShapes.
+	 */
+	private static ShapeModel createHeapModel(int shapes) {
+		ShapeModel model = new ShapeModel(new Dimension(1000, 1000));
+		CarrierShape carrier = null;
+		for(int i = 0; i < shapes; i++) {
+			if(i % SHAPES_PER_CARRIER == 0) {
+				carrier = new CarrierShape(0, 0, 1, 2, 900, 900);
+				model.add(carrier, model.root());
+			}
+			carrier.add(new RectangleShape(i % 850, (i * 31) % 850, 1 + i % 7, 3 - i % 5, 10, 10));
+		}
+		return model;
+	}
+
+	/*
+	 * Creates a scene holding the same rectangles as records of a single
+	 * OffHeapCarrierShape.
+	 */
+	private static ShapeModel createOffHeapModel(int shapes) {
+		ShapeModel model = new ShapeModel(new Dimension(1000, 1000));
+		OffHeapCarrierShape carrier = new OffHeapCarrierShape(0, 0, 1, 2, 900, 900, shapes);
+		OffHeapShapeStore records = carrier.records();
+		for(int i = 0; i < shapes; i++) {
+			records.add(-1, OffHeapShapeStore.RECTANGLE, i % 850, (i * 31) % 850,
+					1 + i % 7, 3 - i % 5, 10, 10);
+		}
+		model.add(carrier, model.root());
+		return model;
+	}
+
+	/*
+	 * Returns the heap in use after a full collection.
+	 */
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/*
+	 * Returns the total time spent in garbage collection so far.
+	 */
+	private static long gcMillis() {
+		long total = 0;
+		for(GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+			total += Math.max(0, bean.getCollectionTime());
+		}
+		return total;
+	}
+}
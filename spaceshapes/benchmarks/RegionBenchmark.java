@@ -0,0 +1,71 @@
+package spaceshapes.benchmarks;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+
+import spaceshapes.CarrierShape;
+import spaceshapes.DynamicShape;
+import spaceshapes.RegionShape;
+import spaceshapes.RegionTickEngine;
+import spaceshapes.SequentialTickEngine;
+import spaceshapes.ShapeModel;
+import spaceshapes.TickEngine;
+
+/**
+ * Benchmark comparing the cost per tick of a chunked world 100 times the
+ * size of the viewport in each dimension, simulated in full by
+ * SequentialTickEngine and near the viewport only by RegionTickEngine. The
+ * viewport pans across the world so that regions are regularly caught up.
+ *
+ * @author lchi184
+ *
+ */
+public class RegionBenchmark {
+	private static final int VIEW_WIDTH = 500;
+	private static final int VIEW_HEIGHT = 500;
+	private static final int WORLD_SCALE = 100;
+	private static final int REGION_SIZE = 500;
+	private static final int SHAPES_PER_REGION = 20;
+	private static final int WARMUP_TICKS = 50;
+	private static final int MEASUREMENT_TICKS = 200;
+
+	public static void main(String[] args) {
+		run("sequential", new SequentialTickEngine(), null);
+		run("freeze", new RegionTickEngine(RegionTickEngine.Policy.FREEZE, REGION_SIZE), null);
+		RegionTickEngine catchUp = new RegionTickEngine(RegionTickEngine.Policy.CATCH_UP, REGION_SIZE);
+		run("catch up", catchUp, catchUp);
+	}
+
+	/*
+	 * Clocks a world with the given engine and prints the mean time per tick.
+	 * The viewport of a RegionTickEngine pans ten pixels a tick diagonally.
+	 */
+	private static void run(String name, TickEngine engine, RegionTickEngine panned) {
+		ShapeModel model = new ShapeModel(new Dimension(VIEW_WIDTH * WORLD_SCALE, VIEW_HEIGHT * WORLD_SCALE));
+		int regions = RegionShape.tile(model, REGION_SIZE);
+		for(int i = 0; i < regions; i++) {
+			CarrierShape region = (CarrierShape) model.root().shapeAt(i);
+			for(int j = 0; j < SHAPES_PER_REGION; j++) {
+				region.add(new DynamicShape((j * 37) % 450, (j * 91) % 450, j % 11 - 5, j % 7 - 3, 20, 20));
+			}
+		}
+		if(engine instanceof RegionTickEngine) {
+			((RegionTickEngine) engine).setViewport(new Rectangle(0, 0, VIEW_WIDTH, VIEW_HEIGHT));
+		}
+		model.setTickEngine(engine);
+
+		for(int i = 0; i < WARMUP_TICKS; i++) {
+			model.clock();
+		}
+		long start = System.nanoTime();
+		for(int i = 0; i < MEASUREMENT_TICKS; i++) {
+			if(panned != null) {
+				panned.setViewport(new Rectangle(i * 10, i * 10, VIEW_WIDTH, VIEW_HEIGHT));
+			}
+			model.clock();
+		}
+		long elapsed = System.nanoTime() - start;
+		System.out.printf("%-12s %8d regions %12.1f us/tick%n", name, regions,
+				elapsed / 1000.0 / MEASUREMENT_TICKS);
+	}
+}
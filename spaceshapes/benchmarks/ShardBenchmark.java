@@ -0,0 +1,61 @@
+package spaceshapes.benchmarks;
+
+import java.awt.Dimension;
+
+import spaceshapes.CarrierShape;
+import spaceshapes.DynamicShape;
+import spaceshapes.SequentialTickEngine;
+import spaceshapes.ShapeModel;
+import spaceshapes.ShardedTickEngine;
+import spaceshapes.TickEngine;
+
+/**
+ * Benchmark comparing the time per tick of a scene moved in process by 
+ * SequentialTickEngine and spread over worker processes by a 
+ * ShardedTickEngine. The scene has CARRIERS top-level carriers of 
+ * SHAPES_PER_CARRIER shapes. The sharded time includes streaming the 
+ * state of every shape back to the replica.
+ *
+ * @author lchi184
+ *
+ */
+public class ShardBenchmark {
+	private static final int CARRIERS = 64;
+	private static final int SHAPES_PER_CARRIER = 5000;
+	private static final int[] WORKER_COUNTS = {1, 2, 4};
+	private static final int WARMUP_TICKS = 200;
+	private static final int MEASUREMENT_TICKS = 400;
+
+	public static void main(String[] args) {
+		run("sequential", new SequentialTickEngine());
+		for(int workers : WORKER_COUNTS) {
+			run(workers + " workers", new ShardedTickEngine(workers));
+		}
+	}
+
+	/*
+	 * Clocks the scene with engine and prints the mean time per tick.
+	 */
+	private static void run(String name, TickEngine engine) {
+		ShapeModel model = new ShapeModel(new Dimension(4000, 4000));
+		for(int i = 0; i < CARRIERS; i++) {
+			CarrierShape carrier = new CarrierShape((i % 8) * 450, (i / 8) * 450, i % 5 - 2, i % 3 - 1, 400, 400);
+			for(int j = 0; j < SHAPES_PER_CARRIER; j++) {
+				carrier.add(new DynamicShape((j * 13) % 380, (j * 29) % 380, j % 11 - 5, j % 7 - 3, 10, 10));
+			}
+			model.add(carrier, model.root());
+		}
+		model.setTickEngine(engine);
+
+		for(int i = 0; i < WARMUP_TICKS; i++) {
+			model.clock();
+		}
+		long start = System.nanoTime();
+		for(int i = 0; i < MEASUREMENT_TICKS; i++) {
+			model.clock();
+		}
+		long elapsed = System.nanoTime() - start;
+		model.setTickEngine(new SequentialTickEngine());
+		System.out.printf("%-12s %10.1f us/tick%n", name, elapsed / 1000.0 / MEASUREMENT_TICKS);
+	}
+}
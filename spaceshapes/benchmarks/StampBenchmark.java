@@ -0,0 +1,100 @@
+package spaceshapes.benchmarks;
+
+import java.awt.Dimension;
+
+import spaceshapes.CarrierShape;
+import spaceshapes.DynamicShape;
+import spaceshapes.ShapeModel;
+import spaceshapes.ShapeModelEvent;
+import spaceshapes.ShapeModelListener;
+import spaceshapes.ShapeTemplate;
+
+/**
+ * Benchmark comparing the time taken to build a fleet of identical 
+ * CarrierShape hierarchies with ShapeModel.add(), one node at a time, and
+ * with ShapeModel.stamp() from a ShapeTemplate. A listener is registered 
+ * so that events are fired; the number received is reported.
+ *
+ * @author lchi184
+ *
+ */
+public class StampBenchmark {
+	private static final int INSTANCES = 5000;
+	private static final int SHIPS_PER_CARRIER = 20;
+	private static final int ROUNDS = 20;
+
+	public static void main(String[] args) {
+		for(int round = 0; round < ROUNDS; round++) {
+			boolean report = round == ROUNDS - 1;
+			add(report);
+			stamp(report);
+		}
+	}
+
+	/*
+	 * Builds the fleet with add() and prints the results if report is set.
+	 */
+	private static void add(boolean report) {
+		ShapeModel model = new ShapeModel(new Dimension(4000, 4000));
+		int[] events = listen(model);
+		long start = System.nanoTime();
+		for(int i = 0; i < INSTANCES; i++) {
+			CarrierShape carrier = new CarrierShape(x(i), y(i), 1, 1, 200, 200);
+			model.add(carrier, model.root());
+			for(int j = 0; j < SHIPS_PER_CARRIER; j++) {
+				model.add(new DynamicShape((j * 13) % 180, (j * 29) % 180, j % 11 - 5, j % 7 - 3, 10, 10), carrier);
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		if(report) {
+			System.out.printf("add    %10.1f ms %8d events%n", elapsed / 1e6, events[0]);
+		}
+	}
+
+	/*
+	 * Builds the fleet with stamp() and prints the results if report is set.
+	 */
+	private static void stamp(boolean report) {
+		ShapeModel model = new ShapeModel(new Dimension(4000, 4000));
+		int[] events = listen(model);
+		long start = System.nanoTime();
+		CarrierShape prototype = new CarrierShape(0, 0, 1, 1, 200, 200);
+		for(int j = 0; j < SHIPS_PER_CARRIER; j++) {
+			prototype.add(new DynamicShape((j * 13) % 180, (j * 29) % 180, j % 11 - 5, j % 7 - 3, 10, 10));
+		}
+		ShapeTemplate template = new ShapeTemplate(prototype);
+		int[] xs = new int[INSTANCES];
+		int[] ys = new int[INSTANCES];
+		for(int i = 0; i < INSTANCES; i++) {
+			xs[i] = x(i);
+			ys[i] = y(i);
+		}
+		model.stamp(template, model.root(), xs, ys);
+		long elapsed = System.nanoTime() - start;
+		if(report) {
+			System.out.printf("stamp  %10.1f ms %8d events%n", elapsed / 1e6, events[0]);
+		}
+	}
+	
+	private static int x(int i) {
+		return (i * 37) % 3800;
+	}
+	
+	private static int y(int i) {
+		return (i * 91) % 3800;
+	}
+	
+	/*
+	 * Registers a listener counting events into the returned array.
+	 */
+	private static int[] listen(ShapeModel model) {
+		final int[] events = new int[1];
+		model.addShapeModelListener(new ShapeModelListener() {
+			@Override
+			public void update(ShapeModelEvent event) {
+				events[0]++;
+			}
+		});
+		return events;
+	}
+}
@@ -0,0 +1,45 @@
+package spaceshapes.benchmarks;
+
+import java.awt.Dimension;
+
+import spaceshapes.SceneGenerator;
+import spaceshapes.ShapeModel;
+import spaceshapes.shapesApp.WorldScheduler;
+
+/**
+ * Benchmark hosting an increasing number of worlds at 40 ticks per second
+ * on a WorldScheduler with one worker per processor. For each number of 
+ * worlds the fraction of due ticks actually performed over a few seconds 
+ * is reported, along with the threads the JVM is running.
+ *
+ * @author lchi184
+ *
+ */
+public class WorldSchedulerBenchmark {
+	private static final int[] WORLD_COUNTS = {10, 100, 500, 1000};
+	private static final int TICK_RATE = 40;
+	private static final int SECONDS = 3;
+
+	public static void main(String[] args) throws InterruptedException {
+		int workers = Runtime.getRuntime().availableProcessors();
+		for(int count : WORLD_COUNTS) {
+			WorldScheduler scheduler = new WorldScheduler(workers);
+			for(int i = 0; i < count; i++) {
+				ShapeModel model = new ShapeModel(new Dimension(800, 800));
+				new SceneGenerator(i, 2, 20).populate(model);
+				scheduler.host("world" + i, model, TICK_RATE);
+			}
+			scheduler.start();
+			Thread.sleep(SECONDS * 1000L);
+			int threads = Thread.activeCount();
+			scheduler.stop();
+
+			long ticks = 0;
+			for(String id : scheduler.ids()) {
+				ticks += scheduler.world(id).tickCount();
+			}
+			System.out.printf("%-6d worlds %8.1f%% of due ticks %6d threads%n", count,
+					100.0 * ticks / ((long) count * TICK_RATE * SECONDS), threads);
+		}
+	}
+}
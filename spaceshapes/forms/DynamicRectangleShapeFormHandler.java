@@ -32,7 +32,7 @@ public class DynamicRectangleShapeFormHandler implements FormHandler {
 
 		DynamicShape newShape = new DynamicShape(x, y,
 				deltaX, deltaY, width, height, text, colour);
-		_model.add(newShape, _parentOfNewShape);
+		_model.postAdd(newShape, _parentOfNewShape);
 	}
 
 }
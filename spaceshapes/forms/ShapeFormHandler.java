@@ -43,9 +43,9 @@ public class ShapeFormHandler implements FormHandler {
 	/**
 	 * Reads form data that describes a shape. Based on the data, this 
 	 * ShapeFormHandler creates a new instance of a Shape subclass (specified 
-	 * at construction time). The new instance is then added to a ShapeModel 
-	 * and to a CarrierShape within the model. The ShapeModel and CarrierShape
-	 * objects are supplied when this ShapeFormHandler is created.  
+	 * at construction time). The new instance is then posted to a ShapeModel 
+	 * for adding to a CarrierShape within the model. The ShapeModel and 
+	 * CarrierShape objects are supplied when this ShapeFormHandler is created.  
 	 * 
 	 * @param form the Form that contains Shape data.
 	 */
@@ -70,7 +70,7 @@ public class ShapeFormHandler implements FormHandler {
 			// Instantiate shape class, calling the 7-argument constructor.
 			Shape newShape = (Shape)cons.newInstance(x, y, deltaX, deltaY, width, height, text);
 			
-			_model.add(newShape, _parentOfNewShape);
+			_model.postAdd(newShape, _parentOfNewShape);
 			
 		} catch(NoSuchMethodException e) {
 			// Thrown if a constructor with the specified arguments is not 
@@ -43,7 +43,8 @@ public class SimpleImageShapeFormHandler implements FormHandler {
 	/**
 	 * Reads form data that describes an ImageRectangleShape. Based on the 
 	 * data, this SimpleImageShapeFormHandler creates a new ImageRectangleShape 
-	 * object, adds it to a ShapeModel and to a CarrierShape within the model.
+	 * object and posts it to a ShapeModel for adding to a CarrierShape 
+	 * within the model.
 	 * 
 	 * @param form the Form that contains the ImageRectangleShape data.
 	 */
@@ -87,7 +88,7 @@ public class SimpleImageShapeFormHandler implements FormHandler {
 		
 		// Create the new Shape and add it to the model.
 		ImageRectangleShape imageShape = new ImageRectangleShape(deltaX, deltaY, scaledImage);
-		_model.add(imageShape, _parentOfNewShape);
+		_model.postAdd(imageShape, _parentOfNewShape);
 		
 		long elapsedTime = System.currentTimeMillis() - startTime;
 		System.out.println("Image loading and scaling took " + elapsedTime + "ms.");
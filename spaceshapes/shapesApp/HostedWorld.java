@@ -0,0 +1,167 @@
+package spaceshapes.shapesApp;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+import spaceshapes.RenderSnapshot;
+import spaceshapes.ShapeModel;
+import spaceshapes.TripleBuffer;
+
+/**
+ * Class to represent one ShapeModel hosted by a WorldScheduler. Like a 
+ * SimulationLoop, a HostedWorld publishes a RenderSnapshot of its model 
+ * into a TripleBuffer, so a view attaches to a world by painting from its
+ * snapshots(). Ticks are performed while holding the ShapeModel's monitor;
+ * code on other threads that changes the model's structure should 
+ * synchronize on the model too.
+ * 
+ * @author lchi184
+ *
+ */
+public class HostedWorld implements Delayed {
+	// Ticks a world may fall behind before it stops trying to catch up.
+	static final int MAX_LAG_TICKS = 5;
+	
+	private final String _id;
+	
+	private final ShapeModel _model;
+	
+	private final TripleBuffer<RenderSnapshot> _snapshots;
+	
+	private final long _tickPeriod;
+	
+	// Longest time in nanoseconds one turn on a worker may take.
+	private volatile long _tickBudget;
+	
+	// System.nanoTime() at which the next tick is due.
+	long _next;
+	
+	// Set once the world has been removed from its WorldScheduler.
+	volatile boolean _removed;
+	
+	private volatile long _tickCount;
+	
+	private volatile long _overrunCount;
+	
+	/**
+	 * Creates a HostedWorld; worlds are created by WorldScheduler.host().
+	 */
+	HostedWorld(String id, ShapeModel model, int tickRate, long tickBudget) {
+		_id = id;
+		_model = model;
+		_snapshots = new TripleBuffer<RenderSnapshot>(
+				new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot());
+		_tickPeriod = 1000000000L / tickRate;
+		_tickBudget = tickBudget;
+		publish();
+	}
+	
+	/**
+	 * Returns the id this world is hosted under.
+	 */
+	public String id() {
+		return _id;
+	}
+	
+	/**
+	 * Returns the ShapeModel of this world.
+	 */
+	public ShapeModel model() {
+		return _model;
+	}
+	
+	/**
+	 * Returns the buffer this world's snapshots are published into, for a 
+	 * view to paint from.
+	 */
+	public TripleBuffer<RenderSnapshot> snapshots() {
+		return _snapshots;
+	}
+	
+	/**
+	 * Sets the longest time one turn of this world may take. A world that 
+	 * is behind ticks until it is up to date or its budget is spent, and 
+	 * then goes to the back of the queue so that other worlds get a turn.
+	 * @param nanos budget per turn in nanoseconds.
+	 */
+	public void setTickBudget(long nanos) {
+		if(nanos <= 0) {
+			throw new IllegalArgumentException();
+		}
+		_tickBudget = nanos;
+	}
+	
+	/**
+	 * Returns the longest time in nanoseconds one turn may take.
+	 */
+	public long tickBudget() {
+		return _tickBudget;
+	}
+	
+	/**
+	 * Returns the number of ticks performed so far.
+	 */
+	public long tickCount() {
+		return _tickCount;
+	}
+	
+	/**
+	 * Returns the number of turns that ended with ticks still due because 
+	 * the tick budget was spent.
+	 */
+	public long overrunCount() {
+		return _overrunCount;
+	}
+	
+	/**
+	 * Performs the ticks that are due, within the tick budget, and publishes
+	 * a snapshot if any were performed. Returns true if ticks are still due.
+	 */
+	boolean turn() {
+		long start = System.nanoTime();
+		long now = start;
+		boolean ticked = false;
+		while(now >= _next) {
+			if(ticked && now - start >= _tickBudget) {
+				_overrunCount++;
+				break;
+			}
+			synchronized(_model) {
+				_model.clock();
+				_tickCount++;
+			}
+			ticked = true;
+			_next += _tickPeriod;
+			if(now - _next > MAX_LAG_TICKS * _tickPeriod) {
+				//too far behind, e.g. after a long pause, so drop the lag
+				_next = now + _tickPeriod;
+			}
+			now = System.nanoTime();
+		}
+		if(ticked) {
+			publish();
+		}
+		return now >= _next;
+	}
+	
+	@Override
+	public long getDelay(TimeUnit unit) {
+		return unit.convert(_next - System.nanoTime(), TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public int compareTo(Delayed other) {
+		return Long.compare(_next, ((HostedWorld) other)._next);
+	}
+	
+	/*
+	 * Records the model into the back snapshot and publishes it.
+	 */
+	private void publish() {
+		RenderSnapshot snapshot = _snapshots.back();
+		synchronized(_model) {
+			snapshot.record(_model.root(), _tickCount);
+		}
+		_snapshots.publish();
+	}
+}
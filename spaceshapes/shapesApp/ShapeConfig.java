@@ -36,14 +36,28 @@ public class ShapeConfig {
 	public static final int DEFAULT_ANIMATION_HEIGHT = 500;
 	public static final int MAX_ANIMATION_WIDTH = 1000;
 	public static final int MAX_ANIMATION_HEIGHT = 1000;
+	public static final int DEFAULT_TICK_RATE = 40;
+	public static final int DEFAULT_FRAME_RATE = 60;
+	public static final int MAX_RATE = 1000;
+	public static final int MAX_WORLD_WIDTH = 100 * MAX_ANIMATION_WIDTH;
+	public static final int MAX_WORLD_HEIGHT = 100 * MAX_ANIMATION_HEIGHT;
 	
 	// Property names (keys).
 	private static final String ANIMATION_WIDTH = "animation_width";
 	private static final String ANIMATION_HEIGHT = "animation_height";
 	private static final String SHAPES = "shape_classes";
+	private static final String TICK_RATE = "tick_rate";
+	private static final String FRAME_RATE = "frame_rate";
+	private static final String WORLD_WIDTH = "world_width";
+	private static final String WORLD_HEIGHT = "world_height";
+	private static final String REGION_SIZE = "region_size";
 	
 	// Property values.
 	private Dimension _bounds;
+	private Dimension _worldBounds;
+	private int _regionSize;
+	private int _tickRate;
+	private int _frameRate;
 	private String[] _shapeClassNames;
 	private List<Class<? extends Shape>> _shapeClasses;
 	
@@ -98,6 +112,26 @@ public class ShapeConfig {
 			}
 			_bounds = new Dimension(width, height);
 			
+			/*
+			 * Read chunked world properties. The world is only chunked if a
+			 * region size is given and the world is at least as large as the
+			 * animation bounds.
+			 */
+			int worldWidth = getBound(WORLD_WIDTH, width, props);
+			int worldHeight = getBound(WORLD_HEIGHT, height, props);
+			_regionSize = getBound(REGION_SIZE, 0, props);
+			if(worldWidth < width || worldWidth > MAX_WORLD_WIDTH 
+					|| worldHeight < height || worldHeight > MAX_WORLD_HEIGHT || _regionSize < 1) {
+				worldWidth = width;
+				worldHeight = height;
+				_regionSize = 0;
+			}
+			_worldBounds = new Dimension(worldWidth, worldHeight);
+			
+			// Read tick and frame rate properties, per second.
+			_tickRate = getRate(TICK_RATE, DEFAULT_TICK_RATE, props);
+			_frameRate = getRate(FRAME_RATE, DEFAULT_FRAME_RATE, props);
+			
 			// Set shapes property.
 			String shapeTypes = props.getProperty(SHAPES);
 			if(shapeTypes == null) {
@@ -120,6 +154,41 @@ public class ShapeConfig {
 		return _bounds;
 	}
 	
+	/**
+	 * Returns the bounds of the whole world. For a chunked world these may be
+	 * up to MAX_WORLD_WIDTH/HEIGHT, with the animation bounds giving the 
+	 * size of the viewport onto it; otherwise they are the animation bounds.
+	 */
+	public Dimension getWorldBounds() {
+		return _worldBounds;
+	}
+	
+	/**
+	 * Returns the width and height of the regions a chunked world is split
+	 * into, or 0 if the world is not chunked.
+	 */
+	public int getRegionSize() {
+		return _regionSize;
+	}
+	
+	/**
+	 * Returns the number of times per second the ShapeModel is clocked. This
+	 * method returns a rate in the range 1 .. MAX_RATE, falling back on 
+	 * DEFAULT_TICK_RATE if the properties file specifies anything else.
+	 */
+	public int getTickRate() {
+		return _tickRate;
+	}
+	
+	/**
+	 * Returns the number of times per second the views are repainted. This
+	 * method returns a rate in the range 1 .. MAX_RATE, falling back on 
+	 * DEFAULT_FRAME_RATE if the properties file specifies anything else.
+	 */
+	public int getFrameRate() {
+		return _frameRate;
+	}
+	
 	/**
 	 * Returns an array of strings containing names of shape classes. If no 
 	 * shape classes are named in the properties file, this method returns an 
@@ -187,6 +256,17 @@ public class ShapeConfig {
 		return property;
 	}
 	
+	/*
+	 * Implementation method to read/validate rate properties.
+	 */
+	private int getRate(String propertyName, int defaultValue, Properties props) {
+		int rate = getBound(propertyName, defaultValue, props);
+		if(rate < 1 || rate > MAX_RATE) {
+			rate = defaultValue;
+		}
+		return rate;
+	}
+	
 	/**
 	 * Main method to simply output the properties held by a ShapeConfig 
 	 * object.
@@ -198,6 +278,12 @@ public class ShapeConfig {
 		System.out.println("Animation bounds ...");
 		System.out.println("  " + config.getAnimationBounds());
 		
+		System.out.println("World bounds and region size ...");
+		System.out.println("  " + config.getWorldBounds() + " / " + config.getRegionSize());
+		
+		System.out.println("Tick and frame rates ...");
+		System.out.println("  " + config.getTickRate() + " / " + config.getFrameRate());
+		
 		System.out.println("Shape class names ... ");
 		for(String className : config.getShapeClassNames()) {
 			System.out.println("  " + className);
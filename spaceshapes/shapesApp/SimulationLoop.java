@@ -0,0 +1,437 @@
+package spaceshapes.shapesApp;
+
+import java.util.concurrent.locks.LockSupport;
+
+import spaceshapes.RenderSnapshot;
+import spaceshapes.ShapeModel;
+import spaceshapes.ShapeModelEvent;
+import spaceshapes.ShapeModelListener;
+import spaceshapes.TripleBuffer;
+
+/**
+ * Class that progresses a ShapeModel on its own thread. The loop is paced 
+ * with System.nanoTime() at a fixed tick rate and, after every tick, records
+ * a RenderSnapshot of the model into a TripleBuffer so that views can paint
+ * the latest frame without touching the model. When ticks take longer than
+ * the tick period the loop catches up by performing several ticks per 
+ * snapshot, within a frame budget, so that simulation time keeps pace with
+ * the wall clock; lag it cannot make up is dropped and reported by 
+ * droppedLag(). Ticks are performed while holding the ShapeModel's monitor;
+ * code on other threads that changes the model's structure should 
+ * synchronize on the model too.
+ * 
+ * The loop stops ticking, and uses no CPU, while it is paused or the model
+ * is idle. The model is taken to be idle once it has been found at rest, 
+ * by ShapeModel.isAtRest(), after IDLE_FRAMES ticks in a row: its state 
+ * rather than its frames is checked, since contents slowed down by a tick 
+ * divisor keep still for several ticks between steps. Ticks are counted 
+ * one by one, however many the loop performs per frame. An idle loop is 
+ * woken by shapes being added or removed, by commands or bulk operations 
+ * being submitted to the model, or by a call to wake(), which code that 
+ * changes shapes in any other way must make.
+ * 
+ * @author lchi184
+ *
+ */
+public class SimulationLoop implements Runnable {
+	// Ticks the loop may fall behind before it stops trying to catch up.
+	private static final int MAX_LAG_TICKS = 5;
+	
+	// Default frame budget, in tick periods.
+	private static final int FRAME_BUDGET_TICKS = 4;
+	
+	// Weight of past ticks in the moving average of the tick cost.
+	private static final int COST_SMOOTHING = 8;
+	
+	// Number of consecutive ticks at rest after which the model is idle.
+	public static final int IDLE_FRAMES = 2;
+	
+	private ShapeModel _model;
+	
+	private TripleBuffer<RenderSnapshot> _snapshots;
+	
+	private long _tickPeriod;
+	
+	private long _tickCount;
+	
+	private volatile boolean _running;
+	
+	// Longest time in nanoseconds spent ticking between two snapshots.
+	private volatile long _frameBudget;
+	
+	// === Overload statistics, written by the loop thread.
+	private volatile long _tickCost;
+	
+	private volatile long _skippedFrameCount;
+	
+	private volatile long _overrunCount;
+	
+	private volatile long _droppedLag;
+	// ===
+	
+	private Thread _thread;
+	
+	// Wakes the loop when shapes are added or removed.
+	private ShapeModelListener _wakeListener;
+	
+	// === Idle detection, owned by the loop thread.
+	private boolean _idleDetection;
+	
+	private int _restingTicks;
+	// ===
+	
+	// === Suspension state.
+	private volatile boolean _idle;
+	
+	private volatile boolean _paused;
+	
+	// Whether the ticks missed while paused are made up for on resuming.
+	private volatile boolean _fastForward;
+	
+	// Run on the loop thread whenever ticking resumes, or null.
+	private volatile Runnable _resumeListener;
+	// ===
+	
+	/**
+	 * Creates a SimulationLoop with idle detection enabled.
+	 * @param model the ShapeModel to progress.
+	 * @param snapshots the buffer to publish snapshots into.
+	 * @param tickRate number of ticks per second.
+	 */
+	public SimulationLoop(ShapeModel model, TripleBuffer<RenderSnapshot> snapshots, int tickRate) {
+		if(tickRate <= 0) {
+			throw new IllegalArgumentException();
+		}
+		_model = model;
+		_snapshots = snapshots;
+		_tickPeriod = 1000000000L / tickRate;
+		_tickCount = 0;
+		_frameBudget = FRAME_BUDGET_TICKS * _tickPeriod;
+		_idleDetection = true;
+		_wakeListener = new ShapeModelListener() {
+			@Override
+			public void update(ShapeModelEvent event) {
+				if(event.eventType() != ShapeModelEvent.EventType.ShapeMoved) {
+					wake();
+				}
+			}
+		};
+	}
+	
+	/**
+	 * Starts the simulation thread. A snapshot of the model's current state 
+	 * is published before the first tick.
+	 */
+	public synchronized void start() {
+		if(_thread != null) {
+			return;
+		}
+		synchronized(_model) {
+			_model.addShapeModelListener(_wakeListener);
+			_model.setCommandListener(new Runnable() {
+				@Override
+				public void run() {
+					wake();
+				}
+			});
+		}
+		publish();
+		_restingTicks = 0;
+		_running = true;
+		_thread = new Thread(this, "simulation");
+		_thread.setDaemon(true);
+		_thread.start();
+	}
+	
+	/**
+	 * Stops the simulation thread and waits for it to finish.
+	 */
+	public synchronized void stop() {
+		if(_thread == null) {
+			return;
+		}
+		_running = false;
+		LockSupport.unpark(_thread);
+		try {
+			_thread.join();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		_thread = null;
+		synchronized(_model) {
+			_model.removeShapeModelListener(_wakeListener);
+			_model.setCommandListener(null);
+		}
+	}
+	
+	/**
+	 * Stops ticking until resume() is called, e.g. while the animation 
+	 * cannot be seen.
+	 */
+	public void pause() {
+		_paused = true;
+	}
+	
+	/**
+	 * Resumes ticking after pause().
+	 * @param fastForward true to advance the model by the ticks missed while
+	 * paused, with ShapeModel.advance(), so that the animation looks as if
+	 * it had run all along.
+	 */
+	public void resume(boolean fastForward) {
+		if(_paused) {
+			_fastForward = fastForward;
+			_paused = false;
+			unpark();
+		}
+	}
+	
+	/**
+	 * Resumes ticking an idle model. Must be called after changing shapes 
+	 * other than by adding, removing or posting commands to the model.
+	 */
+	public void wake() {
+		_idle = false;
+		unpark();
+	}
+	
+	/**
+	 * Enables or disables idle detection. With idle detection disabled the
+	 * model is ticked until the loop is paused or stopped.
+	 */
+	public void setIdleDetection(boolean enabled) {
+		_idleDetection = enabled;
+		if(!enabled) {
+			wake();
+		}
+	}
+	
+	/**
+	 * Sets a Runnable run on the simulation thread whenever ticking resumes
+	 * after the loop was paused or idle, e.g. to restart a repaint timer.
+	 * @param listener the Runnable, or null for none.
+	 */
+	public void setResumeListener(Runnable listener) {
+		_resumeListener = listener;
+	}
+	
+	/**
+	 * Sets the longest time the loop may spend ticking between two 
+	 * snapshots. A loop that has fallen behind performs the ticks that are
+	 * due until it is up to date or its budget is spent, publishing only the
+	 * last frame; any lag left over is dropped once it exceeds a few ticks.
+	 * @param nanos budget per frame in nanoseconds.
+	 */
+	public void setFrameBudget(long nanos) {
+		if(nanos <= 0) {
+			throw new IllegalArgumentException();
+		}
+		_frameBudget = nanos;
+	}
+	
+	/**
+	 * Returns the longest time in nanoseconds spent ticking per frame.
+	 */
+	public long frameBudget() {
+		return _frameBudget;
+	}
+	
+	/**
+	 * Returns the number of ticks performed so far, including ticks made up
+	 * for when resuming with fast-forwarding.
+	 */
+	public long tickCount() {
+		synchronized(_model) {
+			return _tickCount;
+		}
+	}
+	
+	/**
+	 * Returns a moving average of the time in nanoseconds a tick takes, 
+	 * including the dispatch of ShapeModelEvents to listeners.
+	 */
+	public long tickCost() {
+		return _tickCost;
+	}
+	
+	/**
+	 * Returns the number of ticks whose frames were not published because 
+	 * the loop was catching up.
+	 */
+	public long skippedFrameCount() {
+		return _skippedFrameCount;
+	}
+	
+	/**
+	 * Returns the number of frames that ended with ticks still due because 
+	 * the frame budget was spent.
+	 */
+	public long overrunCount() {
+		return _overrunCount;
+	}
+	
+	/**
+	 * Returns the total time in nanoseconds the simulation has fallen behind
+	 * the wall clock without catching up, i.e. the drift absorbed by 
+	 * dropping lag. Time spent paused or idle is not included.
+	 */
+	public long droppedLag() {
+		return _droppedLag;
+	}
+	
+	/**
+	 * Returns true if the model has been found idle and is not being ticked.
+	 */
+	public boolean isIdle() {
+		return _idle;
+	}
+	
+	/**
+	 * Returns true if the loop is paused.
+	 */
+	public boolean isPaused() {
+		return _paused;
+	}
+	
+	/**
+	 * Returns true if the loop is not ticking, because it is paused or the 
+	 * model is idle.
+	 */
+	public boolean isSuspended() {
+		return _paused || _idle;
+	}
+	
+	/**
+	 * Runs the loop until stop() is called.
+	 */
+	@Override
+	public void run() {
+		long next = System.nanoTime() + _tickPeriod;
+		long suspendedAt = 0;
+		boolean suspended = false;
+		while(_running) {
+			if(_paused || _idle) {
+				if(!suspended) {
+					suspended = true;
+					suspendedAt = System.nanoTime();
+				}
+				LockSupport.park(this);
+				continue;
+			}
+			long now = System.nanoTime();
+			if(suspended) {
+				suspended = false;
+				_restingTicks = 0;
+				if(_fastForward) {
+					_fastForward = false;
+					fastForward((now - suspendedAt) / _tickPeriod);
+				}
+				next = now + _tickPeriod;
+				Runnable listener = _resumeListener;
+				if(listener != null) {
+					listener.run();
+				}
+				continue;
+			}
+			if(now < next) {
+				LockSupport.parkNanos(this, next - now);
+				continue;
+			}
+			next = frame(now, next);
+		}
+	}
+	
+	/*
+	 * Performs the ticks that are due, within the frame budget, and 
+	 * publishes one snapshot for all of them. Ticking stops early once the
+	 * model is idle. Returns the time at which the next tick is due.
+	 */
+	private long frame(long now, long next) {
+		long start = now;
+		int ticks = 0;
+		while(now >= next && !_idle) {
+			if(ticks > 0 && now - start >= _frameBudget) {
+				_overrunCount++;
+				break;
+			}
+			synchronized(_model) {
+				_model.clock();
+				_tickCount++;
+				if(_idleDetection) {
+					detectIdle();
+				}
+			}
+			ticks++;
+			next += _tickPeriod;
+			now = System.nanoTime();
+		}
+		long cost = (now - start) / ticks;
+		_tickCost = _tickCost == 0 ? cost : _tickCost + (cost - _tickCost) / COST_SMOOTHING;
+		_skippedFrameCount += ticks - 1;
+		publish();
+		
+		if(now - next > MAX_LAG_TICKS * _tickPeriod) {
+			//too far behind to catch up, so drop the lag
+			_droppedLag += now - next;
+			next = now + _tickPeriod;
+		}
+		return next;
+	}
+	
+	/*
+	 * Counts consecutive ticks after which the model is at rest, and marks 
+	 * the model idle once there have been IDLE_FRAMES of them. Called while
+	 * holding the model's monitor.
+	 */
+	private void detectIdle() {
+		if(_model.isAtRest()) {
+			if(++_restingTicks >= IDLE_FRAMES) {
+				_idle = true;
+				//a command posted since the check may have found the loop 
+				//awake, and would not wake it again
+				if(!_model.isAtRest()) {
+					_idle = false;
+				}
+			}
+		} else {
+			_restingTicks = 0;
+		}
+	}
+	
+	/*
+	 * Advances the model by the given number of ticks and publishes the 
+	 * result.
+	 */
+	private void fastForward(long ticks) {
+		if(ticks <= 0) {
+			return;
+		}
+		synchronized(_model) {
+			_model.advance(ticks);
+			_tickCount += ticks;
+		}
+		publish();
+	}
+	
+	/*
+	 * Wakes the loop thread if it is parked.
+	 */
+	private void unpark() {
+		Thread thread = _thread;
+		if(thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+	
+	/*
+	 * Records the model into the back snapshot, publishes it and returns it.
+	 */
+	private RenderSnapshot publish() {
+		RenderSnapshot snapshot = _snapshots.back();
+		synchronized(_model) {
+			snapshot.record(_model.root(), _tickCount);
+		}
+		_snapshots.publish();
+		return snapshot;
+	}
+}
@@ -5,15 +5,19 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.List;
 
 import javax.swing.BorderFactory;
 import javax.swing.DefaultComboBoxModel;
 import javax.swing.JButton;
 import javax.swing.JComboBox;
-import javax.swing.JComponent;
 import javax.swing.JFrame;
 import javax.swing.JList;
 import javax.swing.JPanel;
@@ -33,10 +37,15 @@ import spaceshapes.CarrierShape;
 import spaceshapes.DynamicShape;
 import spaceshapes.OvalShape;
 import spaceshapes.RectangleShape;
+import spaceshapes.RegionShape;
+import spaceshapes.RegionTickEngine;
+import spaceshapes.RenderSnapshot;
 import spaceshapes.Shape;
 import spaceshapes.ShapeModel;
+import spaceshapes.ShapeModelEvent;
+import spaceshapes.ShapeModelListener;
+import spaceshapes.TripleBuffer;
 import spaceshapes.forms.FormResolver;
-import spaceshapes.forms.util.Form;
 import spaceshapes.forms.util.FormComponent;
 import spaceshapes.forms.util.FormHandler;
 import spaceshapes.views.AnimationView;
@@ -49,10 +58,14 @@ import spaceshapes.views.Task2;
  * comprising three views of a ShapeModel: an animation view, a table view and
  * a tree view. In addition the GUI includes buttons and associated event
  * handlers to add new shapes to the animation and to remove existing shapes. 
- * A SpaceShape object uses a Timer to progress the animation; this results in the 
- * ShapeModel being sent a clock() message to which it responds by moving its
- * constituent Shape objects and then by notifying the three views 
- * (ShapeModelListeners). The application uses a ShapeConfig object to read 
+ * A SpaceShape object uses a SimulationLoop to progress the animation on its
+ * own thread; this results in the ShapeModel being sent a clock() message to 
+ * which it responds by moving its constituent Shape objects. After each tick
+ * the SimulationLoop publishes a RenderSnapshot, and a Timer on the Swing 
+ * event dispatch thread repaints the animation and table views from the 
+ * latest snapshot at the configured frame rate. Both stop while the window
+ * is minimised or the animation view is hidden, and while nothing in the 
+ * model is moving. The application uses a ShapeConfig object to read 
  * properties from the spaceshapes.properties file, one of which is the name of a
  * ShapeFactory implementation class that is used to create Shapes on request. 
  * 
@@ -61,11 +74,19 @@ import spaceshapes.views.Task2;
  */
 @SuppressWarnings("serial")
 public class SpaceShape extends JPanel {
-	private static final int DELAY = 25;
-
 	// Underlying model for the application.
 	private ShapeModel _model;
 	
+	// Thread progressing the model, and the frames it publishes.
+	private SimulationLoop _simulation;
+	private TripleBuffer<RenderSnapshot> _snapshots;
+	
+	// Timer repainting the views from published snapshots.
+	private Timer _frameTimer;
+	
+	// Whether the application window is minimised.
+	private boolean _minimised;
+	
 	private ShapeClassComboBoxModel _comboBoxModel;
 	
 	// View instances.
@@ -94,7 +115,17 @@ public class SpaceShape extends JPanel {
 	public SpaceShape() {
 		// Instantiate model and populate it with an initial set of shapes.
 		ShapeConfig config = ShapeConfig.instance();
-		_model = new ShapeModel(config.getAnimationBounds());
+		if(config.getRegionSize() > 0) {
+			// Chunked world, only simulated near the animation view.
+			_model = new ShapeModel(config.getWorldBounds());
+			RegionShape.tile(_model, config.getRegionSize());
+			RegionTickEngine engine = new RegionTickEngine(
+					RegionTickEngine.Policy.CATCH_UP, config.getRegionSize());
+			engine.setViewport(new Rectangle(config.getAnimationBounds()));
+			_model.setTickEngine(engine);
+		} else {
+			_model = new ShapeModel(config.getAnimationBounds());
+		}
 		populateModel();
 		
 		_comboBoxModel = new ShapeClassComboBoxModel();
@@ -102,10 +133,32 @@ public class SpaceShape extends JPanel {
 		// Instantiate GUI objects and construct GUI.
 		buildGUI();
 		
-		// Register views with models.
-		_model.addShapeModelListener(_animationView);
-		_model.addShapeModelListener(_tableModelAdapter);
-		_model.addShapeModelListener(_treeModelAdapter);
+		/*
+		 * Register views with models. ShapeMoved events are fired on the 
+		 * simulation thread so they are not passed on; the frame timer below
+		 * refreshes the views instead. Structural changes are made on the 
+		 * event dispatch thread and are forwarded as they happen, except for
+		 * batches of posted commands, which are applied on the simulation 
+		 * thread and handed over to the event dispatch thread. Both adapters 
+		 * read the model through ShapeModel.read() and keep what they read 
+		 * until told of a change, so neither sees the simulation thread's 
+		 * changes half made or before their event arrives.
+		 */
+		_model.addShapeModelListener(new ShapeModelListener() {
+			public void update(final ShapeModelEvent event) {
+				if(event.eventType() == ShapeModelEvent.EventType.ShapesChanged) {
+					SwingUtilities.invokeLater(new Runnable() {
+						public void run() {
+							_tableModelAdapter.update(event);
+							_treeModelAdapter.update(event);
+						}
+					});
+				} else if(event.eventType() != ShapeModelEvent.EventType.ShapeMoved) {
+					_tableModelAdapter.update(event);
+					_treeModelAdapter.update(event);
+				}
+			}
+		});
 		
 		// Setup event handlers to process user input.
 		setUpEventHandlers();
@@ -113,19 +166,84 @@ public class SpaceShape extends JPanel {
 		// Show GUI and ensure the root shape within the JTree view is selected.
 		_treeView.setSelectionPath(new TreePath(_model.root()));
 		
-		// Start animation.
-		Timer timer = new Timer(DELAY, new ActionListener() {
+		// Start animation, ticking and painting at independent rates.
+		_snapshots = new TripleBuffer<RenderSnapshot>(
+				new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot());
+		_animationView.setSnapshots(_snapshots);
+		_simulation = new SimulationLoop(_model, _snapshots, config.getTickRate());
+		_simulation.start();
+		
+		_frameTimer = new Timer(1000 / config.getFrameRate(), new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				_model.clock();
+				if(_snapshots.hasFresh()) {
+					_animationView.repaint();
+					_tableModelAdapter.refresh();
+				} else if(_simulation.isSuspended()) {
+					// Nothing more to paint until the simulation resumes.
+					_frameTimer.stop();
+				}
 			}
 		} );
-		timer.start();
+		_frameTimer.start();
+		
+		// Restart painting when the simulation resumes, e.g. after a Shape is
+		// added to a model that had come to rest.
+		_simulation.setResumeListener(new Runnable() {
+			public void run() {
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						updateActivity();
+					}
+				});
+			}
+		});
+		
+		// Stop ticking and painting while the animation view is not showing.
+		_animationView.addHierarchyListener(new HierarchyListener() {
+			public void hierarchyChanged(HierarchyEvent e) {
+				if((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
+					updateActivity();
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Records whether the application window is minimised, pausing the 
+	 * animation while it is and fast-forwarding it when it is restored.
+	 */
+	public void setMinimised(boolean minimised) {
+		_minimised = minimised;
+		updateActivity();
+	}
+	
+	/*
+	 * Pauses the simulation and painting if the animation cannot be seen, 
+	 * and otherwise resumes them.
+	 */
+	private void updateActivity() {
+		if(_minimised || !_animationView.isShowing()) {
+			_simulation.pause();
+			_frameTimer.stop();
+		} else {
+			_simulation.resume(true);
+			_frameTimer.start();
+		}
 	}
 
 	private static void createAndShowGUI() {
 		JFrame frame = new JFrame("Space-Shapes");
-		JComponent newContentPane = new SpaceShape();
+		final SpaceShape newContentPane = new SpaceShape();
 		frame.add(newContentPane);
+		frame.addWindowListener(new WindowAdapter() {
+			public void windowIconified(WindowEvent e) {
+				newContentPane.setMinimised(true);
+			}
+			
+			public void windowDeiconified(WindowEvent e) {
+				newContentPane.setMinimised(false);
+			}
+		});
 		frame.pack();
 	    frame.setLocationRelativeTo(null);
 	    frame.setResizable(false);
@@ -181,6 +299,8 @@ public class SpaceShape extends JPanel {
 				@SuppressWarnings("unchecked")
 				Class<? extends Shape> cls = (Class<? extends Shape>)_comboBoxModel.getSelectedItem();
 				FormComponent form = FormResolver.getForm(cls);
+				// The handler builds the shape without holding the model and
+				// posts the add, so the simulation keeps running meanwhile.
 				FormHandler handler = FormResolver.getFormHandler(cls, _model, (CarrierShape)_shapeSelected);
 				form.setFormHandler(handler);
 				form.prepare();
@@ -204,7 +324,9 @@ public class SpaceShape extends JPanel {
 				CarrierShape parent = selection.parent();
 				
 				_treeView.setSelectionPath(new TreePath(parent.path().toArray()));
-				_model.remove(selection);
+				synchronized(_model) {
+					_model.remove(selection);
+				}
 				
 			}
 		});
@@ -254,7 +376,7 @@ public class SpaceShape extends JPanel {
 	private void buildGUI() {
 		// Create Swing model objects.
 		_treeModelAdapter = new Task2(_model);
-		_tableModelAdapter = new TableModelAdapter(_model.root());
+		_tableModelAdapter = new TableModelAdapter(_model.root(), _model);
 		
 		// Create main Swing components.
 		_treeView = new JTree(_treeModelAdapter);
@@ -14,8 +14,33 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({spaceshapes.TestNestingShape.class, 
+	spaceshapes.TestColumnarTickEngine.class, 
+	spaceshapes.TestParallelTickEngine.class, 
+	spaceshapes.TestRenderSnapshot.class, 
+	spaceshapes.TestAdvance.class, 
+	spaceshapes.TestKineticTickEngine.class, 
+	spaceshapes.TestMoveKernel.class, 
+	spaceshapes.TestActiveSetTickEngine.class, 
+	spaceshapes.TestBatchedTickEngine.class, 
+	spaceshapes.TestDeepNesting.class, 
+	spaceshapes.TestOffHeapShapeStore.class, 
+	spaceshapes.TestParticleCarrierShape.class, 
+	spaceshapes.TestShapePool.class, 
+	spaceshapes.TestCollision.class, 
+	spaceshapes.TestRegionTickEngine.class, 
+	spaceshapes.TestLevelOfDetail.class, 
+	spaceshapes.TestShardedTickEngine.class, 
+	spaceshapes.TestCommandQueue.class, 
+	spaceshapes.TestShapeTemplate.class, 
+	spaceshapes.TestOccupancyMap.class, 
+	spaceshapes.TestBulkOperation.class, 
+	spaceshapes.TestConcurrentRead.class, 
+	spaceshapes.TestModelHistory.class, 
+	spaceshapes.shapesApp.TestSimulationLoop.class, 
+	spaceshapes.shapesApp.TestWorldScheduler.class, 
 	spaceshapes.views.TestTask1.class, 
 	spaceshapes.views.TestTask2.class,
+	spaceshapes.views.TestVersionTreeModel.class,
 	spaceshapes.forms.TestImageShapeFormHandler.class})
 public class TestAll {}
 
@@ -0,0 +1,257 @@
+package spaceshapes.shapesApp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Dimension;
+
+import org.junit.Test;
+
+import spaceshapes.CarrierShape;
+import spaceshapes.RectangleShape;
+import spaceshapes.RenderSnapshot;
+import spaceshapes.ShapeCommand;
+import spaceshapes.ShapeModel;
+import spaceshapes.ShapeModelEvent;
+import spaceshapes.ShapeModelListener;
+import spaceshapes.TripleBuffer;
+
+/**
+ * Class to test that a SimulationLoop ticks its ShapeModel on its own 
+ * thread and publishes snapshots as it goes, and that it stops ticking 
+ * while paused or idle.
+ * 
+ * @author lchi184
+ *
+ */
+public class TestSimulationLoop {
+	
+	/**
+	 * Runs a loop at a high tick rate and checks ticks and snapshots.
+	 */
+	@Test
+	public void testTicksAndPublishes() throws InterruptedException {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		RectangleShape shape = new RectangleShape(0, 0, 1, 0, 10, 10);
+		model.add(shape, model.root());
+		TripleBuffer<RenderSnapshot> snapshots = new TripleBuffer<RenderSnapshot>(
+				new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot());
+		SimulationLoop loop = new SimulationLoop(model, snapshots, 1000);
+		
+		loop.start();
+		assertEquals(0, snapshots.latest().tick());
+		long deadline = System.currentTimeMillis() + 5000;
+		while(loop.tickCount() < 20 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		loop.stop();
+		
+		long ticks = loop.tickCount();
+		assertTrue(ticks >= 20);
+		assertEquals(ticks, snapshots.latest().tick());
+		assertEquals(Math.min(ticks, 490), shape.x());
+	}
+	
+	/**
+	 * Checks that a loop stops ticking a model that has come to rest, and 
+	 * resumes when a Shape is added.
+	 */
+	@Test
+	public void testIdleUntilShapeAdded() throws InterruptedException {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		model.add(new RectangleShape(0, 0, 0, 0, 10, 10), model.root());
+		TripleBuffer<RenderSnapshot> snapshots = newBuffer();
+		SimulationLoop loop = new SimulationLoop(model, snapshots, 1000);
+		
+		loop.start();
+		assertTrue(waitFor(loop, true));
+		long ticks = loop.tickCount();
+		assertEquals(SimulationLoop.IDLE_FRAMES, ticks);
+		Thread.sleep(50);
+		assertEquals(ticks, loop.tickCount());
+		
+		RectangleShape moving = new RectangleShape(0, 0, 1, 0, 10, 10);
+		synchronized(model) {
+			model.add(moving, model.root());
+		}
+		assertTrue(waitFor(loop, false));
+		long deadline = System.currentTimeMillis() + 5000;
+		while(moving.x() < 10 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		loop.stop();
+		assertTrue(moving.x() >= 10);
+	}
+	
+	/**
+	 * Checks that a loop keeps ticking a model whose only moving Shape is 
+	 * inside a CarrierShape with a tick divisor of 3, which keeps its 
+	 * contents still for two ticks at a time.
+	 */
+	@Test
+	public void testNotIdleUnderTickDivisor() throws InterruptedException {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		CarrierShape carrier = new CarrierShape(0, 0, 0, 0, 400, 400);
+		RectangleShape moving = new RectangleShape(0, 0, 1, 0, 10, 10);
+		carrier.add(moving);
+		carrier.setTickDivisor(3);
+		model.add(carrier, model.root());
+		SimulationLoop loop = new SimulationLoop(model, newBuffer(), 1000);
+		
+		loop.start();
+		long deadline = System.currentTimeMillis() + 5000;
+		while(loop.tickCount() < 30 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		loop.stop();
+		assertFalse(loop.isIdle());
+		assertTrue(loop.tickCount() >= 30);
+		assertEquals(loop.tickCount() / 3 * 3, moving.x());
+	}
+	
+	/**
+	 * Checks that a posted command wakes an idle loop.
+	 */
+	@Test
+	public void testPostWakes() throws InterruptedException {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		SimulationLoop loop = new SimulationLoop(model, newBuffer(), 1000);
+		
+		loop.start();
+		assertTrue(waitFor(loop, true));
+		RectangleShape moving = new RectangleShape(0, 0, 1, 0, 10, 10);
+		model.postAdd(moving, model.root());
+		long deadline = System.currentTimeMillis() + 5000;
+		while(moving.x() < 10 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		loop.stop();
+		assertTrue(moving.x() >= 10);
+	}
+	
+	/**
+	 * Checks that a paused loop does not tick, and that resuming with 
+	 * fast-forwarding makes up for the ticks missed.
+	 */
+	@Test
+	public void testPauseAndFastForward() throws InterruptedException {
+		ShapeModel model = new ShapeModel(new Dimension(5000, 500));
+		RectangleShape shape = new RectangleShape(0, 0, 1, 0, 10, 10);
+		model.add(shape, model.root());
+		TripleBuffer<RenderSnapshot> snapshots = newBuffer();
+		SimulationLoop loop = new SimulationLoop(model, snapshots, 100);
+		
+		loop.pause();
+		loop.start();
+		Thread.sleep(300);
+		assertTrue(loop.isPaused());
+		assertEquals(0, loop.tickCount());
+		
+		loop.resume(true);
+		long deadline = System.currentTimeMillis() + 5000;
+		while(loop.tickCount() == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		loop.stop();
+		
+		// Around 30 ticks were missed while paused.
+		assertFalse(loop.isPaused());
+		assertTrue(loop.tickCount() >= 20);
+		assertEquals(loop.tickCount(), shape.x());
+		assertEquals(loop.tickCount(), snapshots.latest().tick());
+	}
+	
+	/**
+	 * Overloads a loop with a listener that makes every tick take twice the
+	 * tick period, and checks that it performs several ticks per frame and 
+	 * reports the lag it could not make up.
+	 */
+	@Test
+	public void testCatchUpUnderOverload() throws InterruptedException {
+		ShapeModel model = new ShapeModel(new Dimension(5000, 500));
+		RectangleShape shape = new RectangleShape(0, 0, 1, 0, 10, 10);
+		model.add(shape, model.root());
+		model.addShapeModelListener(new ShapeModelListener() {
+			@Override
+			public void update(ShapeModelEvent event) {
+				long end = System.nanoTime() + 2000000;
+				while(System.nanoTime() < end) {
+					Thread.onSpinWait();
+				}
+			}
+		});
+		TripleBuffer<RenderSnapshot> snapshots = newBuffer();
+		SimulationLoop loop = new SimulationLoop(model, snapshots, 1000);
+		
+		loop.start();
+		long deadline = System.currentTimeMillis() + 5000;
+		while(loop.tickCount() < 100 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		loop.stop();
+		
+		assertTrue(loop.tickCount() >= 100);
+		assertTrue(loop.tickCost() >= 2000000);
+		assertTrue(loop.skippedFrameCount() > 0);
+		assertTrue(loop.overrunCount() > 0);
+		assertTrue(loop.droppedLag() > 0);
+		assertEquals(loop.tickCount(), shape.x());
+		assertEquals(loop.tickCount(), snapshots.latest().tick());
+	}
+	
+	/**
+	 * Checks that a loop that is performing several ticks per frame still 
+	 * finds the model idle once it comes to rest.
+	 */
+	@Test
+	public void testIdleUnderOverload() throws InterruptedException {
+		ShapeModel model = new ShapeModel(new Dimension(5000, 500));
+		final RectangleShape shape = new RectangleShape(0, 0, 1, 0, 10, 10);
+		model.add(shape, model.root());
+		model.addShapeModelListener(new ShapeModelListener() {
+			@Override
+			public void update(ShapeModelEvent event) {
+				long end = System.nanoTime() + 2000000;
+				while(System.nanoTime() < end) {
+					Thread.onSpinWait();
+				}
+			}
+		});
+		SimulationLoop loop = new SimulationLoop(model, newBuffer(), 1000);
+		
+		loop.start();
+		long deadline = System.currentTimeMillis() + 5000;
+		while(loop.skippedFrameCount() < 10 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertTrue(loop.skippedFrameCount() >= 10);
+		model.post(new ShapeCommand() {
+			@Override
+			public void apply(ShapeModel model) {
+				shape.setDelta(0, 0);
+			}
+		});
+		assertTrue(waitFor(loop, true));
+		long ticks = loop.tickCount();
+		Thread.sleep(50);
+		assertEquals(ticks, loop.tickCount());
+		loop.stop();
+	}
+	
+	/*
+	 * Waits up to five seconds for a loop to become idle or not.
+	 */
+	private static boolean waitFor(SimulationLoop loop, boolean idle) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while(loop.isIdle() != idle && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		return loop.isIdle() == idle;
+	}
+	
+	private static TripleBuffer<RenderSnapshot> newBuffer() {
+		return new TripleBuffer<RenderSnapshot>(
+				new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot());
+	}
+}
@@ -0,0 +1,136 @@
+package spaceshapes.shapesApp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.Dimension;
+
+import org.junit.Test;
+
+import spaceshapes.CarrierShape;
+import spaceshapes.RectangleShape;
+import spaceshapes.ShapeModel;
+import spaceshapes.TickEngine;
+
+/**
+ * Class to test that a WorldScheduler ticks many worlds on a few worker 
+ * threads, publishing snapshots for each, and that a slow world does not
+ * starve the others.
+ * 
+ * @author lchi184
+ *
+ */
+public class TestWorldScheduler {
+	
+	/**
+	 * Hosts many worlds on two workers and checks every one is ticked.
+	 */
+	@Test
+	public void testTicksEveryWorld() throws InterruptedException {
+		WorldScheduler scheduler = new WorldScheduler(2);
+		RectangleShape[] shapes = new RectangleShape[100];
+		for(int i = 0; i < shapes.length; i++) {
+			shapes[i] = new RectangleShape(0, 0, 1, 0, 10, 10);
+			scheduler.host("world" + i, createModel(shapes[i]), 500);
+		}
+		assertEquals(100, scheduler.ids().size());
+		
+		scheduler.start();
+		waitForTicks(scheduler, 20);
+		scheduler.stop();
+		
+		for(int i = 0; i < shapes.length; i++) {
+			HostedWorld world = scheduler.world("world" + i);
+			long ticks = world.tickCount();
+			assertTrue(ticks >= 20);
+			assertEquals(ticks, world.snapshots().latest().tick());
+			assertEquals(Math.min(ticks, 490), shapes[i].x());
+		}
+	}
+	
+	/**
+	 * Checks that a world whose ticks take longer than its period uses up 
+	 * its budget and overruns, while cheap worlds on the same single worker
+	 * keep pace.
+	 */
+	@Test
+	public void testSlowWorldDoesNotStarveOthers() throws InterruptedException {
+		WorldScheduler scheduler = new WorldScheduler(1);
+		ShapeModel slow = createModel(new RectangleShape(0, 0, 1, 0, 10, 10));
+		slow.setTickEngine(new TickEngine() {
+			@Override
+			public void tick(CarrierShape root, int width, int height) {
+				long end = System.nanoTime() + 3000000L;
+				while(System.nanoTime() < end) {
+					// Busy, a tick taking 3ms at 1000 ticks per second.
+				}
+				root.move(width, height);
+			}
+			
+			@Override
+			public void release(CarrierShape root) {
+			}
+		});
+		HostedWorld slowWorld = scheduler.host("slow", slow, 1000);
+		slowWorld.setTickBudget(1000000L);
+		for(int i = 0; i < 10; i++) {
+			scheduler.host("fast" + i, createModel(new RectangleShape(0, 0, 1, 0, 10, 10)), 100);
+		}
+		
+		scheduler.start();
+		Thread.sleep(500);
+		scheduler.stop();
+		
+		assertTrue(slowWorld.overrunCount() > 0);
+		for(int i = 0; i < 10; i++) {
+			//about 50 ticks are due, within the lag a world may drop
+			assertTrue(scheduler.world("fast" + i).tickCount() >= 25);
+		}
+	}
+	
+	/**
+	 * Checks that ids are unique and that removed worlds stop ticking.
+	 */
+	@Test
+	public void testHostAndRemove() throws InterruptedException {
+		WorldScheduler scheduler = new WorldScheduler(1);
+		ShapeModel model = createModel(new RectangleShape(0, 0, 1, 0, 10, 10));
+		HostedWorld world = scheduler.host("a", model, 1000);
+		try {
+			scheduler.host("a", model, 1000);
+			fail();
+		} catch(IllegalArgumentException e) {
+			// Expected, ids are unique.
+		}
+		assertEquals(world, scheduler.remove("a"));
+		assertNull(scheduler.world("a"));
+		scheduler.start();
+		Thread.sleep(50);
+		scheduler.stop();
+		assertEquals(0, world.tickCount());
+	}
+	
+	/*
+	 * Creates a model holding shape.
+	 */
+	private static ShapeModel createModel(RectangleShape shape) {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		model.add(shape, model.root());
+		return model;
+	}
+	
+	/*
+	 * Waits until every world has performed ticks ticks, for at most ten 
+	 * seconds.
+	 */
+	private static void waitForTicks(WorldScheduler scheduler, long ticks) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		for(String id : scheduler.ids()) {
+			while(scheduler.world(id).tickCount() < ticks && System.currentTimeMillis() < deadline) {
+				Thread.sleep(5);
+			}
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package spaceshapes.shapesApp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import spaceshapes.ShapeModel;
+
+/**
+ * Class that progresses many independent ShapeModels on a fixed number of 
+ * worker threads, so hosting hundreds of worlds costs neither a thread nor
+ * a Swing Timer per world. Each world waits in a delay queue until its next
+ * tick is due and then joins a FIFO ready queue; workers take worlds from 
+ * the ready queue in turn, so worlds are ticked round-robin. A turn performs
+ * the ticks a world is due, until its tick budget is spent; a world still 
+ * behind goes to the back of the ready queue rather than holding on to the
+ * worker, so one expensive world cannot starve the others. A view attaches
+ * to a world by painting from world(id).snapshots().
+ * 
+ * @author lchi184
+ *
+ */
+public class WorldScheduler {
+	// Default longest time in nanoseconds one turn of a world may take.
+	public static final long DEFAULT_TICK_BUDGET = 5000000L;
+	
+	private final int _workerCount;
+	
+	private final Map<String, HostedWorld> _worlds;
+	
+	// Worlds waiting for their next tick to be due.
+	private final DelayQueue<HostedWorld> _waiting;
+	
+	// Worlds with ticks due, in the order they get a turn.
+	private final BlockingQueue<HostedWorld> _ready;
+	
+	private volatile boolean _running;
+	
+	private List<Thread> _threads;
+	
+	/**
+	 * Creates a WorldScheduler.
+	 * @param workerCount number of worker threads ticking worlds.
+	 */
+	public WorldScheduler(int workerCount) {
+		if(workerCount <= 0) {
+			throw new IllegalArgumentException();
+		}
+		_workerCount = workerCount;
+		_worlds = new ConcurrentHashMap<String, HostedWorld>();
+		_waiting = new DelayQueue<HostedWorld>();
+		_ready = new LinkedBlockingQueue<HostedWorld>();
+	}
+	
+	/**
+	 * Hosts model under the given id with the DEFAULT_TICK_BUDGET. The first
+	 * tick is due one tick period from now.
+	 * @param tickRate number of ticks per second.
+	 * @throws IllegalArgumentException if id is already hosted or tickRate
+	 * is not positive.
+	 */
+	public HostedWorld host(String id, ShapeModel model, int tickRate) {
+		if(tickRate <= 0) {
+			throw new IllegalArgumentException();
+		}
+		HostedWorld world = new HostedWorld(id, model, tickRate, DEFAULT_TICK_BUDGET);
+		if(_worlds.putIfAbsent(id, world) != null) {
+			throw new IllegalArgumentException();
+		}
+		world._next = System.nanoTime() + 1000000000L / tickRate;
+		_waiting.put(world);
+		return world;
+	}
+	
+	/**
+	 * Stops hosting the world with the given id. A turn already in progress
+	 * is completed.
+	 * @return the world, or null if no world has that id.
+	 */
+	public HostedWorld remove(String id) {
+		HostedWorld world = _worlds.remove(id);
+		if(world != null) {
+			world._removed = true;
+			_waiting.remove(world);
+		}
+		return world;
+	}
+	
+	/**
+	 * Returns the world hosted under the given id, or null.
+	 */
+	public HostedWorld world(String id) {
+		return _worlds.get(id);
+	}
+	
+	/**
+	 * Returns the ids of all hosted worlds.
+	 */
+	public List<String> ids() {
+		return new ArrayList<String>(_worlds.keySet());
+	}
+	
+	/**
+	 * Starts the dispatcher and worker threads.
+	 */
+	public synchronized void start() {
+		if(_threads != null) {
+			return;
+		}
+		_running = true;
+		_threads = new ArrayList<Thread>();
+		_threads.add(new Thread(new Runnable() {
+			@Override
+			public void run() {
+				dispatch();
+			}
+		}, "world-dispatcher"));
+		for(int i = 0; i < _workerCount; i++) {
+			_threads.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					work();
+				}
+			}, "world-worker-" + i));
+		}
+		for(Thread thread : _threads) {
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+	
+	/**
+	 * Stops all threads and waits for them to finish. Worlds stay hosted 
+	 * and resume when the scheduler is started again.
+	 */
+	public synchronized void stop() {
+		if(_threads == null) {
+			return;
+		}
+		_running = false;
+		for(Thread thread : _threads) {
+			thread.interrupt();
+		}
+		try {
+			for(Thread thread : _threads) {
+				thread.join();
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		_threads = null;
+		//worlds that were ready wait for their (overdue) tick again
+		_waiting.addAll(_ready);
+		_ready.clear();
+	}
+	
+	/*
+	 * Moves worlds whose tick is due from the delay queue to the ready 
+	 * queue, until stopped.
+	 */
+	private void dispatch() {
+		try {
+			while(_running) {
+				_ready.put(_waiting.take());
+			}
+		} catch(InterruptedException e) {
+			// Stopped.
+		}
+	}
+	
+	/*
+	 * Gives worlds from the ready queue a turn each, until stopped.
+	 */
+	private void work() {
+		while(_running) {
+			HostedWorld world;
+			try {
+				world = _ready.take();
+			} catch(InterruptedException e) {
+				break;
+			}
+			if(world._removed) {
+				continue;
+			}
+			if(world.turn()) {
+				_ready.add(world);
+			} else if(!world._removed) {
+				_waiting.put(world);
+			}
+		}
+	}
+}
@@ -9,8 +9,10 @@ import javax.swing.JPanel;
 import spaceshapes.GraphicsPainter;
 import spaceshapes.CarrierShape;
 import spaceshapes.Painter;
+import spaceshapes.RenderSnapshot;
 import spaceshapes.ShapeModelEvent;
 import spaceshapes.ShapeModelListener;
+import spaceshapes.TripleBuffer;
 
 /**
  * Class that presents an animation view of a ShapeModel. This class implements
@@ -18,7 +20,9 @@ import spaceshapes.ShapeModelListener;
  * notified via a ShapeModelEvent whenever the model has changed. A registered
  * AnimationViewer responds to a ShapeModelEvent by adding any new shape to the
  * animation, removing a deleted shape from the animation, or updating the 
- * positions of shapes that have moved.
+ * positions of shapes that have moved. Alternatively an AnimationView can be
+ * given a TripleBuffer of RenderSnapshots, in which case it paints only the
+ * latest published snapshot and never touches the model itself.
  * 
  * @author Ian Warren
  *
@@ -28,6 +32,9 @@ public class AnimationView extends JPanel implements ShapeModelListener {
 	// Reference to root CarrierShape.
 	private CarrierShape _root;
 	
+	// Source of recorded frames, null when painting the model directly.
+	private TripleBuffer<RenderSnapshot> _snapshots;
+	
 	/**
 	 * Creates an AnimationView object with specified bounds.
 	 */
@@ -53,7 +60,9 @@ public class AnimationView extends JPanel implements ShapeModelListener {
 		 * Paint the shapes, starting with the root and recursively work
 		 * through the composition structure.
 		 */
-		if(_root != null) {
+		if(_snapshots != null) {
+			_snapshots.latest().replay(painter);
+		} else if(_root != null) {
 			_root.paint(painter);
 		}
 	}
@@ -67,4 +76,14 @@ public class AnimationView extends JPanel implements ShapeModelListener {
 		repaint();
 	}
 	
+	/**
+	 * Makes this AnimationView paint the latest RenderSnapshot published 
+	 * to snapshots rather than the model. Callers are responsible for 
+	 * calling repaint() when new snapshots are available.
+	 */
+	public void setSnapshots(TripleBuffer<RenderSnapshot> snapshots) {
+		_snapshots = snapshots;
+		repaint();
+	}
+	
 }
@@ -4,8 +4,10 @@ import javax.swing.table.AbstractTableModel;
 
 import spaceshapes.CarrierShape;
 import spaceshapes.Shape;
+import spaceshapes.ShapeModel;
 import spaceshapes.ShapeModelEvent;
 import spaceshapes.ShapeModelListener;
+import spaceshapes.ShapeReader;
 
 /**
  * Adapter class that adapts Shape/CarrierShape to the TableModel target 
@@ -14,6 +16,11 @@ import spaceshapes.ShapeModelListener;
  * TableModel interface from scratch this class extends AbstractTableModel and
  * simply overrides selected methods as necessary.
  * 
+ * The table shows a copy of the adaptee's rows, taken when the adaptee is 
+ * set, when an event arrives and when refresh() is called, so that a JTable
+ * never reads shapes that another thread is changing. Given the ShapeModel 
+ * the adaptee belongs to, the copy is taken with ShapeModel.read().
+ * 
  * @author Ian Warren
  * 
  */
@@ -25,6 +32,12 @@ public class TableModelAdapter extends AbstractTableModel implements ShapeModelL
 	 */
 	private Shape _adaptee;
 	
+	// Model the adaptee belongs to, read through read(), or null.
+	private ShapeModel _model;
+	
+	// Copy of the adaptee's rows, one value per column.
+	private Object[][] _rows;
+	
 	 // Column names for table.
 	private static final String[] _columnNames = {"Type", "X-pos", "Y-pos", "X-delta", "Y-delta", "Width", "Height", "Text"};
 
@@ -33,7 +46,18 @@ public class TableModelAdapter extends AbstractTableModel implements ShapeModelL
 	 * represented by this TableModelAdapter.
 	 */
 	public TableModelAdapter(Shape shape) {
+		this(shape, null);
+	}
+	
+	/**
+	 * Creates a TableModelAdapter representing a Shape/CarrierShape within 
+	 * model, whose rows are copied with model.read() so that the model may
+	 * be changed on another thread meanwhile.
+	 */
+	public TableModelAdapter(Shape shape, ShapeModel model) {
 		_adaptee = shape;
+		_model = model;
+		_rows = copyRows();
 	}
 	
 	/**
@@ -64,13 +88,7 @@ public class TableModelAdapter extends AbstractTableModel implements ShapeModelL
 	 */
 	@Override
 	public int getRowCount() {
-		int rowCount = 1;
-		
-		if(_adaptee instanceof CarrierShape) {
-			CarrierShape nestingShape = (CarrierShape)_adaptee;
-			rowCount = nestingShape.shapeCount();
-		}
-		return rowCount;
+		return _rows.length;
 	}
 
 	/**
@@ -79,41 +97,54 @@ public class TableModelAdapter extends AbstractTableModel implements ShapeModelL
 	 */
 	@Override
 	public Object getValueAt(int row, int col) {
-		Shape targetShape = _adaptee;
-		Object result = null;
-		
-		if(_adaptee instanceof CarrierShape) {
-			CarrierShape nestingShape = (CarrierShape)_adaptee;
-			targetShape = nestingShape.shapeAt(row);
-		}
-		
-		switch(col) {
-		case 0: // Type
-			result = targetShape.toString();
-			break;
-		case 1: // X-Pos
-			result = targetShape.x();
-			break;
-		case 2: // Y-Pos.
-			result = targetShape.y();
-			break;
-		case 3: // X-delta.
-			result = targetShape.deltaX();
-			break;
-		case 4: // Y-delta.
-			result = targetShape.deltaY();
-			break;
-		case 5: // Width.
-			result = targetShape.width();
-			break;
-		case 6: // Height.
-			result = targetShape.height();
-			break;
-		case 7: // Text.
-			result = targetShape.text();
-			break;
-		}
-		return result;
+		return _rows[row][col];
+	}
+	
+	/**
+	 * Copies the adaptee's rows again, e.g. after its shapes have moved, and
+	 * notifies TableModelListeners that all data may have changed.
+	 */
+	public void refresh() {
+		_rows = copyRows();
+		fireTableDataChanged();
+	}
+	
+	/*
+	 * Returns a copy of the adaptee's rows, read with ShapeModel.read() if
+	 * the model is known.
+	 */
+	private Object[][] copyRows() {
+		final Shape adaptee = _adaptee;
+		ShapeReader<Object[][]> reader = new ShapeReader<Object[][]>() {
+			@Override
+			public Object[][] read(CarrierShape root) {
+				if(!(adaptee instanceof CarrierShape)) {
+					return new Object[][] {row(adaptee)};
+				}
+				CarrierShape nestingShape = (CarrierShape)adaptee;
+				Object[][] rows = new Object[nestingShape.shapeCount()][];
+				for(int i = 0; i < rows.length; i++) {
+					rows[i] = row(nestingShape.shapeAt(i));
+				}
+				return rows;
+			}
+		};
+		return _model == null ? reader.read(null) : _model.read(reader);
+	}
+	
+	/*
+	 * Returns the values of every column for targetShape.
+	 */
+	private static Object[] row(Shape targetShape) {
+		return new Object[] {
+				targetShape.toString(),  // Type
+				targetShape.x(),         // X-Pos
+				targetShape.y(),         // Y-Pos.
+				targetShape.deltaX(),    // X-delta.
+				targetShape.deltaY(),    // Y-delta.
+				targetShape.width(),     // Width.
+				targetShape.height(),    // Height.
+				targetShape.text()};     // Text.
 	}
 	
 	/**
@@ -128,7 +159,7 @@ public class TableModelAdapter extends AbstractTableModel implements ShapeModelL
 		 * notified that the data stored in this TableModelAdapter has changed.
 		 * A JTable component would respond by rebuilding its view of the model.
 		 */
-		fireTableDataChanged();
+		refresh();
 	}
 
 	/**
@@ -147,7 +178,8 @@ public class TableModelAdapter extends AbstractTableModel implements ShapeModelL
 			if(parent == _adaptee) {
 				// The new shapes's parent is represented by this TableModel,
 				// so the view will need to be updated to show the new shape.
-				fireTableRowsInserted(parent.shapeCount() - 1, parent.shapeCount() - 1);
+				_rows = copyRows();
+				fireTableRowsInserted(_rows.length - 1, _rows.length - 1);
 			}
 		} else if(eventType == ShapeModelEvent.EventType.ShapeRemoved) {
 			CarrierShape parent = event.parent();
@@ -155,11 +187,11 @@ public class TableModelAdapter extends AbstractTableModel implements ShapeModelL
 				// The removed shape's former parent is represented by this 
 				// TableModel. Notify the view so that it will no longer show
 				// removed shape.
-				fireTableDataChanged();
+				refresh();
 			} 
 		} else {
-			// Processing a ShapeMoved event.
-			fireTableDataChanged();
+			// Processing a ShapeMoved or ShapesChanged event.
+			refresh();
 		}
 	}
 	
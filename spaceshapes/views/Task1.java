@@ -18,7 +18,7 @@ import spaceshapes.ShapeModel;
  *
  */
 public class Task1 implements TreeModel {
-	private ShapeModel _model;
+	protected ShapeModel _model;
 	protected List<TreeModelListener> _listeners;
 	
 	/**
@@ -1,19 +1,105 @@
 package spaceshapes.views;
 
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 import javax.swing.event.TreeModelEvent;
 import javax.swing.event.TreeModelListener;
 import javax.swing.tree.TreePath;
 
+import spaceshapes.CarrierShape;
 import spaceshapes.Shape;
 import spaceshapes.ShapeModel;
 import spaceshapes.ShapeModelEvent;
 import spaceshapes.ShapeModelEvent.EventType;
 import spaceshapes.ShapeModelListener;
+import spaceshapes.ShapeReader;
 
+/**
+ * This class extends Task1 to forward ShapeModelEvents as TreeModel events.
+ * The children of each CarrierShape are copied, with ShapeModel.read(), the
+ * first time they are asked for and kept until an event reports that they
+ * changed, so that a JTree only ever sees changes it has been told about, 
+ * even if the model is changed on another thread before the event arrives.
+ */
 public class Task2 extends Task1 implements ShapeModelListener{
+	// Copies of the children of the CarrierShapes asked about so far.
+	private Map<CarrierShape, Shape[]> _children;
 	
 	public Task2(ShapeModel model) {
 		super(model);
+		_children = new IdentityHashMap<CarrierShape, Shape[]>();
+	}
+	
+	@Override
+	public Object getChild(Object parent, int index) {
+		if(parent instanceof CarrierShape) {
+			Shape[] children = children((CarrierShape) parent);
+			if(index >= 0 && index < children.length) {
+				return children[index];
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public int getChildCount(Object parent) {
+		if(parent instanceof CarrierShape) {
+			return children((CarrierShape) parent).length;
+		}
+		return 0;
+	}
+
+	@Override
+	public int getIndexOfChild(Object parent, Object child) {
+		if(parent instanceof CarrierShape && child instanceof Shape) {
+			Shape[] children = children((CarrierShape) parent);
+			for(int i = 0; i < children.length; i++) {
+				if(children[i] == child) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+	
+	/*
+	 * Returns the copy of carrier's children, copying them if there is none.
+	 */
+	private Shape[] children(final CarrierShape carrier) {
+		Shape[] children = _children.get(carrier);
+		if(children == null) {
+			children = _model.read(new ShapeReader<Shape[]>() {
+				@Override
+				public Shape[] read(CarrierShape root) {
+					Shape[] children = new Shape[carrier.shapeCount()];
+					for(int i = 0; i < children.length; i++) {
+						children[i] = carrier.shapeAt(i);
+					}
+					return children;
+				}
+			});
+			_children.put(carrier, children);
+		}
+		return children;
+	}
+
+	/*
+	 * Drops the copies held for shape and for every CarrierShape below it 
+	 * that has one, so that a detached subtree is not kept reachable.
+	 */
+	private void evict(Shape shape) {
+		ArrayDeque<Shape> pending = new ArrayDeque<Shape>();
+		pending.push(shape);
+		while(!pending.isEmpty()) {
+			Shape[] children = _children.remove(pending.pop());
+			if(children != null) {
+				for(Shape child : children) {
+					pending.push(child);
+				}
+			}
+		}
 	}
 
 	@Override
@@ -23,6 +109,18 @@ public class Task2 extends Task1 implements ShapeModelListener{
 		if(type == EventType.ShapeMoved) {
 			return;
 		}
+		//a batch of commands may have changed anything, so reload the tree
+		if(type == EventType.ShapesChanged) {
+			_children.clear();
+			TreeModelEvent treeModelEvent = new TreeModelEvent(event.operand(), 
+					new TreePath(event.operand()));
+			for(TreeModelListener listener: _listeners) {
+				listener.treeStructureChanged(treeModelEvent);
+			}
+			return;
+		}
+		_children.remove(event.parent());
+		evict(event.operand());
 		//getting parameters required to generate the tree model event
 		TreePath path = new TreePath(event.parent().path().toArray());
 		int[] childIndices = { event.index() };
@@ -12,6 +12,8 @@ import spaceshapes.CarrierShape;
 import spaceshapes.RectangleShape;
 import spaceshapes.Shape;
 import spaceshapes.ShapeModel;
+import spaceshapes.ShapeModelEvent;
+import spaceshapes.ShapeModelListener;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -184,4 +186,84 @@ public class TestTask2 {
 		_model.add( _newShape, _emptyNest );
 		assertTrue( _listenerMethodCalled );
 	}
+
+	/**
+	 * Checks that applying a batch of posted commands results in a single
+	 * treeStructureChanged() call for the whole tree.
+	 */	
+	@Test
+	public void test_commandsApplied() {
+		final int[] calls = {0};
+		_adapter.addTreeModelListener( new TreeModelListener() {
+
+			public void treeNodesChanged( TreeModelEvent e ) {
+				fail();
+			}
+
+			public void treeNodesInserted( TreeModelEvent e ) {
+				fail();
+			}
+
+			public void treeNodesRemoved( TreeModelEvent e ) {
+				fail();
+			}
+
+			public void treeStructureChanged( TreeModelEvent e ) {
+				calls[ 0 ]++;
+				Object[] path = e.getPath();
+				assertEquals( 1, path.length );
+				assertSame( _root, path[ 0 ] );
+			}
+		} );
+		
+		_model.postAdd( _newShape, _emptyNest );
+		_model.postRemove( _simpleShape );
+		assertEquals( 2, _model.applyCommands() );
+		assertEquals( 1, calls[ 0 ] );
+		assertSame( _emptyNest, _newShape.parent() );
+	}
+
+	/**
+	 * Checks that changes applied before their event has been delivered, 
+	 * e.g. by commands applied on another thread, are not seen until it is.
+	 */	
+	@Test
+	public void test_changesHiddenUntilEvent() {
+		final ShapeModelEvent[] pending = { null };
+		_model.removeShapeModelListener( _adapter );
+		_model.addShapeModelListener( new ShapeModelListener() {
+			public void update( ShapeModelEvent event ) {
+				pending[ 0 ] = event;
+			}
+		} );
+		assertEquals( 2, _adapter.getChildCount( _root ) );
+		
+		_model.postAdd( _newShape, _root );
+		_model.applyCommands();
+		assertEquals( 2, _adapter.getChildCount( _root ) );
+		assertEquals( -1, _adapter.getIndexOfChild( _root, _newShape ) );
+		
+		_adapter.update( pending[ 0 ] );
+		assertEquals( 3, _adapter.getChildCount( _root ) );
+		assertSame( _newShape, _adapter.getChild( _root, 2 ) );
+	}
+	
+	/**
+	 * Checks that removing a subtree drops the copies held for carriers 
+	 * nested in it, so that they are read afresh if it is added again.
+	 */
+	@Test
+	public void test_removedSubtreeEvicted() {
+		CarrierShape inner = new CarrierShape( 0, 0, 1, 1, 50, 50 );
+		_model.add( inner, _emptyNest );
+		assertEquals( 1, _adapter.getChildCount( _emptyNest ) );
+		assertEquals( 0, _adapter.getChildCount( inner ) );
+		
+		_model.remove( _emptyNest );
+		// Detached shapes fire no events.
+		inner.add( _newShape );
+		_model.add( _emptyNest, _root );
+		assertEquals( 1, _adapter.getChildCount( inner ) );
+		assertSame( _newShape, _adapter.getChild( inner, 0 ) );
+	}
 }
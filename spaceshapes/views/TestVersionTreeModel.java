@@ -0,0 +1,56 @@
+package spaceshapes.views;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Dimension;
+
+import javax.swing.tree.TreeModel;
+
+import org.junit.Test;
+
+import spaceshapes.CarrierShape;
+import spaceshapes.ModelHistory;
+import spaceshapes.RectangleShape;
+import spaceshapes.ShapeModel;
+import spaceshapes.ShapeVersion;
+
+/**
+ * Class to test the TreeModel implementation of class VersionTreeModel.
+ * 
+ * @author lchi184
+ * 
+ */
+public class TestVersionTreeModel {
+
+	/**
+	 * Checks that the adapter presents a recorded version, which the model 
+	 * changing afterwards does not affect.
+	 */
+	@Test
+	public void testAdaptsRecordedVersion() {
+		ShapeModel model = new ShapeModel(new Dimension(500, 500));
+		CarrierShape nest = new CarrierShape(0, 0, 2, 2, 100, 100);
+		model.add(nest, model.root());
+		model.add(new RectangleShape(), nest);
+		ModelHistory history = new ModelHistory(4);
+		TreeModel adapter = new VersionTreeModel(history.record(model.root()));
+		model.remove(nest);
+		
+		ShapeVersion root = (ShapeVersion) adapter.getRoot();
+		assertEquals(1, adapter.getChildCount(root));
+		ShapeVersion child = (ShapeVersion) adapter.getChild(root, 0);
+		assertFalse(adapter.isLeaf(child));
+		assertEquals(CarrierShape.class.getName(), child.toString());
+		assertEquals(0, adapter.getIndexOfChild(root, child));
+		Object leaf = adapter.getChild(child, 0);
+		assertTrue(adapter.isLeaf(leaf));
+		assertEquals(0, adapter.getChildCount(leaf));
+		assertSame(RectangleShape.class, ((ShapeVersion) leaf).shapeClass());
+		assertNull(adapter.getChild(root, 1));
+		assertEquals(-1, adapter.getIndexOfChild(child, root));
+	}
+}
@@ -0,0 +1,88 @@
+package spaceshapes.views;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreePath;
+
+import spaceshapes.ShapeVersion;
+
+/**
+ * This class acts as an adaptor for TreeModel over one recorded 
+ * ShapeVersion of a ShapeModel, e.g. from a ModelHistory. Versions never 
+ * change, so unlike Task1 it needs no locking and never fires events; to 
+ * show another version, create another VersionTreeModel.
+ * @author lchi184
+ *
+ */
+public class VersionTreeModel implements TreeModel {
+	private ShapeVersion _root;
+	protected List<TreeModelListener> _listeners;
+	
+	/**
+	 * Constructor that takes in the ShapeVersion to adapt into a TreeModel
+	 * @param root version of the root CarrierShape
+	 */
+	public VersionTreeModel(ShapeVersion root) {
+		_root = root;
+		_listeners = new ArrayList<TreeModelListener>();
+	}
+	
+	@Override
+	public Object getRoot() {
+		return _root;
+	}
+
+	@Override
+	public Object getChild(Object parent, int index) {
+		if(parent instanceof ShapeVersion) {
+			ShapeVersion version = (ShapeVersion) parent;
+			if(index >= 0 && index < version.childCount()) {
+				return version.childAt(index);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public int getChildCount(Object parent) {
+		if(parent instanceof ShapeVersion) {
+			return ((ShapeVersion) parent).childCount();
+		}
+		return 0;
+	}
+
+	@Override
+	public boolean isLeaf(Object node) {
+		//only versions of CarrierShapes cannot be leaves
+		if(node instanceof ShapeVersion) {
+			return !((ShapeVersion) node).isCarrier();
+		}
+		return true;
+	}
+
+	@Override
+	public void valueForPathChanged(TreePath path, Object newValue) {
+		// versions cannot be changed
+	}
+
+	@Override
+	public int getIndexOfChild(Object parent, Object child) {
+		if(parent instanceof ShapeVersion && child instanceof ShapeVersion) {
+			return ((ShapeVersion) parent).indexOf((ShapeVersion) child);
+		}
+		return -1;
+	}
+
+	@Override
+	public void addTreeModelListener(TreeModelListener listener) {
+		_listeners.add(listener);
+	}
+
+	@Override
+	public void removeTreeModelListener(TreeModelListener listener) {
+		_listeners.remove(listener);
+	}
+}